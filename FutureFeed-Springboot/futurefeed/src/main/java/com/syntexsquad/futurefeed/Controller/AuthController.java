@@ -3,9 +3,13 @@ package com.syntexsquad.futurefeed.Controller;
 import com.syntexsquad.futurefeed.dto.RegisterRequest;
 import com.syntexsquad.futurefeed.dto.UserProfileResponse;
 import com.syntexsquad.futurefeed.model.AppUser;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
+import com.syntexsquad.futurefeed.security.TokenService;
 import com.syntexsquad.futurefeed.service.AppUserService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.csrf.CsrfToken;
@@ -18,9 +22,14 @@ import java.util.Map;
 public class AuthController {
 
     private final AppUserService userService;
+    private final CurrentUserResolver currentUserResolver;
+    // present only with app.auth.mode=token
+    @Autowired(required = false)
+    private TokenService tokenService;
 
-    public AuthController(AppUserService userService) {
+    public AuthController(AppUserService userService, CurrentUserResolver currentUserResolver) {
         this.userService = userService;
+        this.currentUserResolver = currentUserResolver;
     }
 
     @PostMapping("/register")
@@ -49,6 +58,14 @@ public class AuthController {
         return ResponseEntity.ok(UserProfileResponse.fromUser(user));
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody Map<String, String> body) {
+        if (tokenService == null) return ResponseEntity.notFound().build();
+        return tokenService.refresh(body.get("refreshToken"))
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(401).body("Invalid refresh token"));
+    }
+
     @GetMapping("/csrf")
     public ResponseEntity<?> csrf(CsrfToken token) {
         return ResponseEntity.ok(Map.of(
@@ -59,17 +76,24 @@ public class AuthController {
     }
 
     @GetMapping("/me")
-    public ResponseEntity<?> oauth2Login(@org.springframework.security.core.annotation.AuthenticationPrincipal OAuth2User principal) {
-        if (principal == null) {
+    public ResponseEntity<?> oauth2Login(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
             return ResponseEntity.status(401).body("Not authenticated");
         }
 
-        String email = (String) principal.getAttribute("email");
-        if (email == null) {
-            return ResponseEntity.badRequest().body("Email not found in OAuth2 user attributes");
+        // an OAuth2 login may not have its user row yet; every other principal (session form login,
+        // bearer token) names an existing user and is resolved the same way the services resolve it
+        if (authentication.getPrincipal() instanceof OAuth2User principal) {
+            String email = (String) principal.getAttribute("email");
+            if (email == null) {
+                return ResponseEntity.badRequest().body("Email not found in OAuth2 user attributes");
+            }
+            return ResponseEntity.ok(userService.findOrCreateUserByEmail(email, principal.getAttributes()));
         }
 
-        AppUser user = userService.findOrCreateUserByEmail(email, principal.getAttributes());
-        return ResponseEntity.ok(user);
+        return currentUserResolver.currentUser()
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(401).body("Not authenticated"));
     }
 }
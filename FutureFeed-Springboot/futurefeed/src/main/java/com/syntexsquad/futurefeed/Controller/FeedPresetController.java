@@ -3,13 +3,15 @@ package com.syntexsquad.futurefeed.Controller;
 import com.syntexsquad.futurefeed.dto.FeedPresetDTO;
 import com.syntexsquad.futurefeed.dto.PostDTO;
 import com.syntexsquad.futurefeed.dto.PresetRuleDTO;
+import com.syntexsquad.futurefeed.feed.CursorPage;
+import com.syntexsquad.futurefeed.feed.FeedPage;
+import com.syntexsquad.futurefeed.feed.FeedSort;
 import com.syntexsquad.futurefeed.mapper.PostViewMapper;
 import com.syntexsquad.futurefeed.model.FeedPreset;
 import com.syntexsquad.futurefeed.model.PresetRule;
 import com.syntexsquad.futurefeed.model.Post;
 import com.syntexsquad.futurefeed.service.FeedPresetService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -49,10 +51,13 @@ public class FeedPresetController {
     }
 
     @GetMapping("/feed/{presetId}")
-    public ResponseEntity<?> generateFeed(@PathVariable Integer presetId) {
+    public ResponseEntity<?> generateFeed(@PathVariable Integer presetId,
+                                          @RequestParam(required = false) String sort) {
         try {
-            List<Post> feed = presetService.generateFeedForPreset(presetId);
+            List<Post> feed = presetService.generateFeedForPreset(presetId, FeedSort.parse(sort));
             return ResponseEntity.ok(feed);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error: " + e.getMessage());
@@ -63,41 +68,81 @@ public class FeedPresetController {
     public ResponseEntity<Map<String, Object>> generateFeedPaginated(
             @PathVariable Integer presetId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String snapshot
     ) {
         try {
-            Page<Post> pageObj = presetService.generateFeedForPreset(presetId, page, size);
-
-            List<PostDTO> content;
-            if (postViewMapper != null) {
-                content = postViewMapper.toDtoList(pageObj.getContent());
-            } else {
-                content = pageObj.getContent().stream().map(p -> {
-                    PostDTO dto = new PostDTO();
-                    dto.setId(p.getId());
-                    dto.setContent(p.getContent());
-                    dto.setImageUrl(p.getImageUrl());
-                    dto.setCreatedAt(p.getCreatedAt() == null ? null : p.getCreatedAt().toString());
-                    dto.setIsBot("BOT".equalsIgnoreCase(p.getPostType()));
-                    return dto;
-                }).toList();
-            }
+            FeedPage<Post> pageObj = presetService.snapshotFeedForPreset(presetId, snapshot, page, size, FeedSort.parse(sort));
 
             Map<String, Object> body = new LinkedHashMap<>();
-            body.put("content", content);
+            body.put("content", toDtos(pageObj.getContent()));
             body.put("page", pageObj.getNumber());
             body.put("size", pageObj.getSize());
             body.put("totalPages", pageObj.getTotalPages());
             body.put("totalElements", pageObj.getTotalElements());
             body.put("last", pageObj.isLast());
+            body.put("partial", pageObj.isPartial());
+            body.put("snapshotId", pageObj.getSnapshotId());
+
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Keyset scroll, newest first only: the cursor keeps per-rule positions as (createdAt, id)
+     * keys, and a hot score changes while a reader scrolls, so it cannot serve as one. Hot feeds
+     * page through {@code /paginated}, whose frozen snapshot keeps the ranking stable.
+     */
+    @GetMapping("/feed/{presetId}/scroll")
+    public ResponseEntity<Map<String, Object>> scrollFeed(
+            @PathVariable Integer presetId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String sort
+    ) {
+        try {
+            if (FeedSort.parse(sort) != FeedSort.NEW) {
+                throw new IllegalArgumentException("sort=" + sort + " is not supported by /scroll; use /paginated");
+            }
+            CursorPage<Post> slice = presetService.scrollFeedForPreset(presetId, cursor, size);
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("content", toDtos(slice.content()));
+            body.put("size", slice.content().size());
+            body.put("nextCursor", slice.nextCursor());
+            body.put("last", slice.nextCursor() == null);
+            body.put("partial", slice.partial());
 
             return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
     }
 
+    private List<PostDTO> toDtos(List<Post> posts) {
+        if (postViewMapper != null) {
+            return postViewMapper.toDtoList(posts);
+        }
+        return posts.stream().map(p -> {
+            PostDTO dto = new PostDTO();
+            dto.setId(p.getId());
+            dto.setContent(p.getContent());
+            dto.setImageUrl(p.getImageUrl());
+            dto.setCreatedAt(p.getCreatedAt() == null ? null : p.getCreatedAt().toString());
+            dto.setIsBot("BOT".equalsIgnoreCase(p.getPostType()));
+            return dto;
+        }).toList();
+    }
+
     @PostMapping("/auto-topic/paginated")
     public ResponseEntity<?> createPresetByTopicPaginated(
             @RequestParam String topic,
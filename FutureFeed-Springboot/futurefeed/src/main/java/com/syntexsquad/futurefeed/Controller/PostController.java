@@ -2,17 +2,27 @@ package com.syntexsquad.futurefeed.Controller;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syntexsquad.futurefeed.cache.ResponseCache;
 import com.syntexsquad.futurefeed.dto.PostDTO;
+import com.syntexsquad.futurefeed.dto.PostEngagementRequest;
 import com.syntexsquad.futurefeed.dto.PostRequest;
+import com.syntexsquad.futurefeed.dto.PostView;
+import com.syntexsquad.futurefeed.feed.CursorPage;
+import com.syntexsquad.futurefeed.feed.FeedPage;
+import com.syntexsquad.futurefeed.feed.FeedSort;
 import com.syntexsquad.futurefeed.mapper.PostViewMapper;
 import com.syntexsquad.futurefeed.moderation.ModerationClient;
 import com.syntexsquad.futurefeed.moderation.ModerationResult;
 import com.syntexsquad.futurefeed.model.AppUser;
 import com.syntexsquad.futurefeed.model.Post;
+import com.syntexsquad.futurefeed.search.PostSearchService;
+import com.syntexsquad.futurefeed.service.EngagementSummaryService;
 import com.syntexsquad.futurefeed.service.MediaService;
 import com.syntexsquad.futurefeed.service.PostService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.http.*;
@@ -38,6 +48,12 @@ public class PostController {
     private final ObjectMapper objectMapper;
     private final ModerationClient moderationClient; 
     private final PostViewMapper postViewMapper;
+    private final EngagementSummaryService engagementSummaryService;
+
+    @Autowired(required = false)
+    private ResponseCache responseCache;
+    @Autowired(required = false)
+    private PostSearchService postSearchService;
 
     @Value("${fastapi.base-url:http://localhost:8000}")
     private String fastapiBaseUrl;
@@ -49,12 +65,14 @@ public class PostController {
                           MediaService mediaService,
                           ObjectMapper objectMapper,
                           Optional<ModerationClient> moderationClient,
-                          PostViewMapper postViewMapper) {
+                          PostViewMapper postViewMapper,
+                          EngagementSummaryService engagementSummaryService) {
         this.postService = postService;
         this.mediaService = mediaService;
         this.objectMapper = objectMapper;
         this.moderationClient = moderationClient.orElse(null);
         this.postViewMapper = postViewMapper;
+        this.engagementSummaryService = engagementSummaryService;
     }
 
     private static final Pattern URL_RE = Pattern.compile("\\bhttps?://[^\\s)]+", Pattern.CASE_INSENSITIVE);
@@ -71,6 +89,35 @@ public class PostController {
         return s != null && !s.trim().isEmpty();
     }
 
+    /** Maps a list of posts, adding engagement stats when {@code include} names {@code stats}. */
+    private List<PostDTO> toDtos(List<Post> posts, String include) {
+        if (!includesStats(include)) return postViewMapper.toDtoList(posts);
+        return postViewMapper.toDtoListWithStats(posts, currentUserIdOrNull());
+    }
+
+    /** Same for cached snapshots, which are only ever copied into fresh DTOs. */
+    private List<PostDTO> fromViews(List<PostView> views, String include) {
+        if (!includesStats(include)) return postViewMapper.toDtos(views);
+        return postViewMapper.withStats(views, currentUserIdOrNull());
+    }
+
+    private static boolean includesStats(String include) {
+        if (include == null) return false;
+        for (String part : include.split(",")) {
+            if (part.trim().equalsIgnoreCase("stats")) return true;
+        }
+        return false;
+    }
+
+    private Integer currentUserIdOrNull() {
+        try {
+            AppUser user = postService.getCurrentAuthenticatedUser();
+            return user == null ? null : user.getId();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
     private static void tryDeleteQuietly(Path p) {
         if (p == null) return;
         try { Files.deleteIfExists(p); } catch (Exception ignored) {}
@@ -79,8 +126,7 @@ public class PostController {
     @GetMapping("/{id}")
     public ResponseEntity<?> getPostById(@PathVariable Integer id) {
         try {
-            Post post = postService.getPostById(id);
-            return ResponseEntity.ok(postViewMapper.toDto(post));
+            return ResponseEntity.ok(postViewMapper.toDto(postService.getPostViewById(id)));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "NotFound", "message", e.getMessage()));
@@ -88,55 +134,118 @@ public class PostController {
     }
 
     @GetMapping
-    public ResponseEntity<List<PostDTO>> getAllPosts() {
-        return ResponseEntity.ok(postViewMapper.toDtoList(postService.getAllPosts()));
+    public ResponseEntity<List<PostDTO>> getAllPosts(@RequestParam(required = false) String include) {
+        return ResponseEntity.ok(fromViews(postService.getAllPostViews(), include));
     }
 
     @GetMapping("/paginated")
-    public ResponseEntity<Map<String, Object>> getPaginatedPosts(
+    public ResponseEntity<?> getPaginatedPosts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        Page<Post> pageObj = postService.getPaginatedPosts(page, size);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String snapshot,
+            @RequestParam(required = false) String include,
+            HttpServletRequest request) {
+        FeedSort order;
+        try {
+            order = FeedSort.parse(sort);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        // with include=stats the page carries the viewer's own flags, so only the plain page is shared;
+        // a first page without a snapshot mints one per cache fill, and every reader of that
+        // generation pages through the same frozen ranking (snapshots hold no per-reader state)
+        if (responseCache != null && !includesStats(include)) {
+            return responseCache.respond(request, List.of("posts", "users"),
+                    "paginated:" + page + ":" + size + ":" + order + ":" + snapshot,
+                    () -> paginatedBody(page, size, order, snapshot, include));
+        }
+        return ResponseEntity.ok(paginatedBody(page, size, order, snapshot, include));
+    }
+
+    private Map<String, Object> paginatedBody(int page, int size, FeedSort order, String snapshot, String include) {
+        FeedPage<Post> pageObj = postService.getPaginatedPosts(page, size, order, snapshot);
         Map<String, Object> body = new LinkedHashMap<>();
-        body.put("content", postViewMapper.toDtoList(pageObj.getContent()));
+        body.put("content", toDtos(pageObj.getContent(), include));
         body.put("page", pageObj.getNumber());
         body.put("size", pageObj.getSize());
         body.put("totalPages", pageObj.getTotalPages());
         body.put("totalElements", pageObj.getTotalElements());
         body.put("last", pageObj.isLast());
-        return ResponseEntity.ok(body);
+        body.put("snapshotId", pageObj.getSnapshotId());
+        return body;
     }
 
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<PostDTO>> getPostsByUser(@PathVariable Integer userId) {
-        return ResponseEntity.ok(postViewMapper.toDtoList(postService.getPostsByUserId(userId)));
+    public ResponseEntity<List<PostDTO>> getPostsByUser(@PathVariable Integer userId,
+                                                        @RequestParam(required = false) String include) {
+        return ResponseEntity.ok(fromViews(postService.getPostViewsByUserId(userId), include));
     }
 
     @GetMapping(params = "userId")
-    public ResponseEntity<List<PostDTO>> getPostsByUserParam(@RequestParam Integer userId) {
-        return ResponseEntity.ok(postViewMapper.toDtoList(postService.getPostsByUserId(userId)));
+    public ResponseEntity<List<PostDTO>> getPostsByUserParam(@RequestParam Integer userId,
+                                                             @RequestParam(required = false) String include) {
+        return ResponseEntity.ok(fromViews(postService.getPostViewsByUserId(userId), include));
     }
 
     @GetMapping("/liked/{userId}")
-    public ResponseEntity<List<PostDTO>> getLikedPosts(@PathVariable Integer userId) {
-        return ResponseEntity.ok(postViewMapper.toDtoList(postService.getLikedPostsByUserId(userId)));
+    public ResponseEntity<List<PostDTO>> getLikedPosts(@PathVariable Integer userId,
+                                                       @RequestParam(required = false) String include) {
+        return ResponseEntity.ok(fromViews(postService.getLikedPostViews(userId), include));
     }
 
     @GetMapping("/commented/{userId}")
-    public ResponseEntity<List<PostDTO>> getPostsCommentedByUser(@PathVariable Integer userId) {
-        return ResponseEntity.ok(postViewMapper.toDtoList(postService.getPostsCommentedByUser(userId)));
+    public ResponseEntity<List<PostDTO>> getPostsCommentedByUser(@PathVariable Integer userId,
+                                                                 @RequestParam(required = false) String include) {
+        return ResponseEntity.ok(fromViews(postService.getCommentedPostViews(userId), include));
+    }
+
+    /** Ranked full-text search, paged by cursor; {@code ?keyword=} below stays for older clients. */
+    @GetMapping(value = "/search", params = "q")
+    public ResponseEntity<?> searchPostsRanked(@RequestParam("q") String q,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "20") int size,
+                                               @RequestParam(required = false) String include) {
+        if (postSearchService == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "SearchError", "message", "Search is not available"));
+        }
+        try {
+            CursorPage<Post> page = postSearchService.search(q, cursor, size);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("content", toDtos(page.content(), include));
+            body.put("size", page.content().size());
+            body.put("nextCursor", page.nextCursor());
+            body.put("last", page.nextCursor() == null);
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest().body(Map.of("error", "BadRequest", "message", ex.getMessage()));
+        }
     }
 
     @GetMapping("/search")
-    public ResponseEntity<?> searchPosts(@RequestParam("keyword") String keyword) {
+    public ResponseEntity<?> searchPosts(@RequestParam("keyword") String keyword,
+                                         @RequestParam(required = false) String include) {
         try {
-            return ResponseEntity.ok(postViewMapper.toDtoList(postService.searchPosts(keyword)));
+            return ResponseEntity.ok(fromViews(postService.searchPostViews(keyword), include));
         } catch (RuntimeException ex) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "SearchError", "message", ex.getMessage()));
         }
     }
 
+    /** Counts and the current user's flags for a page of posts, replacing six per-post calls. */
+    @PostMapping(value = "/engagement", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getEngagement(@RequestBody PostEngagementRequest request) {
+        try {
+            AppUser viewer = postService.getCurrentAuthenticatedUser();
+            return ResponseEntity.ok(engagementSummaryService.summarize(
+                    request.getPostIds(), viewer == null ? null : viewer.getId()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "BadRequest", "message", e.getMessage()));
+        }
+    }
+
     @DeleteMapping("/del/{id}")
     public ResponseEntity<?> deletePost(@PathVariable Integer id) {
         try {
@@ -179,7 +288,8 @@ public class PostController {
     @GetMapping("/following")
     public ResponseEntity<Map<String, Object>> getFollowingPosts(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String include) {
 
         try {
             AppUser currentUser = postService.getCurrentAuthenticatedUser();
@@ -188,21 +298,9 @@ public class PostController {
                         .body(Map.of("error", "Unauthorized", "message", "No active session"));
             }
 
-            List<Integer> followedIds = postService.getFollowedUserIds(currentUser.getId());
-            if (followedIds.isEmpty()) {
-                return ResponseEntity.ok(Map.of(
-                        "content", List.of(),
-                        "page", page,
-                        "size", size,
-                        "totalPages", 0,
-                        "totalElements", 0,
-                        "last", true
-                ));
-            }
-
-            Page<Post> pageObj = postService.getFollowingPosts(followedIds, page, size);
+            Page<Post> pageObj = postService.getFollowingFeed(currentUser.getId(), page, size);
             Map<String, Object> body = new LinkedHashMap<>();
-            body.put("content", postViewMapper.toDtoList(pageObj.getContent()));
+            body.put("content", toDtos(pageObj.getContent(), include));
             body.put("page", pageObj.getNumber());
             body.put("size", pageObj.getSize());
             body.put("totalPages", pageObj.getTotalPages());
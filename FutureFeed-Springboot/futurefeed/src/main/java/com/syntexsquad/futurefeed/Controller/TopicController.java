@@ -1,5 +1,6 @@
 package com.syntexsquad.futurefeed.Controller;
 
+import com.syntexsquad.futurefeed.cache.ResponseCache;
 import com.syntexsquad.futurefeed.dto.PostTopicDTO;
 import com.syntexsquad.futurefeed.dto.TopicDTO;
 import com.syntexsquad.futurefeed.model.Post;
@@ -7,6 +8,7 @@ import com.syntexsquad.futurefeed.model.Topic;
 import org.springframework.data.domain.Page;
 import com.syntexsquad.futurefeed.service.TopicService;
 import com.syntexsquad.futurefeed.mapper.PostViewMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +26,9 @@ public class TopicController {
     @Autowired
     private PostViewMapper postViewMapper;
 
+    @Autowired(required = false)
+    private ResponseCache responseCache;
+
     public TopicController(TopicService topicService) {
         this.topicService = topicService;
     }
@@ -55,10 +60,13 @@ public class TopicController {
     }
 
     @GetMapping("/trending")
-    public List<Topic> getTrendingTopics(
+    public ResponseEntity<?> getTrendingTopics(
             @RequestParam(defaultValue = "5") int limit,
-            @RequestParam(defaultValue = "168") int hoursBack) {
-        return topicService.getTrendingTopics(limit, hoursBack);
+            @RequestParam(defaultValue = "168") int hoursBack,
+            HttpServletRequest request) {
+        if (responseCache == null) return ResponseEntity.ok(topicService.getTrendingTopics(limit, hoursBack));
+        return responseCache.respond(request, List.of("topics", "posts"), "trending:" + limit + ":" + hoursBack,
+                () -> topicService.getTrendingTopics(limit, hoursBack));
     }
 
     @GetMapping("/{topicId}/posts")
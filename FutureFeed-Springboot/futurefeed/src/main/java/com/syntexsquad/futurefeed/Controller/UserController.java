@@ -1,6 +1,6 @@
 package com.syntexsquad.futurefeed.Controller;
 
-import com.syntexsquad.futurefeed.dto.FollowedUserDto;
+import com.syntexsquad.futurefeed.cache.ResponseCache;
 import com.syntexsquad.futurefeed.dto.UserProfileResponse;
 import com.syntexsquad.futurefeed.dto.UserUpdateRequest;
 import com.syntexsquad.futurefeed.model.AppUser;
@@ -13,6 +13,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.util.stream.Collectors;
 import java.util.List;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -26,6 +27,9 @@ public class UserController {
     private final AppUserService userService;
     private final FollowService followService;
 
+    @Autowired(required = false)
+    private ResponseCache responseCache;
+
 
     public UserController(AppUserService userService, FollowService followService ) {
         this.userService = userService;
@@ -37,8 +41,10 @@ public class UserController {
         return (authentication != null) ? authentication.getName() : null;
     }
     @GetMapping("/top-followed")
-    public ResponseEntity<List<FollowedUserDto>> getTopFollowedUsers() {
-        return ResponseEntity.ok(followService.getTopFollowedUsers(3));
+    public ResponseEntity<?> getTopFollowedUsers(HttpServletRequest request) {
+        if (responseCache == null) return ResponseEntity.ok(followService.getTopFollowedUsers(3));
+        return responseCache.respond(request, List.of("follows", "users"), "top-followed:3",
+                () -> followService.getTopFollowedUsers(3));
     }
     @GetMapping("/myInfo")
     public ResponseEntity<?> getCurrentUser(Authentication authentication) {
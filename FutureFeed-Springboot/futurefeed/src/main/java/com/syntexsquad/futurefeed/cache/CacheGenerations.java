@@ -0,0 +1,75 @@
+package com.syntexsquad.futurefeed.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generation numbers for list caches whose entries any write can touch ("every post", "search
+ * results for x"). Their keys embed the current generation of a namespace, e.g.
+ * {@code key = "@cacheGenerations.key('posts', #keyword)"}; a write calls {@link #bump} instead of
+ * clearing the cache, so every list is recomputed on its next read while unrelated caches keep
+ * their entries and the superseded lists simply age out under the cache's size and expiry bounds.
+ *
+ * <p>The numbers live in the {@code cacheGenerations} cache and a bump is written through to the
+ * other nodes, which drop their number. A node that finds no number (first use, or its copy was
+ * invalidated) starts from a fresh one rather than an old one, which could revive superseded
+ * entries.
+ *
+ * <p>Inside a transaction the bump waits for the commit: a list filled before then would read the
+ * old rows and cache them under the new generation, where no later bump would retire them.
+ */
+@Component("cacheGenerations")
+public class CacheGenerations {
+
+    static final String CACHE = "cacheGenerations";
+
+    private final CacheManager cacheManager;
+    private final AtomicLong fresh = new AtomicLong(System.currentTimeMillis());
+
+    public CacheGenerations(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public long current(String namespace) {
+        Cache cache = cacheManager.getCache(CACHE);
+        if (cache == null) return 0;
+        Long generation = cache.get(namespace, () -> fresh.incrementAndGet());
+        return generation == null ? 0 : generation;
+    }
+
+    /** Key under the namespace's current generation. */
+    public String key(String namespace, Object... parts) {
+        String key = namespace + "@" + current(namespace);
+        return parts.length == 0 ? key : key + ":" + Arrays.deepToString(parts);
+    }
+
+    /** Starts a new generation: lists cached under the old one are not read again. */
+    public void bump(String namespace) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advance(namespace);
+                }
+            });
+        } else {
+            advance(namespace);
+        }
+    }
+
+    private void advance(String namespace) {
+        Cache cache = cacheManager.getCache(CACHE);
+        if (cache == null) return;
+        long current = current(namespace);
+        // keep fresh numbers above every number handed out, or a dropped one could come back
+        long next = fresh.updateAndGet(f -> Math.max(f, current) + 1);
+        if (cache instanceof NearCache near) near.write(namespace, next);
+        else cache.put(namespace, next);
+    }
+}
@@ -0,0 +1,74 @@
+package com.syntexsquad.futurefeed.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One eviction broadcast between nodes. A {@code null} key drops the whole cache and a
+ * {@code null} cache name drops every cache. Keys travel as text, so only {@code Integer},
+ * {@code Long} and {@code String} keys are evicted one by one; any other key widens to the cache.
+ * Several travel in one message as length-prefixed entries, see {@link #encodeAll}.
+ */
+public record CacheInvalidation(String origin, String cacheName, Object key) {
+
+    private static final String ALL = "*";
+
+    public static CacheInvalidation everything(String origin) {
+        return new CacheInvalidation(origin, null, null);
+    }
+
+    public String encode() {
+        return origin + "\n" + (cacheName == null ? "" : cacheName) + "\n" + encodeKey(key);
+    }
+
+    /** {@code <length>:<encoded>} per invalidation, back to back. */
+    public static String encodeAll(List<CacheInvalidation> batch) {
+        StringBuilder out = new StringBuilder();
+        for (CacheInvalidation invalidation : batch) {
+            String encoded = invalidation.encode();
+            out.append(encoded.length()).append(':').append(encoded);
+        }
+        return out.toString();
+    }
+
+    /** Reads {@link #encodeAll} output, or a single {@link #encode} payload. */
+    public static List<CacheInvalidation> decodeAll(String payload) {
+        List<CacheInvalidation> out = new ArrayList<>();
+        int pos = 0;
+        while (pos < payload.length()) {
+            int colon = pos;
+            while (colon < payload.length() && Character.isDigit(payload.charAt(colon))) colon++;
+            // an origin never starts with digits followed by ':', so this is a single payload
+            if (colon == pos || colon >= payload.length() || payload.charAt(colon) != ':') {
+                if (pos == 0) return List.of(decode(payload));
+                throw new IllegalArgumentException("Malformed cache invalidation batch: " + payload);
+            }
+            int end = colon + 1 + Integer.parseInt(payload.substring(pos, colon));
+            if (end > payload.length()) throw new IllegalArgumentException("Malformed cache invalidation batch: " + payload);
+            out.add(decode(payload.substring(colon + 1, end)));
+            pos = end;
+        }
+        return out;
+    }
+
+    public static CacheInvalidation decode(String payload) {
+        String[] parts = payload.split("\n", 3);
+        if (parts.length < 3) throw new IllegalArgumentException("Malformed cache invalidation: " + payload);
+        String cacheName = parts[1].isEmpty() ? null : parts[1];
+        return new CacheInvalidation(parts[0], cacheName, decodeKey(parts[2]));
+    }
+
+    private static String encodeKey(Object key) {
+        if (key instanceof Integer i) return "i:" + i;
+        if (key instanceof Long l) return "l:" + l;
+        if (key instanceof String s) return "s:" + s;
+        return ALL;
+    }
+
+    private static Object decodeKey(String code) {
+        if (code.startsWith("i:")) return Integer.valueOf(code.substring(2));
+        if (code.startsWith("l:")) return Long.valueOf(code.substring(2));
+        if (code.startsWith("s:")) return code.substring(2);
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.syntexsquad.futurefeed.cache;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/** Carries cache evictions between the nodes that share a cache. */
+public interface CacheInvalidationBus {
+
+    void publish(CacheInvalidation invalidation);
+
+    /** Publishes several invalidations, as one message where the transport allows. */
+    default void publishAll(List<CacheInvalidation> batch) {
+        batch.forEach(this::publish);
+    }
+
+    /** Registers a receiver for every published invalidation, including this node's own. */
+    void subscribe(Consumer<CacheInvalidation> receiver);
+}
@@ -0,0 +1,24 @@
+package com.syntexsquad.futurefeed.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process bus. Enough for a single node, and in tests several cache managers sharing one
+ * instance stand in for nodes talking over a real broker.
+ */
+public class LocalInvalidationBus implements CacheInvalidationBus {
+
+    private final List<Consumer<CacheInvalidation>> receivers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        for (Consumer<CacheInvalidation> receiver : receivers) receiver.accept(invalidation);
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidation> receiver) {
+        receivers.add(receiver);
+    }
+}
@@ -0,0 +1,126 @@
+package com.syntexsquad.futurefeed.cache;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+/**
+ * This node's copy of a cache. Evictions and clears are broadcast, so other nodes drop their copy
+ * and reload from the source. A {@code put} is only a fill (a read-through of what the source
+ * already holds) and stays local; writes that replace a value other nodes may hold go through
+ * {@link #writes()}, which {@link NearCacheResolver} hands to {@code @CachePut}. Misses of
+ * {@code @Cacheable(sync = true)} methods load through a {@link SingleFlight}, one load per key.
+ */
+public class NearCache implements Cache {
+
+    private final Cache local;
+    private final Consumer<CacheInvalidation> broadcaster;
+    private final String origin;
+    private final SingleFlight loads;
+    private final boolean broadcastsPuts;
+
+    public NearCache(Cache local, String origin, Consumer<CacheInvalidation> broadcaster, SingleFlight loads) {
+        this(local, origin, broadcaster, loads, false);
+    }
+
+    private NearCache(Cache local, String origin, Consumer<CacheInvalidation> broadcaster, SingleFlight loads,
+                      boolean broadcastsPuts) {
+        this.local = local;
+        this.origin = origin;
+        this.broadcaster = broadcaster;
+        this.loads = loads;
+        this.broadcastsPuts = broadcastsPuts;
+    }
+
+    public SingleFlight getLoads() {
+        return loads;
+    }
+
+    public Cache getLocal() {
+        return local;
+    }
+
+    /** The same cache, except that {@code put} also invalidates the key on the other nodes. */
+    public NearCache writes() {
+        return broadcastsPuts ? this : new NearCache(local, origin, broadcaster, loads, true);
+    }
+
+    @Override
+    public String getName() {
+        return local.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return local.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return local.get(key, type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper hit = get(key);
+        if (hit != null) return (T) hit.get();
+        try {
+            return loads.load(key, () -> {
+                // a load that finished just before this one joined has already filled the cache
+                ValueWrapper filled = get(key);
+                if (filled != null) return (T) filled.get();
+                T loaded = valueLoader.call();
+                local.put(key, loaded);
+                return loaded;
+            });
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (broadcastsPuts) write(key, value);
+        else local.put(key, value);
+    }
+
+    /** Replaces the value here and drops it on the other nodes, whatever {@code put} does. */
+    public void write(Object key, Object value) {
+        local.put(key, value);
+        broadcast(key);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return local.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        local.evict(key);
+        broadcast(key);
+    }
+
+    @Override
+    public void clear() {
+        local.clear();
+        broadcast(null);
+    }
+
+    /** Applies another node's eviction to this node's copy only. */
+    void onRemoteInvalidation(Object key) {
+        if (key == null) local.clear();
+        else local.evict(key);
+    }
+
+    private void broadcast(Object key) {
+        broadcaster.accept(new CacheInvalidation(origin, getName(), key));
+    }
+}
@@ -0,0 +1,145 @@
+package com.syntexsquad.futurefeed.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wraps each of this node's local caches in a {@link NearCache} that publishes its evictions on
+ * {@code bus}, and applies evictions published by other nodes to the local caches. Messages
+ * carrying this node's own id are skipped; it has already applied them.
+ *
+ * <p>Inside a transaction the evictions wait for the commit, since a node that re-read before it
+ * would cache the old rows, and then go out as one batch.
+ */
+public class NearCacheManager implements CacheManager {
+
+    private final CacheManager local;
+    private final CacheInvalidationBus bus;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, NearCache> caches = new ConcurrentHashMap<>();
+
+    private Duration loadTimeout = Duration.ofSeconds(5);
+    private MeterRegistry meterRegistry;
+
+    public NearCacheManager(CacheManager local, CacheInvalidationBus bus) {
+        this.local = local;
+        this.bus = bus;
+        bus.subscribe(this::onInvalidation);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /** How long a caller waits for another caller's load of the same key before loading itself. */
+    public void setLoadTimeout(Duration loadTimeout) {
+        this.loadTimeout = loadTimeout;
+    }
+
+    /** Registry for the caches' single-flight metrics; caches created before this is set go unmetered. */
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        NearCache cache = caches.get(name);
+        if (cache != null) return cache;
+        Cache near = local.getCache(name);
+        if (near == null) return null;
+        return caches.computeIfAbsent(name, n -> {
+            SingleFlight loads = new SingleFlight(n, loadTimeout);
+            if (meterRegistry != null) loads.bindTo(meterRegistry);
+            return new NearCache(near, nodeId, this::broadcast, loads);
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(local.getCacheNames());
+        names.addAll(caches.keySet());
+        return Collections.unmodifiableSet(names);
+    }
+
+    private void broadcast(CacheInvalidation invalidation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bus.publishAll(List.of(invalidation));
+            return;
+        }
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+            if (s instanceof Batch batch && batch.owner() == this) {
+                batch.add(invalidation);
+                return;
+            }
+        }
+        Batch batch = new Batch(this);
+        batch.add(invalidation);
+        TransactionSynchronizationManager.registerSynchronization(batch);
+    }
+
+    /**
+     * One transaction's evictions. Sent from {@code afterCompletion}, which also runs for a batch
+     * registered by another synchronization's {@code afterCommit}; evictions arriving once it has
+     * been sent go out on their own.
+     */
+    private static final class Batch implements TransactionSynchronization {
+        private final NearCacheManager owner;
+        private final List<CacheInvalidation> pending = new ArrayList<>();
+        private boolean sent;
+
+        Batch(NearCacheManager owner) {
+            this.owner = owner;
+        }
+
+        NearCacheManager owner() {
+            return owner;
+        }
+
+        void add(CacheInvalidation invalidation) {
+            if (sent) owner.bus.publishAll(List.of(invalidation));
+            else pending.add(invalidation);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            sent = true;
+            if (status == STATUS_COMMITTED && !pending.isEmpty()) owner.bus.publishAll(List.copyOf(pending));
+        }
+    }
+
+    private void onInvalidation(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.origin())) return;
+        if (invalidation.cacheName() == null) {
+            for (String name : local.getCacheNames()) {
+                Cache near = local.getCache(name);
+                if (near != null) near.clear();
+            }
+            return;
+        }
+        NearCache cache = caches.get(invalidation.cacheName());
+        if (cache != null) {
+            cache.onRemoteInvalidation(invalidation.key());
+        } else {
+            // not used on this node through its wrapper yet, but the local cache may still hold it
+            Cache near = local.getCache(invalidation.cacheName());
+            if (near != null) {
+                if (invalidation.key() == null) near.clear();
+                else near.evict(invalidation.key());
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.syntexsquad.futurefeed.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CachePutOperation;
+import org.springframework.cache.interceptor.SimpleCacheResolver;
+
+import java.util.Collection;
+
+/**
+ * Resolves caches as usual, but gives {@code @CachePut} the {@link NearCache#writes() writing}
+ * view so its puts reach the other nodes; {@code @Cacheable} fills stay on this node.
+ */
+public class NearCacheResolver extends SimpleCacheResolver {
+
+    public NearCacheResolver(CacheManager cacheManager) {
+        super(cacheManager);
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        Collection<? extends Cache> caches = super.resolveCaches(context);
+        if (!(context.getOperation() instanceof CachePutOperation)) return caches;
+        return caches.stream().map(cache -> cache instanceof NearCache near ? near.writes() : cache).toList();
+    }
+}
@@ -0,0 +1,204 @@
+package com.syntexsquad.futurefeed.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Pub/sub over PostgreSQL {@code LISTEN} / {@code NOTIFY}, so every API node sharing the database
+ * hears every other node's evictions without another broker. One daemon thread holds a listening
+ * connection and reconnects after failures; since notifications sent while it was away are lost,
+ * each reconnect tells the receivers to drop everything.
+ *
+ * <p>Both the listening and the publishing connection are opened straight from the driver, outside
+ * the application's pool: the listener would otherwise hold a pooled connection for good, and a
+ * publish runs after a commit while the committing request may still hold its own. A batch (one
+ * transaction's evictions) goes out as a single {@code NOTIFY}, split only where it would exceed
+ * the payload limit.
+ *
+ * <p>On any other database (H2 in tests) it delivers in-process only, like {@link LocalInvalidationBus}.
+ */
+public class PostgresInvalidationBus implements CacheInvalidationBus, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresInvalidationBus.class);
+    private static final int POLL_MS = 500;
+    // NOTIFY payloads must stay under 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String channel;
+    private final boolean postgres;
+    private final List<Consumer<CacheInvalidation>> receivers = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = true;
+    private Thread listener;
+    private Connection publisher; // guarded by this
+
+    public PostgresInvalidationBus(String url, String username, String password, String channel) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid notification channel: " + channel);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.channel = channel;
+        this.postgres = url != null && url.startsWith("jdbc:postgresql:");
+        if (!postgres) log.info("[cache] database is not PostgreSQL; cache invalidations stay on this node");
+    }
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+        publishAll(List.of(invalidation));
+    }
+
+    @Override
+    public void publishAll(List<CacheInvalidation> batch) {
+        if (batch.isEmpty()) return;
+        if (!postgres) {
+            batch.forEach(this::deliver);
+            return;
+        }
+        for (String payload : payloads(batch)) {
+            try {
+                notify(payload);
+            } catch (SQLException e) {
+                // the other nodes fall back on their entries' expiry
+                log.warn("[cache] could not broadcast {} invalidations: {}", batch.size(), e.toString());
+                batch.forEach(this::deliver);
+                return;
+            }
+        }
+    }
+
+    /** The batch cut into payloads under the limit; an entry too large on its own widens to its cache. */
+    public static List<String> payloads(List<CacheInvalidation> batch) {
+        List<String> out = new ArrayList<>();
+        List<CacheInvalidation> chunk = new ArrayList<>();
+        int chunkBytes = 0;
+        for (CacheInvalidation invalidation : batch) {
+            int bytes = bytes(CacheInvalidation.encodeAll(List.of(invalidation)));
+            if (bytes > MAX_PAYLOAD_BYTES) {
+                invalidation = new CacheInvalidation(invalidation.origin(), invalidation.cacheName(), null);
+                bytes = bytes(CacheInvalidation.encodeAll(List.of(invalidation)));
+            }
+            if (!chunk.isEmpty() && chunkBytes + bytes > MAX_PAYLOAD_BYTES) {
+                out.add(CacheInvalidation.encodeAll(chunk));
+                chunk = new ArrayList<>();
+                chunkBytes = 0;
+            }
+            chunk.add(invalidation);
+            chunkBytes += bytes;
+        }
+        if (!chunk.isEmpty()) out.add(CacheInvalidation.encodeAll(chunk));
+        return out;
+    }
+
+    private static int bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private synchronized void notify(String payload) throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (publisher == null || publisher.isClosed()) publisher = open();
+                try (PreparedStatement ps = publisher.prepareStatement("SELECT pg_notify(?, ?)")) {
+                    ps.setString(1, channel);
+                    ps.setString(2, payload);
+                    ps.execute();
+                    return;
+                }
+            } catch (SQLException e) {
+                closePublisher();
+                // the kept connection may have gone stale since the last publish; one fresh try
+                if (attempt > 0) throw e;
+            }
+        }
+    }
+
+    private synchronized void closePublisher() {
+        if (publisher == null) return;
+        try {
+            publisher.close();
+        } catch (SQLException ignored) {
+        }
+        publisher = null;
+    }
+
+    private Connection open() throws SQLException {
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    @Override
+    public synchronized void subscribe(Consumer<CacheInvalidation> receiver) {
+        receivers.add(receiver);
+        if (listener == null && postgres) {
+            listener = new Thread(this::listen, "cache-invalidation-listener");
+            listener.setDaemon(true);
+            listener.start();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (listener != null) listener.interrupt();
+        closePublisher();
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection c = open()) {
+                try (Statement s = c.createStatement()) {
+                    s.execute("LISTEN " + channel);
+                }
+                if (reconnect) deliver(CacheInvalidation.everything(null));
+                reconnect = true;
+
+                // the driver is a runtime dependency, so its notification API is reached reflectively
+                Class<?> pgConnection = Class.forName("org.postgresql.PGConnection");
+                Method getNotifications = pgConnection.getMethod("getNotifications", int.class);
+                Method getParameter = Class.forName("org.postgresql.PGNotification").getMethod("getParameter");
+                Object pg = c.unwrap(pgConnection);
+                while (running) {
+                    Object[] batch = (Object[]) getNotifications.invoke(pg, POLL_MS);
+                    if (batch == null) continue;
+                    for (Object n : batch) {
+                        CacheInvalidation.decodeAll((String) getParameter.invoke(n)).forEach(this::deliver);
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) return;
+                log.warn("[cache] invalidation listener lost its connection: {}", e.toString());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(CacheInvalidation invalidation) {
+        for (Consumer<CacheInvalidation> receiver : receivers) {
+            try {
+                receiver.accept(invalidation);
+            } catch (RuntimeException e) {
+                log.warn("[cache] invalidation receiver failed: {}", e.toString());
+            }
+        }
+    }
+}
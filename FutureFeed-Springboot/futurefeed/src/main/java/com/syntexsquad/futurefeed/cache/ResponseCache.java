@@ -0,0 +1,148 @@
+package com.syntexsquad.futurefeed.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON bodies of hot read endpoints, kept in the {@code responses} cache together with
+ * a gzip copy and a strong ETag, so a repeat request costs neither a query nor a Jackson pass and
+ * a polling client that sends {@code If-None-Match} gets an empty 304. The gzip copy is a different
+ * representation and is tagged {@code "<tag>-gz"}, so caches never mix the two up.
+ *
+ * <p>Entries are keyed under the {@link CacheGenerations} of the data they were built from, so the
+ * same writes that start a new generation for the service caches ({@code posts}, {@code users},
+ * {@code topics}, {@code follows}) retire the stored responses; the cache's expiry covers what no
+ * write signals, such as hot scores drifting.
+ */
+@Component
+public class ResponseCache {
+
+    static final String CACHE = "responses";
+
+    /** One stored response; {@code gzipped} is {@code null} for bodies too small to be worth it. */
+    record Entry(byte[] body, byte[] gzipped, String etag) implements Serializable {}
+
+    private final CacheManager cacheManager;
+    private final CacheGenerations generations;
+    private final ObjectMapper objectMapper;
+    private final int gzipMinBytes;
+
+    public ResponseCache(CacheManager cacheManager,
+                         CacheGenerations generations,
+                         ObjectMapper objectMapper,
+                         @Value("${app.response-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.cacheManager = cacheManager;
+        this.generations = generations;
+        this.objectMapper = objectMapper;
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    /**
+     * The response for {@code key}, built with {@code body} and stored on a miss.
+     *
+     * @param dependsOn generation namespaces whose writes make the response stale
+     */
+    public ResponseEntity<byte[]> respond(HttpServletRequest request, List<String> dependsOn,
+                                          String key, Supplier<?> body) {
+        Entry entry = lookup(versionedKey(dependsOn, key), body);
+        boolean gzip = entry.gzipped() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? gzipEtag(entry.etag()) : entry.etag();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return new ResponseEntity<>(gzip ? entry.gzipped() : entry.body(), headers, HttpStatus.OK);
+    }
+
+    private String versionedKey(List<String> dependsOn, String key) {
+        StringBuilder sb = new StringBuilder();
+        for (String namespace : dependsOn) sb.append(generations.key(namespace)).append('|');
+        return sb.append(key).toString();
+    }
+
+    private Entry lookup(String key, Supplier<?> body) {
+        Cache cache = cacheManager.getCache(CACHE);
+        if (cache == null) return serialize(body.get());
+        return cache.get(key, () -> serialize(body.get()));
+    }
+
+    Entry serialize(Object value) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize cached response", e);
+        }
+        byte[] gzipped = json.length >= gzipMinBytes ? gzip(json) : null;
+        return new Entry(json, gzipped, etag(json));
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String c = candidate.trim();
+            if (c.equals("*") || c.equals(etag) || c.equals("W/" + etag)) return true;
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] coding = part.trim().split(";");
+            if (coding[0].trim().equalsIgnoreCase("gzip")) {
+                return coding.length < 2 || !coding[1].trim().replace(" ", "").equals("q=0");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,99 @@
+package com.syntexsquad.futurefeed.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller (the leader) runs the loader and
+ * every caller arriving while it runs waits for that result instead of repeating the query. A
+ * waiter gives up after {@code timeout} and loads for itself, so one stuck query cannot stall
+ * every request behind it.
+ *
+ * <p>Publishes {@code cache.singleflight.loads} with {@code result} = {@code leader},
+ * {@code coalesced} or {@code timeout}.
+ */
+public class SingleFlight implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlight.class);
+
+    private final String name;
+    private final Duration timeout;
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder leaders = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public SingleFlight(String name, Duration timeout) {
+        this.name = name;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Result of {@code loader} for {@code key}, shared with concurrent callers for the same key.
+     * Exceptions thrown by the leader's loader reach every waiter.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(Object key, Callable<T> loader) throws Exception {
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running == null) {
+            leaders.increment();
+            try {
+                T value = loader.call();
+                mine.complete(value);
+                return value;
+            } catch (Throwable t) {
+                mine.completeExceptionally(t);
+                throw t;
+            } finally {
+                inFlight.remove(key, mine);
+            }
+        }
+
+        coalesced.increment();
+        try {
+            return (T) running.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            log.warn("[cache] {} load of {} still running after {}; loading directly", name, key, timeout);
+            return loader.call();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    public long leaderCount() {
+        return leaders.sum();
+    }
+
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long timeoutCount() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "leader", leaders);
+        counter(registry, "coalesced", coalesced);
+        counter(registry, "timeout", timeouts);
+    }
+
+    private void counter(MeterRegistry registry, String result, LongAdder adder) {
+        FunctionCounter.builder("cache.singleflight.loads", adder, LongAdder::sum)
+                .tag("cache", name)
+                .tag("result", result)
+                .description("Cache loads run (leader), joined (coalesced) or abandoned (timeout)")
+                .register(registry);
+    }
+}
@@ -0,0 +1,117 @@
+package com.syntexsquad.futurefeed.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * Gives {@code bookmarks} its {@code (user_id, post_id)} unique key on databases created before
+ * the key existed. {@code ddl-auto=update} cannot add it while duplicate rows remain, and without
+ * it the relation writes' {@code ON CONFLICT DO NOTHING} has nothing to conflict on and keeps
+ * inserting duplicates. So the duplicates are deleted (the oldest row of each pair is kept) and
+ * the constraint added in one transaction; if the key is still missing afterwards, startup fails.
+ *
+ * <p>Once the key exists a startup only reads index metadata: nothing is locked or deleted. Nodes
+ * starting together on PostgreSQL queue on an advisory lock, so a single one locks the table and
+ * the rest find the key in place. Every deleted row is logged. {@code app.migrations.bookmark-key=false}
+ * turns the check off entirely once every database has the key.
+ */
+@Component
+@ConditionalOnProperty(name = "app.migrations.bookmark-key", havingValue = "true", matchIfMissing = true)
+@DependsOn("entityManagerFactory") // runs after Hibernate has created or updated the table
+public class BookmarkKeyMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(BookmarkKeyMigration.class);
+
+    static final String CONSTRAINT = "uk_bookmarks_user_post";
+
+    // pg_advisory_xact_lock key shared by every node running this migration
+    private static final long ADVISORY_LOCK = 0x626f6f6b6d61726bL; // "bookmark"
+
+    // deleted rows listed in the log line; the rest are only counted
+    private static final int LOGGED_ROWS = 100;
+
+    private final DataSource dataSource;
+
+    public BookmarkKeyMigration(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        try (Connection c = dataSource.getConnection()) {
+            if (hasKey(c)) {
+                log.debug("[bookmarks] {} already present, nothing to migrate", CONSTRAINT);
+                return;
+            }
+
+            boolean autoCommit = c.getAutoCommit();
+            c.setAutoCommit(false);
+            try (Statement s = c.createStatement()) {
+                // asks the driver rather than the configured dialect, which is PostgreSQL even on H2
+                if ("PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName())) {
+                    // one node at a time; the others wait here, not in the table's lock queue
+                    s.execute("SELECT pg_advisory_xact_lock(" + ADVISORY_LOCK + ")");
+                    // holds off bookmark writes (not reads) until the key is in place
+                    if (!hasKey(c)) s.execute("LOCK TABLE bookmarks IN SHARE ROW EXCLUSIVE MODE");
+                }
+                if (!hasKey(c)) {
+                    String duplicates = " FROM bookmarks b WHERE EXISTS (SELECT 1 FROM bookmarks d " +
+                            "WHERE d.user_id = b.user_id AND d.post_id = b.post_id AND d.id < b.id)";
+                    List<String> rows = new ArrayList<>();
+                    try (ResultSet rs = s.executeQuery("SELECT b.id, b.user_id, b.post_id" + duplicates + " ORDER BY b.id")) {
+                        while (rs.next()) {
+                            rows.add("id=" + rs.getLong(1) + " (user " + rs.getInt(2) + ", post " + rs.getInt(3) + ")");
+                        }
+                    }
+                    int removed = s.executeUpdate("DELETE" + duplicates);
+                    s.execute("ALTER TABLE bookmarks ADD CONSTRAINT " + CONSTRAINT + " UNIQUE (user_id, post_id)");
+                    if (removed == 0) {
+                        log.info("[bookmarks] added {}; there were no duplicates", CONSTRAINT);
+                    } else {
+                        log.warn("[bookmarks] removed {} duplicate bookmark(s) and added {}: {}{}", removed, CONSTRAINT,
+                                rows.subList(0, Math.min(rows.size(), LOGGED_ROWS)),
+                                rows.size() > LOGGED_ROWS ? " and " + (rows.size() - LOGGED_ROWS) + " more" : "");
+                    }
+                }
+                c.commit();
+            } catch (SQLException | RuntimeException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(autoCommit);
+            }
+
+            if (!hasKey(c)) throw new IllegalStateException("bookmarks has no unique key on (user_id, post_id)");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not add " + CONSTRAINT + " to bookmarks", e);
+        }
+    }
+
+    /** Whether some unique index covers exactly {@code (user_id, post_id)}, whatever its name. */
+    private static boolean hasKey(Connection c) throws SQLException {
+        DatabaseMetaData meta = c.getMetaData();
+        String table = meta.storesUpperCaseIdentifiers() ? "BOOKMARKS" : "bookmarks";
+        Map<String, Set<String>> columnsByIndex = new HashMap<>();
+        try (ResultSet rs = meta.getIndexInfo(c.getCatalog(), null, table, true, false)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (index == null || column == null) continue;
+                columnsByIndex.computeIfAbsent(index, k -> new HashSet<>()).add(column.toLowerCase(Locale.ROOT));
+            }
+        }
+        return columnsByIndex.containsValue(Set.of("user_id", "post_id"));
+    }
+}
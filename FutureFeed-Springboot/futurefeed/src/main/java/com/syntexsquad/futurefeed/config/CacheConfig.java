@@ -1,41 +1,147 @@
 package com.syntexsquad.futurefeed.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syntexsquad.futurefeed.cache.CacheInvalidationBus;
+import com.syntexsquad.futurefeed.cache.LocalInvalidationBus;
+import com.syntexsquad.futurefeed.cache.PostgresInvalidationBus;
+import com.syntexsquad.futurefeed.cache.NearCache;
+import com.syntexsquad.futurefeed.cache.NearCacheManager;
+import com.syntexsquad.futurefeed.cache.NearCacheResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurer;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
 
+import java.time.Duration;
+
+/**
+ * Bounded Caffeine caches. Every cache takes its policy from a Caffeine spec string:
+ * {@code app.cache.specs.<name>} when set, else {@code app.cache.default-spec}, e.g.
+ * {@code maximumSize=500,expireAfterWrite=2m,refreshAfterWrite=30s}. All caches record stats,
+ * which actuator publishes as the {@code cache.*} metrics.
+ *
+ * <p>The caches are per node; there is no shared tier. Evictions and {@code @CachePut} writes are
+ * broadcast to the other nodes over {@code app.cache.invalidation}: {@code postgres}
+ * (LISTEN/NOTIFY on the application database) or {@code local} (single node).
+ */
 @Configuration
 @EnableCaching
-public class CacheConfig {
+public class CacheConfig implements CachingConfigurer {
+
+    static final String DEFAULT_SPEC = "maximumSize=1000,expireAfterWrite=10m";
+
+    static final String[] CACHE_NAMES = {
+            "posts",
+            "searchUsers",
+            "users",
+            "comments",
+            "topics",
+            "bots",
+            "likedPosts",
+            "commentedPosts",
+            "hasReshared",
+            "userReshares",
+            "hasCommented",
+            "commentsByPost",
+            "topicPosts",
+            "postTopics",
+            "botPosts",
+            "userById",
+            "userByUsername",
+            "userByEmail",
+            "post",
+            "searchPosts",
+            "userPosts",
+            "paginatedPosts",
+            "cacheGenerations",
+            "responses"
+    };
+
+    /*
+     * @Cacheable values can only be recomputed by the annotated method, so when an entry is due for
+     * refresh the reload yields nothing and Caffeine drops it in the background: the read that
+     * triggered it still gets the held value, the next read recomputes.
+     */
+    private static final CacheLoader<Object, Object> RECOMPUTE_ON_NEXT_READ = key -> null;
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public CacheConfig(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public CacheResolver cacheResolver() {
+        return new NearCacheResolver(cacheManager.getObject());
+    }
+
+    @Bean
+    @Primary
+    public CacheManager cacheManager(Environment env, CacheInvalidationBus cacheInvalidationBus,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        NearCacheManager manager = new NearCacheManager(localCaches(env), cacheInvalidationBus);
+        manager.setLoadTimeout(Duration.ofMillis(env.getProperty("app.cache.single-flight-timeout-ms", Long.class, 5000L)));
+        manager.setMeterRegistry(meterRegistry.getIfAvailable());
+        return manager;
+    }
 
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager(
-                "posts", 
-                "searchUsers",
-                "users", 
-                "comments", 
-                "topics", 
-                "bots",
-                "reshareCount",
-                "likedPosts",
-                "commentedPosts",
-                "hasReshared",
-                "userReshares",
-                "hasCommented",
-                "commentsByPost",
-                "topicPosts",
-                "postTopics",
-                "botPosts",
-                "userById",
-                "userByUsername",
-                "userByEmail",
-                "post", 
-                "searchPosts",
-                "userPosts",
-                "paginatedPosts"
-        );
+    public CacheInvalidationBus cacheInvalidationBus(Environment env, ObjectProvider<DataSourceProperties> dataSource) {
+        DataSourceProperties db = dataSource.getIfAvailable();
+        if ("local".equalsIgnoreCase(env.getProperty("app.cache.invalidation", "postgres")) || db == null) {
+            return new LocalInvalidationBus();
+        }
+        // its own connections, not the pool's
+        return new PostgresInvalidationBus(db.determineUrl(), db.determineUsername(), db.determinePassword(),
+                env.getProperty("app.cache.invalidation-channel", "cache_invalidation"));
+    }
+
+    /** Publishes each cache's Caffeine stats under its name. */
+    @Bean
+    public CacheMeterBinderProvider<NearCache> nearCacheMeterBinderProvider() {
+        return new CacheMeterBinderProvider<NearCache>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public MeterBinder getMeterBinder(NearCache cache, Iterable<Tag> tags) {
+                return new CaffeineCacheMetrics<>((Cache<Object, Object>) cache.getNativeCache(), cache.getName(), tags);
+            }
+        };
+    }
+
+    public static CaffeineCacheManager localCaches(Environment env) {
+        String defaultSpec = env.getProperty("app.cache.default-spec", DEFAULT_SPEC);
+
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        // caches not listed above are still created on first use, with the default policy
+        manager.setCaffeine(Caffeine.from(defaultSpec).recordStats());
+        if (refreshes(defaultSpec)) manager.setCacheLoader(RECOMPUTE_ON_NEXT_READ);
+
+        for (String name : CACHE_NAMES) {
+            manager.registerCustomCache(name, build(env.getProperty("app.cache.specs." + name, defaultSpec)));
+        }
+        return manager;
+    }
+
+    static Cache<Object, Object> build(String spec) {
+        Caffeine<Object, Object> builder = Caffeine.from(spec).recordStats();
+        return refreshes(spec) ? builder.build(RECOMPUTE_ON_NEXT_READ) : builder.build();
+    }
+
+    private static boolean refreshes(String spec) {
+        return spec.contains("refreshAfterWrite");
     }
 }
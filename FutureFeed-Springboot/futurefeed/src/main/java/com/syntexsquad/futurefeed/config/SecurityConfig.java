@@ -1,33 +1,58 @@
 // local
 package com.syntexsquad.futurefeed.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syntexsquad.futurefeed.repository.AppUserRepository;
+import com.syntexsquad.futurefeed.security.AppUserDetails;
+import com.syntexsquad.futurefeed.security.BoundedPasswordEncoder;
+import com.syntexsquad.futurefeed.security.CookieAuthorizationRequestRepository;
+import com.syntexsquad.futurefeed.security.LoginCapacityExceededException;
+import com.syntexsquad.futurefeed.security.TokenAuthenticationFilter;
+import com.syntexsquad.futurefeed.security.TokenLoginSuccessHandler;
+import com.syntexsquad.futurefeed.security.TokenService;
+import com.syntexsquad.futurefeed.service.AppUserService;
 import com.syntexsquad.futurefeed.service.CustomOAuth2UserService;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
 public class SecurityConfig {
 
+private static final String HOME_URL = "http://localhost:5173/home";
+
 private final CustomOAuth2UserService customOAuth2UserService;
+// session: JSESSIONID sessions; token: signed bearer tokens and no server-side session
+private final String authMode;
 
-public SecurityConfig(CustomOAuth2UserService customOAuth2UserService) {
+public SecurityConfig(CustomOAuth2UserService customOAuth2UserService,
+                      @Value("${app.auth.mode:session}") String authMode) {
     this.customOAuth2UserService = customOAuth2UserService;
+    this.authMode = authMode;
 }
 
 @Bean
-public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+public SecurityFilterChain filterChain(HttpSecurity http,
+                                       ObjectProvider<TokenService> tokenServices,
+                                       AppUserRepository userRepo,
+                                       ObjectMapper objectMapper) throws Exception {
     http
         .cors() 
         .and()
@@ -53,12 +78,19 @@ public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         .formLogin(form -> form
             .loginProcessingUrl("/api/auth/login") 
             .successHandler((req, res, auth) -> res.setStatus(HttpServletResponse.SC_OK))
-            .failureHandler((req, res, ex) -> res.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Bad credentials"))
+            .failureHandler((req, res, ex) -> {
+                if (ex instanceof LoginCapacityExceededException) {
+                    res.setHeader("Retry-After", "1");
+                    res.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, ex.getMessage());
+                } else {
+                    res.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Bad credentials");
+                }
+            })
             .permitAll()
         )
 
         .oauth2Login(oauth2 -> oauth2
-            .defaultSuccessUrl("http://localhost:5173/home", true)
+            .defaultSuccessUrl(HOME_URL, true)
             .userInfoEndpoint(userInfo -> userInfo
                 .userService(customOAuth2UserService)
             )
@@ -82,6 +114,21 @@ public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
             )
         );
 
+    TokenService tokenService = "token".equalsIgnoreCase(authMode) ? tokenServices.getIfAvailable() : null;
+    if (tokenService != null) {
+        TokenLoginSuccessHandler tokenLogin = new TokenLoginSuccessHandler(tokenService, userRepo, objectMapper, HOME_URL);
+        http
+            .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .securityContext(c -> c.securityContextRepository(new RequestAttributeSecurityContextRepository()))
+            .requestCache(c -> c.requestCache(new NullRequestCache()))
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService), UsernamePasswordAuthenticationFilter.class)
+            .formLogin(form -> form.successHandler(tokenLogin))
+            .oauth2Login(oauth2 -> oauth2
+                .authorizationEndpoint(a -> a.authorizationRequestRepository(new CookieAuthorizationRequestRepository(tokenService)))
+                .successHandler(tokenLogin)
+            );
+    }
+
     return http.build();
 }
 
@@ -111,9 +158,26 @@ public org.springframework.security.core.userdetails.UserDetailsService userDeta
         .orElseThrow(() -> new org.springframework.security.core.userdetails.UsernameNotFoundException("User not found: " + username));
 }
 
+// BCrypt on its own bounded pool; a work factor change re-hashes passwords as users log in
 @Bean
-public static PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+public static BoundedPasswordEncoder passwordEncoder(
+        @Value("${app.auth.bcrypt.strength:10}") int strength,
+        @Value("${app.auth.hashing.threads:0}") int threads,
+        @Value("${app.auth.hashing.queue-capacity:64}") int queueCapacity,
+        @Value("${app.auth.hashing.wait-timeout:5s}") Duration waitTimeout) {
+    int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    return new BoundedPasswordEncoder(strength, poolSize, queueCapacity, waitTimeout);
+}
+
+// called by the form-login provider when upgradeEncoding asks for a new hash
+@Bean
+public UserDetailsPasswordService userDetailsPasswordService(AppUserService userService) {
+    return (user, newPassword) -> {
+        if (user instanceof AppUserDetails details) {
+            return new AppUserDetails(userService.rehashPassword(details.getUser(), newPassword));
+        }
+        return user;
+    };
 }
 
 
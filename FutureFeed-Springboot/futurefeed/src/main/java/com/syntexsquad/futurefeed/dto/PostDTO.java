@@ -1,5 +1,11 @@
 package com.syntexsquad.futurefeed.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Response model of a post. Built fresh for each response (from the entity or from a cached
+ * {@link PostView}), so it may be filled in freely.
+ */
 public class PostDTO {
     private Integer id;
     private String content;
@@ -10,6 +16,26 @@ public class PostDTO {
     private Boolean isBot;   
     private Integer botId;  
 
+    // engagement stats, only filled (and serialized) when a list is requested with include=stats
+    @JsonInclude(JsonInclude.Include.NON_NULL) private Long likeCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL) private Long commentCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL) private Long reshareCount;
+    @JsonInclude(JsonInclude.Include.NON_NULL) private Boolean hasLiked;
+    @JsonInclude(JsonInclude.Include.NON_NULL) private Boolean hasCommented;
+    @JsonInclude(JsonInclude.Include.NON_NULL) private Boolean hasReshared;
+
+    public PostDTO() {}
+
+    public PostDTO(PostView view) {
+        this.id = view.id();
+        this.content = view.content();
+        this.imageUrl = view.imageUrl();
+        this.createdAt = view.createdAt();
+        this.user = view.user() == null ? null : view.user().toDto();
+        this.isBot = view.isBot();
+        this.botId = view.botId();
+    }
+
     public Integer getId() { return id; }
     public void setId(Integer id) { this.id = id; }
     public String getContent() { return content; }
@@ -26,4 +52,17 @@ public class PostDTO {
 
     public Integer getBotId() { return botId; }
     public void setBotId(Integer botId) { this.botId = botId; }
+
+    public Long getLikeCount() { return likeCount; }
+    public void setLikeCount(Long likeCount) { this.likeCount = likeCount; }
+    public Long getCommentCount() { return commentCount; }
+    public void setCommentCount(Long commentCount) { this.commentCount = commentCount; }
+    public Long getReshareCount() { return reshareCount; }
+    public void setReshareCount(Long reshareCount) { this.reshareCount = reshareCount; }
+    public Boolean getHasLiked() { return hasLiked; }
+    public void setHasLiked(Boolean hasLiked) { this.hasLiked = hasLiked; }
+    public Boolean getHasCommented() { return hasCommented; }
+    public void setHasCommented(Boolean hasCommented) { this.hasCommented = hasCommented; }
+    public Boolean getHasReshared() { return hasReshared; }
+    public void setHasReshared(Boolean hasReshared) { this.hasReshared = hasReshared; }
 }
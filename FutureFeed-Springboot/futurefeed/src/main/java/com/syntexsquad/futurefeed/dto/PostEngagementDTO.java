@@ -0,0 +1,34 @@
+package com.syntexsquad.futurefeed.dto;
+
+public class PostEngagementDTO {
+    private Integer postId;
+    private long likeCount;
+    private long reshareCount;
+    private long commentCount;
+    private boolean hasLiked;
+    private boolean hasReshared;
+    private boolean hasCommented;
+    private boolean hasBookmarked;
+
+    public PostEngagementDTO(Integer postId) {
+        this.postId = postId;
+    }
+
+    public Integer getPostId() { return postId; }
+    public long getLikeCount() { return likeCount; }
+    public long getReshareCount() { return reshareCount; }
+    public long getCommentCount() { return commentCount; }
+    public boolean isHasLiked() { return hasLiked; }
+    public boolean isHasReshared() { return hasReshared; }
+    public boolean isHasCommented() { return hasCommented; }
+    public boolean isHasBookmarked() { return hasBookmarked; }
+
+    public void setPostId(Integer postId) { this.postId = postId; }
+    public void setLikeCount(long likeCount) { this.likeCount = likeCount; }
+    public void setReshareCount(long reshareCount) { this.reshareCount = reshareCount; }
+    public void setCommentCount(long commentCount) { this.commentCount = commentCount; }
+    public void setHasLiked(boolean hasLiked) { this.hasLiked = hasLiked; }
+    public void setHasReshared(boolean hasReshared) { this.hasReshared = hasReshared; }
+    public void setHasCommented(boolean hasCommented) { this.hasCommented = hasCommented; }
+    public void setHasBookmarked(boolean hasBookmarked) { this.hasBookmarked = hasBookmarked; }
+}
@@ -0,0 +1,10 @@
+package com.syntexsquad.futurefeed.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PostEngagementRequest {
+    private List<Integer> postIds;
+}
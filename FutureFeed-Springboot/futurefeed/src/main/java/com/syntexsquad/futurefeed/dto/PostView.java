@@ -0,0 +1,40 @@
+package com.syntexsquad.futurefeed.dto;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of a post as the post caches hold it. Responses are built from it as fresh
+ * {@link PostDTO}s, so nothing a request does can reach the copy other requests are served.
+ */
+public record PostView(Integer id, String content, String imageUrl, String createdAt,
+                       Boolean isBot, Integer botId, Author user) implements Serializable {
+
+    /**
+     * The public profile of the post's author (or bot) at the time the snapshot was taken. A
+     * user's current profile replaces it when the post is served.
+     */
+    public record Author(Integer id, String username, String displayName, String bio,
+                         String profilePictureUrl) implements Serializable {
+
+        static Author of(UserPublicDTO dto) {
+            if (dto == null) return null;
+            return new Author(dto.getId(), dto.getUsername(), dto.getDisplayName(), dto.getBio(),
+                    dto.getProfilePictureUrl());
+        }
+
+        UserPublicDTO toDto() {
+            UserPublicDTO dto = new UserPublicDTO();
+            dto.setId(id);
+            dto.setUsername(username);
+            dto.setDisplayName(displayName);
+            dto.setBio(bio);
+            dto.setProfilePictureUrl(profilePictureUrl);
+            return dto;
+        }
+    }
+
+    public static PostView of(PostDTO dto) {
+        return new PostView(dto.getId(), dto.getContent(), dto.getImageUrl(), dto.getCreatedAt(),
+                dto.getIsBot(), dto.getBotId(), Author.of(dto.getUser()));
+    }
+}
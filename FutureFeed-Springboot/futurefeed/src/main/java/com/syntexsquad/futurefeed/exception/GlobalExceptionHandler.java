@@ -1,5 +1,6 @@
 package com.syntexsquad.futurefeed.exception;
 
+import com.syntexsquad.futurefeed.security.LoginCapacityExceededException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -12,6 +13,11 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(400).body(ex.getMessage());
     }
 
+    @ExceptionHandler(LoginCapacityExceededException.class)
+    public ResponseEntity<String> handleLoginCapacity(LoginCapacityExceededException ex) {
+        return ResponseEntity.status(503).header("Retry-After", "1").body(ex.getMessage());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
         return ResponseEntity.badRequest().body(ex.getMessage());
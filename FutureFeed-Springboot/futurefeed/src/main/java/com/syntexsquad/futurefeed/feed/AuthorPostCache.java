@@ -0,0 +1,90 @@
+package com.syntexsquad.futurefeed.feed;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syntexsquad.futurefeed.model.Post;
+import com.syntexsquad.futurefeed.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Newest post keys of individual authors, for the authors whose posts are merged into following
+ * feeds at read time instead of being fanned out. Each list is loaded once, capped at
+ * {@code capacity}, and then kept current by post create / delete events.
+ */
+@Component
+public class AuthorPostCache {
+
+    private final PostRepository postRepository;
+    private final int capacity;
+    private final Cache<Integer, AuthorStream> authors;
+
+    public AuthorPostCache(PostRepository postRepository,
+                           @Value("${feed.timeline.capacity:800}") int capacity,
+                           @Value("${feed.timeline.author-cache-size:1000}") long maxAuthors) {
+        this.postRepository = postRepository;
+        this.capacity = Math.max(1, capacity);
+        this.authors = Caffeine.newBuilder().maximumSize(maxAuthors).build();
+    }
+
+    /** First {@code limit} keys of the author's posts, or {@code null} if more are needed than are held. */
+    public List<PostKey> newest(Integer authorId, int limit) {
+        if (limit <= 0) return List.of();
+        return authors.get(authorId, this::load).head(limit);
+    }
+
+    public void onPostAdded(Post post) {
+        if (post == null || post.getId() == null || post.getUser() == null) return;
+        AuthorStream stream = authors.getIfPresent(post.getUser().getId());
+        if (stream != null) stream.insert(new PostKey(post.getId(), post.getCreatedAt()));
+    }
+
+    public void onPostRemoved(Integer postId) {
+        if (postId == null) return;
+        for (AuthorStream stream : authors.asMap().values()) {
+            stream.remove(postId);
+        }
+    }
+
+    private AuthorStream load(Integer authorId) {
+        // one extra row tells us whether the list holds every post
+        List<PostKey> keys = postRepository.findKeysByAuthorId(authorId, PageRequest.of(0, capacity + 1));
+        boolean complete = keys.size() <= capacity;
+        return new AuthorStream(complete ? keys : keys.subList(0, capacity), complete);
+    }
+
+    private final class AuthorStream {
+        private final ArrayList<PostKey> keys;
+        private boolean complete;
+
+        AuthorStream(List<PostKey> keys, boolean complete) {
+            this.keys = new ArrayList<>(keys);
+            this.complete = complete;
+        }
+
+        synchronized List<PostKey> head(int limit) {
+            if (limit > keys.size() && !complete) return null;
+            return List.copyOf(keys.subList(0, Math.min(limit, keys.size())));
+        }
+
+        synchronized void insert(PostKey key) {
+            for (PostKey k : keys) {
+                if (Objects.equals(k.id(), key.id())) return;
+            }
+            int pos = Collections.binarySearch(keys, key, PostKey.NEWEST_FIRST);
+            if (pos < 0) pos = -pos - 1;
+            keys.add(pos, key);
+            if (keys.size() > capacity) {
+                keys.remove(keys.size() - 1);
+                complete = false;
+            }
+        }
+
+        synchronized void remove(Integer postId) {
+            keys.removeIf(k -> Objects.equals(k.id(), postId));
+        }
+    }
+}
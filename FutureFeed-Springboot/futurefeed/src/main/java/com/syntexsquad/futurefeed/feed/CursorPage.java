@@ -0,0 +1,14 @@
+package com.syntexsquad.futurefeed.feed;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated feed; {@code nextCursor} is {@code null} once the feed is exhausted
+ * and {@code partial} is set when some source was skipped for being too slow.
+ */
+public record CursorPage<T>(List<T> content, String nextCursor, boolean partial) {
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this(content, nextCursor, false);
+    }
+}
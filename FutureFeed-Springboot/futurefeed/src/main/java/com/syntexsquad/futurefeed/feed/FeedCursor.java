@@ -0,0 +1,79 @@
+package com.syntexsquad.futurefeed.feed;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Scroll position of a preset feed: the last key served by every rule stream, plus the random
+ * fill's seed, id space and permutation offset so the fill resumes where it stopped. Travels to
+ * the client as an opaque URL-safe token.
+ */
+public record FeedCursor(long seed, int page, Map<Integer, PostKey> rulePositions,
+                         RandomFillSampler.IdSpace fillSpace, long fillOffset) {
+
+    private static final String VERSION = "v2";
+
+    public FeedCursor {
+        rulePositions = Map.copyOf(rulePositions);
+    }
+
+    public static FeedCursor start(long seed) {
+        return new FeedCursor(seed, 0, Map.of(), null, 0);
+    }
+
+    public PostKey positionOf(Integer ruleId) {
+        return rulePositions.get(ruleId);
+    }
+
+    public FeedCursor advance(Map<Integer, PostKey> positions, RandomFillSampler.IdSpace space, long offset) {
+        return new FeedCursor(seed, page + 1, positions, space, offset);
+    }
+
+    public String encode() {
+        StringBuilder sb = new StringBuilder(VERSION)
+                .append(';').append(seed)
+                .append(';').append(page)
+                .append(';').append(fillSpace == null ? ""
+                        : fillSpace.base() + ":" + fillSpace.span() + ":" + fillOffset);
+        rulePositions.forEach((ruleId, pos) -> sb.append(';').append(ruleId).append('=').append(key(pos)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException when the token was not produced by {@link #encode()} */
+    public static FeedCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(";", -1);
+            if (parts.length < 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unsupported cursor");
+            }
+            long seed = Long.parseLong(parts[1]);
+            int page = Integer.parseInt(parts[2]);
+            RandomFillSampler.IdSpace space = null;
+            long offset = 0;
+            if (!parts[3].isEmpty()) {
+                String[] fill = parts[3].split(":");
+                space = new RandomFillSampler.IdSpace(Integer.parseInt(fill[0]), Integer.parseInt(fill[1]));
+                offset = Long.parseLong(fill[2]);
+            }
+            Map<Integer, PostKey> positions = new HashMap<>();
+            for (int i = 4; i < parts.length; i++) {
+                int eq = parts[i].indexOf('=');
+                positions.put(Integer.valueOf(parts[i].substring(0, eq)), parseKey(parts[i].substring(eq + 1)));
+            }
+            return new FeedCursor(seed, page, positions, space, offset);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | java.time.DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private static String key(PostKey k) {
+        return k.createdAt() + "~" + k.id();
+    }
+
+    private static PostKey parseKey(String s) {
+        int sep = s.lastIndexOf('~');
+        return new PostKey(Integer.valueOf(s.substring(sep + 1)), Instant.parse(s.substring(0, sep)));
+    }
+}
@@ -0,0 +1,34 @@
+package com.syntexsquad.futurefeed.feed;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * A feed page that also says whether some rule sources were skipped because they were too slow,
+ * and which {@link FeedSnapshotStore} snapshot it was cut from, if any.
+ */
+public class FeedPage<T> extends PageImpl<T> {
+
+    private final boolean partial;
+    private final String snapshotId;
+
+    public FeedPage(List<T> content, Pageable pageable, long total, boolean partial) {
+        this(content, pageable, total, partial, null);
+    }
+
+    public FeedPage(List<T> content, Pageable pageable, long total, boolean partial, String snapshotId) {
+        super(content, pageable, total);
+        this.partial = partial;
+        this.snapshotId = snapshotId;
+    }
+
+    public boolean isPartial() {
+        return partial;
+    }
+
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+}
@@ -0,0 +1,121 @@
+package com.syntexsquad.futurefeed.feed;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.*;
+
+/**
+ * Frozen ranked id lists for paging through a feed. The first page of a feed computes up to
+ * {@code snapshotSize} ids once and stores them under an unguessable snapshot id; later pages
+ * slice that list, so a scrolling reader never sees a post twice or misses one because the live
+ * ranking moved. Snapshots expire {@code ttl} after their last read, and the store evicts the
+ * least recently used ones once it holds more than {@code maxIds} ids in total.
+ */
+@Component
+public class FeedSnapshotStore {
+
+    /** A ranked id list; {@code complete} when it holds the whole feed rather than its head. */
+    public record Snapshot(String id, String scope, int[] ids, long total, boolean partial, boolean complete) {
+        public int size() {
+            return ids.length;
+        }
+
+        public List<Integer> slice(int from, int to) {
+            List<Integer> out = new ArrayList<>(Math.max(0, to - from));
+            for (int i = Math.max(0, from); i < Math.min(to, ids.length); i++) out.add(ids[i]);
+            return out;
+        }
+    }
+
+    private static final class Entry {
+        final Snapshot snapshot;
+        long lastAccess;
+
+        Entry(Snapshot snapshot, long now) {
+            this.snapshot = snapshot;
+            this.lastAccess = now;
+        }
+    }
+
+    private final SecureRandom random = new SecureRandom();
+    private final int snapshotSize;
+    private final long maxIds;
+    private final long ttlMillis;
+
+    // access-ordered: iteration starts at the least recently used snapshot
+    private final LinkedHashMap<String, Entry> snapshots = new LinkedHashMap<>(64, 0.75f, true);
+    private long heldIds;
+
+    public FeedSnapshotStore(@Value("${feed.snapshot.size:500}") int snapshotSize,
+                             @Value("${feed.snapshot.max-ids:2000000}") long maxIds,
+                             @Value("${feed.snapshot.ttl-seconds:900}") long ttlSeconds) {
+        this.snapshotSize = Math.max(1, snapshotSize);
+        this.maxIds = Math.max(this.snapshotSize, maxIds);
+        this.ttlMillis = Math.max(1, ttlSeconds) * 1000;
+    }
+
+    /** How many ids a new snapshot should hold. */
+    public int snapshotSize() {
+        return snapshotSize;
+    }
+
+    /** The live snapshot with this id, or {@code null} if it expired, was evicted or belongs to another feed. */
+    public synchronized Snapshot get(String id, String scope) {
+        if (id == null || id.isBlank()) return null;
+        Entry e = snapshots.get(id);
+        if (e == null) return null;
+        long now = System.currentTimeMillis();
+        if (now - e.lastAccess > ttlMillis) {
+            remove(id);
+            return null;
+        }
+        if (!e.snapshot.scope().equals(scope)) return null;
+        e.lastAccess = now;
+        return e.snapshot;
+    }
+
+    /**
+     * Stores the head of a ranked list. Callers pass up to {@code snapshotSize() + 1} ids; the
+     * extra one only tells whether the snapshot holds the whole feed.
+     */
+    public synchronized Snapshot put(String scope, List<Integer> ids, long total, boolean partial) {
+        int n = Math.min(ids.size(), snapshotSize);
+        int[] held = new int[n];
+        for (int i = 0; i < n; i++) held[i] = ids.get(i);
+        Snapshot snapshot = new Snapshot(newId(), scope, held, total, partial, ids.size() <= snapshotSize);
+
+        long now = System.currentTimeMillis();
+        snapshots.put(snapshot.id(), new Entry(snapshot, now));
+        heldIds += n;
+        evict(now);
+        return snapshot;
+    }
+
+    public synchronized int count() {
+        return snapshots.size();
+    }
+
+    private void evict(long now) {
+        Iterator<Map.Entry<String, Entry>> it = snapshots.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next().getValue();
+            boolean expired = now - e.lastAccess > ttlMillis;
+            if (!expired && heldIds <= maxIds) break;
+            heldIds -= e.snapshot.size();
+            it.remove();
+        }
+    }
+
+    private void remove(String id) {
+        Entry e = snapshots.remove(id);
+        if (e != null) heldIds -= e.snapshot.size();
+    }
+
+    private String newId() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,17 @@
+package com.syntexsquad.futurefeed.feed;
+
+/** Order of a feed: newest first, or by stored {@link HotScore}. */
+public enum FeedSort {
+    NEW, HOT;
+
+    /**
+     * Parses the {@code sort} request parameter; absent means {@link #NEW}.
+     *
+     * @throws IllegalArgumentException for an unknown value
+     */
+    public static FeedSort parse(String value) {
+        if (value == null || value.isBlank() || value.equalsIgnoreCase("new")) return NEW;
+        if (value.equalsIgnoreCase("hot")) return HOT;
+        throw new IllegalArgumentException("Unknown sort: " + value);
+    }
+}
@@ -0,0 +1,43 @@
+package com.syntexsquad.futurefeed.feed;
+
+import java.time.Instant;
+
+/**
+ * Time-decayed engagement rank: {@code createdAt / DECAY_SECONDS + ln(max(1, points))}, where
+ * points are the weighted engagement count. Decay lives in the creation-time term instead of in
+ * "now", so a stored score never goes stale and an engagement event only moves the log term;
+ * a post needs e times the engagement to outrank one posted {@code DECAY_SECONDS} later.
+ */
+public final class HotScore {
+
+    public static final double DECAY_SECONDS = 45_000;
+
+    public enum Engagement {
+        LIKE(1), COMMENT(2), RESHARE(3), BOOKMARK(2);
+
+        private final int weight;
+
+        Engagement(int weight) {
+            this.weight = weight;
+        }
+
+        public int weight() {
+            return weight;
+        }
+    }
+
+    private HotScore() {
+    }
+
+    public static double of(Instant createdAt, long points) {
+        Instant at = createdAt != null ? createdAt : Instant.now();
+        return at.getEpochSecond() / DECAY_SECONDS + Math.log(Math.max(1, points));
+    }
+
+    public static long points(long likes, long comments, long reshares, long bookmarks) {
+        return likes * Engagement.LIKE.weight()
+                + comments * Engagement.COMMENT.weight()
+                + reshares * Engagement.RESHARE.weight()
+                + bookmarks * Engagement.BOOKMARK.weight();
+    }
+}
@@ -0,0 +1,235 @@
+package com.syntexsquad.futurefeed.feed;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syntexsquad.futurefeed.cache.SingleFlight;
+import com.syntexsquad.futurefeed.model.Post;
+import com.syntexsquad.futurefeed.model.PresetRule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materialized preset feeds: for every preset that has been read, the newest post keys of each
+ * rule, capped at {@code ruleCapacity}. Lists are filled once from the database and then kept
+ * current by post create / tag / delete events; a preset is only dropped when its rules change
+ * or it falls out of the bounded store. Concurrent first reads of a rule share one load.
+ *
+ * <p>Events are applied after the writing transaction commits, so a rolled-back post never shows
+ * up and an uncommitted one is never served. A load whose query overlapped an applied event may
+ * have missed it; its list answers that one read and is not kept.
+ *
+ * <p>Once the {@link PostingIndex} is built it answers rule candidates instead, so the store only
+ * bridges startup (or an index that failed to build): from then on it drops its lists and ignores
+ * post events rather than keep up lists nobody reads.
+ */
+@Component
+public class MaterializedFeedStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MaterializedFeedStore.class);
+
+    private final RuleQueryCompiler ruleQueryCompiler;
+    private final int ruleCapacity;
+    private final Cache<Integer, PresetFeed> presets;
+    private final SingleFlight ruleLoads;
+
+    @Autowired(required = false)
+    private PostingIndex postingIndex;
+
+    // events applied so far, guarded by this; a load only keeps its list if none came in meanwhile
+    private long appliedEvents;
+
+    @Autowired
+    public MaterializedFeedStore(RuleQueryCompiler ruleQueryCompiler,
+                                 @Value("${feed.materialized.max-presets:1000}") long maxPresets,
+                                 @Value("${feed.materialized.rule-capacity:500}") int ruleCapacity,
+                                 @Value("${app.cache.single-flight-timeout-ms:5000}") long loadTimeoutMs) {
+        this.ruleQueryCompiler = ruleQueryCompiler;
+        this.ruleCapacity = Math.max(1, ruleCapacity);
+        this.presets = Caffeine.newBuilder().maximumSize(maxPresets).build();
+        this.ruleLoads = new SingleFlight("presetFeeds", Duration.ofMillis(loadTimeoutMs));
+    }
+
+    public MaterializedFeedStore(RuleQueryCompiler ruleQueryCompiler, long maxPresets, int ruleCapacity) {
+        this(ruleQueryCompiler, maxPresets, ruleCapacity, 5000);
+    }
+
+    @Autowired(required = false)
+    void bindMetrics(MeterRegistry registry) {
+        ruleLoads.bindTo(registry);
+    }
+
+    /**
+     * Newest-first keys of posts matching {@code rule}, at most {@code limit}. Served from the
+     * materialized list when it is deep enough, otherwise straight from the database.
+     */
+    public List<PostKey> candidateKeys(Integer presetId, PresetRule rule, int limit) {
+        if (limit <= 0) return List.of();
+        if (presetId == null || rule.getId() == null || superseded()) return ruleQueryCompiler.fetchKeys(rule, limit);
+
+        PresetFeed feed = presets.get(presetId, id -> new PresetFeed());
+        RuleFeed ruleFeed = feed.rules.get(rule.getId());
+        if (ruleFeed == null) ruleFeed = loadShared(feed, presetId, rule);
+        List<PostKey> served = ruleFeed.head(limit);
+        if (served != null) return served;
+
+        // deeper than what we keep in memory
+        return ruleQueryCompiler.fetchKeys(rule, limit);
+    }
+
+    /**
+     * A new post exists. Its topics are not known yet (they arrive through {@link #onPostTagged}),
+     * so it only joins the rules it matches untagged and is never taken out of one.
+     */
+    public void onPostAdded(Post post) {
+        PostIndexListener.runAfterCommit(() -> apply(post, List.of(), false));
+    }
+
+    /**
+     * Re-evaluates every materialized rule against the post's complete current topic set; an
+     * empty set means every tag was cleared, so the post leaves all topic rules.
+     */
+    public void onPostTagged(Post post, Collection<Integer> topicIds) {
+        List<Integer> current = topicIds == null ? List.of() : new ArrayList<>(topicIds);
+        PostIndexListener.runAfterCommit(() -> apply(post, current, true));
+    }
+
+    private synchronized void apply(Post post, Collection<Integer> topicIds, boolean removeNonMatching) {
+        if (post == null || post.getId() == null || superseded()) return;
+        appliedEvents++;
+        PostKey key = new PostKey(post.getId(), post.getCreatedAt());
+        for (PresetFeed feed : presets.asMap().values()) {
+            for (RuleFeed ruleFeed : feed.rules.values()) {
+                if (ruleQueryCompiler.matches(ruleFeed.rule, post, topicIds)) {
+                    ruleFeed.insert(key);
+                } else if (removeNonMatching) {
+                    ruleFeed.remove(post.getId());
+                }
+            }
+        }
+    }
+
+    public void onPostRemoved(Integer postId) {
+        PostIndexListener.runAfterCommit(() -> remove(postId));
+    }
+
+    private synchronized void remove(Integer postId) {
+        if (postId == null || superseded()) return;
+        appliedEvents++;
+        for (PresetFeed feed : presets.asMap().values()) {
+            for (RuleFeed ruleFeed : feed.rules.values()) {
+                ruleFeed.remove(postId);
+            }
+        }
+    }
+
+    /** Called when a preset's rules are created, updated or deleted. */
+    public void invalidate(Integer presetId) {
+        if (presetId == null) return;
+        presets.invalidate(presetId);
+        log.debug("[feed] materialized preset {} invalidated", presetId);
+    }
+
+    /** True once the posting index is ready; the first call after that drops every list. */
+    private boolean superseded() {
+        if (postingIndex == null || !postingIndex.isReady()) return false;
+        if (presets.estimatedSize() > 0) {
+            presets.invalidateAll();
+            log.info("[feed] posting index ready, materialized preset feeds released");
+        }
+        return true;
+    }
+
+    private RuleFeed loadShared(PresetFeed feed, Integer presetId, PresetRule rule) {
+        try {
+            // registered before the load completes, so a caller arriving after it finds the list
+            return ruleLoads.load(presetId + ":" + rule.getId(), () -> {
+                long seen;
+                synchronized (this) {
+                    seen = appliedEvents;
+                }
+                RuleFeed loaded = load(rule);
+                synchronized (this) {
+                    if (appliedEvents != seen) return loaded;
+                    RuleFeed raced = feed.rules.putIfAbsent(rule.getId(), loaded);
+                    return raced != null ? raced : loaded;
+                }
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not load preset feed " + presetId, e);
+        }
+    }
+
+    private RuleFeed load(PresetRule rule) {
+        // one extra row tells us whether the list holds every match
+        List<PostKey> keys = ruleQueryCompiler.fetchKeys(rule, ruleCapacity + 1);
+        boolean complete = keys.size() <= ruleCapacity;
+        List<PostKey> kept = complete ? keys : keys.subList(0, ruleCapacity);
+        return new RuleFeed(copyOf(rule), kept, complete);
+    }
+
+    private static PresetRule copyOf(PresetRule rule) {
+        PresetRule copy = new PresetRule();
+        copy.setId(rule.getId());
+        copy.setPresetId(rule.getPresetId());
+        copy.setTopicId(rule.getTopicId());
+        copy.setSourceType(rule.getSourceType());
+        copy.setSpecificUserId(rule.getSpecificUserId());
+        copy.setPercentage(rule.getPercentage());
+        return copy;
+    }
+
+    private static final class PresetFeed {
+        final Map<Integer, RuleFeed> rules = new ConcurrentHashMap<>();
+    }
+
+    private final class RuleFeed {
+        final PresetRule rule;
+        private final ArrayList<PostKey> keys;
+        private boolean complete;
+
+        RuleFeed(PresetRule rule, List<PostKey> keys, boolean complete) {
+            this.rule = rule;
+            this.keys = new ArrayList<>(keys);
+            this.complete = complete;
+        }
+
+        /** First {@code limit} keys, or {@code null} if more are needed than are held. */
+        synchronized List<PostKey> head(int limit) {
+            if (limit > keys.size() && !complete) return null;
+            return List.copyOf(keys.subList(0, Math.min(limit, keys.size())));
+        }
+
+        synchronized void insert(PostKey key) {
+            if (containsId(key.id())) return;
+            int pos = Collections.binarySearch(keys, key, PostKey.NEWEST_FIRST);
+            if (pos < 0) pos = -pos - 1;
+            if (pos >= keys.size() && !complete) return; // older than everything we hold
+            keys.add(pos, key);
+            if (keys.size() > ruleCapacity) {
+                keys.remove(keys.size() - 1);
+                complete = false;
+            }
+        }
+
+        synchronized void remove(Integer postId) {
+            keys.removeIf(k -> Objects.equals(k.id(), postId));
+        }
+
+        private boolean containsId(Integer id) {
+            for (PostKey k : keys) {
+                if (Objects.equals(k.id(), id)) return true;
+            }
+            return false;
+        }
+    }
+}
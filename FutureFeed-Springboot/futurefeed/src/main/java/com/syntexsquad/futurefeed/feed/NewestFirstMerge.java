@@ -0,0 +1,51 @@
+package com.syntexsquad.futurefeed.feed;
+
+import java.util.*;
+
+/**
+ * k-way merge of post key streams that are each already sorted {@link PostKey#NEWEST_FIRST}.
+ * A heap holds the head of every stream, so producing {@code n} ids costs {@code O(n log k)}
+ * regardless of how long the streams are. Ids present in more than one stream are emitted once.
+ */
+public final class NewestFirstMerge {
+
+    private NewestFirstMerge() {
+    }
+
+    /** Ids of the merged order, skipping the first {@code skip} and returning at most {@code limit}. */
+    public static List<Integer> merge(List<List<PostKey>> streams, int skip, int limit) {
+        List<Integer> out = new ArrayList<>(Math.max(0, Math.min(limit, 256)));
+        if (limit <= 0) return out;
+
+        PriorityQueue<Head> heap = new PriorityQueue<>(Math.max(1, streams.size()),
+                (a, b) -> PostKey.NEWEST_FIRST.compare(a.key(), b.key()));
+        for (List<PostKey> stream : streams) {
+            if (stream != null && !stream.isEmpty()) heap.add(new Head(stream, 0));
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        int skipped = 0;
+        while (!heap.isEmpty() && out.size() < limit) {
+            Head head = heap.poll();
+            Integer id = head.key().id();
+            if (head.next() != null) heap.add(head.next());
+            if (!seen.add(id)) continue;
+            if (skipped < skip) {
+                skipped++;
+                continue;
+            }
+            out.add(id);
+        }
+        return out;
+    }
+
+    private record Head(List<PostKey> stream, int pos) {
+        PostKey key() {
+            return stream.get(pos);
+        }
+
+        Head next() {
+            return pos + 1 < stream.size() ? new Head(stream, pos + 1) : null;
+        }
+    }
+}
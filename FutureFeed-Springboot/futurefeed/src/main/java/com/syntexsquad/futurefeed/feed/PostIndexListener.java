@@ -0,0 +1,86 @@
+package com.syntexsquad.futurefeed.feed;
+
+import com.syntexsquad.futurefeed.model.BotPost;
+import com.syntexsquad.futurefeed.model.Post;
+import com.syntexsquad.futurefeed.model.PostTopic;
+import com.syntexsquad.futurefeed.search.PostTextIndex;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * JPA lifecycle hooks on {@link Post} and {@link PostTopic} that feed the {@link PostingIndex},
+ * and post create and delete events that feed the {@link PostTextIndex}. Updates are applied
+ * after commit, so a rolled-back insert never reaches the index; outside a transaction they apply
+ * immediately. Hibernate obtains this listener from the Spring context.
+ */
+public class PostIndexListener {
+
+    private final ObjectProvider<PostingIndex> index;
+    private final ObjectProvider<PostTextIndex> textIndex;
+
+    public PostIndexListener(ObjectProvider<PostingIndex> index, ObjectProvider<PostTextIndex> textIndex) {
+        this.index = index;
+        this.textIndex = textIndex;
+    }
+
+    @PostPersist
+    public void onPersist(Object entity) {
+        if (entity instanceof Post post) {
+            Integer postId = post.getId();
+            Integer authorId = post.getUser() == null ? null : post.getUser().getId();
+            boolean bot = post instanceof BotPost;
+            afterCommit(i -> i.addPost(postId, authorId, bot));
+            String content = post.getContent();
+            afterCommitText(t -> t.addPost(postId, content));
+        } else if (entity instanceof PostTopic pt) {
+            Integer postId = pt.getPostId();
+            Integer topicId = pt.getTopicId();
+            afterCommit(i -> i.addTopic(postId, topicId));
+        }
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        if (entity instanceof Post post) {
+            Integer postId = post.getId();
+            Integer authorId = post.getUser() == null ? null : post.getUser().getId();
+            afterCommit(i -> i.removePost(postId, authorId));
+            afterCommitText(t -> t.removePost(postId));
+        } else if (entity instanceof PostTopic pt) {
+            Integer postId = pt.getPostId();
+            Integer topicId = pt.getTopicId();
+            afterCommit(i -> i.removeTopic(postId, topicId));
+        }
+    }
+
+    private void afterCommit(Consumer<PostingIndex> update) {
+        PostingIndex target = index.getIfAvailable();
+        if (target == null) return;
+        runAfterCommit(() -> update.accept(target));
+    }
+
+    private void afterCommitText(Consumer<PostTextIndex> update) {
+        PostTextIndex target = textIndex.getIfAvailable();
+        if (target == null) return;
+        runAfterCommit(() -> update.accept(target));
+    }
+
+    /** Runs {@code update} once the current transaction commits, or now when there is none. */
+    public static void runAfterCommit(Runnable update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+}
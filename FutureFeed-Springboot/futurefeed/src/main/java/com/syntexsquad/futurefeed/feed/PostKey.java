@@ -0,0 +1,12 @@
+package com.syntexsquad.futurefeed.feed;
+
+import java.time.Instant;
+import java.util.Comparator;
+
+/** Sort key of a post in every feed: newest first, ties broken by the higher id. */
+public record PostKey(Integer id, Instant createdAt) {
+
+    public static final Comparator<PostKey> NEWEST_FIRST = Comparator
+            .comparing(PostKey::createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(PostKey::id, Comparator.nullsLast(Comparator.reverseOrder()));
+}
@@ -0,0 +1,323 @@
+package com.syntexsquad.futurefeed.feed;
+
+import com.syntexsquad.futurefeed.model.BotPost;
+import com.syntexsquad.futurefeed.model.PresetRule;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process posting lists for the three preset-rule predicates: topic -> post ids, author ->
+ * post ids, and a bitset of bot posts. Lists are sorted primitive id arrays; ids are assigned on
+ * insert, so id order is creation order and the newest posts sit at the tail. A rule is answered
+ * by intersecting lists from the tail without touching JPA entities.
+ * <p>
+ * Built once from the database after startup and then kept current by {@link PostIndexListener}
+ * (post create/delete and topic tag events); until the build finishes {@link #isReady()} is false
+ * and callers fall back to SQL. Sizes and estimated memory are published as {@code feed.index.*}
+ * metrics.
+ */
+@Component
+public class PostingIndex implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(PostingIndex.class);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, IdList> byTopic = new HashMap<>();
+    private final Map<Integer, IdList> byAuthor = new HashMap<>();
+    private final BitSet posts = new BitSet();
+    private final BitSet bots = new BitSet();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        // events that arrive meanwhile wait on the lock; every update is idempotent, so replaying
+        // them over the fresh snapshot is safe
+        lock.writeLock().lock();
+        try {
+            byTopic.clear();
+            byAuthor.clear();
+            posts.clear();
+            bots.clear();
+            List<Object[]> rows = em.createQuery(
+                    "SELECT p.id, p.user.id, TYPE(p) FROM Post p ORDER BY p.id", Object[].class).getResultList();
+            for (Object[] r : rows) {
+                addPostLocked((Integer) r[0], (Integer) r[1], isBotType(r[2]));
+            }
+            List<Object[]> tags = em.createQuery(
+                    "SELECT pt.post.id, pt.topicId FROM PostTopic pt ORDER BY pt.post.id", Object[].class).getResultList();
+            for (Object[] t : tags) {
+                addTopicLocked((Integer) t[0], (Integer) t[1]);
+            }
+            ready = true;
+            log.info("[index] built posts={} topics={} authors={} in {}ms",
+                    rows.size(), byTopic.size(), byAuthor.size(), System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            log.warn("[index] build failed, rule evaluation stays on SQL: {}", e.toString());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------------- updates ----------------
+
+    public void addPost(Integer postId, Integer authorId, boolean bot) {
+        if (postId == null) return;
+        lock.writeLock().lock();
+        try {
+            addPostLocked(postId, authorId, bot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removePost(Integer postId, Integer authorId) {
+        if (postId == null) return;
+        lock.writeLock().lock();
+        try {
+            posts.clear(postId);
+            bots.clear(postId);
+            if (authorId != null) removeFrom(byAuthor, authorId, postId);
+            byTopic.values().forEach(list -> list.remove(postId));
+            byTopic.values().removeIf(IdList::isEmpty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addTopic(Integer postId, Integer topicId) {
+        if (postId == null || topicId == null) return;
+        lock.writeLock().lock();
+        try {
+            addTopicLocked(postId, topicId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeTopic(Integer postId, Integer topicId) {
+        if (postId == null || topicId == null) return;
+        lock.writeLock().lock();
+        try {
+            removeFrom(byTopic, topicId, postId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A bulk {@code DELETE FROM PostTopic} bypasses entity callbacks, so callers report it here;
+     * applied after commit like every other update.
+     */
+    public void onTopicsCleared(Integer postId) {
+        PostIndexListener.runAfterCommit(() -> clearTopics(postId));
+    }
+
+    public void clearTopics(Integer postId) {
+        if (postId == null) return;
+        lock.writeLock().lock();
+        try {
+            byTopic.values().forEach(list -> list.remove(postId));
+            byTopic.values().removeIf(IdList::isEmpty);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // TYPE(p) comes back as the entity class or as its discriminator depending on the provider
+    private static boolean isBotType(Object type) {
+        if (type instanceof Class<?> c) return BotPost.class.isAssignableFrom(c);
+        return type != null && "BOT".equalsIgnoreCase(String.valueOf(type));
+    }
+
+    private void addPostLocked(Integer postId, Integer authorId, boolean bot) {
+        posts.set(postId);
+        bots.set(postId, bot);
+        if (authorId != null) byAuthor.computeIfAbsent(authorId, k -> new IdList()).add(postId);
+    }
+
+    private void addTopicLocked(Integer postId, Integer topicId) {
+        byTopic.computeIfAbsent(topicId, k -> new IdList()).add(postId);
+    }
+
+    private static void removeFrom(Map<Integer, IdList> map, Integer key, int postId) {
+        IdList list = map.get(key);
+        if (list == null) return;
+        list.remove(postId);
+        if (list.isEmpty()) map.remove(key);
+    }
+
+    // ---------------- queries ----------------
+
+    /** Newest-first ids of posts matching {@code rule}, at most {@code limit}. */
+    public List<Integer> newestMatching(PresetRule rule, int limit) {
+        List<Integer> out = new ArrayList<>(Math.max(0, Math.min(limit, 256)));
+        if (limit <= 0) return out;
+        lock.readLock().lock();
+        try {
+            scan(rule, id -> {
+                out.add(id);
+                return out.size() < limit;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    public long count(PresetRule rule) {
+        long[] n = {0};
+        lock.readLock().lock();
+        try {
+            scan(rule, id -> {
+                n[0]++;
+                return true;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return n[0];
+    }
+
+    /** Walks matching ids newest first until {@code sink} returns false. Caller holds the read lock. */
+    private void scan(PresetRule rule, IdSink sink) {
+        String source = rule.getSourceType();
+        boolean wantUser = "user".equalsIgnoreCase(source) || rule.getSpecificUserId() != null;
+        boolean wantBot = "bot".equalsIgnoreCase(source);
+        if (wantUser && wantBot) return;
+
+        List<IdList> lists = new ArrayList<>(2);
+        if (rule.getTopicId() != null) lists.add(byTopic.get(rule.getTopicId()));
+        if (rule.getSpecificUserId() != null) lists.add(byAuthor.get(rule.getSpecificUserId()));
+        if (lists.contains(null)) return;
+
+        if (lists.isEmpty()) {
+            BitSet base = wantBot ? bots : posts;
+            for (int id = base.length() - 1; id >= 0; id = base.previousSetBit(id - 1)) {
+                if (wantUser && bots.get(id)) continue;
+                if (!sink.accept(id)) return;
+            }
+            return;
+        }
+
+        lists.sort(Comparator.comparingInt(IdList::size));
+        IdList driver = lists.get(0);
+        IdList other = lists.size() > 1 ? lists.get(1) : null;
+        for (int i = driver.size() - 1; i >= 0; i--) {
+            int id = driver.get(i);
+            if (!posts.get(id)) continue;
+            if (other != null && !other.contains(id)) continue;
+            if (wantUser && bots.get(id)) continue;
+            if (wantBot && !bots.get(id)) continue;
+            if (!sink.accept(id)) return;
+        }
+    }
+
+    @FunctionalInterface
+    private interface IdSink {
+        boolean accept(int id);
+    }
+
+    // ---------------- metrics ----------------
+
+    /** Rough heap footprint of the lists, bitsets and map entries. */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (posts.size() + bots.size()) / 8;
+            for (IdList l : byTopic.values()) bytes += l.bytes() + 48;
+            for (IdList l : byAuthor.values()) bytes += l.bytes() + 48;
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("feed.index.memory", this, PostingIndex::estimatedBytes)
+                .baseUnit("bytes").description("Estimated heap used by the posting-list index").register(registry);
+        Gauge.builder("feed.index.posts", posts, BitSet::cardinality)
+                .description("Posts held in the posting-list index").register(registry);
+        Gauge.builder("feed.index.topics", byTopic, Map::size)
+                .description("Topic posting lists").register(registry);
+        Gauge.builder("feed.index.authors", byAuthor, Map::size)
+                .description("Author posting lists").register(registry);
+        Gauge.builder("feed.index.ready", this, i -> i.isReady() ? 1 : 0)
+                .description("1 once the index has been built").register(registry);
+    }
+
+    /** Sorted, duplicate-free, growable int array; appends of a new highest id are O(1). */
+    static final class IdList {
+        private int[] ids = new int[4];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(int i) {
+            return ids[i];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] < id) {
+                grow();
+                ids[size++] = id;
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) return;
+            pos = -pos - 1;
+            grow();
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) return;
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+        }
+
+        long bytes() {
+            return 16L + 4L * ids.length;
+        }
+
+        private void grow() {
+            if (size == ids.length) ids = Arrays.copyOf(ids, ids.length + (ids.length >> 1) + 1);
+        }
+    }
+}
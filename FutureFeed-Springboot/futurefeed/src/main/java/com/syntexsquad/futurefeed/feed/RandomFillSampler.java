@@ -0,0 +1,152 @@
+package com.syntexsquad.futurefeed.feed;
+
+import com.syntexsquad.futurefeed.feed.RuleQueryCompiler.CompiledRule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Draws random posts from the unmatched complement without loading or shuffling it. The post id
+ * range is walked in a seeded pseudo-random order (an affine permutation), and candidate ids are
+ * probed against the complement in primary-key batches, so a draw of k posts costs about
+ * k / density lookups regardless of table size. The same seed always yields the same order, and a
+ * draw can resume from the offset where the previous one stopped without repeating a post.
+ */
+@Component
+public class RandomFillSampler {
+
+    static final int MIN_BATCH = 64;
+    static final int MAX_BATCH = 512;
+    static final int MAX_PROBES_PER_DRAW = 8192;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** Post id range a permutation walks over, fixed when a scroll session starts. */
+    public record IdSpace(int base, int span) {
+        public static final IdSpace EMPTY = new IdSpace(0, 0);
+    }
+
+    /**
+     * @param nextOffset where the next draw should resume
+     * @param exhausted  whether the whole id space has been walked
+     */
+    public record Draw(List<Integer> ids, long nextOffset, boolean exhausted) {
+    }
+
+    public IdSpace idSpace() {
+        Object[] bounds = em.createQuery("SELECT MIN(p.id), MAX(p.id) FROM Post p", Object[].class)
+                .getSingleResult();
+        if (bounds[0] == null) return IdSpace.EMPTY;
+        int min = ((Number) bounds[0]).intValue();
+        int max = ((Number) bounds[1]).intValue();
+        return new IdSpace(min, max - min + 1);
+    }
+
+    /**
+     * Up to {@code k} ids from {@code complement}, in seed order, starting at permutation slot
+     * {@code offset} and skipping {@code exclude}. A null complement means nothing is left to draw.
+     */
+    public Draw draw(CompiledRule complement, IdSpace space, long seed, long offset, int k, Set<Integer> exclude) {
+        if (complement == null || k <= 0 || space.span() <= 0) {
+            return new Draw(List.of(), offset, complement == null || space.span() <= 0 || offset >= space.span());
+        }
+
+        Permutation perm = new Permutation(space.span(), seed);
+        List<Integer> out = new ArrayList<>(k);
+        long pos = offset;
+        long probed = 0;
+
+        while (out.size() < k && pos < space.span() && probed < MAX_PROBES_PER_DRAW) {
+            int batch = (int) Math.min(space.span() - pos, Math.min(MAX_BATCH, Math.max(MIN_BATCH, 4L * (k - out.size()))));
+            List<Integer> candidates = new ArrayList<>(batch);
+            for (int i = 0; i < batch; i++) {
+                candidates.add(space.base() + (int) perm.apply(pos + i));
+            }
+            Set<Integer> hits = probe(complement, candidates);
+            probed += batch;
+
+            int consumed = 0;
+            for (Integer id : candidates) {
+                consumed++;
+                if (hits.contains(id) && !exclude.contains(id)) {
+                    out.add(id);
+                    if (out.size() >= k) break;
+                }
+            }
+            pos += consumed;
+        }
+        return new Draw(out, pos, pos >= space.span());
+    }
+
+    /**
+     * Seed for the current viewer and preset: stable for the life of the HTTP session (or, without
+     * one, the authenticated principal), so a user sees the same fill when paging back and forth.
+     */
+    public long sessionSeed(Integer presetId) {
+        String owner = null;
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs) {
+            HttpSession session = attrs.getRequest().getSession(false);
+            if (session != null) owner = session.getId();
+        }
+        if (owner == null) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated()) owner = auth.getName();
+        }
+        if (owner == null) return ThreadLocalRandom.current().nextLong();
+        return mix(owner.hashCode() * 31L + Objects.hashCode(presetId));
+    }
+
+    private Set<Integer> probe(CompiledRule complement, List<Integer> candidates) {
+        String where = complement.matchesEverything() ? "" : " AND " + complement.predicate();
+        TypedQuery<Integer> q = em.createQuery(
+                "SELECT p.id FROM Post p WHERE p.id IN :candidates" + where, Integer.class);
+        q.setParameter("candidates", candidates);
+        complement.params().forEach(q::setParameter);
+        return new HashSet<>(q.getResultList());
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /** i -> (a * i + c) mod n with gcd(a, n) = 1: a bijection on [0, n) chosen by the seed. */
+    static final class Permutation {
+        private final long n;
+        private final long a;
+        private final long c;
+
+        Permutation(long n, long seed) {
+            this.n = n;
+            long m = mix(seed);
+            long step = n <= 2 ? 1 : 1 + Math.floorMod(m, n - 1);
+            while (gcd(step, n) != 1) step = step % (n - 1) + 1;
+            this.a = step;
+            this.c = Math.floorMod(mix(m), n);
+        }
+
+        long apply(long i) {
+            return Math.floorMod(a * i + c, n);
+        }
+
+        private static long gcd(long x, long y) {
+            while (y != 0) {
+                long t = x % y;
+                x = y;
+                y = t;
+            }
+            return x;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.syntexsquad.futurefeed.feed;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Runs the per-rule candidate fetches of one feed request concurrently on virtual threads under
+ * a shared deadline. Fetches still running at the deadline are cancelled and reported as missing,
+ * so one slow rule cannot hold up the page; callers mark such responses as partial.
+ *
+ * <p>Cancelling a thread does not stop its JDBC statement, so queries built inside a fetch pass
+ * through {@link #withinDeadline}, which gives them a query timeout of what is left of the
+ * deadline. JDBC cannot express less than a second, so the deadline defaults to one; a shorter one
+ * abandons the fetch on time but leaves its statement running until that second is up. Fetches of all requests together hold at most {@code maxConcurrent} permits, by default
+ * the connection pool's size, so a burst of feed requests queues here instead of draining the pool.
+ */
+@Component
+public class RuleFanout {
+
+    private static final Logger log = LoggerFactory.getLogger(RuleFanout.class);
+
+    static final String QUERY_TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+
+    // System.nanoTime() deadline of the fetch running on this thread
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final long timeoutMs;
+    private final Semaphore permits;
+
+    /** Per-task results in submission order; an entry is {@code null} when that task timed out or failed. */
+    public record Outcome<T>(List<T> results, boolean partial) {
+    }
+
+    @Autowired
+    public RuleFanout(@Value("${feed.rules.timeout-ms:1000}") long timeoutMs,
+                      @Value("${feed.rules.max-concurrent-fetches:0}") int maxConcurrent,
+                      ObjectProvider<DataSource> dataSource) {
+        this(timeoutMs, maxConcurrent > 0 ? maxConcurrent : poolSize(dataSource.getIfAvailable()));
+        if (timeoutMs < 1_000) {
+            log.warn("[feed] feed.rules.timeout-ms={} is under the one-second query timeout; statements of abandoned fetches run past it", timeoutMs);
+        }
+    }
+
+    public RuleFanout(long timeoutMs, int maxConcurrent) {
+        this.timeoutMs = Math.max(1, timeoutMs);
+        this.permits = new Semaphore(Math.max(1, maxConcurrent), true);
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        // HikariCP's default when the pool is not a Hikari one
+        return dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+    }
+
+    /**
+     * Gives {@code query} a timeout of what is left of the current fetch's deadline; outside a
+     * fetch it is returned unchanged. JDBC timeouts are whole seconds (Hibernate rounds the hint),
+     * so the timeout is at least one second rather than rounding down to none.
+     */
+    public static <Q extends Query> Q withinDeadline(Q query) {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) return query;
+        long leftMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        query.setHint(QUERY_TIMEOUT_HINT, (int) Math.max(1_000, leftMs));
+        return query;
+    }
+
+    public <T> Outcome<T> fetchAll(List<Callable<T>> tasks) {
+        if (tasks.isEmpty()) return new Outcome<>(List.of(), false);
+        List<T> results = new ArrayList<>(tasks.size());
+        boolean partial = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        List<Callable<T>> bounded = tasks.stream().map(task -> bounded(task, deadline)).toList();
+        try {
+            List<Future<T>> futures = executor.invokeAll(bounded, timeoutMs, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < futures.size(); i++) {
+                Future<T> f = futures.get(i);
+                if (f.isCancelled()) {
+                    log.warn("[feed] rule fetch #{} exceeded {}ms, serving without it", i, timeoutMs);
+                    results.add(null);
+                    partial = true;
+                    continue;
+                }
+                try {
+                    results.add(f.get());
+                } catch (ExecutionException e) {
+                    log.warn("[feed] rule fetch #{} failed: {}", i, e.getCause() == null ? e.toString() : e.getCause().toString());
+                    results.add(null);
+                    partial = true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            while (results.size() < tasks.size()) results.add(null);
+            partial = true;
+        }
+        return new Outcome<>(results, partial);
+    }
+
+    private <T> Callable<T> bounded(Callable<T> task, long deadline) {
+        return () -> {
+            if (!permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new TimeoutException("no fetch slot free before the deadline");
+            }
+            DEADLINE.set(deadline);
+            try {
+                return task.call();
+            } finally {
+                DEADLINE.remove();
+                permits.release();
+            }
+        };
+    }
+
+    /** Sequential fallback with the same result shape, for callers wired without a fan-out bean. */
+    public static <T> Outcome<T> runInline(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            try {
+                results.add(task.call());
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return new Outcome<>(results, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
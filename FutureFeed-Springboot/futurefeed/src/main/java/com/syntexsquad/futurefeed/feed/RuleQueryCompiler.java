@@ -0,0 +1,193 @@
+package com.syntexsquad.futurefeed.feed;
+
+import com.syntexsquad.futurefeed.model.BotPost;
+import com.syntexsquad.futurefeed.model.Post;
+import com.syntexsquad.futurefeed.model.PresetRule;
+import com.syntexsquad.futurefeed.model.UserPost;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Compiles a {@link PresetRule} (topic / source type / specific user) into a JPQL predicate
+ * so rule candidates are filtered, ordered by created_at DESC and LIMIT-bounded in the database
+ * instead of loading the whole posts table into memory.
+ */
+@Component
+public class RuleQueryCompiler {
+
+    static final String ORDER_BY = " ORDER BY p.createdAt DESC, p.id DESC";
+    static final String HOT_ORDER_BY = " ORDER BY p.hotScore DESC NULLS LAST, p.id DESC";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    /** A compiled predicate over alias {@code p} plus its named parameters. */
+    public record CompiledRule(String predicate, Map<String, Object> params) {
+        public boolean matchesEverything() {
+            return predicate.isEmpty();
+        }
+    }
+
+    public CompiledRule compile(PresetRule rule) {
+        return compile(rule, 0);
+    }
+
+    /**
+     * @param slot suffix for parameter/alias names so several rules can share one query
+     */
+    public CompiledRule compile(PresetRule rule, int slot) {
+        List<String> clauses = new ArrayList<>();
+        Map<String, Object> params = new LinkedHashMap<>();
+
+        if (rule.getTopicId() != null) {
+            String pt = "pt" + slot;
+            String param = "topic" + slot;
+            clauses.add("EXISTS (SELECT 1 FROM PostTopic " + pt + " WHERE " + pt + ".post.id = p.id AND "
+                    + pt + ".topicId = :" + param + ")");
+            params.put(param, rule.getTopicId());
+        }
+
+        // bot source + specific user yields both type clauses and matches nothing, like the old in-memory filter
+        String source = rule.getSourceType();
+        if ("user".equalsIgnoreCase(source) || rule.getSpecificUserId() != null) {
+            clauses.add("TYPE(p) = UserPost");
+        }
+        if ("bot".equalsIgnoreCase(source)) {
+            clauses.add("TYPE(p) = BotPost");
+        }
+
+        if (rule.getSpecificUserId() != null) {
+            String param = "user" + slot;
+            clauses.add("p.user.id = :" + param);
+            params.put(param, rule.getSpecificUserId());
+        }
+
+        return new CompiledRule(String.join(" AND ", clauses), params);
+    }
+
+    /** Newest-first posts matching the rule, at most {@code limit} rows. */
+    public List<Post> fetch(PresetRule rule, int limit) {
+        return fetch(rule, limit, FeedSort.NEW);
+    }
+
+    /** Posts matching the rule in {@code sort} order, at most {@code limit} rows. */
+    public List<Post> fetch(PresetRule rule, int limit, FeedSort sort) {
+        if (limit <= 0) return List.of();
+        CompiledRule compiled = compile(rule);
+        TypedQuery<Post> q = em.createQuery(
+                "SELECT p FROM Post p" + where(compiled.predicate()) + orderBy(sort), Post.class);
+        compiled.params().forEach(q::setParameter);
+        return RuleFanout.withinDeadline(q).setMaxResults(limit).getResultList();
+    }
+
+    /** Ids of the highest-scoring posts matching the rule, at most {@code limit}. */
+    public List<Integer> fetchHotIds(PresetRule rule, int limit) {
+        if (limit <= 0) return List.of();
+        CompiledRule compiled = compile(rule);
+        TypedQuery<Integer> q = em.createQuery(
+                "SELECT p.id FROM Post p" + where(compiled.predicate()) + HOT_ORDER_BY, Integer.class);
+        compiled.params().forEach(q::setParameter);
+        return RuleFanout.withinDeadline(q).setMaxResults(limit).getResultList();
+    }
+
+    /** Same as {@link #fetch} but returns only the sort keys, so no entities are hydrated. */
+    public List<PostKey> fetchKeys(PresetRule rule, int limit) {
+        return fetchKeysAfter(compile(rule), null, limit);
+    }
+
+    /**
+     * Keyset read: newest-first keys matching {@code compiled} that sort strictly after
+     * {@code after} (or from the top when {@code after} is null), at most {@code limit} rows.
+     */
+    public List<PostKey> fetchKeysAfter(CompiledRule compiled, PostKey after, int limit) {
+        if (limit <= 0 || compiled == null) return List.of();
+        List<String> clauses = new ArrayList<>();
+        if (!compiled.matchesEverything()) clauses.add(compiled.predicate());
+        if (after != null) {
+            clauses.add("(p.createdAt < :afterTs OR (p.createdAt = :afterTs AND p.id < :afterId))");
+        }
+        TypedQuery<PostKey> q = em.createQuery(
+                "SELECT new com.syntexsquad.futurefeed.feed.PostKey(p.id, p.createdAt) FROM Post p"
+                        + where(String.join(" AND ", clauses)) + ORDER_BY, PostKey.class);
+        compiled.params().forEach(q::setParameter);
+        if (after != null) {
+            q.setParameter("afterTs", after.createdAt());
+            q.setParameter("afterId", after.id());
+        }
+        return RuleFanout.withinDeadline(q).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Rule {@code index} minus every earlier rule, so each post belongs to exactly one rule
+     * stream; {@code null} when an earlier rule already takes everything.
+     */
+    public CompiledRule compileExclusive(List<PresetRule> rules, int index) {
+        CompiledRule own = compile(rules.get(index), index);
+        List<String> clauses = new ArrayList<>();
+        Map<String, Object> params = new LinkedHashMap<>(own.params());
+        if (!own.matchesEverything()) clauses.add(own.predicate());
+        for (int i = 0; i < index; i++) {
+            CompiledRule earlier = compile(rules.get(i), i);
+            if (earlier.matchesEverything()) return null;
+            clauses.add("NOT (" + earlier.predicate() + ")");
+            params.putAll(earlier.params());
+        }
+        return new CompiledRule(String.join(" AND ", clauses), params);
+    }
+
+    /**
+     * In-memory twin of {@link #compile}: whether a single post satisfies the rule, given the
+     * post's topic ids. Used to keep materialized feeds current without re-querying.
+     */
+    public boolean matches(PresetRule rule, Post post, Collection<Integer> topicIds) {
+        if (post == null) return false;
+        if (rule.getTopicId() != null && (topicIds == null || !topicIds.contains(rule.getTopicId()))) return false;
+
+        String source = rule.getSourceType();
+        if ("user".equalsIgnoreCase(source) && !(post instanceof UserPost)) return false;
+        if ("bot".equalsIgnoreCase(source) && !(post instanceof BotPost)) return false;
+
+        if (rule.getSpecificUserId() != null) {
+            return post instanceof UserPost && post.getUser() != null
+                    && Objects.equals(post.getUser().getId(), rule.getSpecificUserId());
+        }
+        return true;
+    }
+
+    public long count(PresetRule rule) {
+        CompiledRule compiled = compile(rule);
+        TypedQuery<Long> q = em.createQuery(
+                "SELECT COUNT(p) FROM Post p" + where(compiled.predicate()), Long.class);
+        compiled.params().forEach(q::setParameter);
+        return q.getSingleResult();
+    }
+
+    /**
+     * Negated union of all rule predicates; {@code null} when some rule is unconstrained and
+     * therefore nothing can be left over.
+     */
+    public CompiledRule compileUnmatched(List<PresetRule> rules) {
+        List<String> negated = new ArrayList<>();
+        Map<String, Object> params = new LinkedHashMap<>();
+        int slot = 0;
+        for (PresetRule rule : rules) {
+            CompiledRule c = compile(rule, slot++);
+            if (c.matchesEverything()) return null;
+            negated.add("NOT (" + c.predicate() + ")");
+            params.putAll(c.params());
+        }
+        return new CompiledRule(String.join(" AND ", negated), params);
+    }
+
+    private static String orderBy(FeedSort sort) {
+        return sort == FeedSort.HOT ? HOT_ORDER_BY : ORDER_BY;
+    }
+
+    private static String where(String predicate) {
+        return predicate.isEmpty() ? "" : " WHERE " + predicate;
+    }
+}
@@ -1,9 +1,14 @@
 package com.syntexsquad.futurefeed.mapper;
 
 import com.syntexsquad.futurefeed.dto.PostDTO;
+import com.syntexsquad.futurefeed.dto.PostEngagementDTO;
+import com.syntexsquad.futurefeed.dto.PostView;
 import com.syntexsquad.futurefeed.dto.UserPublicDTO;
 import com.syntexsquad.futurefeed.model.*;
 import com.syntexsquad.futurefeed.repository.BotPostRepository;
+import com.syntexsquad.futurefeed.service.AppUserService;
+import com.syntexsquad.futurefeed.service.EngagementSummaryService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
@@ -16,6 +21,12 @@ public class PostViewMapper {
 
     private final BotPostRepository botPostRepository;
 
+    @Autowired(required = false)
+    private EngagementSummaryService engagementSummaryService;
+
+    @Autowired(required = false)
+    private AppUserService appUserService;
+
     public PostViewMapper(BotPostRepository botPostRepository) {
         this.botPostRepository = botPostRepository;
     }
@@ -84,6 +95,71 @@ public class PostViewMapper {
         }).collect(Collectors.toList());
     }
 
+    /**
+     * {@link #toDtoList(List)} plus like / comment / reshare counts and the viewer's flags, filled
+     * from a fixed number of grouped queries for the whole list.
+     */
+    public List<PostDTO> toDtoListWithStats(List<Post> posts, Integer viewerId) {
+        List<PostDTO> dtos = toDtoList(posts);
+        fillStats(dtos, viewerId);
+        return dtos;
+    }
+
+    /** Immutable snapshots of the posts, as the post caches hold them. */
+    public List<PostView> toViews(List<Post> posts) {
+        return toDtoList(posts).stream().map(PostView::of).toList();
+    }
+
+    /** Fresh response model of a (possibly cached, shared) snapshot. */
+    public PostDTO toDto(PostView view) {
+        return toDtos(List.of(view)).get(0);
+    }
+
+    /**
+     * Fresh response models of (possibly cached, shared) snapshots. The author of a user's post is
+     * read from the user caches, which every profile save evicts, so a rename or new avatar shows
+     * up at once instead of when the post caches expire; the snapshot's copy is the fallback.
+     */
+    public List<PostDTO> toDtos(List<PostView> views) {
+        Map<Integer, AppUser> authors = new HashMap<>();
+        return views.stream().map(view -> {
+            PostDTO dto = new PostDTO(view);
+            if (appUserService != null && !Boolean.TRUE.equals(view.isBot())
+                    && view.user() != null && view.user().id() != null) {
+                AppUser author = authors.computeIfAbsent(view.user().id(), appUserService::getUserById);
+                if (author != null) dto.setUser(toAppUser(author));
+            }
+            return dto;
+        }).collect(Collectors.toList());
+    }
+
+    /** {@link #toDtos(List)} with the stats added. */
+    public List<PostDTO> withStats(List<PostView> views, Integer viewerId) {
+        List<PostDTO> dtos = toDtos(views);
+        fillStats(dtos, viewerId);
+        return dtos;
+    }
+
+    private void fillStats(List<PostDTO> dtos, Integer viewerId) {
+        if (dtos.isEmpty() || engagementSummaryService == null) return;
+
+        // PostDTO has no bookmark flag, so that query is skipped
+        Map<Integer, PostEngagementDTO> stats = engagementSummaryService.byPost(
+                dtos.stream().map(PostDTO::getId).toList(), viewerId, false);
+        for (PostDTO dto : dtos) {
+            PostEngagementDTO s = stats.get(dto.getId());
+            if (s == null) continue;
+            dto.setLikeCount(s.getLikeCount());
+            dto.setCommentCount(s.getCommentCount());
+            dto.setReshareCount(s.getReshareCount());
+            if (viewerId != null) {
+                dto.setHasLiked(s.isHasLiked());
+                dto.setHasCommented(s.isHasCommented());
+                dto.setHasReshared(s.isHasReshared());
+            }
+        }
+    }
+
     // --- Helpers ---
     private PostDTO baseDto(Post post) {
         PostDTO dto = new PostDTO();
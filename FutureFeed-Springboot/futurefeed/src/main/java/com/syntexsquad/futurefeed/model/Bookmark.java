@@ -4,7 +4,8 @@ import jakarta.persistence.*;
 
 
 @Entity
-@Table(name = "bookmarks")
+@Table(name = "bookmarks",
+        uniqueConstraints = @UniqueConstraint(name = "uk_bookmarks_user_post", columnNames = {"user_id", "post_id"}))
 public class Bookmark {
 
     @Id
@@ -0,0 +1,34 @@
+package com.syntexsquad.futurefeed.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/** One post pushed into a follower's home timeline; rows are trimmed to a bounded window per owner. */
+@Entity
+@Table(name = "home_timeline",
+        uniqueConstraints = @UniqueConstraint(name = "uk_home_timeline_owner_post", columnNames = {"owner_id", "post_id"}),
+        indexes = {
+                @Index(name = "idx_home_timeline_owner_created", columnList = "owner_id, created_at, post_id"),
+                @Index(name = "idx_home_timeline_post", columnList = "post_id")
+        })
+@Data
+public class HomeTimelineEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "owner_id", nullable = false)
+    private Integer ownerId;
+
+    @Column(name = "post_id", nullable = false)
+    private Integer postId;
+
+    @Column(name = "author_id", nullable = false)
+    private Integer authorId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
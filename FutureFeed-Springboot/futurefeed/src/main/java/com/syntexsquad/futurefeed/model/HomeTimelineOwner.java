@@ -0,0 +1,20 @@
+package com.syntexsquad.futurefeed.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/** Marks a user whose home timeline has been backfilled from their follows. */
+@Entity
+@Table(name = "home_timeline_owners")
+@Data
+public class HomeTimelineOwner {
+
+    @Id
+    @Column(name = "owner_id")
+    private Integer ownerId;
+
+    @Column(name = "seeded_at", nullable = false)
+    private Instant seededAt;
+}
@@ -9,11 +9,19 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.syntexsquad.futurefeed.feed.HotScore;
+import com.syntexsquad.futurefeed.feed.PostIndexListener;
 import org.hibernate.annotations.CreationTimestamp;
 
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_created_at", columnList = "created_at, id"),
+        @Index(name = "idx_posts_type_created_at", columnList = "post_type, created_at"),
+        @Index(name = "idx_posts_user_created_at", columnList = "user_id, created_at"),
+        @Index(name = "idx_posts_hot_score", columnList = "hot_score, id")
+})
+@EntityListeners(PostIndexListener.class)
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "post_type", discriminatorType = DiscriminatorType.STRING)
 @Data
@@ -44,6 +52,24 @@ public abstract class Post {
     @Column(name = "post_type", insertable = false, updatable = false)
     private String postType;
 
+    // Ranking state for sort=hot; written by HotScoreService through bulk updates only
+    @Column(name = "engagement_points")
+    @JsonIgnore
+    private Long engagementPoints;
+
+    @Column(name = "hot_score")
+    @JsonIgnore
+    private Double hotScore;
+
+    // Denormalized engagement counts; written behind by EngagementCounterService
+    @Column(name = "like_count")
+    @JsonIgnore
+    private Long likeCount;
+
+    @Column(name = "reshare_count")
+    @JsonIgnore
+    private Long reshareCount;
+
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<Comment> comments = new ArrayList<>();
@@ -59,4 +85,12 @@ public abstract class Post {
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<Bookmark> bookmarks = new ArrayList<>();
+
+    @PrePersist
+    void initEngagementState() {
+        if (engagementPoints == null) engagementPoints = 0L;
+        if (hotScore == null) hotScore = HotScore.of(createdAt, engagementPoints);
+        if (likeCount == null) likeCount = 0L;
+        if (reshareCount == null) reshareCount = 0L;
+    }
 }
@@ -1,9 +1,13 @@
 package com.syntexsquad.futurefeed.model;
 
+import com.syntexsquad.futurefeed.feed.PostIndexListener;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "post_topics")
+@EntityListeners(PostIndexListener.class)
+@Table(name = "post_topics", indexes = {
+        @Index(name = "idx_post_topics_topic_post", columnList = "topic_id, post_id")
+})
 public class PostTopic {
 
     @Id
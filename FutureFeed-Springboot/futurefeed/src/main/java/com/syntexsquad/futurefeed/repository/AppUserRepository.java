@@ -1,7 +1,12 @@
 package com.syntexsquad.futurefeed.repository;
 
 import com.syntexsquad.futurefeed.model.AppUser;
+import org.hibernate.jpa.HibernateHints;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,4 +17,14 @@ public interface AppUserRepository extends JpaRepository<AppUser, Integer> {
     Optional<AppUser> findById(Integer id);
     List<AppUser> findByUsernameContainingIgnoreCaseOrDisplayNameContainingIgnoreCase(String username, String displayName);
     boolean existsByUsername(String username);
+
+    interface StoredIdentity {
+        String getUsername();
+        String getEmail();
+    }
+
+    /** Username and email as committed, ignoring unflushed changes to the managed entity. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FLUSH_MODE, value = "COMMIT"))
+    @Query("SELECT u.username AS username, u.email AS email FROM AppUser u WHERE u.id = :id")
+    Optional<StoredIdentity> findStoredIdentityById(@Param("id") Integer id);
 }
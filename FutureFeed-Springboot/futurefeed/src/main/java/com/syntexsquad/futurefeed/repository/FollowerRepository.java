@@ -5,6 +5,7 @@ import com.syntexsquad.futurefeed.model.FollowerId;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -13,6 +14,7 @@ public interface FollowerRepository extends JpaRepository<Follower, FollowerId>
     void deleteByFollowerIdAndFollowedId(Integer followerId, Integer followedId);
     List<Follower> findByFollowerId(Integer followerId);
     List<Follower> findByFollowedId(Integer followedId);
+    long countByFollowedId(Integer followedId);
 
     @Query("SELECT u, COUNT(f.followerId) AS followerCount " +
             "FROM Follower f JOIN AppUser u ON f.followedId = u.id " +
@@ -22,5 +24,8 @@ public interface FollowerRepository extends JpaRepository<Follower, FollowerId>
     @Query("SELECT f.followedId FROM Follower f WHERE f.followerId = :userId")
     List<Integer> findFollowedIdsByFollowerId(Integer userId);
 
+    @Query("SELECT f.followedId FROM Follower f GROUP BY f.followedId HAVING COUNT(f.followerId) >= :threshold")
+    List<Integer> findFollowedIdsWithFollowerCountAtLeast(@Param("threshold") long threshold);
+
 
 }
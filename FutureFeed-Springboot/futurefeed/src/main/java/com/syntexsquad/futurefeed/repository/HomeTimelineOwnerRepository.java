@@ -0,0 +1,19 @@
+package com.syntexsquad.futurefeed.repository;
+
+import com.syntexsquad.futurefeed.model.HomeTimelineOwner;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface HomeTimelineOwnerRepository extends JpaRepository<HomeTimelineOwner, Integer> {
+
+    /** Marks the owner's timeline seeded unless it already is; returns the rows written. */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO home_timeline_owners (owner_id, seeded_at) SELECT :ownerId, CURRENT_TIMESTAMP " +
+            "WHERE NOT EXISTS (SELECT 1 FROM home_timeline_owners WHERE owner_id = :ownerId)",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("ownerId") Integer ownerId);
+}
@@ -0,0 +1,67 @@
+package com.syntexsquad.futurefeed.repository;
+
+import com.syntexsquad.futurefeed.feed.PostKey;
+import com.syntexsquad.futurefeed.model.HomeTimelineEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface HomeTimelineRepository extends JpaRepository<HomeTimelineEntry, Long> {
+
+    @Query("SELECT t.postId FROM HomeTimelineEntry t WHERE t.ownerId = :ownerId ORDER BY t.createdAt DESC, t.postId DESC")
+    List<Integer> findPostIdsByOwnerId(@Param("ownerId") Integer ownerId, Pageable pageable);
+
+    @Query("SELECT new com.syntexsquad.futurefeed.feed.PostKey(t.postId, t.createdAt) FROM HomeTimelineEntry t " +
+            "WHERE t.ownerId = :ownerId ORDER BY t.createdAt DESC, t.postId DESC")
+    List<PostKey> findKeysByOwnerId(@Param("ownerId") Integer ownerId, Pageable pageable);
+
+    @Query("SELECT t.postId FROM HomeTimelineEntry t WHERE t.ownerId = :ownerId AND t.authorId = :authorId")
+    List<Integer> findPostIdsByOwnerIdAndAuthorId(@Param("ownerId") Integer ownerId, @Param("authorId") Integer authorId);
+
+    long countByOwnerId(Integer ownerId);
+
+    @Query("SELECT t.ownerId FROM HomeTimelineEntry t GROUP BY t.ownerId HAVING COUNT(t) > :capacity")
+    List<Integer> findOwnersOverCapacity(@Param("capacity") long capacity);
+
+    /**
+     * Pushes a post into the timeline of every follower of its author, skipping timelines that
+     * already hold it; nothing is written once the post is gone.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO home_timeline (owner_id, post_id, author_id, created_at) " +
+            "SELECT f.follower_id, p.id, p.user_id, p.created_at FROM posts p " +
+            "JOIN followers f ON f.followed_id = p.user_id " +
+            "WHERE p.id = :postId AND NOT EXISTS " +
+            "(SELECT 1 FROM home_timeline t WHERE t.owner_id = f.follower_id AND t.post_id = p.id)",
+            nativeQuery = true)
+    int insertForFollowers(@Param("postId") Integer postId);
+
+    /** Adds the newest {@code limit} user posts of {@code authorIds} to the owner's timeline, skipping ones it holds. */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO home_timeline (owner_id, post_id, author_id, created_at) " +
+            "SELECT :ownerId, s.id, s.user_id, s.created_at FROM " +
+            "(SELECT p.id, p.user_id, p.created_at FROM posts p " +
+            "WHERE p.post_type = 'USER' AND p.user_id IN (:authorIds) " +
+            "ORDER BY p.created_at DESC, p.id DESC LIMIT :limit) s " +
+            "WHERE NOT EXISTS (SELECT 1 FROM home_timeline t WHERE t.owner_id = :ownerId AND t.post_id = s.id)",
+            nativeQuery = true)
+    int insertNewestOf(@Param("ownerId") Integer ownerId, @Param("authorIds") List<Integer> authorIds,
+                       @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM HomeTimelineEntry t WHERE t.ownerId = :ownerId AND t.authorId = :authorId")
+    int deleteByOwnerIdAndAuthorId(@Param("ownerId") Integer ownerId, @Param("authorId") Integer authorId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM HomeTimelineEntry t WHERE t.postId = :postId")
+    int deleteByPostId(@Param("postId") Integer postId);
+}
@@ -1,12 +1,18 @@
 package com.syntexsquad.futurefeed.repository;
 
+import com.syntexsquad.futurefeed.feed.PostKey;
 import com.syntexsquad.futurefeed.model.Post;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface PostRepository extends JpaRepository<Post, Integer> {
 
@@ -15,6 +21,9 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
 
     @Query("SELECT p FROM UserPost p WHERE p.user.id = :userId")
     List<Post> findAllByUserId(@Param("userId") Integer userId);
+
+    @Query("SELECT p.user.id FROM Post p WHERE p.id = :id")
+    Optional<Integer> findAuthorIdById(@Param("id") Integer id);
     
      @Query("SELECT p FROM Post p WHERE p.id IN :ids")
     List<Post> findAllById(@Param("ids") List<Integer> ids);
@@ -25,5 +34,39 @@ public interface PostRepository extends JpaRepository<Post, Integer> {
     @Query("SELECT p FROM UserPost p WHERE p.user.id IN :userIds ORDER BY p.createdAt DESC")
     Page<Post> findPostsByFollowedUsers(@Param("userIds") List<Integer> userIds, Pageable pageable);
 
+    @Query("SELECT COUNT(p) FROM UserPost p WHERE p.user.id IN :userIds")
+    long countPostsByFollowedUsers(@Param("userIds") List<Integer> userIds);
+
+    /**
+     * Adds {@code delta} engagement points and moves the hot score's log term to match, in one
+     * statement so concurrent events never lose an increment.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Post p SET p.engagementPoints = p.engagementPoints + :delta, " +
+            "p.hotScore = p.hotScore " +
+            "- ln(CASE WHEN p.engagementPoints > 1 THEN p.engagementPoints * 1.0 ELSE 1.0 END) " +
+            "+ ln(CASE WHEN p.engagementPoints + :delta > 1 THEN (p.engagementPoints + :delta) * 1.0 ELSE 1.0 END) " +
+            "WHERE p.id = :postId AND p.hotScore IS NOT NULL")
+    int addEngagement(@Param("postId") Integer postId, @Param("delta") long delta);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Post p SET p.engagementPoints = :points, p.hotScore = :score WHERE p.id = :postId")
+    int setHotScore(@Param("postId") Integer postId, @Param("points") long points, @Param("score") double score);
+
+    @Query("SELECT p.id FROM Post p ORDER BY p.createdAt DESC, p.id DESC")
+    List<Integer> findNewestIds(Pageable pageable);
+
+    @Query("SELECT p.id FROM Post p ORDER BY p.hotScore DESC NULLS LAST, p.id DESC")
+    List<Integer> findHottestIds(Pageable pageable);
+
+    @Query("SELECT p.id, p.hotScore FROM Post p WHERE p.id IN :ids")
+    List<Object[]> findHotScores(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT new com.syntexsquad.futurefeed.feed.PostKey(p.id, p.createdAt) FROM UserPost p " +
+            "WHERE p.user.id = :authorId ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostKey> findKeysByAuthorId(@Param("authorId") Integer authorId, Pageable pageable);
+
 }
 
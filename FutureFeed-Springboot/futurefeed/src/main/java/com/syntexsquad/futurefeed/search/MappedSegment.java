@@ -0,0 +1,247 @@
+package com.syntexsquad.futurefeed.search;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable segment of the {@link PostTextIndex}, memory-mapped from its file so postings are
+ * read straight from the page cache; only the term dictionary is copied to the heap. Without an
+ * index directory the same bytes are held in a heap buffer instead.
+ *
+ * <p>Layout, all integers big-endian:
+ * <pre>
+ * magic, version, docCount
+ * docIds[docCount]      ascending, so an ordinal is found by binary search
+ * docLengths[docCount]
+ * postings              per term: (ord, freq, positions[freq]) per document, ords ascending
+ * dictionary            termCount, then per term in sorted order: utf8 length (short), utf8 bytes,
+ *                       docFreq, postings offset
+ * dictionary offset
+ * </pre>
+ * Offsets are ints, so one segment stays below 2 GB; merges are capped well under that.
+ */
+final class MappedSegment implements Segment {
+
+    private static final int MAGIC = 0x46464958; // "FFIX"
+    private static final int VERSION = 1;
+    private static final int HEADER = 12;
+
+    private final Path file;
+    private final ByteBuffer buf;
+    private final int docCount;
+    private final int lengthsAt;
+    private final String[] terms;
+    private final int[] docFreqs;
+    private final int[] offsets;
+
+    private MappedSegment(Path file, ByteBuffer buf) throws IOException {
+        this.file = file;
+        this.buf = buf;
+        if (buf.capacity() < HEADER + 8 || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IOException("Not an index segment: " + (file == null ? "<memory>" : file));
+        }
+        docCount = buf.getInt(8);
+        lengthsAt = HEADER + 4 * docCount;
+
+        ByteBuffer dict = buf.duplicate().position(buf.getInt(buf.capacity() - 4));
+        int termCount = dict.getInt();
+        terms = new String[termCount];
+        docFreqs = new int[termCount];
+        offsets = new int[termCount];
+        for (int i = 0; i < termCount; i++) {
+            byte[] utf8 = new byte[dict.getShort()];
+            dict.get(utf8);
+            terms[i] = new String(utf8, StandardCharsets.UTF_8);
+            docFreqs[i] = dict.getInt();
+            offsets[i] = dict.getInt();
+        }
+    }
+
+    static MappedSegment open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel closes, and after the file is deleted
+            return new MappedSegment(file, ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    static MappedSegment of(byte[] bytes) throws IOException {
+        return new MappedSegment(null, ByteBuffer.wrap(bytes));
+    }
+
+    /** The backing file, or {@code null} for a heap segment. */
+    Path file() {
+        return file;
+    }
+
+    @Override
+    public int docCount() {
+        return docCount;
+    }
+
+    @Override
+    public int docId(int ord) {
+        return buf.getInt(HEADER + 4 * ord);
+    }
+
+    @Override
+    public int docLength(int ord) {
+        return buf.getInt(lengthsAt + 4 * ord);
+    }
+
+    @Override
+    public int ordOf(int id) {
+        int lo = 0;
+        int hi = docCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int at = docId(mid);
+            if (at < id) lo = mid + 1;
+            else if (at > id) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    @Override
+    public int docFreq(String term) {
+        int i = Arrays.binarySearch(terms, term);
+        return i < 0 ? 0 : docFreqs[i];
+    }
+
+    @Override
+    public Postings postings(String term) {
+        int i = Arrays.binarySearch(terms, term);
+        if (i < 0) return null;
+        int df = docFreqs[i];
+        int[] ords = new int[df];
+        int[][] positions = new int[df][];
+        int at = offsets[i];
+        for (int d = 0; d < df; d++) {
+            ords[d] = buf.getInt(at);
+            int freq = buf.getInt(at + 4);
+            at += 8;
+            int[] p = new int[freq];
+            for (int k = 0; k < freq; k++, at += 4) p[k] = buf.getInt(at);
+            positions[d] = p;
+        }
+        return new Postings(ords, positions);
+    }
+
+    @Override
+    public List<String> termsWithPrefix(String prefix, int limit) {
+        int i = Arrays.binarySearch(terms, prefix);
+        if (i < 0) i = -i - 1;
+        List<String> out = new ArrayList<>();
+        for (; i < terms.length && out.size() < limit && terms[i].startsWith(prefix); i++) out.add(terms[i]);
+        return out;
+    }
+
+    @Override
+    public List<String> terms() {
+        return Arrays.asList(terms);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return buf.capacity();
+    }
+
+    /**
+     * Writes the documents of {@code sources} whose post id passes {@code keep} as one segment,
+     * ordered by id. Used both to flush the memory buffer and to merge segments; the sources are
+     * only read.
+     *
+     * @return the number of documents written; with none, the output is not a valid segment
+     */
+    static int write(List<? extends Segment> sources, IntPredicate keep, OutputStream out) throws IOException {
+        // new ordinal of every kept document, by source
+        List<long[]> docs = new ArrayList<>();
+        for (int s = 0; s < sources.size(); s++) {
+            Segment src = sources.get(s);
+            for (int ord = 0; ord < src.docCount(); ord++) {
+                int id = src.docId(ord);
+                if (keep.test(id)) docs.add(new long[]{id, s, ord});
+            }
+        }
+        if (docs.isEmpty()) return 0;
+        docs.sort(Comparator.comparingLong(d -> d[0]));
+        int[][] remap = new int[sources.size()][];
+        for (int s = 0; s < sources.size(); s++) {
+            remap[s] = new int[sources.get(s).docCount()];
+            Arrays.fill(remap[s], -1);
+        }
+        for (int n = 0; n < docs.size(); n++) {
+            long[] d = docs.get(n);
+            remap[(int) d[1]][(int) d[2]] = n;
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(docs.size());
+        for (long[] d : docs) data.writeInt((int) d[0]);
+        for (long[] d : docs) data.writeInt(sources.get((int) d[1]).docLength((int) d[2]));
+
+        ByteArrayOutputStream dictBytes = new ByteArrayOutputStream();
+        DataOutputStream dict = new DataOutputStream(dictBytes);
+        int termCount = 0;
+        // k-way walk over the sorted term lists of all sources
+        List<List<String>> termLists = sources.stream().map(Segment::terms).toList();
+        int[] next = new int[sources.size()];
+        while (true) {
+            String term = null;
+            for (int s = 0; s < sources.size(); s++) {
+                if (next[s] < termLists.get(s).size()) {
+                    String t = termLists.get(s).get(next[s]);
+                    if (term == null || t.compareTo(term) < 0) term = t;
+                }
+            }
+            if (term == null) break;
+
+            List<int[]> entries = new ArrayList<>(); // new ord, then positions
+            for (int s = 0; s < sources.size(); s++) {
+                if (next[s] >= termLists.get(s).size() || !termLists.get(s).get(next[s]).equals(term)) continue;
+                next[s]++;
+                Postings p = sources.get(s).postings(term);
+                for (int d = 0; d < p.size(); d++) {
+                    int ord = remap[s][p.ords()[d]];
+                    if (ord < 0) continue;
+                    int[] entry = new int[p.positions()[d].length + 1];
+                    entry[0] = ord;
+                    System.arraycopy(p.positions()[d], 0, entry, 1, entry.length - 1);
+                    entries.add(entry);
+                }
+            }
+            if (entries.isEmpty()) continue;
+            entries.sort(Comparator.comparingInt(e -> e[0]));
+
+            int offset = data.size();
+            for (int[] e : entries) {
+                data.writeInt(e[0]);
+                data.writeInt(e.length - 1);
+                for (int k = 1; k < e.length; k++) data.writeInt(e[k]);
+            }
+            byte[] utf8 = term.getBytes(StandardCharsets.UTF_8);
+            dict.writeShort(utf8.length);
+            dict.write(utf8);
+            dict.writeInt(entries.size());
+            dict.writeInt(offset);
+            termCount++;
+        }
+
+        int dictAt = data.size();
+        // size() sticks at Integer.MAX_VALUE once it overflows
+        if (dictAt == Integer.MAX_VALUE) throw new IOException("Segment exceeds 2 GB");
+        data.writeInt(termCount);
+        dictBytes.writeTo(data);
+        data.writeInt(dictAt);
+        data.flush();
+        return docs.size();
+    }
+}
@@ -0,0 +1,117 @@
+package com.syntexsquad.futurefeed.search;
+
+import java.util.*;
+
+/**
+ * The writable part of the {@link PostTextIndex}: posts added since the last flush, searchable as
+ * soon as they are added. Ordinals follow insertion order. Not thread-safe; the index guards it
+ * with its lock and writes it out as a {@link MappedSegment} once it holds enough posts.
+ */
+final class MemorySegment implements Segment {
+
+    private int[] ids = new int[64];
+    private int[] lengths = new int[64];
+    private int count;
+    private final Map<Integer, Integer> ordById = new HashMap<>();
+    private final TreeMap<String, PostingsBuilder> postings = new TreeMap<>();
+    private long bytes;
+
+    void add(int id, List<TextAnalyzer.Token> tokens) {
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+        }
+        int ord = count++;
+        ids[ord] = id;
+        lengths[ord] = tokens.size();
+        ordById.put(id, ord);
+
+        Map<String, List<Integer>> byTerm = new LinkedHashMap<>();
+        for (TextAnalyzer.Token t : tokens) {
+            byTerm.computeIfAbsent(t.term(), k -> new ArrayList<>()).add(t.position());
+        }
+        byTerm.forEach((term, positions) -> {
+            PostingsBuilder b = postings.get(term);
+            if (b == null) {
+                b = new PostingsBuilder();
+                postings.put(term, b);
+                bytes += 64 + 2L * term.length();
+            }
+            b.add(ord, positions.stream().mapToInt(Integer::intValue).toArray());
+            bytes += 24 + 4L * positions.size();
+        });
+        bytes += 48;
+    }
+
+    @Override
+    public int docCount() {
+        return count;
+    }
+
+    @Override
+    public int docId(int ord) {
+        return ids[ord];
+    }
+
+    @Override
+    public int docLength(int ord) {
+        return lengths[ord];
+    }
+
+    @Override
+    public int ordOf(int id) {
+        return ordById.getOrDefault(id, -1);
+    }
+
+    @Override
+    public int docFreq(String term) {
+        PostingsBuilder b = postings.get(term);
+        return b == null ? 0 : b.size;
+    }
+
+    @Override
+    public Postings postings(String term) {
+        PostingsBuilder b = postings.get(term);
+        return b == null ? null : b.build();
+    }
+
+    @Override
+    public List<String> termsWithPrefix(String prefix, int limit) {
+        List<String> out = new ArrayList<>();
+        for (String term : postings.tailMap(prefix, true).keySet()) {
+            if (!term.startsWith(prefix) || out.size() >= limit) break;
+            out.add(term);
+        }
+        return out;
+    }
+
+    @Override
+    public List<String> terms() {
+        return new ArrayList<>(postings.keySet());
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return bytes;
+    }
+
+    private static final class PostingsBuilder {
+        private int[] ords = new int[2];
+        private int[][] positions = new int[2][];
+        private int size;
+
+        void add(int ord, int[] at) {
+            if (size == ords.length) {
+                ords = Arrays.copyOf(ords, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            ords[size] = ord;
+            positions[size] = at;
+            size++;
+        }
+
+        Postings build() {
+            return new Postings(Arrays.copyOf(ords, size), Arrays.copyOf(positions, size));
+        }
+    }
+}
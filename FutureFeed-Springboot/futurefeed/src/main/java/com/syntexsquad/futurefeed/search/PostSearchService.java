@@ -0,0 +1,169 @@
+package com.syntexsquad.futurefeed.search;
+
+import com.syntexsquad.futurefeed.feed.CursorPage;
+import com.syntexsquad.futurefeed.model.Post;
+import com.syntexsquad.futurefeed.repository.PostRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Ranked, paginated post search backed by PostgreSQL full-text search. {@code posts.search_vector}
+ * is a generated {@code tsvector} over the content, so the database keeps it current on every
+ * insert and update, and a GIN index answers the match without reading every post. Hits are ranked
+ * with {@code ts_rank} (normalised by document length so long posts do not win on size alone),
+ * newest first on equal rank, and paged with a keyset {@link SearchCursor} rather than an offset.
+ *
+ * <p>The column and index are created at startup when missing; adding the column rewrites the
+ * posts table once. On other databases (H2 in tests) the query goes to the embedded
+ * {@link PostTextIndex} once it is built, and until then it is answered with {@code LIKE} matches
+ * in newest-first order.
+ */
+@Service
+public class PostSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSearchService.class);
+
+    static final String TS_CONFIG = "english";
+    public static final int MAX_PAGE_SIZE = 50;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final PostRepository postRepository;
+    private final DataSource dataSource;
+    private volatile boolean fullText;
+
+    @Autowired(required = false)
+    private PostTextIndex textIndex;
+
+    public PostSearchService(PostRepository postRepository, DataSource dataSource) {
+        this.postRepository = postRepository;
+        this.dataSource = dataSource;
+    }
+
+    public boolean isFullText() {
+        return fullText;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureSchema() {
+        try (Connection c = dataSource.getConnection()) {
+            // asks the driver rather than the configured dialect, which is PostgreSQL even on H2
+            if (!"PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName())) return;
+            try (Statement s = c.createStatement()) {
+                s.execute("ALTER TABLE posts ADD COLUMN IF NOT EXISTS search_vector tsvector " +
+                        "GENERATED ALWAYS AS (to_tsvector('" + TS_CONFIG + "', coalesce(content, ''))) STORED");
+                s.execute("CREATE INDEX IF NOT EXISTS idx_posts_search_vector ON posts USING GIN (search_vector)");
+            }
+            if (!c.getAutoCommit()) c.commit();
+            fullText = true;
+            log.info("[search] full-text index ready");
+        } catch (SQLException | RuntimeException e) {
+            log.warn("[search] full-text index unavailable, searching with LIKE: {}", e.toString());
+        }
+    }
+
+    /**
+     * One page of posts matching {@code text}, best first.
+     *
+     * @param cursor {@code null} for the first page, else a previous page's {@code nextCursor}
+     * @throws IllegalArgumentException for a cursor this service did not issue
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<Post> search(String text, String cursor, int size) {
+        SearchQuery query = SearchQuery.parse(text);
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        SearchCursor after = cursor == null || cursor.isBlank() ? null : SearchCursor.decode(cursor);
+        if (query.isEmpty()) return new CursorPage<>(List.of(), null);
+
+        // one extra row tells us whether there is a next page
+        List<Hit> hits;
+        List<Long> statistics = List.of();
+        if (textIndex != null && textIndex.isReady()) {
+            PostTextIndex.Results results = textIndex.search(query, after, limit + 1);
+            hits = results.hits().stream().map(h -> new Hit(h.id(), h.score())).toList();
+            statistics = results.statistics();
+        } else if (fullText) {
+            hits = rankedHits(query, after, limit + 1);
+        } else {
+            hits = likeHits(query, after, limit + 1);
+        }
+        boolean more = hits.size() > limit;
+        if (more) hits = hits.subList(0, limit);
+
+        List<Integer> ids = hits.stream().map(Hit::id).toList();
+        Map<Integer, Post> byId = ids.isEmpty() ? Map.of() : postRepository.findAllPolymorphicById(ids).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> posts = ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+
+        Hit last = hits.isEmpty() ? null : hits.get(hits.size() - 1);
+        String next = more ? new SearchCursor(last.rank(), last.id(), statistics).encode() : null;
+        return new CursorPage<>(posts, next);
+    }
+
+    private record Hit(int id, float rank) {}
+
+    private List<Hit> rankedHits(SearchQuery query, SearchCursor after, int limit) {
+        String sql = "SELECT id, rank FROM (" +
+                " SELECT p.id AS id, ts_rank(p.search_vector, q.query, 1) AS rank" +
+                " FROM posts p, to_tsquery('" + TS_CONFIG + "', :q) AS q(query)" +
+                " WHERE p.search_vector @@ q.query) hits" +
+                (after == null ? "" : " WHERE hits.rank < CAST(:rank AS real)" +
+                        " OR (hits.rank = CAST(:rank AS real) AND hits.id < :id)") +
+                " ORDER BY hits.rank DESC, hits.id DESC";
+        Query q = em.createNativeQuery(sql)
+                .setParameter("q", query.toTsQuery())
+                .setMaxResults(limit);
+        if (after != null) q.setParameter("rank", after.rank()).setParameter("id", after.id());
+
+        List<Hit> hits = new ArrayList<>();
+        for (Object row : q.getResultList()) {
+            Object[] r = (Object[]) row;
+            hits.add(new Hit(((Number) r[0]).intValue(), ((Number) r[1]).floatValue()));
+        }
+        return hits;
+    }
+
+    private List<Hit> likeHits(SearchQuery query, SearchCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT p.id FROM Post p WHERE (");
+        Map<String, String> params = new HashMap<>();
+        List<String> groups = new ArrayList<>();
+        for (List<SearchQuery.Clause> group : query.anyOf()) {
+            List<String> terms = new ArrayList<>();
+            for (SearchQuery.Clause c : group) {
+                String name = "w" + params.size();
+                // clause words are letters and digits only, so they need no LIKE escaping
+                params.put(name, "%" + String.join(" ", c.words()) + "%");
+                terms.add(c.negated()
+                        ? "(p.content IS NULL OR LOWER(p.content) NOT LIKE :" + name + ")"
+                        : "LOWER(p.content) LIKE :" + name);
+            }
+            groups.add("(" + String.join(" AND ", terms) + ")");
+        }
+        jpql.append(String.join(" OR ", groups)).append(")");
+        if (after != null) jpql.append(" AND p.id < :after");
+        jpql.append(" ORDER BY p.id DESC");
+
+        TypedQuery<Integer> q = em.createQuery(jpql.toString(), Integer.class).setMaxResults(limit);
+        params.forEach(q::setParameter);
+        if (after != null) q.setParameter("after", after.id());
+        return q.getResultList().stream().map(id -> new Hit(id, 0f)).toList();
+    }
+}
@@ -0,0 +1,826 @@
+package com.syntexsquad.futurefeed.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process full-text index over post content, for deployments where PostgreSQL full-text search
+ * is not available (H2, or {@code search.index.mode=always}). Content is split by
+ * {@link TextAnalyzer} into terms with positions; queries are {@link SearchQuery} clauses, scored
+ * with BM25 and served best first, newest first on equal score.
+ *
+ * <p>New posts go to a {@link MemorySegment} and are searchable immediately; once it holds
+ * {@code search.index.buffer-docs} posts it is written out as an immutable, memory-mapped
+ * {@link MappedSegment}. When there are more than {@code search.index.max-segments} segments the
+ * smallest are merged in the background, which also drops deleted posts; until then a deleted post
+ * only leaves the live-id bitset. Segment files and a manifest naming them live in
+ * {@code search.index.dir} (blank keeps everything on the heap).
+ *
+ * <p>Built after startup: segments from the last run are reopened, checked against the posts
+ * table, and whatever posts they miss are indexed from the table in id ranges on
+ * {@code search.index.build-threads} threads. Kept current by {@code PostIndexListener} (post create
+ * and delete events); updates during the build are queued and replayed over it. Until the build
+ * finishes {@link #isReady()} is false and searches fall back to SQL. Sizes are published as
+ * {@code search.index.*} metrics.
+ */
+@Component
+public class PostTextIndex implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(PostTextIndex.class);
+
+    /** A matching post and its BM25 score. */
+    public record Hit(int id, float score) {}
+
+    /**
+     * A page of hits and the statistics they were scored with: live documents, their total length,
+     * then the document frequency of each query word. Passed back in the next page's cursor.
+     */
+    public record Results(List<Hit> hits, List<Long> statistics) {}
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MERGE_FACTOR = 4;
+    private static final int MAX_EXPANSIONS = 64;
+    private static final int VERIFY_SAMPLE = 32;
+    private static final String MANIFEST = "segments";
+
+    private final DataSource dataSource;
+    private final String mode;
+    private final int bufferDocs;
+    private final int maxSegments;
+    private final long maxSegmentBytes;
+    private final int buildThreads;
+    private final int buildBatch;
+    private volatile Path dir;
+    private volatile boolean enabled;
+    private volatile boolean ready;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private List<MappedSegment> segments = List.of();
+    private MemorySegment buffer = new MemorySegment();
+    private final BitSet live = new BitSet();
+    private int liveDocs;
+    private long liveLength;
+    // non-null while the startup build runs
+    private List<Runnable> pending;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean merging = new AtomicBoolean();
+    // runs the startup build, then merges one at a time
+    private final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "search-index");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public PostTextIndex(DataSource dataSource,
+                         @Value("${search.index.mode:auto}") String mode,
+                         @Value("${search.index.dir:}") String dir,
+                         @Value("${search.index.buffer-docs:1000}") int bufferDocs,
+                         @Value("${search.index.max-segments:8}") int maxSegments,
+                         @Value("${search.index.max-segment-mb:1024}") int maxSegmentMb,
+                         @Value("${search.index.build-threads:0}") int buildThreads,
+                         @Value("${search.index.build-batch:5000}") int buildBatch) {
+        this.dataSource = dataSource;
+        this.mode = mode.trim().toLowerCase(Locale.ROOT);
+        this.dir = dir == null || dir.isBlank() ? null : Path.of(dir.trim());
+        this.bufferDocs = Math.max(1, bufferDocs);
+        this.maxSegments = Math.max(1, maxSegments);
+        this.maxSegmentBytes = Math.min(Math.max(1, maxSegmentMb), 1536) * 1024L * 1024L;
+        this.buildThreads = buildThreads > 0 ? buildThreads : Runtime.getRuntime().availableProcessors();
+        this.buildBatch = Math.max(1, buildBatch);
+        this.enabled = !"off".equals(this.mode);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // ---------------- build ----------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInBackground() {
+        background.execute(this::start);
+    }
+
+    /** Builds the index; searches fall back to SQL until it returns. */
+    public void start() {
+        if (!enabled) return;
+        long started = System.currentTimeMillis();
+        try (Connection c = dataSource.getConnection()) {
+            if ("auto".equals(mode) && "PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName())) {
+                log.info("[search] PostgreSQL full-text search in use, embedded index not built");
+                disable();
+                return;
+            }
+        } catch (SQLException e) {
+            log.warn("[search] embedded index not built: {}", e.toString());
+            disable();
+            return;
+        }
+
+        BitSet alreadyLive;
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+            alreadyLive = (BitSet) live.clone();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            BitSet inDb = loadPostIds();
+            List<MappedSegment> reopened = reopen(inDb);
+            BitSet missing = (BitSet) inDb.clone();
+            missing.andNot(alreadyLive);
+            for (MappedSegment s : reopened) {
+                for (int ord = 0; ord < s.docCount(); ord++) missing.clear(s.docId(ord));
+            }
+            List<MappedSegment> built = buildSegments(missing);
+
+            lock.writeLock().lock();
+            try {
+                List<MappedSegment> all = new ArrayList<>(segments);
+                all.addAll(reopened);
+                all.addAll(built);
+                segments = List.copyOf(all);
+                for (MappedSegment s : all) {
+                    for (int ord = 0; ord < s.docCount(); ord++) {
+                        int id = s.docId(ord);
+                        if (inDb.get(id) && !live.get(id)) {
+                            live.set(id);
+                            liveDocs++;
+                            liveLength += s.docLength(ord);
+                        }
+                    }
+                }
+                commitLocked();
+                ready = true;
+                replayPendingLocked();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            scheduleMerge();
+            log.info("[search] embedded index ready posts={} reused={} indexed={} segments={} in {}ms",
+                    liveDocs, inDb.cardinality() - missing.cardinality(), missing.cardinality(),
+                    segmentCount(), System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            log.warn("[search] embedded index build failed, searching with SQL: {}", e.toString());
+            disable();
+        }
+    }
+
+    private void disable() {
+        enabled = false;
+        lock.writeLock().lock();
+        try {
+            pending = null;
+            segments = List.of();
+            buffer = new MemorySegment();
+            live.clear();
+            liveDocs = 0;
+            liveLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replayPendingLocked() {
+        List<Runnable> queued = pending;
+        pending = null;
+        if (queued != null) queued.forEach(Runnable::run);
+    }
+
+    private BitSet loadPostIds() throws SQLException {
+        BitSet ids = new BitSet();
+        try (Connection c = dataSource.getConnection();
+             Statement s = c.createStatement()) {
+            s.setFetchSize(10_000);
+            try (ResultSet rs = s.executeQuery("SELECT id FROM posts")) {
+                while (rs.next()) ids.set(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Segments listed in the manifest of the last run, or none when they cannot be read or do not
+     * describe this database (it was recreated and ids are being reused). Files the manifest does
+     * not list are left over from an interrupted flush or merge and are deleted.
+     */
+    private List<MappedSegment> reopen(BitSet inDb) throws IOException, SQLException {
+        Path d = dir;
+        if (d == null) return List.of();
+        Files.createDirectories(d);
+        List<MappedSegment> opened = new ArrayList<>();
+        Path manifest = d.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            try {
+                for (String name : Files.readAllLines(manifest)) {
+                    if (name.isBlank()) continue;
+                    opened.add(MappedSegment.open(d.resolve(name.trim())));
+                    generation.accumulateAndGet(generationOf(name.trim()), Math::max);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("[search] index in {} unreadable, rebuilding: {}", d, e.toString());
+                opened.clear();
+            }
+            if (!opened.isEmpty() && !matchesDatabase(opened, inDb)) {
+                log.warn("[search] index in {} does not match the posts table, rebuilding", d);
+                opened.clear();
+            }
+        }
+        Set<Path> keep = opened.stream().map(MappedSegment::file).collect(Collectors.toSet());
+        try (Stream<Path> files = Files.list(d)) {
+            for (Path f : files.filter(f -> f.getFileName().toString().startsWith("seg-")).toList()) {
+                if (!keep.contains(f)) Files.deleteIfExists(f);
+            }
+        }
+        return opened;
+    }
+
+    private static long generationOf(String name) {
+        try {
+            return Long.parseLong(name.substring(4, name.indexOf('.')));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    // re-analyzes a spread of posts and compares their lengths with what the segments recorded
+    private boolean matchesDatabase(List<MappedSegment> opened, BitSet inDb) throws SQLException {
+        Map<Integer, Integer> expected = new HashMap<>();
+        int perSegment = Math.max(1, VERIFY_SAMPLE / opened.size());
+        for (MappedSegment s : opened) {
+            int step = Math.max(1, s.docCount() / perSegment);
+            for (int ord = 0; ord < s.docCount(); ord += step) {
+                if (inDb.get(s.docId(ord))) expected.put(s.docId(ord), s.docLength(ord));
+            }
+        }
+        if (expected.isEmpty()) return true;
+        String marks = String.join(",", Collections.nCopies(expected.size(), "?"));
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT id, content FROM posts WHERE id IN (" + marks + ")")) {
+            int i = 1;
+            for (Integer id : expected.keySet()) ps.setInt(i++, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (TextAnalyzer.analyze(rs.getString(2)).size() != expected.get(rs.getInt(1))) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Indexes the {@code missing} posts from the table, one segment per id range, in parallel. */
+    private List<MappedSegment> buildSegments(BitSet missing) throws Exception {
+        if (missing.isEmpty()) return List.of();
+        List<int[]> ranges = new ArrayList<>();
+        int from = -1;
+        int n = 0;
+        for (int id = missing.nextSetBit(0); id >= 0; id = missing.nextSetBit(id + 1)) {
+            if (from < 0) from = id;
+            if (++n == buildBatch || missing.nextSetBit(id + 1) < 0) {
+                ranges.add(new int[]{from, id});
+                from = -1;
+                n = 0;
+            }
+        }
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(buildThreads, ranges.size()), r -> {
+            Thread t = new Thread(r, "search-index-build-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<MappedSegment>> futures = new ArrayList<>();
+            for (int[] range : ranges) futures.add(pool.submit(() -> buildRange(range[0], range[1], missing)));
+            List<MappedSegment> built = new ArrayList<>();
+            for (Future<MappedSegment> f : futures) {
+                MappedSegment s = f.get();
+                if (s != null) built.add(s);
+            }
+            return built;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private MappedSegment buildRange(int from, int to, BitSet missing) throws SQLException, IOException {
+        MemorySegment part = new MemorySegment();
+        try (Connection c = dataSource.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT id, content FROM posts WHERE id BETWEEN ? AND ?")) {
+            ps.setFetchSize(1_000);
+            ps.setInt(1, from);
+            ps.setInt(2, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    if (missing.get(id)) part.add(id, TextAnalyzer.analyze(rs.getString(2)));
+                }
+            }
+        }
+        return writeSegment(List.of(part), id -> true);
+    }
+
+    // ---------------- updates ----------------
+
+    public void addPost(Integer postId, String content) {
+        if (postId == null || !enabled) return;
+        List<TextAnalyzer.Token> tokens = TextAnalyzer.analyze(content);
+        lock.writeLock().lock();
+        try {
+            if (pending != null) pending.add(() -> addLocked(postId, tokens));
+            else addLocked(postId, tokens);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removePost(Integer postId) {
+        if (postId == null || !enabled) return;
+        lock.writeLock().lock();
+        try {
+            if (pending != null) pending.add(() -> removeLocked(postId));
+            else removeLocked(postId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addLocked(int id, List<TextAnalyzer.Token> tokens) {
+        // the build may already have read this post from the table
+        if (live.get(id)) return;
+        buffer.add(id, tokens);
+        live.set(id);
+        liveDocs++;
+        liveLength += tokens.size();
+        // before the build, reopened segment files are still being sorted out
+        if (ready && buffer.docCount() >= bufferDocs) flushLocked();
+    }
+
+    private void removeLocked(int id) {
+        if (!live.get(id)) return;
+        live.clear(id);
+        liveDocs--;
+        liveLength -= lengthOf(id);
+    }
+
+    private int lengthOf(int id) {
+        int ord = buffer.ordOf(id);
+        if (ord >= 0) return buffer.docLength(ord);
+        for (MappedSegment s : segments) {
+            ord = s.ordOf(id);
+            if (ord >= 0) return s.docLength(ord);
+        }
+        return 0;
+    }
+
+    /** Writes buffered posts out as a segment; they stay searchable throughout. */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            flushLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void flushLocked() {
+        if (buffer.docCount() == 0) return;
+        try {
+            MappedSegment s = writeSegment(List.of(buffer), live::get);
+            if (s != null) {
+                List<MappedSegment> next = new ArrayList<>(segments);
+                next.add(s);
+                segments = List.copyOf(next);
+            }
+            buffer = new MemorySegment();
+            commitLocked();
+        } catch (IOException e) {
+            log.warn("[search] cannot write index segments to {}, keeping the index in memory: {}", dir, e.toString());
+            dir = null;
+            flushLocked();
+            return;
+        }
+        scheduleMerge();
+    }
+
+    private MappedSegment writeSegment(List<? extends Segment> sources, IntPredicate keep) throws IOException {
+        Path d = dir;
+        if (d == null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            return MappedSegment.write(sources, keep, out) == 0 ? null : MappedSegment.of(out.toByteArray());
+        }
+        Path file = d.resolve(String.format("seg-%08d.idx", generation.incrementAndGet()));
+        Path tmp = d.resolve(file.getFileName() + ".tmp");
+        int written;
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            written = MappedSegment.write(sources, keep, out);
+        }
+        if (written == 0) {
+            Files.deleteIfExists(tmp);
+            return null;
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        return MappedSegment.open(file);
+    }
+
+    // the manifest is replaced atomically, so a crash leaves either the old or the new segment set
+    private void commitLocked() {
+        Path d = dir;
+        if (d == null) return;
+        List<String> names = segments.stream().map(MappedSegment::file).filter(Objects::nonNull)
+                .map(f -> f.getFileName().toString()).toList();
+        try {
+            Path tmp = d.resolve(MANIFEST + ".tmp");
+            Files.write(tmp, names);
+            Files.move(tmp, d.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("[search] cannot write index manifest in {}: {}", d, e.toString());
+        }
+    }
+
+    // ---------------- merges ----------------
+
+    private void scheduleMerge() {
+        if (segmentCount() <= maxSegments || !merging.compareAndSet(false, true)) return;
+        try {
+            background.execute(() -> {
+                try {
+                    while (mergeOnce()) {
+                        // until at most max-segments remain, or the rest are too large to merge
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("[search] index merge failed: {}", e.toString());
+                } finally {
+                    merging.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            merging.set(false);
+        }
+    }
+
+    /** Merges the smallest segments into one, without blocking searches or updates meanwhile. */
+    private boolean mergeOnce() throws IOException {
+        List<MappedSegment> candidates;
+        BitSet keep;
+        lock.readLock().lock();
+        try {
+            if (segments.size() <= maxSegments) return false;
+            candidates = new ArrayList<>(segments);
+            keep = (BitSet) live.clone();
+        } finally {
+            lock.readLock().unlock();
+        }
+        candidates.sort(Comparator.comparingLong(MappedSegment::sizeInBytes));
+        List<MappedSegment> merge = new ArrayList<>();
+        long size = 0;
+        for (MappedSegment s : candidates) {
+            if (merge.size() == MERGE_FACTOR || size + s.sizeInBytes() > maxSegmentBytes) break;
+            merge.add(s);
+            size += s.sizeInBytes();
+        }
+        if (merge.size() < 2) return false;
+
+        // posts deleted while this runs are written too and stay hidden by the live bitset
+        MappedSegment merged = writeSegment(merge, keep::get);
+        lock.writeLock().lock();
+        try {
+            List<MappedSegment> next = new ArrayList<>(segments);
+            next.removeAll(merge);
+            if (merged != null) next.add(merged);
+            segments = List.copyOf(next);
+            commitLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (MappedSegment s : merge) {
+            if (s.file() != null) Files.deleteIfExists(s.file());
+        }
+        return true;
+    }
+
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        background.shutdownNow();
+        // buffered posts would otherwise be re-read from the table on the next start
+        if (ready && dir != null) flush();
+    }
+
+    // ---------------- queries ----------------
+
+    private record Word(String term, boolean prefix, int offset) {}
+
+    private record Clause(List<Word> words, boolean negated) {}
+
+    /** Ids and scores of matching documents in one segment, ordinals ascending. */
+    private record Matches(int[] ords, double[] scores) {
+        static final Matches NONE = new Matches(new int[0], new double[0]);
+    }
+
+    /**
+     * Posts matching {@code query} best first, starting strictly after {@code after} when given,
+     * at most {@code limit}. A cursor carrying the statistics of an earlier page of the same query
+     * is scored with those, so the order it continues does not shift as posts are added or removed.
+     */
+    public Results search(SearchQuery query, SearchCursor after, int limit) {
+        List<List<Clause>> groups = compile(query);
+        if (groups.isEmpty() || limit <= 0) return new Results(List.of(), List.of());
+        // the worst kept hit on top, so it is the one displaced
+        Comparator<Hit> order = Comparator.comparingDouble(Hit::score).thenComparingInt(Hit::id);
+        PriorityQueue<Hit> top = new PriorityQueue<>(order);
+        List<Long> statistics;
+
+        lock.readLock().lock();
+        try {
+            if (liveDocs == 0) return new Results(List.of(), List.of());
+            List<Segment> parts = new ArrayList<>(segments);
+            parts.add(buffer);
+
+            Map<Word, List<String>> expansions = new LinkedHashMap<>();
+            Map<Word, Long> docFreqs = new HashMap<>();
+            for (List<Clause> group : groups) {
+                for (Clause c : group) {
+                    for (Word w : c.words()) {
+                        if (expansions.containsKey(w)) continue;
+                        List<String> terms = w.prefix() ? expand(parts, w.term()) : List.of(w.term());
+                        long df = 0;
+                        for (Segment p : parts) for (String t : terms) df += p.docFreq(t);
+                        expansions.put(w, terms);
+                        docFreqs.put(w, df);
+                    }
+                }
+            }
+
+            List<Word> words = new ArrayList<>(expansions.keySet());
+            statistics = new ArrayList<>();
+            if (after != null && after.statistics().size() == 2 + words.size()) {
+                statistics.addAll(after.statistics());
+            } else {
+                statistics.add((long) liveDocs);
+                statistics.add(liveLength);
+                for (Word w : words) statistics.add(docFreqs.get(w));
+            }
+            long docs = Math.max(1, statistics.get(0));
+            double avgLength = Math.max(1.0, (double) statistics.get(1) / docs);
+            Map<Word, Double> idf = new HashMap<>();
+            for (int i = 0; i < words.size(); i++) {
+                idf.put(words.get(i), idf(Math.min(statistics.get(2 + i), docs), docs));
+            }
+
+            for (Segment part : parts) {
+                Matches m = null;
+                for (List<Clause> group : groups) {
+                    Matches g = evaluate(part, group, expansions, idf, avgLength);
+                    m = m == null ? g : combine(m, g, false);
+                }
+                for (int i = 0; i < m.ords().length; i++) {
+                    int id = part.docId(m.ords()[i]);
+                    if (!live.get(id)) continue;
+                    float score = (float) m.scores()[i];
+                    if (after != null && !(score < after.rank() || (score == after.rank() && id < after.id()))) continue;
+                    Hit hit = new Hit(id, score);
+                    if (top.size() < limit) top.add(hit);
+                    else if (order.compare(hit, top.peek()) > 0) {
+                        top.poll();
+                        top.add(hit);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(order.reversed());
+        return new Results(hits, statistics);
+    }
+
+    private static List<List<Clause>> compile(SearchQuery query) {
+        List<List<Clause>> groups = new ArrayList<>();
+        for (List<SearchQuery.Clause> group : query.anyOf()) {
+            List<Clause> clauses = new ArrayList<>();
+            for (SearchQuery.Clause c : group) {
+                List<Word> words = new ArrayList<>();
+                for (int i = 0; i < c.words().size(); i++) {
+                    String word = c.words().get(i);
+                    boolean prefix = c.prefix() && i == c.words().size() - 1;
+                    // a prefix is matched as typed, not stemmed
+                    String term = prefix ? word : TextAnalyzer.normalize(word);
+                    if (term != null) words.add(new Word(term, prefix, i));
+                }
+                // a clause of stop words alone constrains nothing
+                if (!words.isEmpty()) clauses.add(new Clause(words, c.negated()));
+            }
+            if (clauses.stream().anyMatch(c -> !c.negated())) groups.add(clauses);
+        }
+        return groups;
+    }
+
+    private static List<String> expand(List<Segment> parts, String prefix) {
+        TreeSet<String> terms = new TreeSet<>();
+        for (Segment p : parts) terms.addAll(p.termsWithPrefix(prefix, MAX_EXPANSIONS));
+        return terms.stream().limit(MAX_EXPANSIONS).toList();
+    }
+
+    private static double idf(long df, long docs) {
+        return Math.log(1 + (docs - df + 0.5) / (df + 0.5));
+    }
+
+    private static Matches evaluate(Segment part, List<Clause> group, Map<Word, List<String>> expansions,
+                                    Map<Word, Double> idf, double avgLength) {
+        Matches m = null;
+        for (Clause c : group) {
+            if (c.negated()) continue;
+            Matches next = match(part, c, expansions, idf, avgLength);
+            m = m == null ? next : intersect(m, next);
+            if (m.ords().length == 0) return Matches.NONE;
+        }
+        for (Clause c : group) {
+            if (c.negated()) m = combine(m, match(part, c, expansions, idf, avgLength), true);
+        }
+        return m;
+    }
+
+    /** Documents holding every word of {@code c}, in order when it is a phrase, with BM25 scores. */
+    private static Matches match(Segment part, Clause c, Map<Word, List<String>> expansions,
+                                 Map<Word, Double> idf, double avgLength) {
+        int k = c.words().size();
+        Segment.Postings[] lists = new Segment.Postings[k];
+        int driver = 0;
+        for (int j = 0; j < k; j++) {
+            lists[j] = postings(part, expansions.get(c.words().get(j)));
+            if (lists[j] == null) return Matches.NONE;
+            if (lists[j].size() < lists[driver].size()) driver = j;
+        }
+        int[] ords = new int[lists[driver].size()];
+        double[] scores = new double[ords.length];
+        int n = 0;
+        int[] at = new int[k];
+        for (int d = 0; d < lists[driver].size(); d++) {
+            int ord = lists[driver].ords()[d];
+            boolean all = true;
+            for (int j = 0; j < k && all; j++) {
+                at[j] = j == driver ? d : Arrays.binarySearch(lists[j].ords(), ord);
+                all = at[j] >= 0;
+            }
+            if (!all || (k > 1 && !inSequence(c.words(), lists, at))) continue;
+            double norm = K1 * (1 - B + B * part.docLength(ord) / avgLength);
+            double score = 0;
+            for (int j = 0; j < k; j++) {
+                int tf = lists[j].positions()[at[j]].length;
+                score += idf.get(c.words().get(j)) * tf * (K1 + 1) / (tf + norm);
+            }
+            ords[n] = ord;
+            scores[n++] = score;
+        }
+        return new Matches(Arrays.copyOf(ords, n), Arrays.copyOf(scores, n));
+    }
+
+    private static boolean inSequence(List<Word> words, Segment.Postings[] lists, int[] at) {
+        int base = words.get(0).offset();
+        for (int start : lists[0].positions()[at[0]]) {
+            boolean ok = true;
+            for (int j = 1; j < words.size() && ok; j++) {
+                int want = start + words.get(j).offset() - base;
+                ok = Arrays.binarySearch(lists[j].positions()[at[j]], want) >= 0;
+            }
+            if (ok) return true;
+        }
+        return false;
+    }
+
+    /** Postings of one term, or of all the terms a prefix expanded to combined. */
+    private static Segment.Postings postings(Segment part, List<String> terms) {
+        if (terms.size() == 1) return part.postings(terms.get(0));
+        TreeMap<Integer, int[]> merged = new TreeMap<>();
+        for (String t : terms) {
+            Segment.Postings p = part.postings(t);
+            if (p == null) continue;
+            for (int d = 0; d < p.size(); d++) {
+                merged.merge(p.ords()[d], p.positions()[d], (a, b) -> {
+                    int[] both = Arrays.copyOf(a, a.length + b.length);
+                    System.arraycopy(b, 0, both, a.length, b.length);
+                    Arrays.sort(both);
+                    return both;
+                });
+            }
+        }
+        if (merged.isEmpty()) return null;
+        return new Segment.Postings(merged.keySet().stream().mapToInt(Integer::intValue).toArray(),
+                merged.values().toArray(new int[0][]));
+    }
+
+    private static Matches intersect(Matches a, Matches b) {
+        int[] ords = new int[Math.min(a.ords().length, b.ords().length)];
+        double[] scores = new double[ords.length];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.ords().length && j < b.ords().length; ) {
+            int x = a.ords()[i];
+            int y = b.ords()[j];
+            if (x < y) i++;
+            else if (x > y) j++;
+            else {
+                ords[n] = x;
+                scores[n++] = a.scores()[i++] + b.scores()[j++];
+            }
+        }
+        return new Matches(Arrays.copyOf(ords, n), Arrays.copyOf(scores, n));
+    }
+
+    /** Union of both (scores added), or with {@code subtract} the documents of {@code a} not in {@code b}. */
+    private static Matches combine(Matches a, Matches b, boolean subtract) {
+        int[] ords = new int[a.ords().length + (subtract ? 0 : b.ords().length)];
+        double[] scores = new double[ords.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.ords().length || j < b.ords().length) {
+            int x = i < a.ords().length ? a.ords()[i] : Integer.MAX_VALUE;
+            int y = j < b.ords().length ? b.ords()[j] : Integer.MAX_VALUE;
+            if (x < y) {
+                ords[n] = x;
+                scores[n++] = a.scores()[i++];
+            } else if (x > y) {
+                if (!subtract) {
+                    ords[n] = y;
+                    scores[n++] = b.scores()[j];
+                }
+                j++;
+            } else {
+                if (!subtract) {
+                    ords[n] = x;
+                    scores[n++] = a.scores()[i] + b.scores()[j];
+                }
+                i++;
+                j++;
+            }
+        }
+        return new Matches(Arrays.copyOf(ords, n), Arrays.copyOf(scores, n));
+    }
+
+    // ---------------- metrics ----------------
+
+    private long sizeInBytes() {
+        lock.readLock().lock();
+        try {
+            return buffer.sizeInBytes() + segments.stream().mapToLong(MappedSegment::sizeInBytes).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("search.index.posts", this, i -> i.liveDocs)
+                .description("Posts held in the embedded search index").register(registry);
+        Gauge.builder("search.index.segments", this, PostTextIndex::segmentCount)
+                .description("Segments of the embedded search index, memory buffer excluded").register(registry);
+        Gauge.builder("search.index.size", this, PostTextIndex::sizeInBytes)
+                .baseUnit("bytes").description("Segment files and buffered postings").register(registry);
+        Gauge.builder("search.index.ready", this, i -> i.isReady() ? 1 : 0)
+                .description("1 once the embedded search index has been built").register(registry);
+    }
+}
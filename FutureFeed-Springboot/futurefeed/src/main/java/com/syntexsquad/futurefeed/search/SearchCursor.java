@@ -0,0 +1,55 @@
+package com.syntexsquad.futurefeed.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position in a ranked result list: the rank and id of the last hit served. Results are ordered by
+ * rank, then newest id first, so the next page starts strictly after this pair. Travels to the
+ * client as an opaque URL-safe token.
+ *
+ * <p>A rank that depends on collection-wide statistics (the BM25 scores of {@link PostTextIndex})
+ * would drift as posts come and go between pages, so the statistics the first page was ranked with
+ * travel in {@code statistics} and later pages are ranked with the same ones. Ranks computed from
+ * the post alone leave it empty.
+ */
+public record SearchCursor(float rank, int id, List<Long> statistics) {
+
+    private static final String VERSION = "s1";
+
+    public SearchCursor {
+        statistics = statistics == null ? List.of() : List.copyOf(statistics);
+    }
+
+    public SearchCursor(float rank, int id) {
+        this(rank, id, List.of());
+    }
+
+    public String encode() {
+        StringBuilder raw = new StringBuilder(VERSION).append(';').append(Float.floatToIntBits(rank)).append(';').append(id);
+        if (!statistics.isEmpty()) {
+            raw.append(';');
+            for (int i = 0; i < statistics.size(); i++) raw.append(i == 0 ? "" : ",").append(statistics.get(i));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException when the token was not produced by {@link #encode()} */
+    public static SearchCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(";");
+            if (parts.length < 3 || parts.length > 4 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unsupported cursor");
+            }
+            List<Long> statistics = new ArrayList<>();
+            if (parts.length == 4) {
+                for (String s : parts[3].split(",")) statistics.add(Long.parseLong(s));
+            }
+            return new SearchCursor(Float.intBitsToFloat(Integer.parseInt(parts[1])), Integer.parseInt(parts[2]), statistics);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
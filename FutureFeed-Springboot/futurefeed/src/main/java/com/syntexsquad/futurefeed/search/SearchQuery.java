@@ -0,0 +1,92 @@
+package com.syntexsquad.futurefeed.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * A parsed search box query. Words are required ({@code cat dog} means both), {@code "a b"} is a
+ * phrase, {@code walk*} a prefix and {@code -spam} excludes; {@code OR} between two clauses makes
+ * either enough. Words are reduced to lower-case letters and digits, so nothing the user types
+ * reaches SQL except as such words.
+ */
+public record SearchQuery(List<List<Clause>> anyOf) {
+
+    /** One required (or, when {@code negated}, excluded) term, phrase or prefix. */
+    public record Clause(List<String> words, boolean prefix, boolean negated) {
+
+        public boolean isPhrase() {
+            return words.size() > 1;
+        }
+    }
+
+    private static final Pattern TOKEN = Pattern.compile("(-?)\"([^\"]*)\"?|(\\S+)");
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MAX_CLAUSES = 16;
+
+    public SearchQuery {
+        anyOf = anyOf.stream().map(List::copyOf).toList();
+    }
+
+    public static SearchQuery parse(String text) {
+        List<List<Clause>> groups = new ArrayList<>();
+        List<Clause> current = new ArrayList<>();
+        int clauses = 0;
+        Matcher m = TOKEN.matcher(text == null ? "" : text);
+        while (m.find() && clauses < MAX_CLAUSES) {
+            Clause clause;
+            if (m.group(2) != null) {
+                List<String> words = words(m.group(2));
+                if (words.isEmpty()) continue;
+                clause = new Clause(words, false, !m.group(1).isEmpty());
+            } else {
+                String raw = m.group(3);
+                if (raw.equals("OR")) {
+                    if (!current.isEmpty()) groups.add(current);
+                    current = new ArrayList<>();
+                    continue;
+                }
+                boolean negated = raw.startsWith("-") && raw.length() > 1;
+                boolean prefix = raw.endsWith("*");
+                List<String> words = words(raw);
+                if (words.isEmpty()) continue;
+                clause = new Clause(words, prefix, negated);
+            }
+            current.add(clause);
+            clauses++;
+        }
+        if (!current.isEmpty()) groups.add(current);
+        // a group of exclusions alone would match nearly every post
+        groups.removeIf(g -> g.stream().allMatch(Clause::negated));
+        return new SearchQuery(groups);
+    }
+
+    public boolean isEmpty() {
+        return anyOf.isEmpty();
+    }
+
+    /** The query in PostgreSQL {@code to_tsquery} syntax. */
+    public String toTsQuery() {
+        return anyOf.stream()
+                .map(group -> group.stream().map(SearchQuery::tsClause).collect(Collectors.joining(" & ", "(", ")")))
+                .collect(Collectors.joining(" | "));
+    }
+
+    private static String tsClause(Clause c) {
+        List<String> parts = new ArrayList<>(c.words());
+        if (c.prefix()) parts.set(parts.size() - 1, parts.get(parts.size() - 1) + ":*");
+        String body = String.join(" <-> ", parts);
+        if (c.isPhrase()) body = "(" + body + ")";
+        return c.negated() ? "!" + body : body;
+    }
+
+    static List<String> words(String raw) {
+        List<String> out = new ArrayList<>();
+        Matcher w = WORD.matcher(raw.toLowerCase(Locale.ROOT));
+        while (w.find()) out.add(w.group());
+        return out;
+    }
+}
@@ -0,0 +1,46 @@
+package com.syntexsquad.futurefeed.search;
+
+import java.util.List;
+
+/**
+ * Read side of one part of the {@link PostTextIndex}: the in-memory buffer of recent posts or an
+ * immutable segment file. Documents are addressed by ordinal within the segment; postings list
+ * ordinals in ascending order.
+ */
+interface Segment {
+
+    /**
+     * Documents containing one term, ordinals ascending, and the term's positions in each; the
+     * number of positions is its frequency.
+     */
+    record Postings(int[] ords, int[][] positions) {
+
+        int size() {
+            return ords.length;
+        }
+    }
+
+    int docCount();
+
+    int docId(int ord);
+
+    /** Indexed terms in the document, the length BM25 normalises by. */
+    int docLength(int ord);
+
+    /** Ordinal of post {@code id}, or -1 when this segment does not hold it. */
+    int ordOf(int id);
+
+    /** Number of documents containing {@code term}, deleted ones included. */
+    int docFreq(String term);
+
+    /** {@code null} when no document contains {@code term}. */
+    Postings postings(String term);
+
+    /** Terms starting with {@code prefix} in sorted order, at most {@code limit}. */
+    List<String> termsWithPrefix(String prefix, int limit);
+
+    /** Every term, sorted; used when the segment is written out or merged. */
+    List<String> terms();
+
+    long sizeInBytes();
+}
@@ -0,0 +1,68 @@
+package com.syntexsquad.futurefeed.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns post text into index terms: lower-cased runs of letters and digits, English stop words
+ * dropped and plurals reduced to their singular (the "minimal" English stemmer). A dropped stop word
+ * still takes up a position, so {@code "man of war"} only matches where the two terms are two
+ * positions apart.
+ */
+public final class TextAnalyzer {
+
+    /** One term and its word position in the text. */
+    public record Token(String term, int position) {}
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final int MAX_TERM_LENGTH = 64;
+
+    // the stop words PostgreSQL's english configuration drops most often in short posts
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these",
+            "they", "this", "to", "was", "will", "with");
+
+    private TextAnalyzer() {}
+
+    public static List<Token> analyze(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) return tokens;
+        Matcher m = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        int position = 0;
+        while (m.find()) {
+            String term = normalize(m.group());
+            if (term != null) tokens.add(new Token(term, position));
+            position++;
+        }
+        return tokens;
+    }
+
+    /** The index term for one already lower-cased word, or {@code null} for a stop word. */
+    public static String normalize(String word) {
+        if (word.length() > MAX_TERM_LENGTH || STOP_WORDS.contains(word)) return null;
+        return stem(word);
+    }
+
+    static String stem(String s) {
+        int len = s.length();
+        if (len < 3 || s.charAt(len - 1) != 's') return s;
+        switch (s.charAt(len - 2)) {
+            case 'u', 's':
+                return s;
+            case 'e':
+                if (len > 3 && s.charAt(len - 3) == 'i' && s.charAt(len - 4) != 'a' && s.charAt(len - 4) != 'e') {
+                    return s.substring(0, len - 3) + "y";
+                }
+                char c = s.charAt(len - 3);
+                if (c == 'i' || c == 'a' || c == 'o' || c == 'e') return s;
+                return s.substring(0, len - 1);
+            default:
+                return s.substring(0, len - 1);
+        }
+    }
+}
@@ -18,6 +18,10 @@ public class AppUserDetails implements UserDetails {
         return user.getId();
     }
 
+    public AppUser getUser() {
+        return user;
+    }
+
     @Override
     public List<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority("ROLE_" + user.getRole()));
@@ -0,0 +1,82 @@
+package com.syntexsquad.futurefeed.security;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.util.SerializationUtils;
+
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Keeps the OAuth2 authorization request in a short-lived signed cookie instead of the HTTP
+ * session, so the provider's callback can land on a different API node than the one that sent
+ * the user off. The signature is checked before the cookie is deserialized.
+ */
+public class CookieAuthorizationRequestRepository implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+
+    static final String COOKIE = "oauth2_auth_request";
+    private static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+    private final TokenService tokenService;
+
+    public CookieAuthorizationRequestRepository(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return null;
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) return decode(cookie.getValue());
+        }
+        return null;
+    }
+
+    @Override
+    public void saveAuthorizationRequest(OAuth2AuthorizationRequest authorizationRequest,
+                                         HttpServletRequest request, HttpServletResponse response) {
+        if (authorizationRequest == null) {
+            response.addCookie(cookie("", 0, request));
+            return;
+        }
+        String payload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(SerializationUtils.serialize(authorizationRequest));
+        response.addCookie(cookie(payload + "." + tokenService.sign(payload), (int) MAX_AGE.toSeconds(), request));
+    }
+
+    @Override
+    public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request, HttpServletResponse response) {
+        OAuth2AuthorizationRequest loaded = loadAuthorizationRequest(request);
+        if (loaded != null) response.addCookie(cookie("", 0, request));
+        return loaded;
+    }
+
+    private OAuth2AuthorizationRequest decode(String value) {
+        int dot = value == null ? -1 : value.lastIndexOf('.');
+        if (dot <= 0) return null;
+        String payload = value.substring(0, dot);
+        if (!tokenService.verify(payload, value.substring(dot + 1))) return null;
+        try {
+            @SuppressWarnings("deprecation")
+            Object request = SerializationUtils.deserialize(Base64.getUrlDecoder().decode(payload));
+            return request instanceof OAuth2AuthorizationRequest r ? r : null;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private static Cookie cookie(String value, int maxAge, HttpServletRequest request) {
+        Cookie cookie = new Cookie(COOKIE, value);
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setMaxAge(maxAge);
+        // sent on the top-level redirect back from the provider
+        cookie.setAttribute("SameSite", "Lax");
+        return cookie;
+    }
+}
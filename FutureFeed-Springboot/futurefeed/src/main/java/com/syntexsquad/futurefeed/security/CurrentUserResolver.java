@@ -0,0 +1,181 @@
+package com.syntexsquad.futurefeed.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.syntexsquad.futurefeed.model.AppUser;
+import com.syntexsquad.futurefeed.repository.AppUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Maps the authenticated principal to its {@link AppUser}. The principal is tried in order as an
+ * OAuth2 login (its {@code email} attribute), an {@link AppUserDetails} or {@link TokenPrincipal}
+ * (their user id), any other {@link UserDetails}, a plain string and finally
+ * {@link Authentication#getName()}; names are looked up as an email first and then as a username.
+ *
+ * <p>The user found is kept on the current request, so a request that asks several times costs one
+ * lookup, and the principal's user id is kept across requests, so a later request loads the user
+ * by primary key instead of repeating the name lookups. A cached id whose user is gone is dropped
+ * and the principal resolved again; {@link #forget} drops the ids of a renamed or deleted user.
+ */
+@Component
+public class CurrentUserResolver {
+
+    private static final String REQUEST_ATTRIBUTE = CurrentUserResolver.class.getName() + ".user";
+
+    /** The user resolved for {@code principalKey} during this request. */
+    private record Resolved(String principalKey, AppUser user) {}
+
+    private final AppUserRepository appUserRepository;
+    private final Cache<String, Integer> principalIds;
+
+    @Autowired
+    public CurrentUserResolver(AppUserRepository appUserRepository,
+                               @Value("${app.security.principal-cache.maximum-size:10000}") long maxPrincipals,
+                               @Value("${app.security.principal-cache.ttl:30m}") Duration ttl) {
+        this.appUserRepository = appUserRepository;
+        this.principalIds = Caffeine.newBuilder()
+                .maximumSize(maxPrincipals)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public CurrentUserResolver(AppUserRepository appUserRepository) {
+        this(appUserRepository, 10_000, Duration.ofMinutes(30));
+    }
+
+    /** The current user, or empty when nobody is authenticated or the principal matches no user. */
+    public Optional<AppUser> currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) return Optional.empty();
+        try {
+            return Optional.of(resolve(auth));
+        } catch (UserNotFound e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * The current user.
+     *
+     * @throws RuntimeException if nobody is authenticated or the principal matches no user
+     */
+    public AppUser requireCurrentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) throw new RuntimeException("Not authenticated");
+        return resolve(auth);
+    }
+
+    public Optional<Integer> currentUserId() {
+        return currentUser().map(AppUser::getId);
+    }
+
+    /** Drops the cached ids of a user whose email or username changed or who was deleted. */
+    public void forget(Integer id, String username, String email) {
+        if (id != null) principalIds.invalidate(idKey(id));
+        if (username != null) principalIds.invalidate(nameKey(username));
+        if (email != null) principalIds.invalidate(nameKey(email));
+    }
+
+    private AppUser resolve(Authentication auth) {
+        Principal principal = principalOf(auth);
+        if (principal == null) {
+            throw new UserNotFound("Could not extract authenticated user from security context");
+        }
+
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null
+                && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Resolved r
+                && r.principalKey().equals(principal.key())) {
+            return r.user();
+        }
+
+        AppUser user = lookup(principal);
+        if (request != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, new Resolved(principal.key(), user), RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    private AppUser lookup(Principal principal) {
+        Integer cachedId = principalIds.getIfPresent(principal.key());
+        if (cachedId != null) {
+            Optional<AppUser> byId = appUserRepository.findById(cachedId);
+            if (byId.isPresent()) return byId.get();
+            principalIds.invalidate(principal.key());
+        }
+
+        AppUser user = principal.id() != null
+                ? appUserRepository.findById(principal.id())
+                        .orElseThrow(() -> new UserNotFound("Authenticated user not found (id=" + principal.id() + ")"))
+                : findByName(principal.name());
+        principalIds.put(principal.key(), user.getId());
+        return user;
+    }
+
+    private AppUser findByName(String name) {
+        return appUserRepository.findByEmail(name)
+                .or(() -> appUserRepository.findByUsername(name))
+                .orElseThrow(() -> new UserNotFound("Authenticated user not found (principal=" + name + ")"));
+    }
+
+    /** What identifies the user: a known id, or a name to look up as an email or username. */
+    private record Principal(Integer id, String name) {
+        String key() {
+            return id != null ? idKey(id) : nameKey(name);
+        }
+    }
+
+    private static Principal principalOf(Authentication auth) {
+        if (auth instanceof OAuth2AuthenticationToken oauth) {
+            OAuth2User o = oauth.getPrincipal();
+            Map<String, Object> attrs = o == null ? null : o.getAttributes();
+            Object emailAttr = attrs == null ? null : attrs.get("email");
+            if (emailAttr != null) return new Principal(null, String.valueOf(emailAttr));
+        }
+
+        Object principal = auth.getPrincipal();
+        if (principal instanceof AppUserDetails aud && aud.getUserId() != null) {
+            return new Principal(aud.getUserId(), null);
+        }
+        if (principal instanceof TokenPrincipal token && token.userId() != null) {
+            return new Principal(token.userId(), null);
+        }
+        if (principal instanceof UserDetails ud && ud.getUsername() != null && !ud.getUsername().isBlank()) {
+            return new Principal(null, ud.getUsername());
+        }
+        if (principal instanceof String s && !s.isBlank()) {
+            return new Principal(null, s);
+        }
+        String fallback = auth.getName();
+        if (fallback != null && !fallback.isBlank()) return new Principal(null, fallback);
+        return null;
+    }
+
+    private static String idKey(Integer id) {
+        return "id:" + id;
+    }
+
+    private static String nameKey(String name) {
+        return "name:" + name;
+    }
+
+    /** The principal names no user; {@link #currentUser()} reports it as empty. */
+    private static final class UserNotFound extends RuntimeException {
+        UserNotFound(String message) {
+            super(message);
+        }
+    }
+}
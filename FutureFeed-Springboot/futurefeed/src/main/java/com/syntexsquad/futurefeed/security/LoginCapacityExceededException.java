@@ -0,0 +1,11 @@
+package com.syntexsquad.futurefeed.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/** Password hashing is saturated; the caller should retry shortly rather than wait in line. */
+public class LoginCapacityExceededException extends AuthenticationServiceException {
+
+    public LoginCapacityExceededException(String message) {
+        super(message);
+    }
+}
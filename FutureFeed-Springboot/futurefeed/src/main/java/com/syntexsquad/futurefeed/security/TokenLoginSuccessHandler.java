@@ -0,0 +1,79 @@
+package com.syntexsquad.futurefeed.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syntexsquad.futurefeed.model.AppUser;
+import com.syntexsquad.futurefeed.repository.AppUserRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Ends a login in token mode by handing out a token pair instead of a session: a form login gets
+ * it as the JSON body, an OAuth2 login is redirected to the frontend with it in the URL fragment,
+ * which browsers never send back to a server.
+ */
+public class TokenLoginSuccessHandler implements AuthenticationSuccessHandler {
+
+    private final TokenService tokenService;
+    private final AppUserRepository appUserRepository;
+    private final ObjectMapper objectMapper;
+    private final String oauth2RedirectUrl;
+
+    public TokenLoginSuccessHandler(TokenService tokenService, AppUserRepository appUserRepository,
+                                    ObjectMapper objectMapper, String oauth2RedirectUrl) {
+        this.tokenService = tokenService;
+        this.appUserRepository = appUserRepository;
+        this.objectMapper = objectMapper;
+        this.oauth2RedirectUrl = oauth2RedirectUrl;
+    }
+
+    @Override
+    public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
+                                        Authentication authentication) throws IOException {
+        Object principal = authentication.getPrincipal();
+        if (principal instanceof OAuth2User oauth) {
+            AppUser user = oauth2User(oauth);
+            if (user == null) {
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+                return;
+            }
+            TokenService.TokenPair tokens = tokenService.issue(user);
+            response.sendRedirect(oauth2RedirectUrl
+                    + "#access_token=" + encode(tokens.accessToken())
+                    + "&refresh_token=" + encode(tokens.refreshToken())
+                    + "&token_type=" + tokens.tokenType()
+                    + "&expires_in=" + tokens.expiresIn());
+            return;
+        }
+
+        AppUser user = principal instanceof AppUserDetails details ? details.getUser() : null;
+        if (user == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), tokenService.issue(user));
+    }
+
+    private AppUser oauth2User(OAuth2User oauth) {
+        // CustomOAuth2UserService puts our user id next to the provider's attributes
+        Object id = oauth.getAttribute("id");
+        if (id instanceof Integer userId) {
+            return appUserRepository.findById(userId).orElse(null);
+        }
+        Object email = oauth.getAttribute("email");
+        return email == null ? null : appUserRepository.findByEmail(String.valueOf(email)).orElse(null);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
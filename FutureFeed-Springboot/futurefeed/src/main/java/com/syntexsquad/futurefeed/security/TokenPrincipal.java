@@ -0,0 +1,12 @@
+package com.syntexsquad.futurefeed.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+/** The user an access token was issued to, as carried by the token itself. */
+public record TokenPrincipal(Integer userId, String username, String role) implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -0,0 +1,174 @@
+package com.syntexsquad.futurefeed.security;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syntexsquad.futurefeed.model.AppUser;
+import com.syntexsquad.futurefeed.repository.AppUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Issues and checks the signed tokens of the stateless auth mode ({@code app.auth.mode=token}).
+ * Tokens are HS256 JWTs signed with {@code app.auth.token.secret}, which every API node shares,
+ * so any node can verify a token another node issued.
+ *
+ * <p>An access token carries the user's id, username and role and is checked without touching
+ * the database; it lives for {@code app.auth.token.access-ttl}. A refresh token only carries the
+ * id and a fingerprint of the user's password hash. Refreshing loads the user, so a deleted user or
+ * a changed role takes effect at the next refresh, and a password change voids every refresh
+ * token issued before it.
+ */
+@Component
+@ConditionalOnProperty(name = "app.auth.mode", havingValue = "token")
+public class TokenService {
+
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64D = Base64.getUrlDecoder();
+    private static final String HEADER = B64.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    /** What the login and refresh endpoints hand back. */
+    public record TokenPair(String accessToken, String refreshToken, String tokenType, long expiresIn) {}
+
+    private final AppUserRepository appUserRepository;
+    private final ObjectMapper objectMapper;
+    private final SecretKeySpec key;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final Clock clock;
+
+    @Autowired
+    public TokenService(AppUserRepository appUserRepository,
+                        ObjectMapper objectMapper,
+                        @Value("${app.auth.token.secret:}") String secret,
+                        @Value("${app.auth.token.access-ttl:15m}") Duration accessTtl,
+                        @Value("${app.auth.token.refresh-ttl:14d}") Duration refreshTtl) {
+        this(appUserRepository, objectMapper, secret, accessTtl, refreshTtl, Clock.systemUTC());
+    }
+
+    public TokenService(AppUserRepository appUserRepository, ObjectMapper objectMapper, String secret,
+                        Duration accessTtl, Duration refreshTtl, Clock clock) {
+        byte[] secretBytes = secret == null ? new byte[0] : secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("app.auth.token.secret must be at least " + MIN_SECRET_BYTES
+                    + " bytes when app.auth.mode=token");
+        }
+        this.appUserRepository = appUserRepository;
+        this.objectMapper = objectMapper;
+        this.key = new SecretKeySpec(secretBytes, "HmacSHA256");
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.clock = clock;
+    }
+
+    public TokenPair issue(AppUser user) {
+        long now = clock.instant().getEpochSecond();
+
+        Map<String, Object> access = new LinkedHashMap<>();
+        access.put("sub", String.valueOf(user.getId()));
+        access.put("name", user.getUsername());
+        access.put("role", user.getRole());
+        access.put("typ", ACCESS);
+        access.put("iat", now);
+        access.put("exp", now + accessTtl.toSeconds());
+
+        Map<String, Object> refresh = new LinkedHashMap<>();
+        refresh.put("sub", String.valueOf(user.getId()));
+        refresh.put("typ", REFRESH);
+        refresh.put("pwd", passwordFingerprint(user));
+        refresh.put("iat", now);
+        refresh.put("exp", now + refreshTtl.toSeconds());
+
+        return new TokenPair(encode(access), encode(refresh), "Bearer", accessTtl.toSeconds());
+    }
+
+    /** The principal of a valid, unexpired access token; empty for anything else. */
+    public Optional<TokenPrincipal> verifyAccess(String token) {
+        return claims(token, ACCESS).map(c -> new TokenPrincipal(
+                Integer.valueOf(c.path("sub").asText()),
+                c.path("name").asText(null),
+                c.path("role").asText("USER")));
+    }
+
+    /** A new token pair for the user of a valid refresh token; empty if it is invalid or voided. */
+    public Optional<TokenPair> refresh(String refreshToken) {
+        return claims(refreshToken, REFRESH).flatMap(c -> {
+            Optional<AppUser> user = appUserRepository.findById(Integer.valueOf(c.path("sub").asText()));
+            return user.filter(u -> c.path("pwd").asText("").equals(passwordFingerprint(u)))
+                    .map(this::issue);
+        });
+    }
+
+    /** Base64url HMAC of {@code data} under the token secret, for other values the server hands out. */
+    public String sign(String data) {
+        return B64.encodeToString(mac(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public boolean verify(String data, String signature) {
+        if (signature == null) return false;
+        return MessageDigest.isEqual(sign(data).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String encode(Map<String, Object> claims) {
+        try {
+            String payload = B64.encodeToString(objectMapper.writeValueAsBytes(claims));
+            String signingInput = HEADER + "." + payload;
+            return signingInput + "." + sign(signingInput);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode token", e);
+        }
+    }
+
+    private Optional<JsonNode> claims(String token, String type) {
+        if (token == null) return Optional.empty();
+        String[] parts = token.split("\\.");
+        if (parts.length != 3 || !HEADER.equals(parts[0])) return Optional.empty();
+        if (!verify(parts[0] + "." + parts[1], parts[2])) return Optional.empty();
+        try {
+            JsonNode claims = objectMapper.readTree(B64D.decode(parts[1]));
+            if (!type.equals(claims.path("typ").asText())) return Optional.empty();
+            if (claims.path("exp").asLong(0) <= clock.instant().getEpochSecond()) return Optional.empty();
+            if (!claims.path("sub").asText("").matches("\\d+")) return Optional.empty();
+            return Optional.of(claims);
+        } catch (IllegalArgumentException | IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private String passwordFingerprint(AppUser user) {
+        String password = user.getPassword() == null ? "" : user.getPassword();
+        byte[] digest = mac((REFRESH + "|" + user.getId() + "|" + password).getBytes(StandardCharsets.UTF_8));
+        return B64.encodeToString(Arrays.copyOf(digest, 12));
+    }
+
+    private byte[] mac(byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
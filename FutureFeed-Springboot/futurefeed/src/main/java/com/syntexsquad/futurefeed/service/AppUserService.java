@@ -1,9 +1,13 @@
 package com.syntexsquad.futurefeed.service;
 
+import com.syntexsquad.futurefeed.cache.CacheGenerations;
 import com.syntexsquad.futurefeed.dto.RegisterRequest;
 import com.syntexsquad.futurefeed.model.AppUser;
 import com.syntexsquad.futurefeed.repository.AppUserRepository;
-import org.springframework.cache.annotation.CacheEvict;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -15,15 +19,22 @@ import java.util.*;
 public class AppUserService {
 
     private static final int MIN_PASSWORD_LENGTH = 8;
+    // generation of the user list caches: users, searchUsers
+    private static final String USER_LISTS = "users";
     private final AppUserRepository userRepo;
     private final PasswordEncoder passwordEncoder;
+    @Autowired(required = false)
+    private CacheGenerations cacheGenerations;
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+    @Autowired(required = false)
+    private CurrentUserResolver currentUserResolver;
 
     public AppUserService(AppUserRepository userRepo, PasswordEncoder passwordEncoder) {
         this.userRepo = userRepo;
         this.passwordEncoder = passwordEncoder;
     }
 
-    @CacheEvict(value = {"users", "userByUsername", "userByEmail", "userById"}, allEntries = true)
     public void registerUser(RegisterRequest request) {
         if (request.getUsername() == null || request.getUsername().trim().isEmpty()) {
             throw new IllegalArgumentException("Username is required.");
@@ -57,7 +68,10 @@ public class AppUserService {
         user.setRole("USER");
         user.setAuthProvider(AppUser.AuthProvider.LOCAL);
 
-        userRepo.save(user);
+        AppUser saved = userRepo.save(user);
+        // a lookup of the name or email before it was taken may have cached a null
+        evictUser(saved.getId(), saved.getUsername(), saved.getEmail());
+        bumpUserLists();
     }
 
     public List<AppUser> getAllUsersExceptCurrent(AppUser currentUser) {
@@ -72,9 +86,20 @@ public class AppUserService {
         if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
             throw new IllegalArgumentException("Invalid username or password.");
         }
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            user = rehashPassword(user, passwordEncoder.encode(rawPassword));
+        }
         return user;
     }
 
+    /** Stores a new hash of the user's unchanged password, e.g. under a new work factor. */
+    public AppUser rehashPassword(AppUser user, String encodedPassword) {
+        user.setPassword(encodedPassword);
+        AppUser saved = userRepo.save(user);
+        evictUser(saved.getId(), saved.getUsername(), saved.getEmail());
+        return saved;
+    }
+
     @Cacheable(value = "userByUsername", key = "#username")
     public AppUser getUserByUsername(String username) {
         return userRepo.findByUsername(username).orElse(null);
@@ -85,22 +110,30 @@ public class AppUserService {
         return userRepo.findByEmail(email).orElse(null);
     }
 
-    @CacheEvict(value = {"users", "userByUsername", "userByEmail", "userById"}, allEntries = true)
     public boolean deleteUserByUsername(String username) {
         Optional<AppUser> optionalUser = userRepo.findByUsername(username);
         if (optionalUser.isPresent()) {
             userRepo.delete(optionalUser.get());
+            evictUser(optionalUser.get().getId(), optionalUser.get().getUsername(), optionalUser.get().getEmail());
+            bumpUserLists();
             return true;
         }
         return false;
     }
 
-    @CacheEvict(value = {"users", "userByUsername", "userByEmail", "userById"}, allEntries = true)
     public AppUser saveUser(AppUser user) {
-        return userRepo.save(user);
+        // a renamed user must also leave the entries under the old username and email
+        if (user.getId() != null) {
+            userRepo.findStoredIdentityById(user.getId())
+                    .ifPresent(stored -> evictUser(user.getId(), stored.getUsername(), stored.getEmail()));
+        }
+        AppUser saved = userRepo.save(user);
+        // cached post views take their author from userById when served, so they need no eviction
+        evictUser(saved.getId(), saved.getUsername(), saved.getEmail());
+        bumpUserLists();
+        return saved;
     }
 
-    @CacheEvict(value = {"users", "userByUsername", "userByEmail", "userById"}, allEntries = true)
     public AppUser findOrCreateUserByEmail(String email, Map<String, Object> attributes) {
         return userRepo.findByEmail(email).orElseGet(() -> {
             AppUser newUser = new AppUser();
@@ -112,16 +145,19 @@ public class AppUserService {
             newUser.setPassword(passwordEncoder.encode(UUID.randomUUID().toString()));
             newUser.setRole("USER");
             newUser.setAuthProvider(AppUser.AuthProvider.GOOGLE);
-            return userRepo.save(newUser);
+            AppUser saved = userRepo.save(newUser);
+            evictUser(saved.getId(), saved.getUsername(), saved.getEmail());
+            bumpUserLists();
+            return saved;
         });
     }
 
-    @Cacheable(value = "users")
+    @Cacheable(value = "users", key = "@cacheGenerations.key('users')")
     public List<AppUser> getAllUsers() {
         return userRepo.findAll();
     }
 
-    @Cacheable(value = "searchUsers", key = "#keyword")
+    @Cacheable(value = "searchUsers", key = "@cacheGenerations.key('users', #keyword)")
     public List<AppUser> searchUsers(String keyword) {
         return userRepo.findByUsernameContainingIgnoreCaseOrDisplayNameContainingIgnoreCase(keyword, keyword);
     }
@@ -142,6 +178,23 @@ public class AppUserService {
         return userRepo.findById(id).orElse(null);
     }
 
+    private void evictUser(Integer id, String username, String email) {
+        evict("userById", id);
+        evict("userByUsername", username);
+        evict("userByEmail", email);
+        if (currentUserResolver != null) currentUserResolver.forget(id, username, email);
+    }
+
+    private void evict(String cacheName, Object key) {
+        if (key == null || cacheManager == null) return;
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) cache.evict(key);
+    }
+
+    private void bumpUserLists() {
+        if (cacheGenerations != null) cacheGenerations.bump(USER_LISTS);
+    }
+
     private void validatePasswordStrength(String password) {
         if (password.length() < MIN_PASSWORD_LENGTH) {
             throw new IllegalArgumentException("Password must be at least " + MIN_PASSWORD_LENGTH + " characters long.");
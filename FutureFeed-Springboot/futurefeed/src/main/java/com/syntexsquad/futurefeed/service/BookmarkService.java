@@ -1,6 +1,7 @@
 package com.syntexsquad.futurefeed.service;
 
 import com.syntexsquad.futurefeed.dto.BookmarkDto;
+import com.syntexsquad.futurefeed.feed.HotScore.Engagement;
 import com.syntexsquad.futurefeed.model.AppUser;
 import com.syntexsquad.futurefeed.model.Bookmark;
 import com.syntexsquad.futurefeed.model.Post;
@@ -8,6 +9,8 @@ import com.syntexsquad.futurefeed.model.UserPost;
 import com.syntexsquad.futurefeed.repository.AppUserRepository;
 import com.syntexsquad.futurefeed.repository.BookmarkRepository;
 import com.syntexsquad.futurefeed.repository.PostRepository;
+import com.syntexsquad.futurefeed.service.RelationWriteService.Relation;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -24,15 +27,21 @@ public class BookmarkService {
     private final AppUserRepository userRepo;
     private final PostRepository postRepo;
     private final NotificationService notificationService;
+    private final RelationWriteService relationWriteService;
+
+    @Autowired(required = false)
+    private HotScoreService hotScoreService;
 
     public BookmarkService(BookmarkRepository bookmarkRepo,
                            AppUserRepository userRepo,
                            PostRepository postRepo,
-                           NotificationService notificationService) {
+                           NotificationService notificationService,
+                           RelationWriteService relationWriteService) {
         this.bookmarkRepo = bookmarkRepo;
         this.userRepo = userRepo;
         this.postRepo = postRepo;
         this.notificationService = notificationService;
+        this.relationWriteService = relationWriteService;
     }
 
     private AppUser getAuthenticatedUser() {
@@ -56,9 +65,9 @@ public class BookmarkService {
         AppUser user = userRepo.findById(userId).orElseThrow();
         Post post = postRepo.findById(postId).orElseThrow();
 
-        if (bookmarkRepo.findByUserAndPost(user, post).isPresent()) return false;
+        if (!relationWriteService.insert(Relation.BOOKMARK, user.getId(), post.getId())) return false;
 
-        bookmarkRepo.save(new Bookmark(user, post));
+        if (hotScoreService != null) hotScoreService.record(postId, Engagement.BOOKMARK);
 
         if (post instanceof UserPost userPost) {
             AppUser owner = userPost.getUser(); // may be null
@@ -83,6 +92,9 @@ public class BookmarkService {
         AppUser user = userRepo.findById(userId).orElseThrow();
         Post post = postRepo.findById(postId).orElseThrow();
 
+        if (!relationWriteService.delete(Relation.BOOKMARK, user.getId(), post.getId())) return false;
+        if (hotScoreService != null) hotScoreService.retract(postId, Engagement.BOOKMARK);
+
         if (post instanceof UserPost userPost) {
             AppUser owner = userPost.getUser(); // may be null
             if (owner != null) {
@@ -99,13 +111,7 @@ public class BookmarkService {
                 }
             }
         }
-
-        return bookmarkRepo.findByUserAndPost(user, post)
-                .map(b -> {
-                    bookmarkRepo.delete(b);
-                    return true;
-                })
-                .orElse(false);
+        return true;
     }
 
     public List<Bookmark> getUserBookmarks(Integer userId) {
@@ -2,6 +2,7 @@ package com.syntexsquad.futurefeed.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syntexsquad.futurefeed.feed.MaterializedFeedStore;
 import com.syntexsquad.futurefeed.model.Bot;
 import com.syntexsquad.futurefeed.model.BotPost;
 import com.syntexsquad.futurefeed.model.Post;
@@ -33,6 +34,9 @@ public class BotExecutionService {
     @Autowired
     private TopicService topicService;
 
+    @Autowired(required = false)
+    private MaterializedFeedStore materializedFeedStore;
+
     private final String FASTAPI_URL = "https://api.rookemtrading.com/fastapi/execute-bot";  
 
     public String executeBot(Integer botId) {
@@ -91,6 +95,7 @@ public class BotExecutionService {
 
             // Link bot-post
             botPostService.linkBotToPost(bot.getId(), savedPost.getId());
+            if (materializedFeedStore != null) materializedFeedStore.onPostAdded(savedPost);
 
             try {
                 topicService.autoTagIfMissing(savedPost.getId());
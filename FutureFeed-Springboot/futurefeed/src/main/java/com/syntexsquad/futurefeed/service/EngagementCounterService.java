@@ -0,0 +1,302 @@
+package com.syntexsquad.futurefeed.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.syntexsquad.futurefeed.feed.HotScore.Engagement;
+import com.syntexsquad.futurefeed.feed.PostIndexListener;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory like and reshare counts per post. Each count is a {@link LongAdder}, so concurrent
+ * likes on a hot post update separate cells instead of contending on one value. A counter is
+ * loaded on first use from the denormalized {@code posts.like_count} / {@code reshare_count}
+ * columns (or counted once, for posts that predate them) and then only moves in memory; the
+ * accumulated deltas are written back in batches on a fixed delay, so the columns are the durable
+ * backstop and reads never run {@code COUNT(*)}.
+ *
+ * <p>A change is applied once the like or reshare commits, so a rolled-back one never reaches the
+ * columns. Counters expire {@code engagement.counters.ttl-seconds} after loading and are reloaded
+ * from the columns, which is how one node picks up what the other API nodes flushed.
+ */
+@Service
+public class EngagementCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(EngagementCounterService.class);
+    private static final int FLUSH_BATCH = 500;
+
+    public enum Kind { LIKE, RESHARE }
+
+    /** Current values plus the part of them not yet written to the posts table. */
+    static final class Counter {
+        final LongAdder likes = new LongAdder();
+        final LongAdder reshares = new LongAdder();
+        final LongAdder likeDelta = new LongAdder();
+        final LongAdder reshareDelta = new LongAdder();
+
+        LongAdder value(Kind kind) {
+            return kind == Kind.LIKE ? likes : reshares;
+        }
+
+        LongAdder delta(Kind kind) {
+            return kind == Kind.LIKE ? likeDelta : reshareDelta;
+        }
+    }
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final TransactionTemplate readCommitted;
+    private final TransactionTemplate writes;
+    private final Cache<Integer, Counter> counters;
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+    // counters evicted with unwritten deltas, kept until the next flush
+    private final Map<Integer, Counter> evicted = new ConcurrentHashMap<>();
+
+    @Autowired
+    public EngagementCounterService(PlatformTransactionManager transactionManager,
+                                    @Value("${engagement.counters.max-posts:100000}") long maxPosts,
+                                    @Value("${engagement.counters.ttl-seconds:60}") long ttlSeconds) {
+        this(transactionManager, maxPosts, Duration.ofSeconds(Math.max(1, ttlSeconds)), Ticker.systemTicker());
+    }
+
+    public EngagementCounterService(PlatformTransactionManager transactionManager, long maxPosts, Duration ttl,
+                                    Ticker ticker) {
+        // loads run in their own transaction so they only see committed rows, never the caller's
+        // not-yet-committed like that is about to be counted as a delta
+        this.readCommitted = new TransactionTemplate(transactionManager);
+        this.readCommitted.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readCommitted.setReadOnly(true);
+        this.writes = new TransactionTemplate(transactionManager);
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxPosts)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                // evictions run on the caller, so an evicted delta is parked before the next load
+                .executor(Runnable::run)
+                .evictionListener((Integer postId, Counter counter, RemovalCause cause) -> {
+                    if (postId != null && counter != null && hasDelta(counter)) park(postId, counter);
+                })
+                .build();
+    }
+
+    public long likes(Integer postId) {
+        Counter c = counter(postId);
+        return c == null ? 0 : c.likes.sum();
+    }
+
+    public long reshares(Integer postId) {
+        Counter c = counter(postId);
+        return c == null ? 0 : c.reshares.sum();
+    }
+
+    /**
+     * Like and reshare counts of many posts at once, as {@code [likes, reshares]}; counters not held
+     * yet are loaded together with one {@code IN} query. Unknown posts are left out.
+     */
+    public Map<Integer, long[]> counts(Collection<Integer> postIds) {
+        Map<Integer, long[]> out = new HashMap<>();
+        if (postIds == null || postIds.isEmpty()) return out;
+        counters.getAll(postIds, this::loadAll)
+                .forEach((id, c) -> out.put(id, new long[]{c.likes.sum(), c.reshares.sum()}));
+        return out;
+    }
+
+    public void increment(Integer postId, Kind kind) {
+        adjust(postId, kind, 1);
+    }
+
+    public void decrement(Integer postId, Kind kind) {
+        adjust(postId, kind, -1);
+    }
+
+    /** Drops a deleted post's counter together with any unwritten deltas. */
+    public void forget(Integer postId) {
+        if (postId == null) return;
+        dirty.remove(postId);
+        evicted.remove(postId);
+        counters.invalidate(postId);
+    }
+
+    private void adjust(Integer postId, Kind kind, long by) {
+        // loaded now, in its own transaction, so the count it starts from cannot include this change
+        Counter c = counter(postId);
+        if (c == null) return;
+        PostIndexListener.runAfterCommit(() -> apply(postId, c, kind, by));
+    }
+
+    private void apply(Integer postId, Counter loaded, Kind kind, long by) {
+        Counter c = counters.getIfPresent(postId);
+        if (c == null) {
+            // evicted before the commit: park the change with the other unwritten deltas
+            c = evicted.computeIfAbsent(postId, id -> loaded);
+        }
+        c.value(kind).add(by);
+        c.delta(kind).add(by);
+        dirty.add(postId);
+    }
+
+    private Counter counter(Integer postId) {
+        if (postId == null) return null;
+        return counters.get(postId, this::load);
+    }
+
+    private Counter load(Integer postId) {
+        return loadAll(Set.of(postId)).get(postId);
+    }
+
+    private Map<Integer, Counter> loadAll(Set<? extends Integer> postIds) {
+        // likes, reshares, then 1 for each of the two that came from its column
+        Map<Integer, long[]> base = readCommitted.execute(status -> {
+            Map<Integer, long[]> out = new HashMap<>();
+            List<Integer> uncountedLikes = new ArrayList<>();
+            List<Integer> uncountedReshares = new ArrayList<>();
+            for (Object[] r : em.createQuery(
+                            "SELECT p.id, p.likeCount, p.reshareCount FROM Post p WHERE p.id IN :ids", Object[].class)
+                    .setParameter("ids", postIds)
+                    .getResultList()) {
+                Integer id = (Integer) r[0];
+                Long likes = (Long) r[1];
+                Long reshares = (Long) r[2];
+                if (likes == null) uncountedLikes.add(id);
+                if (reshares == null) uncountedReshares.add(id);
+                out.put(id, new long[]{likes == null ? 0 : likes, reshares == null ? 0 : reshares,
+                        likes == null ? 0 : 1, reshares == null ? 0 : 1});
+            }
+            PostCounts.byPost(em, Engagement.LIKE, uncountedLikes).forEach((id, n) -> out.get(id)[0] = n);
+            PostCounts.byPost(em, Engagement.RESHARE, uncountedReshares).forEach((id, n) -> out.get(id)[1] = n);
+            return out;
+        });
+
+        Map<Integer, Counter> loaded = new HashMap<>();
+        if (base == null) return loaded;
+        base.forEach((postId, counts) -> {
+            Counter c = new Counter();
+            c.likes.add(counts[0]);
+            c.reshares.add(counts[1]);
+            Counter orphan = evicted.remove(postId);
+            if (orphan != null) {
+                // deltas of an evicted counter are not in the columns yet; carry them over. A post
+                // without columns was just counted from its rows, which already hold those changes
+                long likeDelta = orphan.likeDelta.sum();
+                long reshareDelta = orphan.reshareDelta.sum();
+                if (counts[2] == 1) c.likes.add(likeDelta);
+                if (counts[3] == 1) c.reshares.add(reshareDelta);
+                c.likeDelta.add(likeDelta);
+                c.reshareDelta.add(reshareDelta);
+            }
+            loaded.put(postId, c);
+        });
+        return loaded;
+    }
+
+    /** Writes the accumulated deltas of every changed counter, {@value #FLUSH_BATCH} posts per transaction. */
+    @Scheduled(fixedDelayString = "${engagement.counters.flush-interval-ms:5000}")
+    public void flush() {
+        if (dirty.isEmpty()) return;
+        List<Integer> ids = new ArrayList<>(dirty);
+        ids.forEach(dirty::remove);
+
+        int written = 0;
+        for (int from = 0; from < ids.size(); from += FLUSH_BATCH) {
+            List<Integer> batch = ids.subList(from, Math.min(from + FLUSH_BATCH, ids.size()));
+            List<Taken> taken = new ArrayList<>();
+            for (Integer postId : batch) {
+                Taken t = take(postId);
+                if (t != null) taken.add(t);
+            }
+            try {
+                Integer n = writes.execute(status -> {
+                    int rows = 0;
+                    for (Taken t : taken) rows += write(t);
+                    return rows;
+                });
+                written += n == null ? 0 : n;
+            } catch (RuntimeException e) {
+                // nothing of this batch reached the columns; put the deltas back for the next flush
+                taken.forEach(this::restore);
+                ids.subList(from, ids.size()).forEach(dirty::add);
+                log.warn("[counters] flush failed, {} posts kept for the next one: {}", ids.size() - from, e.toString());
+                break;
+            }
+        }
+        log.debug("[counters] flushed {} posts", written);
+    }
+
+    /** Deltas moved out of a counter for writing; {@code counter} is where they go back on failure. */
+    private record Taken(Integer postId, Counter counter, boolean cached, long likeDelta, long reshareDelta) {}
+
+    private Taken take(Integer postId) {
+        Counter c = counters.getIfPresent(postId);
+        boolean cached = c != null;
+        if (c == null) c = evicted.remove(postId);
+        if (c == null) return null;
+        // subtract what was read rather than reset, so a change landing meanwhile is not lost
+        long likeDelta = c.likeDelta.sum();
+        long reshareDelta = c.reshareDelta.sum();
+        if (likeDelta == 0 && reshareDelta == 0) return null;
+        c.likeDelta.add(-likeDelta);
+        c.reshareDelta.add(-reshareDelta);
+        return new Taken(postId, c, cached, likeDelta, reshareDelta);
+    }
+
+    private void restore(Taken t) {
+        Counter c = t.cached() ? counters.getIfPresent(t.postId()) : null;
+        if (c == null) c = evicted.computeIfAbsent(t.postId(), id -> t.counter());
+        c.likeDelta.add(t.likeDelta());
+        c.reshareDelta.add(t.reshareDelta());
+    }
+
+    private int write(Taken t) {
+        Counter c = t.counter();
+        // a NULL column predates the counters: the in-memory value is the whole count
+        return em.createQuery("UPDATE Post p SET " +
+                        "p.likeCount = CASE WHEN p.likeCount IS NULL THEN :likes ELSE p.likeCount + :likeDelta END, " +
+                        "p.reshareCount = CASE WHEN p.reshareCount IS NULL THEN :reshares ELSE p.reshareCount + :reshareDelta END " +
+                        "WHERE p.id = :id")
+                .setParameter("likes", c.likes.sum())
+                .setParameter("likeDelta", t.likeDelta())
+                .setParameter("reshares", c.reshares.sum())
+                .setParameter("reshareDelta", t.reshareDelta())
+                .setParameter("id", t.postId())
+                .executeUpdate();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("[counters] final flush failed: {}", e.toString());
+        }
+    }
+
+    private void park(Integer postId, Counter counter) {
+        evicted.merge(postId, counter, (parked, more) -> {
+            parked.likeDelta.add(more.likeDelta.sum());
+            parked.reshareDelta.add(more.reshareDelta.sum());
+            return parked;
+        });
+    }
+
+    private static boolean hasDelta(Counter c) {
+        return c.likeDelta.sum() != 0 || c.reshareDelta.sum() != 0;
+    }
+}
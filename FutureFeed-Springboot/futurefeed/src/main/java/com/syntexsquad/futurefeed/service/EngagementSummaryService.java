@@ -0,0 +1,110 @@
+package com.syntexsquad.futurefeed.service;
+
+import com.syntexsquad.futurefeed.dto.PostEngagementDTO;
+import com.syntexsquad.futurefeed.feed.HotScore.Engagement;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Counts and viewer flags for a page of posts in one call. Like and reshare counts come from the
+ * in-memory counters when they are running; everything else is one grouped {@code IN} query per
+ * kind, so the cost does not grow with the number of posts on the page.
+ */
+@Service
+public class EngagementSummaryService {
+
+    public static final int MAX_POSTS = 100;
+    private static final int CHUNK = 1000;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Autowired(required = false)
+    private EngagementCounterService engagementCounterService;
+
+    /**
+     * One summary per known post, in request order with duplicates dropped. Viewer flags stay
+     * {@code false} when {@code viewerId} is {@code null}.
+     */
+    @Transactional(readOnly = true)
+    public List<PostEngagementDTO> summarize(List<Integer> postIds, Integer viewerId) {
+        List<Integer> ids = postIds == null ? List.of()
+                : postIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.size() > MAX_POSTS) {
+            throw new IllegalArgumentException("At most " + MAX_POSTS + " post IDs per request");
+        }
+        Map<Integer, PostEngagementDTO> byPost = byPost(ids, viewerId, true);
+        return ids.stream().map(byPost::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Summaries keyed by post id for any number of posts, for mapping whole lists; the IDs are
+     * queried {@value #CHUNK} at a time to keep the {@code IN} lists bounded. Without
+     * {@code bookmarks} the viewer's bookmark query is skipped and {@code hasBookmarked} stays
+     * {@code false}.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, PostEngagementDTO> byPost(Collection<Integer> postIds, Integer viewerId, boolean bookmarks) {
+        List<Integer> ids = postIds == null ? List.of()
+                : postIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Integer, PostEngagementDTO> out = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += CHUNK) {
+            summarizeChunk(ids.subList(from, Math.min(from + CHUNK, ids.size())), viewerId, bookmarks, out);
+        }
+        return out;
+    }
+
+    private void summarizeChunk(List<Integer> ids, Integer viewerId, boolean bookmarks,
+                                Map<Integer, PostEngagementDTO> out) {
+        Map<Integer, long[]> counts;
+        if (engagementCounterService != null) {
+            counts = engagementCounterService.counts(ids);
+        } else {
+            counts = new HashMap<>();
+            for (Integer id : em.createQuery("SELECT p.id FROM Post p WHERE p.id IN :ids", Integer.class)
+                    .setParameter("ids", ids).getResultList()) {
+                counts.put(id, new long[2]);
+            }
+            PostCounts.byPost(em, Engagement.LIKE, ids).forEach((id, n) -> counts.get(id)[0] = n);
+            PostCounts.byPost(em, Engagement.RESHARE, ids).forEach((id, n) -> counts.get(id)[1] = n);
+        }
+        Map<Integer, Long> comments = PostCounts.byPost(em, Engagement.COMMENT, ids);
+
+        Set<Integer> liked = Set.of();
+        Set<Integer> reshared = Set.of();
+        Set<Integer> commented = Set.of();
+        Set<Integer> bookmarked = Set.of();
+        if (viewerId != null) {
+            liked = viewerPostIds("SELECT l.post.id FROM Like l WHERE l.userId = :viewer AND l.post.id IN :ids", viewerId, ids);
+            reshared = viewerPostIds("SELECT r.post.id FROM Reshare r WHERE r.userId = :viewer AND r.post.id IN :ids", viewerId, ids);
+            commented = viewerPostIds("SELECT DISTINCT c.post.id FROM Comment c WHERE c.user.id = :viewer AND c.post.id IN :ids", viewerId, ids);
+            if (bookmarks) bookmarked = viewerPostIds("SELECT b.post.id FROM Bookmark b WHERE b.user.id = :viewer AND b.post.id IN :ids", viewerId, ids);
+        }
+
+        for (Integer id : ids) {
+            long[] c = counts.get(id);
+            if (c == null) continue;
+            PostEngagementDTO dto = new PostEngagementDTO(id);
+            dto.setLikeCount(c[0]);
+            dto.setReshareCount(c[1]);
+            dto.setCommentCount(comments.getOrDefault(id, 0L));
+            dto.setHasLiked(liked.contains(id));
+            dto.setHasReshared(reshared.contains(id));
+            dto.setHasCommented(commented.contains(id));
+            dto.setHasBookmarked(bookmarked.contains(id));
+            out.put(id, dto);
+        }
+    }
+
+    private Set<Integer> viewerPostIds(String jpql, Integer viewerId, List<Integer> ids) {
+        return new HashSet<>(em.createQuery(jpql, Integer.class)
+                .setParameter("viewer", viewerId)
+                .setParameter("ids", ids)
+                .getResultList());
+    }
+}
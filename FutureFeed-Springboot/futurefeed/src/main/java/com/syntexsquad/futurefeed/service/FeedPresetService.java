@@ -2,26 +2,32 @@ package com.syntexsquad.futurefeed.service;
 
 import com.syntexsquad.futurefeed.dto.FeedPresetDTO;
 import com.syntexsquad.futurefeed.dto.PostDTO;
+import com.syntexsquad.futurefeed.feed.CursorPage;
+import com.syntexsquad.futurefeed.feed.FeedCursor;
+import com.syntexsquad.futurefeed.feed.FeedPage;
+import com.syntexsquad.futurefeed.feed.FeedSnapshotStore;
+import com.syntexsquad.futurefeed.feed.FeedSort;
+import com.syntexsquad.futurefeed.feed.MaterializedFeedStore;
+import com.syntexsquad.futurefeed.feed.PostKey;
+import com.syntexsquad.futurefeed.feed.PostingIndex;
+import com.syntexsquad.futurefeed.feed.RandomFillSampler;
+import com.syntexsquad.futurefeed.feed.RuleFanout;
+import com.syntexsquad.futurefeed.feed.RuleQueryCompiler;
 import com.syntexsquad.futurefeed.mapper.PostViewMapper;
 import com.syntexsquad.futurefeed.dto.PresetRuleDTO;
 import com.syntexsquad.futurefeed.model.*;
 import com.syntexsquad.futurefeed.repository.*;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
-import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,112 +37,50 @@ public class FeedPresetService {
 
     private final FeedPresetRepository presetRepo;
     private final PresetRuleRepository ruleRepo;
-    private final AppUserRepository appUserRepository;
+    private final CurrentUserResolver currentUserResolver;
     private final PostRepository postRepository;
     private final PostTopicRepository postTopicRepository;
+    private final RuleQueryCompiler ruleQueryCompiler;
+    private final RandomFillSampler randomFillSampler;
 
     @Autowired
     private PostViewMapper postViewMapper;
 
+    @Autowired(required = false)
+    private MaterializedFeedStore materializedFeedStore;
+
+    @Autowired(required = false)
+    private PostingIndex postingIndex;
+
+    @Autowired(required = false)
+    private RuleFanout ruleFanout;
+
+    @Autowired(required = false)
+    private FeedSnapshotStore feedSnapshotStore;
+
     public FeedPresetService(FeedPresetRepository presetRepo,
                              PresetRuleRepository ruleRepo,
-                             AppUserRepository appUserRepository,
+                             CurrentUserResolver currentUserResolver,
                              PostRepository postRepository,
-                             PostTopicRepository postTopicRepository) {
+                             PostTopicRepository postTopicRepository,
+                             RuleQueryCompiler ruleQueryCompiler,
+                             RandomFillSampler randomFillSampler) {
         this.presetRepo = presetRepo;
         this.ruleRepo = ruleRepo;
-        this.appUserRepository = appUserRepository;
+        this.currentUserResolver = currentUserResolver;
         this.postRepository = postRepository;
         this.postTopicRepository = postTopicRepository;
-    }
-
-    private Optional<AppUser> tryGetCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null) return Optional.empty();
-
-        // 1) OAuth2
-        if (auth instanceof OAuth2AuthenticationToken oauth) {
-            OAuth2User principal = oauth.getPrincipal();
-            if (principal != null && principal.getAttributes() != null) {
-                Object emailAttr = principal.getAttributes().get("email");
-                if (emailAttr != null) {
-                    String email = String.valueOf(emailAttr);
-                    return appUserRepository.findByEmail(email);
-                }
-            }
-        }
-
-        // 2) Custom AppUserDetails (if present)
-        Object principal = auth.getPrincipal();
-        try {
-            Class<?> audClass = Class.forName("com.syntexsquad.futurefeed.security.AppUserDetails");
-            if (audClass.isInstance(principal)) {
-                Object aud = principal;
-                try {
-                    Integer id = (Integer) audClass.getMethod("getId").invoke(aud);
-                    if (id != null) {
-                        Optional<AppUser> byId = appUserRepository.findById(id);
-                        if (byId.isPresent()) return byId;
-                    }
-                } catch (NoSuchMethodException ignored) {}
-                try {
-                    String email = String.valueOf(audClass.getMethod("getEmail").invoke(aud));
-                    if (email != null && !email.isBlank()) {
-                        Optional<AppUser> byEmail = appUserRepository.findByEmail(email);
-                        if (byEmail.isPresent()) return byEmail;
-                    }
-                } catch (NoSuchMethodException ignored) {}
-                try {
-                    String username = String.valueOf(audClass.getMethod("getUsername").invoke(aud));
-                    if (username != null && !username.isBlank()) {
-                        Optional<AppUser> byName = appUserRepository.findByEmail(username)
-                                .or(() -> appUserRepository.findByUsername(username));
-                        if (byName.isPresent()) return byName;
-                    }
-                } catch (NoSuchMethodException ignored) {}
-            }
-        } catch (ClassNotFoundException ignored) {
-        } catch (Exception reflectErr) {
-            log.warn("tryGetCurrentUser: AppUserDetails reflection error: {}", reflectErr.toString());
-        }
-
-        // 3) Generic Spring UserDetails
-        if (principal instanceof UserDetails ud) {
-            String name = ud.getUsername();
-            if (name != null && !name.isBlank()) {
-                Optional<AppUser> byName = appUserRepository.findByEmail(name)
-                        .or(() -> appUserRepository.findByUsername(name));
-                if (byName.isPresent()) return byName;
-            }
-        }
-
-        // 4) Principal as String
-        if (principal instanceof String s && !s.isBlank()) {
-            Optional<AppUser> byName = appUserRepository.findByEmail(s)
-                    .or(() -> appUserRepository.findByUsername(s));
-            if (byName.isPresent()) return byName;
-        }
-
-        // 5) Fallback: auth.getName()
-        String fallback = auth.getName();
-        if (fallback != null && !fallback.isBlank()) {
-            Optional<AppUser> byName = appUserRepository.findByEmail(fallback)
-                    .or(() -> appUserRepository.findByUsername(fallback));
-            if (byName.isPresent()) return byName;
-        }
-
-        return Optional.empty();
+        this.ruleQueryCompiler = ruleQueryCompiler;
+        this.randomFillSampler = randomFillSampler;
     }
 
     private AppUser getAuthenticatedUser() {
-        return tryGetCurrentUser()
+        return currentUserResolver.currentUser()
                 .orElseThrow(() -> new RuntimeException("Could not extract authenticated user from security context"));
     }
-    // -------------------------------------------------------------------------
 
     public Optional<FeedPreset> findDefaultPresetForCurrentUser() {
-        return tryGetCurrentUser()
-                .map(AppUser::getId)
+        return currentUserResolver.currentUserId()
                 .flatMap(uid -> presetRepo.findByUserIdAndDefaultPresetTrue(uid));
     }
 
@@ -197,6 +141,7 @@ public class FeedPresetService {
         }
         ruleRepo.deleteByPresetId(presetId);
         presetRepo.delete(preset);
+        invalidateMaterializedFeed(presetId);
     }
 
     public void setDefaultPreset(Integer presetId) {
@@ -240,7 +185,9 @@ public class FeedPresetService {
         rule.setSourceType(dto.getSourceType());
         rule.setSpecificUserId(dto.getSpecificUserId());
         rule.setPercentage(clampPercent(dto.getPercentage()));
-        return ruleRepo.save(rule);
+        PresetRule saved = ruleRepo.save(rule);
+        invalidateMaterializedFeed(dto.getPresetId());
+        return saved;
     }
 
     public List<PresetRule> getRulesForPreset(Integer presetId) {
@@ -263,7 +210,9 @@ public class FeedPresetService {
         rule.setSourceType(dto.getSourceType());
         rule.setSpecificUserId(dto.getSpecificUserId());
         rule.setPercentage(clampPercent(dto.getPercentage()));
-        return ruleRepo.save(rule);
+        PresetRule saved = ruleRepo.save(rule);
+        invalidateMaterializedFeed(rule.getPresetId());
+        return saved;
     }
 
     public void deleteRule(Integer ruleId) {
@@ -278,6 +227,11 @@ public class FeedPresetService {
         }
 
         ruleRepo.delete(rule);
+        invalidateMaterializedFeed(rule.getPresetId());
+    }
+
+    private void invalidateMaterializedFeed(Integer presetId) {
+        if (materializedFeedStore != null) materializedFeedStore.invalidate(presetId);
     }
 
     // ---------------- Feed generation ----------------
@@ -291,50 +245,62 @@ public class FeedPresetService {
         return cb.compareTo(ca);
     };
 
-    private List<Post> filterPostsForRule(PresetRule rule) {
-        List<Post> allPosts = postRepository.findAll();
+    // stored hot score, highest first; unscored rows (not yet backfilled) last
+    private static final Comparator<Post> HOT_DESC = Comparator
+            .comparing(Post::getHotScore, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Post::getId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    // Rule filtering runs in the database, in feed order, bounded to the rows the quota can use.
+    private List<Post> filterPostsForRule(PresetRule rule, int limit, FeedSort sort) {
+        return ruleQueryCompiler.fetch(rule, limit, sort);
+    }
 
-        Set<Integer> tmpAllowed = null;
-        if (rule.getTopicId() != null) {
-            tmpAllowed = postTopicRepository.findByTopicId(rule.getTopicId()).stream()
-                    .map(PostTopic::getPostId)
-                    .collect(Collectors.toSet());
+    // posting-list index once built, the materialized feed until then, SQL without either; all
+    // three are newest-first, so the ranked order always reads the score index
+    private List<Integer> candidateIdsForRule(Integer presetId, PresetRule rule, int limit, FeedSort sort) {
+        if (sort == FeedSort.HOT) {
+            return ruleQueryCompiler.fetchHotIds(rule, limit);
         }
-        final Set<Integer> allowedPostIds = tmpAllowed;
-
-        return allPosts.stream()
-                .filter(post -> {
-                    if (allowedPostIds != null && !allowedPostIds.contains(post.getId())) return false;
-
-                    if ("user".equalsIgnoreCase(rule.getSourceType()) && !(post instanceof UserPost)) return false;
-                    if ("bot".equalsIgnoreCase(rule.getSourceType()) && !(post instanceof BotPost)) return false;
-
-                    if (rule.getSpecificUserId() != null) {
-                        if (!(post instanceof UserPost up) || up.getUser() == null ||
-                                !Objects.equals(up.getUser().getId(), rule.getSpecificUserId())) {
-                            return false;
-                        }
-                    }
-
-                    return true;
-                })
-                .sorted(CREATED_DESC)
-                .toList();
+        if (postingIndex != null && postingIndex.isReady()) {
+            return postingIndex.newestMatching(rule, limit);
+        }
+        List<PostKey> keys = (materializedFeedStore != null)
+                ? materializedFeedStore.candidateKeys(presetId, rule, limit)
+                : ruleQueryCompiler.fetchKeys(rule, limit);
+        return keys.stream().map(PostKey::id).toList();
+    }
+
+    private <T> RuleFanout.Outcome<T> fanOut(List<Callable<T>> fetches) {
+        return ruleFanout != null ? ruleFanout.fetchAll(fetches) : RuleFanout.runInline(fetches);
+    }
+
+    private List<Post> hydrateInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Integer, Post> byId = postRepository.findAllById(new ArrayList<>(ids)).stream()
+                .collect(Collectors.toMap(Post::getId, p -> p, (a, b) -> a));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
     }
 
     public List<Post> generateFeedForPreset(Integer presetId) {
+        return generateFeedForPreset(presetId, FeedSort.NEW);
+    }
+
+    public List<Post> generateFeedForPreset(Integer presetId, FeedSort sort) {
         List<PresetRule> rules = ruleRepo.findByPresetId(presetId);
         Set<Post> resultFeed = new HashSet<>();
 
         for (PresetRule rule : rules) {
-            List<Post> filtered = filterPostsForRule(rule);
             int pct = clampPercent(rule.getPercentage());
-            int limit = (pct > 0) ? (filtered.size() * pct) / 100 : 0;
-            resultFeed.addAll(filtered.stream().limit(limit).toList());
+            if (pct <= 0) continue;
+            long matched = (postingIndex != null && postingIndex.isReady())
+                    ? postingIndex.count(rule)
+                    : ruleQueryCompiler.count(rule);
+            int limit = (int) ((matched * pct) / 100);
+            resultFeed.addAll(filterPostsForRule(rule, limit, sort));
         }
 
         List<Post> out = new ArrayList<>(resultFeed);
-        out.sort(CREATED_DESC);
+        out.sort(sort == FeedSort.HOT ? HOT_DESC : CREATED_DESC);
         return out;
     }
 
@@ -389,6 +355,7 @@ public class FeedPresetService {
         }
         if (changed) {
             ruleRepo.save(rule);
+            invalidateMaterializedFeed(preset.getId());
         }
 
         // Generate paginated feed using existing logic
@@ -409,62 +376,108 @@ public class FeedPresetService {
         return body;
     }
 
-    public Page<Post> generateFeedForPreset(Integer presetId, int page, int size) {
+    public FeedPage<Post> generateFeedForPreset(Integer presetId, int page, int size) {
+        return generateFeedForPreset(presetId, page, size, FeedSort.NEW);
+    }
+
+    /**
+     * One page of the preset feed. With {@link FeedSort#HOT} every rule contributes its
+     * highest-scoring posts and the assembled pool is ordered by stored score before slicing.
+     */
+    public FeedPage<Post> generateFeedForPreset(Integer presetId, int page, int size, FeedSort sort) {
         int safePage = Math.max(0, page);
         int safeSize = Math.max(1, size);
         int offset = safePage * safeSize;
-        int targetCount = offset + safeSize;
 
-        List<PresetRule> rules = ruleRepo.findByPresetId(presetId);
-        Map<Integer, List<Post>> ruleToCandidates = new LinkedHashMap<>();
-        Map<Integer, Integer> ruleToPercent = new LinkedHashMap<>();
+        RankedIds ranked = rankedIds(presetId, offset + safeSize, sort);
+        List<Integer> ordered = ranked.ids();
+        List<Post> pageSlice;
+        if (offset >= ordered.size()) {
+            pageSlice = List.of();
+        } else {
+            int to = Math.min(offset + safeSize, ordered.size());
+            pageSlice = hydrateInOrder(ordered.subList(offset, to));
+        }
 
-        for (PresetRule r : rules) {
-            List<Post> cand = filterPostsForRule(r);
-            ruleToCandidates.put(r.getId(), cand);
-            ruleToPercent.put(r.getId(), clampPercent(r.getPercentage()));
+        // rule matches plus their complement always cover the whole table
+        long totalUnique = postRepository.count();
+        return new FeedPage<>(pageSlice, PageRequest.of(safePage, safeSize), totalUnique, ranked.partial());
+    }
+
+    /**
+     * Page of the preset feed cut from a frozen snapshot, so that paging through a mixed and
+     * randomly filled feed neither repeats nor skips posts. The first page (no {@code snapshotId})
+     * assembles the head of the feed once; pages deeper than the snapshot, and later pages
+     * requested without one, are assembled live.
+     */
+    public FeedPage<Post> snapshotFeedForPreset(Integer presetId, String snapshotId, int page, int size, FeedSort sort) {
+        int safePage = Math.max(0, page);
+        int safeSize = Math.max(1, size);
+        boolean noSnapshot = snapshotId == null || snapshotId.isBlank();
+        if (feedSnapshotStore == null || (noSnapshot && safePage > 0)) {
+            return generateFeedForPreset(presetId, safePage, safeSize, sort);
         }
 
-        LinkedHashMap<Integer, Post> unionByPostId = new LinkedHashMap<>();
-        for (List<Post> list : ruleToCandidates.values()) {
-            for (Post p : list) {
-                if (p != null && p.getId() != null) unionByPostId.putIfAbsent(p.getId(), p);
-            }
+        String scope = "preset:" + presetId + ":" + sort;
+        FeedSnapshotStore.Snapshot snapshot = feedSnapshotStore.get(snapshotId, scope);
+        if (snapshot == null) {
+            RankedIds ranked = rankedIds(presetId, feedSnapshotStore.snapshotSize() + 1, sort);
+            snapshot = feedSnapshotStore.put(scope, ranked.ids(), postRepository.count(), ranked.partial());
+        }
+
+        int from = safePage * safeSize;
+        if (from + safeSize > snapshot.size() && !snapshot.complete()) {
+            FeedPage<Post> live = generateFeedForPreset(presetId, safePage, safeSize, sort);
+            return new FeedPage<>(live.getContent(), live.getPageable(), live.getTotalElements(),
+                    live.isPartial(), snapshot.id());
         }
-        List<Post> globalRuleUnion = new ArrayList<>(unionByPostId.values());
-        globalRuleUnion.sort(CREATED_DESC);
+        return new FeedPage<>(hydrateInOrder(snapshot.slice(from, from + safeSize)),
+                PageRequest.of(safePage, safeSize), snapshot.total(), snapshot.partial(), snapshot.id());
+    }
 
-        Set<Integer> matchedIds = unionByPostId.keySet();
-        List<Post> allPosts = postRepository.findAll();
-        List<Post> complement = allPosts.stream()
-                .filter(p -> p != null && p.getId() != null && !matchedIds.contains(p.getId()))
-                .sorted(CREATED_DESC)
-                .collect(Collectors.toCollection(ArrayList::new));
+    private record RankedIds(List<Integer> ids, boolean partial) {
+    }
 
-        int totalUnique = globalRuleUnion.size() + complement.size();
+    /** The first {@code targetCount} ids of the preset feed in display order. */
+    private RankedIds rankedIds(Integer presetId, int targetCount, FeedSort sort) {
+        List<PresetRule> rules = ruleRepo.findByPresetId(presetId);
 
         int sumPct = 0;
         Map<Integer, Integer> quotas = new LinkedHashMap<>();
         for (PresetRule r : rules) {
-            int pct = ruleToPercent.getOrDefault(r.getId(), 0);
+            int pct = clampPercent(r.getPercentage());
             sumPct += pct;
             int q = (pct > 0) ? (targetCount * pct) / 100 : 0;
             quotas.put(r.getId(), Math.max(0, q));
         }
         if (sumPct > 100) sumPct = 100;
 
-        LinkedHashSet<Integer> seenIds = new LinkedHashSet<>();
-        List<Post> pool = new ArrayList<>();
-
+        // Candidates of all rules are fetched concurrently. The pool never holds more than the
+        // quotas of the rules before this one, so that prefix sum plus the own quota always suffices.
+        List<PresetRule> fetched = new ArrayList<>();
+        List<Callable<List<Integer>>> fetches = new ArrayList<>();
+        int bound = 0;
         for (PresetRule r : rules) {
             int quota = quotas.getOrDefault(r.getId(), 0);
             if (quota <= 0) continue;
-            List<Post> cand = ruleToCandidates.getOrDefault(r.getId(), List.of());
+            bound += quota;
+            int limit = Math.min(bound, targetCount);
+            fetched.add(r);
+            fetches.add(() -> candidateIdsForRule(presetId, r, limit, sort));
+        }
+        RuleFanout.Outcome<List<Integer>> outcome = fanOut(fetches);
+
+        // the pool holds ids only; just the requested page is hydrated
+        LinkedHashSet<Integer> pool = new LinkedHashSet<>();
+
+        for (int i = 0; i < fetched.size(); i++) {
+            int quota = quotas.get(fetched.get(i).getId());
+            List<Integer> cand = outcome.results().get(i);
+            if (cand == null) continue; // too slow: the rest of the page still fills
             int taken = 0;
-            for (Post p : cand) {
-                if (p == null || p.getId() == null) continue;
-                if (seenIds.add(p.getId())) {
-                    pool.add(p);
+            for (Integer id : cand) {
+                if (id == null) continue;
+                if (pool.add(id)) {
                     taken++;
                     if (taken >= quota || pool.size() >= targetCount) break;
                 }
@@ -472,26 +485,121 @@ public class FeedPresetService {
             if (pool.size() >= targetCount) break;
         }
 
-        if (sumPct < 100 && pool.size() < targetCount && !complement.isEmpty()) {
-            List<Post> randomPool = complement.stream()
-                    .filter(p -> p != null && p.getId() != null && !seenIds.contains(p.getId()))
-                    .collect(Collectors.toCollection(ArrayList::new));
-            Collections.shuffle(randomPool, ThreadLocalRandom.current());
-            for (Post p : randomPool) {
-                pool.add(p);
-                seenIds.add(p.getId());
-                if (pool.size() >= targetCount) break;
+        if (sumPct < 100 && pool.size() < targetCount) {
+            // same seed for the whole session, so earlier pages keep their fill when paging on
+            RandomFillSampler.Draw fill = randomFillSampler.draw(
+                    ruleQueryCompiler.compileUnmatched(rules), randomFillSampler.idSpace(),
+                    randomFillSampler.sessionSeed(presetId), 0, targetCount - pool.size(), pool);
+            pool.addAll(fill.ids());
+        }
+
+        List<Integer> ordered = sort == FeedSort.HOT ? rankByHotScore(pool) : new ArrayList<>(pool);
+        return new RankedIds(ordered, outcome.partial());
+    }
+
+    // one score lookup over the pool's ids; no entities are loaded for the ranking
+    private List<Integer> rankByHotScore(Collection<Integer> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Object[] row : postRepository.findHotScores(ids)) {
+            scores.put((Integer) row[0], (Double) row[1]);
+        }
+        List<Integer> ranked = new ArrayList<>(ids);
+        ranked.sort(Comparator.comparing((Integer id) -> scores.get(id), Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(Comparator.reverseOrder()));
+        return ranked;
+    }
+
+    /**
+     * Cursor-paginated preset feed. Every active rule reads its own keyset stream (posts claimed by
+     * an earlier rule are excluded, so streams never overlap) and the random fill reads the
+     * complement; the cursor records where each stream stopped, so every page costs the same and
+     * no post is served twice.
+     *
+     * @throws IllegalArgumentException when {@code cursor} is not a token issued by this method
+     */
+    public CursorPage<Post> scrollFeedForPreset(Integer presetId, String cursor, int size) {
+        int safeSize = Math.max(1, size);
+        FeedCursor state = (cursor == null || cursor.isBlank())
+                ? FeedCursor.start(randomFillSampler.sessionSeed(presetId))
+                : FeedCursor.decode(cursor);
+
+        List<PresetRule> rules = ruleRepo.findByPresetId(presetId);
+        List<PresetRule> active = rules.stream().filter(r -> clampPercent(r.getPercentage()) > 0).toList();
+        int sumPct = Math.min(100, active.stream().mapToInt(r -> clampPercent(r.getPercentage())).sum());
+
+        Map<Integer, PostKey> positions = new HashMap<>(state.rulePositions());
+        List<Integer> picked = new ArrayList<>(safeSize);
+
+        // 1) each rule's share of the page; the streams are disjoint, so they are read concurrently
+        List<Callable<List<PostKey>>> fetches = new ArrayList<>();
+        for (int i = 0; i < active.size(); i++) {
+            int index = i;
+            int quota = (safeSize * clampPercent(active.get(i).getPercentage())) / 100;
+            PostKey after = positions.get(active.get(i).getId());
+            fetches.add(() -> quota <= 0 ? List.<PostKey>of() : ruleQueryCompiler.fetchKeysAfter(
+                    ruleQueryCompiler.compileExclusive(active, index), after, quota));
+        }
+        RuleFanout.Outcome<List<PostKey>> outcome = fanOut(fetches);
+        Set<Integer> slowRules = new HashSet<>();
+        for (int i = 0; i < active.size(); i++) {
+            List<PostKey> keys = outcome.results().get(i);
+            if (keys == null) {
+                // position untouched: the next page picks this rule up where it left off
+                slowRules.add(active.get(i).getId());
+                continue;
             }
+            take(active.get(i), keys, positions, picked);
         }
 
-        List<Post> pageSlice;
-        if (offset >= pool.size()) {
-            pageSlice = List.of();
-        } else {
-            int to = Math.min(offset + safeSize, pool.size());
-            pageSlice = pool.subList(offset, to);
+        // 2) the random fill covers the unassigned share plus whatever rules could not supply
+        // (the id space is pinned on the first page, so the walk stays a permutation while posts are added)
+        RandomFillSampler.IdSpace fillSpace = state.fillSpace();
+        long fillOffset = state.fillOffset();
+        boolean fillExhausted = sumPct >= 100;
+        if (sumPct < 100 && picked.size() < safeSize) {
+            if (fillSpace == null) fillSpace = randomFillSampler.idSpace();
+            RandomFillSampler.Draw fill = randomFillSampler.draw(ruleQueryCompiler.compileUnmatched(rules),
+                    fillSpace, state.seed(), fillOffset, safeSize - picked.size(), Set.of());
+            picked.addAll(fill.ids());
+            fillOffset = fill.nextOffset();
+            fillExhausted = fill.exhausted();
         }
 
-        return new PageImpl<>(pageSlice, PageRequest.of(safePage, safeSize), totalUnique);
+        // 3) rounding leftovers and dry streams: top up from the rules in order. Each rule is asked
+        // for the whole shortfall under the same deadline as step 1; whatever is not taken stays
+        // behind its rule's position for the next page
+        boolean partial = outcome.partial();
+        if (picked.size() < safeSize) {
+            int shortfall = safeSize - picked.size();
+            List<Callable<List<PostKey>>> topUps = new ArrayList<>();
+            List<Integer> topUpRules = new ArrayList<>();
+            for (int i = 0; i < active.size(); i++) {
+                PresetRule rule = active.get(i);
+                if (slowRules.contains(rule.getId())) continue;
+                int index = i;
+                PostKey after = positions.get(rule.getId());
+                topUps.add(() -> ruleQueryCompiler.fetchKeysAfter(ruleQueryCompiler.compileExclusive(active, index), after, shortfall));
+                topUpRules.add(i);
+            }
+            RuleFanout.Outcome<List<PostKey>> topUp = fanOut(topUps);
+            partial |= topUp.partial();
+            for (int j = 0; j < topUpRules.size() && picked.size() < safeSize; j++) {
+                List<PostKey> keys = topUp.results().get(j);
+                if (keys == null) continue;
+                take(active.get(topUpRules.get(j)), keys.subList(0, Math.min(keys.size(), safeSize - picked.size())),
+                        positions, picked);
+            }
+        }
+
+        boolean done = !partial && picked.size() < safeSize && fillExhausted;
+        String nextCursor = done ? null : state.advance(positions, fillSpace, fillOffset).encode();
+        return new CursorPage<>(hydrateInOrder(picked), nextCursor, partial);
+    }
+
+    private static void take(PresetRule rule, List<PostKey> keys, Map<Integer, PostKey> positions, List<Integer> picked) {
+        if (keys.isEmpty()) return;
+        positions.put(rule.getId(), keys.get(keys.size() - 1));
+        keys.forEach(k -> picked.add(k.id()));
     }
 }
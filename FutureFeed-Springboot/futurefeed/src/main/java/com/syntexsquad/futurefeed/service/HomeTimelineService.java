@@ -0,0 +1,323 @@
+package com.syntexsquad.futurefeed.service;
+
+import com.syntexsquad.futurefeed.feed.AuthorPostCache;
+import com.syntexsquad.futurefeed.feed.NewestFirstMerge;
+import com.syntexsquad.futurefeed.feed.PostIndexListener;
+import com.syntexsquad.futurefeed.feed.PostKey;
+import com.syntexsquad.futurefeed.model.Follower;
+import com.syntexsquad.futurefeed.model.Post;
+import com.syntexsquad.futurefeed.model.UserPost;
+import com.syntexsquad.futurefeed.repository.FollowerRepository;
+import com.syntexsquad.futurefeed.repository.HomeTimelineOwnerRepository;
+import com.syntexsquad.futurefeed.repository.HomeTimelineRepository;
+import com.syntexsquad.futurefeed.repository.PostRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.*;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Home timelines for the following feed, in a hybrid fan-out scheme. A new {@link UserPost} is
+ * pushed into every follower's {@code home_timeline} rows once its transaction commits, so reading
+ * the feed is one range scan over {@code (owner_id, created_at, post_id)}. Each timeline is a
+ * bounded window of the newest {@code capacity} posts; pages beyond it fall back to the
+ * followed-authors query. Rows are only written by insert-if-absent statements, so a push, a
+ * backfill and a first-read seeding that overlap leave each post once per timeline.
+ * <p>
+ * Authors with at least {@code highFollowerThreshold} followers are not fanned out: a single post
+ * would cost one row per follower. Their posts are instead merged into the reader's timeline at
+ * read time from the per-author lists in {@link AuthorPostCache}.
+ */
+@Service
+public class HomeTimelineService {
+
+    private static final Logger log = LoggerFactory.getLogger(HomeTimelineService.class);
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final HomeTimelineRepository timelineRepository;
+    private final HomeTimelineOwnerRepository ownerRepository;
+    private final FollowerRepository followerRepository;
+    private final PostRepository postRepository;
+    private final AuthorPostCache authorPostCache;
+    private final int capacity;
+    private final long highFollowerThreshold;
+    // own transactions for pushes and seeding, so a lost insert race is retried without the caller's
+    private final TransactionTemplate writes;
+    // the page itself, opened only after seeding so a first read never holds two connections
+    private final TransactionTemplate reads;
+    private final Executor fanOuts;
+
+    // authors read-merged instead of fanned out; replaced wholesale, never mutated
+    private volatile Set<Integer> highFollowerAuthors = Set.of();
+
+    @Autowired
+    public HomeTimelineService(HomeTimelineRepository timelineRepository,
+                               HomeTimelineOwnerRepository ownerRepository,
+                               FollowerRepository followerRepository,
+                               PostRepository postRepository,
+                               AuthorPostCache authorPostCache,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${feed.timeline.capacity:800}") int capacity,
+                               @Value("${feed.timeline.high-follower-threshold:10000}") long highFollowerThreshold,
+                               @Value("${feed.timeline.fan-out-threads:2}") int fanOutThreads) {
+        this(timelineRepository, ownerRepository, followerRepository, postRepository, authorPostCache,
+                transactionManager, Executors.newFixedThreadPool(Math.max(1, fanOutThreads), r -> {
+                    Thread t = new Thread(r, "timeline-fan-out");
+                    t.setDaemon(true);
+                    return t;
+                }), capacity, highFollowerThreshold);
+    }
+
+    public HomeTimelineService(HomeTimelineRepository timelineRepository,
+                               HomeTimelineOwnerRepository ownerRepository,
+                               FollowerRepository followerRepository,
+                               PostRepository postRepository,
+                               AuthorPostCache authorPostCache,
+                               PlatformTransactionManager transactionManager,
+                               Executor fanOuts,
+                               int capacity,
+                               long highFollowerThreshold) {
+        this.timelineRepository = timelineRepository;
+        this.ownerRepository = ownerRepository;
+        this.followerRepository = followerRepository;
+        this.postRepository = postRepository;
+        this.authorPostCache = authorPostCache;
+        this.capacity = Math.max(1, capacity);
+        this.highFollowerThreshold = Math.max(1, highFollowerThreshold);
+        this.writes = new TransactionTemplate(transactionManager);
+        this.writes.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reads = new TransactionTemplate(transactionManager);
+        this.reads.setReadOnly(true);
+        this.fanOuts = fanOuts;
+    }
+
+    public boolean isHighFollowerAuthor(Integer authorId) {
+        return highFollowerAuthors.contains(authorId);
+    }
+
+    /**
+     * Pushes a freshly created user post into its author's followers' timelines once the creating
+     * transaction commits, on the fan-out pool, so the author's request neither waits for nor
+     * fails with the pushes. Authors with too many followers are skipped; readers merge their
+     * posts in instead.
+     */
+    public void fanOut(Post post) {
+        if (!(post instanceof UserPost) || post.getId() == null || post.getUser() == null) return;
+        Integer postId = post.getId();
+        Integer authorId = post.getUser().getId();
+        PostIndexListener.runAfterCommit(() -> {
+            authorPostCache.onPostAdded(post);
+            if (!isHighFollowerAuthor(authorId)) fanOuts.execute(() -> push(postId, authorId));
+        });
+    }
+
+    private void push(Integer postId, Integer authorId) {
+        try {
+            long followers = followerRepository.countByFollowedId(authorId);
+            if (followers == 0) return;
+            if (followers >= highFollowerThreshold) {
+                // crossed the threshold since the last refresh; switch the author over right away
+                promote(authorId);
+                return;
+            }
+            int rows = insertAbsent(() -> timelineRepository.insertForFollowers(postId));
+            log.debug("[timeline] post {} pushed to {} followers", postId, rows);
+        } catch (RuntimeException e) {
+            log.warn("[timeline] pushing post {} failed: {}", postId, e.toString());
+        }
+    }
+
+    /** Backfills the newly followed author's recent posts, if the follower's timeline is already seeded. */
+    @Transactional
+    public void onFollow(Integer followerId, Integer followedId) {
+        if (isHighFollowerAuthor(followedId)) return; // merged at read time
+        if (!ownerRepository.existsById(followerId)) return; // seeded in full on first read
+        timelineRepository.insertNewestOf(followerId, List.of(followedId), capacity);
+    }
+
+    @Transactional
+    public void onUnfollow(Integer followerId, Integer followedId) {
+        timelineRepository.deleteByOwnerIdAndAuthorId(followerId, followedId);
+    }
+
+    public void onPostDeleted(Integer postId) {
+        timelineRepository.deleteByPostId(postId);
+        authorPostCache.onPostRemoved(postId);
+    }
+
+    /**
+     * A page of the following feed for {@code ownerId}, newest first. Seeds the timeline first, in
+     * its own transaction, and only then opens the read-only one the page is read in.
+     */
+    public Page<Post> read(Integer ownerId, int page, int size) {
+        int safePage = Math.max(0, page);
+        int safeSize = Math.max(1, size);
+        ensureSeeded(ownerId);
+        return reads.execute(status -> readSeeded(ownerId, safePage, safeSize));
+    }
+
+    private Page<Post> readSeeded(Integer ownerId, int safePage, int safeSize) {
+        Pageable pageable = PageRequest.of(safePage, safeSize);
+        long held = timelineRepository.countByOwnerId(ownerId);
+        // below capacity the window is the whole history; at capacity older posts exist beyond it
+        boolean windowIsComplete = held < capacity;
+
+        long needed = (long) (safePage + 1) * safeSize;
+        if (needed <= capacity || windowIsComplete) {
+            List<Integer> merged = followedHighFollowerAuthors(ownerId);
+            if (merged.isEmpty()) {
+                List<Integer> ids = timelineRepository.findPostIdsByOwnerId(ownerId, pageable);
+                long total = windowIsComplete ? held : countFollowedPosts(ownerId);
+                return new PageImpl<>(hydrateInOrder(ids), pageable, total);
+            }
+            List<Integer> ids = mergeWithAuthors(ownerId, merged, (int) needed, safePage * safeSize, safeSize);
+            if (ids != null) {
+                return new PageImpl<>(hydrateInOrder(ids), pageable, countFollowedPosts(ownerId));
+            }
+        }
+
+        // deeper than the window: read the followed authors directly
+        List<Integer> followed = followerRepository.findFollowedIdsByFollowerId(ownerId);
+        if (followed.isEmpty()) return Page.empty(pageable);
+        Pageable byCreated = PageRequest.of(safePage, safeSize, Sort.by(Sort.Direction.DESC, "createdAt"));
+        return postRepository.findPostsByFollowedUsers(followed, byCreated);
+    }
+
+    /** Cuts every timeline that grew past capacity back to its newest {@code capacity} rows. */
+    @Scheduled(fixedDelayString = "${feed.timeline.trim-interval-ms:300000}")
+    @Transactional
+    public void trimTimelines() {
+        for (Integer ownerId : timelineRepository.findOwnersOverCapacity(capacity)) {
+            List<Object[]> boundary = em.createQuery(
+                            "SELECT t.createdAt, t.postId FROM HomeTimelineEntry t WHERE t.ownerId = :ownerId " +
+                                    "ORDER BY t.createdAt DESC, t.postId DESC", Object[].class)
+                    .setParameter("ownerId", ownerId)
+                    .setFirstResult(capacity - 1)
+                    .setMaxResults(1)
+                    .getResultList();
+            if (boundary.isEmpty()) continue;
+            int removed = em.createQuery(
+                            "DELETE FROM HomeTimelineEntry t WHERE t.ownerId = :ownerId AND " +
+                                    "(t.createdAt < :ts OR (t.createdAt = :ts AND t.postId < :postId))")
+                    .setParameter("ownerId", ownerId)
+                    .setParameter("ts", boundary.get(0)[0])
+                    .setParameter("postId", boundary.get(0)[1])
+                    .executeUpdate();
+            log.debug("[timeline] trimmed {} rows for owner {}", removed, ownerId);
+        }
+    }
+
+    /**
+     * Re-reads which authors are over the follower threshold. Authors that dropped below it go
+     * back to fan-out, so their recent posts are backfilled into their followers' timelines.
+     */
+    @Scheduled(fixedDelayString = "${feed.timeline.high-follower-refresh-ms:60000}")
+    @Transactional
+    public void refreshHighFollowerAuthors() {
+        Set<Integer> previous = highFollowerAuthors;
+        Set<Integer> current = Set.copyOf(followerRepository.findFollowedIdsWithFollowerCountAtLeast(highFollowerThreshold));
+        highFollowerAuthors = current;
+        for (Integer authorId : previous) {
+            if (current.contains(authorId)) continue;
+            for (Follower f : followerRepository.findByFollowedId(authorId)) {
+                onFollow(f.getFollowerId(), authorId);
+            }
+            log.info("[timeline] author {} back on fan-out-on-write", authorId);
+        }
+    }
+
+    private synchronized void promote(Integer authorId) {
+        if (highFollowerAuthors.contains(authorId)) return;
+        Set<Integer> next = new HashSet<>(highFollowerAuthors);
+        next.add(authorId);
+        highFollowerAuthors = Set.copyOf(next);
+        log.info("[timeline] author {} switched to fan-out-on-read", authorId);
+    }
+
+    private List<Integer> followedHighFollowerAuthors(Integer ownerId) {
+        Set<Integer> high = highFollowerAuthors;
+        if (high.isEmpty()) return List.of();
+        return followerRepository.findFollowedIdsByFollowerId(ownerId).stream()
+                .filter(high::contains)
+                .toList();
+    }
+
+    /**
+     * Merges the owner's timeline with the newest posts of each read-merged author. Returns
+     * {@code null} when an author's cached list is shorter than the page depth needs.
+     */
+    private List<Integer> mergeWithAuthors(Integer ownerId, List<Integer> authorIds, int needed, int skip, int limit) {
+        List<List<PostKey>> streams = new ArrayList<>(authorIds.size() + 1);
+        streams.add(timelineRepository.findKeysByOwnerId(ownerId, PageRequest.of(0, needed)));
+        for (Integer authorId : authorIds) {
+            List<PostKey> newest = authorPostCache.newest(authorId, needed);
+            if (newest == null) return null;
+            streams.add(newest);
+        }
+        return NewestFirstMerge.merge(streams, skip, limit);
+    }
+
+    private void ensureSeeded(Integer ownerId) {
+        if (ownerRepository.existsById(ownerId)) return;
+        Set<Integer> high = highFollowerAuthors;
+        List<Integer> followed = followerRepository.findFollowedIdsByFollowerId(ownerId).stream()
+                .filter(id -> !high.contains(id))
+                .toList();
+        // pushes and a concurrent first read may be writing the same rows; only add what is missing
+        insertAbsent(() -> {
+            int rows = followed.isEmpty() ? 0 : timelineRepository.insertNewestOf(ownerId, followed, capacity);
+            ownerRepository.insertIfAbsent(ownerId);
+            return rows;
+        });
+    }
+
+    /**
+     * Runs insert-if-absent statements in a transaction of their own. Two writers that both found
+     * a row missing can still collide on {@code uk_home_timeline_owner_post}; the loser runs once
+     * more and then skips what the winner wrote.
+     */
+    private int insertAbsent(IntSupplier inserts) {
+        try {
+            return writes.execute(status -> inserts.getAsInt());
+        } catch (DataIntegrityViolationException e) {
+            return writes.execute(status -> inserts.getAsInt());
+        }
+    }
+
+    private long countFollowedPosts(Integer ownerId) {
+        List<Integer> followed = followerRepository.findFollowedIdsByFollowerId(ownerId);
+        return followed.isEmpty() ? 0 : postRepository.countPostsByFollowedUsers(followed);
+    }
+
+    private List<Post> hydrateInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Integer, Post> byId = postRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Post::getId, p -> p, (a, b) -> a));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (fanOuts instanceof ExecutorService pool) pool.shutdown();
+    }
+}
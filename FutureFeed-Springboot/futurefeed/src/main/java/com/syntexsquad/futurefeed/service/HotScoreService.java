@@ -0,0 +1,80 @@
+package com.syntexsquad.futurefeed.service;
+
+import com.syntexsquad.futurefeed.feed.HotScore;
+import com.syntexsquad.futurefeed.feed.HotScore.Engagement;
+import com.syntexsquad.futurefeed.repository.PostRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Keeps the stored {@code hot_score} of every post current. Engagement services report each like,
+ * comment, reshare and bookmark as it happens; the score moves by one in-place update, so ranked
+ * reads are a plain {@code ORDER BY hot_score} and never count engagement rows.
+ */
+@Service
+public class HotScoreService {
+
+    private static final Logger log = LoggerFactory.getLogger(HotScoreService.class);
+    private static final int BACKFILL_BATCH = 500;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final PostRepository postRepository;
+
+    public HotScoreService(PostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    public void record(Integer postId, Engagement engagement) {
+        if (postId == null) return;
+        postRepository.addEngagement(postId, engagement.weight());
+    }
+
+    public void retract(Integer postId, Engagement engagement) {
+        if (postId == null) return;
+        postRepository.addEngagement(postId, -engagement.weight());
+    }
+
+    /** Scores posts that predate the column; runs once, counting their engagement in batches. */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        int scored = 0;
+        Integer after = 0;
+        while (true) {
+            List<Object[]> rows = em.createQuery(
+                            "SELECT p.id, p.createdAt FROM Post p WHERE p.hotScore IS NULL AND p.id > :after ORDER BY p.id",
+                            Object[].class)
+                    .setParameter("after", after)
+                    .setMaxResults(BACKFILL_BATCH)
+                    .getResultList();
+            if (rows.isEmpty()) break;
+
+            List<Integer> ids = rows.stream().map(r -> (Integer) r[0]).toList();
+            Map<Integer, Long> likes = PostCounts.byPost(em, Engagement.LIKE, ids);
+            Map<Integer, Long> comments = PostCounts.byPost(em, Engagement.COMMENT, ids);
+            Map<Integer, Long> reshares = PostCounts.byPost(em, Engagement.RESHARE, ids);
+            Map<Integer, Long> bookmarks = PostCounts.byPost(em, Engagement.BOOKMARK, ids);
+
+            for (Object[] r : rows) {
+                Integer id = (Integer) r[0];
+                long points = HotScore.points(likes.getOrDefault(id, 0L), comments.getOrDefault(id, 0L),
+                        reshares.getOrDefault(id, 0L), bookmarks.getOrDefault(id, 0L));
+                postRepository.setHotScore(id, points, HotScore.of((Instant) r[1], points));
+            }
+            scored += rows.size();
+            after = ids.get(ids.size() - 1);
+        }
+        if (scored > 0) log.info("[hot] backfilled scores for {} posts", scored);
+    }
+}
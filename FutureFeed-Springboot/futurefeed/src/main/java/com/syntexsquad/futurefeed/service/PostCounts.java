@@ -0,0 +1,35 @@
+package com.syntexsquad.futurefeed.service;
+
+import com.syntexsquad.futurefeed.feed.HotScore.Engagement;
+import jakarta.persistence.EntityManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/** Engagement rows per post, counted with one grouped {@code IN} query per kind. */
+final class PostCounts {
+
+    private PostCounts() {
+    }
+
+    /** Count of {@code kind} rows for each of {@code postIds} that has any; absent means zero. */
+    static Map<Integer, Long> byPost(EntityManager em, Engagement kind, Collection<Integer> postIds) {
+        Map<Integer, Long> out = new HashMap<>();
+        if (postIds.isEmpty()) return out;
+        for (Object[] r : em.createQuery(jpql(kind), Object[].class).setParameter("ids", postIds).getResultList()) {
+            out.put((Integer) r[0], (Long) r[1]);
+        }
+        return out;
+    }
+
+    private static String jpql(Engagement kind) {
+        String entity = switch (kind) {
+            case LIKE -> "Like";
+            case COMMENT -> "Comment";
+            case RESHARE -> "Reshare";
+            case BOOKMARK -> "Bookmark";
+        };
+        return "SELECT e.post.id, COUNT(e) FROM " + entity + " e WHERE e.post.id IN :ids GROUP BY e.post.id";
+    }
+}
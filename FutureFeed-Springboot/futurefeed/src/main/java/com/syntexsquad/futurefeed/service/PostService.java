@@ -1,23 +1,29 @@
 package com.syntexsquad.futurefeed.service;
 
+import com.syntexsquad.futurefeed.cache.CacheGenerations;
+import com.syntexsquad.futurefeed.dto.PostView;
 import com.syntexsquad.futurefeed.dto.PostRequest;
+import com.syntexsquad.futurefeed.feed.FeedPage;
+import com.syntexsquad.futurefeed.feed.FeedSnapshotStore;
+import com.syntexsquad.futurefeed.feed.FeedSort;
+import com.syntexsquad.futurefeed.feed.MaterializedFeedStore;
+import com.syntexsquad.futurefeed.mapper.PostViewMapper;
 import com.syntexsquad.futurefeed.model.*;
-import com.syntexsquad.futurefeed.repository.AppUserRepository;
 import com.syntexsquad.futurefeed.repository.PostRepository;
 import com.syntexsquad.futurefeed.repository.LikeRepository;
 import com.syntexsquad.futurefeed.repository.CommentRepository;
 import com.syntexsquad.futurefeed.repository.FollowerRepository;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
-import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -26,53 +32,79 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
 public class PostService {
 
     private static final Logger log = LoggerFactory.getLogger(PostService.class);
+    // generation shared by the caches holding lists any post write can change: posts, searchPosts
+    private static final String POST_LISTS = "posts";
 
     @PersistenceContext
     private EntityManager em;
 
     private final PostRepository postRepository;
-    private final AppUserRepository appUserRepository;
+    private final CurrentUserResolver currentUserResolver;
     private final LikeRepository likerepository;
     private final CommentRepository commentRepository;
     private final TopicService topicService;
     @Autowired
     private FollowerRepository followRepository;
+    @Autowired
+    private PostViewMapper postViewMapper;
+    @Autowired(required = false)
+    private MaterializedFeedStore materializedFeedStore;
+    @Autowired(required = false)
+    private HomeTimelineService homeTimelineService;
+    @Autowired(required = false)
+    private FeedSnapshotStore feedSnapshotStore;
+    @Autowired(required = false)
+    private EngagementCounterService engagementCounterService;
+    @Autowired(required = false)
+    private CacheGenerations cacheGenerations;
+    @Autowired(required = false)
+    private CacheManager cacheManager;
 
     public PostService(PostRepository postRepository,
-                       AppUserRepository appUserRepository,
+                       CurrentUserResolver currentUserResolver,
                        LikeRepository likerepository,
                        CommentRepository commentRepository,
                        TopicService topicService) {
         this.postRepository = postRepository;
-        this.appUserRepository = appUserRepository;
+        this.currentUserResolver = currentUserResolver;
         this.likerepository = likerepository;
         this.commentRepository = commentRepository;
         this.topicService = topicService;
     }
 
-    @Cacheable(value = "post", key = "#id")
     public Post getPostById(Integer id) {
         return postRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Post with ID " + id + " not found"));
     }
 
+    /**
+     * The post as a cached, immutable {@link PostView}. The cache holds the small mapped view rather
+     * than the entity, so a hit never touches a persistence context or a lazy association.
+     */
+    @Cacheable(value = "post", key = "#id")
+    @Transactional(readOnly = true)
+    public PostView getPostViewById(Integer id) {
+        return PostView.of(postViewMapper.toDto(getPostById(id)));
+    }
+
     public boolean existsById(Integer postId) {
         return postRepository.existsById(postId);
     }
 
     @Transactional
-    @CacheEvict(value = {"posts", "post", "userPosts"}, allEntries = true)
+    @CacheEvict(value = "userPosts", key = "#result.user.id")
     public Post createPost(PostRequest postRequest) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        AppUser user = resolveCurrentUser(authentication); 
+        AppUser user = currentUserResolver.requireCurrentUser();
 
         Post saved;
         if (Boolean.TRUE.equals(postRequest.getIsBot())) {
@@ -95,6 +127,10 @@ public class PostService {
                 postRequest.getIsBot(),
                 saved.getContent() == null ? 0 : saved.getContent().length());
 
+        if (materializedFeedStore != null) materializedFeedStore.onPostAdded(saved);
+        if (homeTimelineService != null) homeTimelineService.fanOut(saved);
+        if (cacheGenerations != null) cacheGenerations.bump(POST_LISTS);
+
         try {
             log.info("[post] autoTagIfMissing -> postId={}", saved.getId());
             topicService.autoTagIfMissing(saved.getId());
@@ -106,95 +142,26 @@ public class PostService {
         return saved;
     }
 
-    private AppUser resolveCurrentUser(Authentication auth) {
-        if (auth == null) {
-            throw new RuntimeException("Not authenticated");
-        }
-
-        if (auth instanceof OAuth2AuthenticationToken oauth) {
-            OAuth2User o = oauth.getPrincipal();
-            if (o != null) {
-                Map<String, Object> attrs = o.getAttributes();
-                Object emailAttr = attrs == null ? null : attrs.get("email");
-                if (emailAttr != null) {
-                    String email = String.valueOf(emailAttr);
-                    return appUserRepository.findByEmail(email)
-                            .orElseThrow(() -> new RuntimeException("User not found (email=" + email + ")"));
-                }
-            }
-        }
-
-        Object principal = auth.getPrincipal();
-        try {
-            Class<?> audClass = Class.forName("com.syntexsquad.futurefeed.security.AppUserDetails");
-            if (audClass.isInstance(principal)) {
-                Object aud = principal;
-
-                try {
-                    Integer id = (Integer) audClass.getMethod("getId").invoke(aud);
-                    if (id != null) {
-                        Optional<AppUser> byId = appUserRepository.findById(id);
-                        if (byId.isPresent()) return byId.get();
-                    }
-                } catch (NoSuchMethodException ignored) { /* skip */ }
-
-                try {
-                    String email = String.valueOf(audClass.getMethod("getEmail").invoke(aud));
-                    if (email != null && !email.isBlank()) {
-                        Optional<AppUser> byEmail = appUserRepository.findByEmail(email);
-                        if (byEmail.isPresent()) return byEmail.get();
-                    }
-                } catch (NoSuchMethodException ignored) { /* skip */ }
-
-                try {
-                    String username = String.valueOf(audClass.getMethod("getUsername").invoke(aud));
-                    if (username != null && !username.isBlank()) {
-                        return appUserRepository.findByEmail(username)
-                                .or(() -> appUserRepository.findByUsername(username))
-                                .orElseThrow(() -> new RuntimeException("User not found (username=" + username + ")"));
-                    }
-                } catch (NoSuchMethodException ignored) { /* skip */ }
-            }
-        } catch (ClassNotFoundException ignored) {
-        } catch (Exception reflectErr) {
-            log.warn("resolveCurrentUser: AppUserDetails reflection error: {}", reflectErr.toString());
-        }
-
-        if (principal instanceof UserDetails ud) {
-            String name = ud.getUsername();
-            if (name != null && !name.isBlank()) {
-                return appUserRepository.findByEmail(name)
-                        .or(() -> appUserRepository.findByUsername(name))
-                        .orElseThrow(() -> new RuntimeException("User not found (principal=" + name + ")"));
-            }
-        }
-
-        if (principal instanceof String s && !s.isBlank()) {
-            return appUserRepository.findByEmail(s)
-                    .or(() -> appUserRepository.findByUsername(s))
-                    .orElseThrow(() -> new RuntimeException("User not found (principal=" + s + ")"));
-        }
-
-        String fallback = auth.getName();
-        if (fallback != null && !fallback.isBlank()) {
-            return appUserRepository.findByEmail(fallback)
-                    .or(() -> appUserRepository.findByUsername(fallback))
-                    .orElseThrow(() -> new RuntimeException("User not found (name=" + fallback + ")"));
-        }
-
-        throw new RuntimeException("User not found");
-    }
-
-    @CacheEvict(value = {"posts", "post", "userPosts"}, allEntries = true)
+    @CacheEvict(value = "post", key = "#id")
     public boolean deletePost(Integer id) {
         if (!postRepository.existsById(id)) {
             return false;
         }
+        Optional<Integer> authorId = postRepository.findAuthorIdById(id);
         postRepository.deleteById(id);
+        if (materializedFeedStore != null) materializedFeedStore.onPostRemoved(id);
+        if (homeTimelineService != null) homeTimelineService.onPostDeleted(id);
+        if (engagementCounterService != null) engagementCounterService.forget(id);
+        authorId.ifPresent(author -> evict("userPosts", author));
+        if (cacheGenerations != null) cacheGenerations.bump(POST_LISTS);
         return true;
     }
 
-    @Cacheable(value = "searchPosts", key = "#keyword")
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager == null ? null : cacheManager.getCache(cacheName);
+        if (cache != null) cache.evict(key);
+    }
+
     public List<Post> searchPosts(String keyword) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return List.of();
@@ -203,30 +170,108 @@ public class PostService {
         return results != null ? results : List.of();
     }
 
-    @Cacheable(value = "posts")
+    @Cacheable(value = "searchPosts", key = "@cacheGenerations.key('posts', #keyword)")
+    @Transactional(readOnly = true)
+    public List<PostView> searchPostViews(String keyword) {
+        return postViewMapper.toViews(searchPosts(keyword));
+    }
+
     public List<Post> getAllPosts() {
         return postRepository.findAll();
     }
 
+    // sync: when the entry expires under load, one caller reloads and the rest wait for it
+    @Cacheable(value = "posts", key = "@cacheGenerations.key('posts')", sync = true)
+    @Transactional(readOnly = true)
+    public List<PostView> getAllPostViews() {
+        return postViewMapper.toViews(getAllPosts());
+    }
+
     @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
     public Page<Post> getPaginatedPosts(int page, int size) {
+        return getPaginatedPosts(page, size, FeedSort.NEW);
+    }
+
+    public Page<Post> getPaginatedPosts(int page, int size, FeedSort sort) {
         if (em != null) em.clear();
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
+        Sort order = sort == FeedSort.HOT
+                ? Sort.by(Sort.Order.desc("hotScore").nullsLast(), Sort.Order.desc("id"))
+                : Sort.by(Sort.Direction.DESC, "createdAt");
+        Pageable pageable = PageRequest.of(page, size, order);
         return postRepository.findAll(pageable);
     }
 
-    @Cacheable(value = "userPosts", key = "#userId")
+    /**
+     * Page of the global feed cut from a frozen snapshot: the first page (no {@code snapshotId})
+     * ranks the head of the feed once, later pages slice it. Pages deeper than the snapshot, and
+     * later pages requested without one, are read live.
+     */
+    public FeedPage<Post> getPaginatedPosts(int page, int size, FeedSort sort, String snapshotId) {
+        int safePage = Math.max(0, page);
+        int safeSize = Math.max(1, size);
+        boolean noSnapshot = snapshotId == null || snapshotId.isBlank();
+        if (feedSnapshotStore == null || (noSnapshot && safePage > 0)) {
+            return livePage(safePage, safeSize, sort, null);
+        }
+
+        String scope = "posts:" + sort;
+        FeedSnapshotStore.Snapshot snapshot = feedSnapshotStore.get(snapshotId, scope);
+        if (snapshot == null) {
+            Pageable head = PageRequest.of(0, feedSnapshotStore.snapshotSize() + 1);
+            List<Integer> ranked = sort == FeedSort.HOT
+                    ? postRepository.findHottestIds(head)
+                    : postRepository.findNewestIds(head);
+            snapshot = feedSnapshotStore.put(scope, ranked, postRepository.count(), false);
+        }
+
+        int from = safePage * safeSize;
+        if (from + safeSize > snapshot.size() && !snapshot.complete()) {
+            return livePage(safePage, safeSize, sort, snapshot.id());
+        }
+        return new FeedPage<>(hydrateInOrder(snapshot.slice(from, from + safeSize)),
+                PageRequest.of(safePage, safeSize), snapshot.total(), false, snapshot.id());
+    }
+
+    private FeedPage<Post> livePage(int page, int size, FeedSort sort, String snapshotId) {
+        Page<Post> live = getPaginatedPosts(page, size, sort);
+        return new FeedPage<>(live.getContent(), live.getPageable(), live.getTotalElements(), false, snapshotId);
+    }
+
+    private List<Post> hydrateInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) return List.of();
+        Map<Integer, Post> byId = new HashMap<>();
+        for (Post p : postRepository.findAllById(ids)) byId.put(p.getId(), p);
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
     public List<Post> getPostsByUserId(Integer userId) {
         return postRepository.findAllByUserId(userId);
     }
 
-    @Cacheable(value = "likedPosts", key = "#userId")
+    /** A user's posts as cached {@link PostView} snapshots. */
+    @Cacheable(value = "userPosts", key = "#userId")
+    @Transactional(readOnly = true)
+    public List<PostView> getPostViewsByUserId(Integer userId) {
+        return postViewMapper.toViews(getPostsByUserId(userId));
+    }
+
     public List<Post> getLikedPostsByUserId(Integer userId) {
         List<Integer> postIds = likerepository.findPostIdsByUserId(userId);
         return postRepository.findAllById(postIds);
     }
 
+    @Cacheable(value = "likedPosts", key = "#userId")
+    @Transactional(readOnly = true)
+    public List<PostView> getLikedPostViews(Integer userId) {
+        return postViewMapper.toViews(getLikedPostsByUserId(userId));
+    }
+
     @Cacheable(value = "commentedPosts", key = "#userId")
+    @Transactional(readOnly = true)
+    public List<PostView> getCommentedPostViews(Integer userId) {
+        return postViewMapper.toViews(getPostsCommentedByUser(userId));
+    }
+
     public List<Post> getPostsCommentedByUser(Integer userId) {
         List<Comment> comments = commentRepository.findByUserId(userId);
         List<Integer> postIds = comments.stream()
@@ -246,10 +291,18 @@ public class PostService {
         if (auth == null || !auth.isAuthenticated()) {
             return null;
         }
-        return resolveCurrentUser(auth);
+        return currentUserResolver.requireCurrentUser();
     }
 
 
+    /** The following feed: served from the home timeline when available, else by querying followed authors. */
+    public Page<Post> getFollowingFeed(Integer userId, int page, int size) {
+        if (homeTimelineService != null) {
+            return homeTimelineService.read(userId, page, size);
+        }
+        return getFollowingPosts(getFollowedUserIds(userId), page, size);
+    }
+
     @Transactional(readOnly = true)
     public Page<Post> getFollowingPosts(List<Integer> followedUserIds, int page, int size) {
         if (followedUserIds == null || followedUserIds.isEmpty()) {
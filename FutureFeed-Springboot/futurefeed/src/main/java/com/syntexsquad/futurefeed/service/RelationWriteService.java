@@ -0,0 +1,130 @@
+package com.syntexsquad.futurefeed.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.support.SQLExceptionSubclassTranslator;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single-statement writes for the user → post / user → user relation tables. An insert is one
+ * {@code INSERT ... ON CONFLICT DO NOTHING} and a removal one {@code DELETE}; both report whether a
+ * row actually changed, so callers fire notifications and counter updates only on a real change and
+ * a concurrent double tap is a no-op instead of a duplicate-key error.
+ */
+@Service
+public class RelationWriteService {
+
+    public enum Relation {
+        LIKE("likes", "user_id", "post_id", true),
+        RESHARE("reshares", "user_id", "post_id", true),
+        BOOKMARK("bookmarks", "user_id", "post_id", true),
+        FOLLOW("followers", "follower_id", "followed_id", false);
+
+        private final String table;
+        private final String actorColumn;
+        private final String targetColumn;
+        private final boolean targetsPost;
+
+        Relation(String table, String actorColumn, String targetColumn, boolean targetsPost) {
+            this.table = table;
+            this.actorColumn = actorColumn;
+            this.targetColumn = targetColumn;
+            this.targetsPost = targetsPost;
+        }
+    }
+
+    private static final Pattern NAMED_PARAM = Pattern.compile(":(actor|target)\\b");
+    private static final SQLExceptionTranslator TRANSLATOR = new SQLExceptionSubclassTranslator();
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private volatile Boolean postgres;
+
+    /**
+     * Adds the relation unless it already exists. For post relations nothing is written when the
+     * post does not exist either, so {@code false} means "already there or no such post".
+     */
+    @Transactional
+    public boolean insert(Relation relation, Integer actorId, Integer targetId) {
+        if (!isPostgres()) return insertUnlessPresent(relation, actorId, targetId);
+        return em.createNativeQuery(insertSql(relation))
+                .setParameter("actor", actorId)
+                .setParameter("target", targetId)
+                .executeUpdate() > 0;
+    }
+
+    /**
+     * The {@code NOT EXISTS} insert of other databases (H2 in tests). Two writers can both find the
+     * row missing; the loser's unique-key violation means the row is there, so it reports no change.
+     * Runs on the session's connection directly: a failed native query would mark the whole
+     * transaction rollback-only, a failed JDBC statement only undoes itself.
+     */
+    private boolean insertUnlessPresent(Relation relation, Integer actorId, Integer targetId) {
+        em.flush(); // as executeUpdate would, so the statement sees this transaction's pending writes
+        List<Integer> params = new ArrayList<>();
+        Matcher named = NAMED_PARAM.matcher(insertSql(relation));
+        String sql = named.replaceAll(m -> {
+            params.add("actor".equals(m.group(1)) ? actorId : targetId);
+            return "?";
+        });
+        return em.unwrap(Session.class).doReturningWork(c -> {
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                for (int i = 0; i < params.size(); i++) ps.setInt(i + 1, params.get(i));
+                return ps.executeUpdate() > 0;
+            } catch (SQLException e) {
+                if (TRANSLATOR.translate("insert", sql, e) instanceof DataIntegrityViolationException) return false;
+                throw e;
+            }
+        });
+    }
+
+    /** Removes the relation; {@code false} when there was nothing to remove. */
+    @Transactional
+    public boolean delete(Relation relation, Integer actorId, Integer targetId) {
+        return em.createNativeQuery("DELETE FROM " + relation.table +
+                        " WHERE " + relation.actorColumn + " = :actor AND " + relation.targetColumn + " = :target")
+                .setParameter("actor", actorId)
+                .setParameter("target", targetId)
+                .executeUpdate() > 0;
+    }
+
+    private String insertSql(Relation relation) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(relation.table)
+                .append(" (").append(relation.actorColumn).append(", ").append(relation.targetColumn);
+        if (relation == Relation.RESHARE) sql.append(", created_at");
+        sql.append(") SELECT :actor, :target");
+        if (relation == Relation.RESHARE) sql.append(", CURRENT_TIMESTAMP");
+
+        String where = relation.targetsPost ? " WHERE EXISTS (SELECT 1 FROM posts WHERE id = :target)" : "";
+        if (isPostgres()) {
+            return sql.append(where).append(" ON CONFLICT DO NOTHING").toString();
+        }
+        // other databases (H2 in tests): skip existing rows; a concurrent duplicate fails on the unique key
+        String absent = "NOT EXISTS (SELECT 1 FROM " + relation.table + " WHERE " + relation.actorColumn +
+                " = :actor AND " + relation.targetColumn + " = :target)";
+        return sql.append(where.isEmpty() ? " WHERE " : where + " AND ").append(absent).toString();
+    }
+
+    private boolean isPostgres() {
+        Boolean p = postgres;
+        if (p == null) {
+            // asks the driver rather than the configured dialect, which is PostgreSQL even on H2
+            p = em.unwrap(Session.class).doReturningWork(
+                    c -> "PostgreSQL".equalsIgnoreCase(c.getMetaData().getDatabaseProductName()));
+            postgres = p;
+        }
+        return p;
+    }
+}
@@ -1,7 +1,10 @@
 package com.syntexsquad.futurefeed.service;
 
+import com.syntexsquad.futurefeed.cache.CacheGenerations;
 import com.syntexsquad.futurefeed.dto.PostTopicDTO;
 import com.syntexsquad.futurefeed.dto.TopicDTO;
+import com.syntexsquad.futurefeed.feed.MaterializedFeedStore;
+import com.syntexsquad.futurefeed.feed.PostingIndex;
 import com.syntexsquad.futurefeed.model.Post;
 import com.syntexsquad.futurefeed.model.PostTopic;
 import com.syntexsquad.futurefeed.model.Topic;
@@ -11,6 +14,7 @@ import com.syntexsquad.futurefeed.repository.TopicRepository;
 import com.syntexsquad.futurefeed.util.TopicSmartTaggerClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -34,6 +38,15 @@ public class TopicService {
     private final PostTopicRepository postTopicRepository;
     private final PostRepository postRepository;
 
+    @Autowired(required = false)
+    private MaterializedFeedStore materializedFeedStore;
+
+    @Autowired(required = false)
+    private PostingIndex postingIndex;
+
+    @Autowired(required = false)
+    private CacheGenerations cacheGenerations;
+
     public TopicService(TopicRepository topicRepository,
                         PostTopicRepository postTopicRepository,
                         PostRepository postRepository) {
@@ -48,10 +61,11 @@ public class TopicService {
         topic.setName(dto.getName() == null ? null : dto.getName().trim());
         Topic saved = topicRepository.save(topic);
         log.info("[topics] created id={} name='{}'", saved.getId(), saved.getName());
+        bumpTopicLists();
         return saved;
     }
 
-    @Cacheable(value = "topics")
+    @Cacheable(value = "topics", sync = true)
     public List<Topic> getAllTopics() {
         List<Topic> all = topicRepository.findAll();
         log.info("[topics] getAll -> {}", all.stream().map(Topic::getName).toList());
@@ -63,12 +77,18 @@ public class TopicService {
     public void assignTopicsToPost(PostTopicDTO dto) {
         log.info("[assign] postId={} replace with topicIds={}", dto.getPostId(), dto.getTopicIds());
         postTopicRepository.deleteByPostId(dto.getPostId());
+        if (postingIndex != null) postingIndex.onTopicsCleared(dto.getPostId());
         for (Integer topicId : dto.getTopicIds()) {
             PostTopic pt = new PostTopic();
             pt.setPostId(dto.getPostId());
             pt.setTopicId(topicId);
             postTopicRepository.save(pt);
         }
+        if (materializedFeedStore != null) {
+            postRepository.findById(dto.getPostId())
+                    .ifPresent(post -> materializedFeedStore.onPostTagged(post, dto.getTopicIds()));
+        }
+        bumpTopicLists();
     }
 
     @Cacheable(value = "postTopics", key = "#postId")
@@ -166,6 +186,7 @@ public class TopicService {
         }
 
         postTopicRepository.deleteByPostId(postId);
+        if (postingIndex != null) postingIndex.onTopicsCleared(postId);
         for (Integer topicId : topicIds) {
             PostTopic pt = new PostTopic();
             pt.setPost(post);
@@ -173,6 +194,12 @@ public class TopicService {
             PostTopic saved = postTopicRepository.save(pt);
             log.info("[autoTag] mapping saved id={} postId={} topicId={}", saved.getId(), postId, topicId);
         }
+        if (materializedFeedStore != null) materializedFeedStore.onPostTagged(post, topicIds);
+        bumpTopicLists();
+    }
+
+    private void bumpTopicLists() {
+        if (cacheGenerations != null) cacheGenerations.bump("topics");
     }
 
     private String norm(String s) {
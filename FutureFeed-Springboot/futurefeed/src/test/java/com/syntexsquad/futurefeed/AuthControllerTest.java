@@ -2,6 +2,7 @@ package com.syntexsquad.futurefeed;
 
 import com.syntexsquad.futurefeed.Controller.AuthController;
 import com.syntexsquad.futurefeed.model.AppUser;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import com.syntexsquad.futurefeed.service.AppUserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,6 +43,9 @@ public class AuthControllerTest {
     @MockBean
     private AppUserService appUserService;
 
+    @MockBean
+    private CurrentUserResolver currentUserResolver;
+
     @Test
     @WithAnonymousUser
     public void testMeReturns401IfNotAuthenticated() throws Exception {
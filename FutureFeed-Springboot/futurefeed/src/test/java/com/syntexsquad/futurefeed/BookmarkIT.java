@@ -10,6 +10,8 @@ import com.syntexsquad.futurefeed.repository.BookmarkRepository;
 import com.syntexsquad.futurefeed.repository.BotRepository;
 import com.syntexsquad.futurefeed.repository.PostRepository;
 import com.syntexsquad.futurefeed.service.MediaService;
+import com.syntexsquad.futurefeed.service.RelationWriteService;
+import com.syntexsquad.futurefeed.service.RelationWriteService.Relation;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -26,15 +28,18 @@ import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.*;
 
 import static org.hamcrest.Matchers.*;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -56,6 +61,8 @@ public class BookmarkIT {
     @Autowired private BookmarkRepository bookmarkRepo;
     @Autowired private BotRepository botRepo;
     @Autowired private ObjectMapper objectMapper;
+    @Autowired private RelationWriteService relationWrites;
+    @Autowired private PlatformTransactionManager transactionManager;
     @MockBean private S3Config s3Config;
     @MockBean private MediaService mediaService;
 
@@ -321,4 +328,31 @@ public class BookmarkIT {
         mockMvc.perform(delete("/api/bookmarks/{userId}/{postId}", testUser.getId(), 9999))
                 .andExpect(status().isInternalServerError());
     }
+
+    // 21. A writer that loses the race on the unique key reports no change instead of failing
+    @Test void concurrentBookmark_loserReportsNoChange() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch inserted = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> first = pool.submit(() -> tx.execute(status -> {
+                boolean added = relationWrites.insert(Relation.BOOKMARK, testUser.getId(), testPost.getId());
+                inserted.countDown();
+                try {
+                    Thread.sleep(300); // the second writer is blocked on the key meanwhile
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return added;
+            }));
+            inserted.await(5, TimeUnit.SECONDS);
+            boolean second = tx.execute(status -> relationWrites.insert(Relation.BOOKMARK, testUser.getId(), testPost.getId()));
+
+            assertTrue(first.get(5, TimeUnit.SECONDS));
+            assertFalse(second);
+            assertEquals(1, bookmarkRepo.count());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 }
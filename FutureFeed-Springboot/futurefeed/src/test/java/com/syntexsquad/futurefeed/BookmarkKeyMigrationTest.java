@@ -0,0 +1,64 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.config.BookmarkKeyMigration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookmarkKeyMigrationTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:bookmarks-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        // the table as ddl-auto created it before the key existed
+        jdbc.execute("CREATE TABLE bookmarks (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id INT, post_id INT)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private void bookmark(int userId, int postId) {
+        jdbc.update("INSERT INTO bookmarks (user_id, post_id) VALUES (?, ?)", userId, postId);
+    }
+
+    @Test
+    void removesDuplicatesKeepingTheOldest_ThenAddsTheKey() {
+        bookmark(1, 10);
+        bookmark(1, 10);
+        bookmark(1, 11);
+        bookmark(2, 10);
+        bookmark(1, 10);
+
+        new BookmarkKeyMigration(dataSource).migrate();
+
+        assertEquals(List.of(1L, 3L, 4L), jdbc.queryForList("SELECT id FROM bookmarks ORDER BY id", Long.class));
+        assertThrows(DataIntegrityViolationException.class, () -> bookmark(1, 10));
+    }
+
+    @Test
+    void existingKey_IsLeftAlone() {
+        jdbc.execute("ALTER TABLE bookmarks ADD CONSTRAINT some_other_name UNIQUE (post_id, user_id)");
+        bookmark(1, 10);
+
+        new BookmarkKeyMigration(dataSource).migrate();
+        new BookmarkKeyMigration(dataSource).migrate();
+
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM bookmarks", Integer.class));
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS " +
+                "WHERE CONSTRAINT_NAME = 'UK_BOOKMARKS_USER_POST'", Integer.class));
+    }
+}
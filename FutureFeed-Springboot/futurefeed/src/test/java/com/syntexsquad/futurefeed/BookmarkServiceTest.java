@@ -5,9 +5,10 @@ import com.syntexsquad.futurefeed.model.*;
 import com.syntexsquad.futurefeed.repository.*;
 import com.syntexsquad.futurefeed.service.BookmarkService;
 import com.syntexsquad.futurefeed.service.NotificationService;
+import com.syntexsquad.futurefeed.service.RelationWriteService;
+import com.syntexsquad.futurefeed.service.RelationWriteService.Relation;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
 
 import java.time.Instant;
 import java.util.List;
@@ -24,6 +25,7 @@ public class BookmarkServiceTest {
     private PostRepository postRepo;
     private BookmarkService bookmarkService;
     private NotificationService notificationService;
+    private RelationWriteService relationWriteService;
 
     private final Integer userId = 1;
     private final Integer postId = 10;
@@ -36,8 +38,9 @@ public class BookmarkServiceTest {
         userRepo = mock(AppUserRepository.class);
         postRepo = mock(PostRepository.class);
         notificationService = mock(NotificationService.class);
+        relationWriteService = mock(RelationWriteService.class);
 
-        bookmarkService = new BookmarkService(bookmarkRepo, userRepo, postRepo, notificationService);
+        bookmarkService = new BookmarkService(bookmarkRepo, userRepo, postRepo, notificationService, relationWriteService);
 
         testUser = new AppUser();
         testUser.setId(userId);
@@ -54,27 +57,23 @@ public class BookmarkServiceTest {
 
     @Test
     void testAddBookmark_savesNewBookmark() {
-        when(bookmarkRepo.findByUserAndPost(testUser, testPost)).thenReturn(Optional.empty());
+        when(relationWriteService.insert(Relation.BOOKMARK, userId, postId)).thenReturn(true);
 
         boolean result = bookmarkService.addBookmark(userId, postId);
 
         assertTrue(result);
-        ArgumentCaptor<Bookmark> captor = ArgumentCaptor.forClass(Bookmark.class);
-        verify(bookmarkRepo).save(captor.capture());
-        Bookmark saved = captor.getValue();
-        assertEquals(testUser, saved.getUser());
-        assertEquals(testPost, saved.getPost());
+        verify(relationWriteService).insert(Relation.BOOKMARK, userId, postId);
+        verify(bookmarkRepo, never()).save(any());
     }
 
     @Test
     void testAddBookmark_alreadyExists() {
-        when(bookmarkRepo.findByUserAndPost(testUser, testPost))
-                .thenReturn(Optional.of(new Bookmark(testUser, testPost)));
+        when(relationWriteService.insert(Relation.BOOKMARK, userId, postId)).thenReturn(false);
 
         boolean result = bookmarkService.addBookmark(userId, postId);
 
         assertFalse(result);
-        verify(bookmarkRepo, never()).save(any());
+        verifyNoInteractions(notificationService);
     }
 
     @Test
@@ -91,23 +90,22 @@ public class BookmarkServiceTest {
 
     @Test
     void testRemoveBookmark_deletesExisting() {
-        Bookmark existing = new Bookmark(testUser, testPost);
-        when(bookmarkRepo.findByUserAndPost(testUser, testPost)).thenReturn(Optional.of(existing));
+        when(relationWriteService.delete(Relation.BOOKMARK, userId, postId)).thenReturn(true);
 
         boolean result = bookmarkService.removeBookmark(userId, postId);
 
         assertTrue(result);
-        verify(bookmarkRepo).delete(existing);
+        verify(relationWriteService).delete(Relation.BOOKMARK, userId, postId);
     }
 
     @Test
     void testRemoveBookmark_notFound() {
-        when(bookmarkRepo.findByUserAndPost(testUser, testPost)).thenReturn(Optional.empty());
+        when(relationWriteService.delete(Relation.BOOKMARK, userId, postId)).thenReturn(false);
 
         boolean result = bookmarkService.removeBookmark(userId, postId);
 
         assertFalse(result);
-        verify(bookmarkRepo, never()).delete(any());
+        verifyNoInteractions(notificationService);
     }
 
     @Test
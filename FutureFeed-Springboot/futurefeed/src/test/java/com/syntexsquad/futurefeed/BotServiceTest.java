@@ -8,6 +8,7 @@ import com.syntexsquad.futurefeed.repository.AppUserRepository;
 import com.syntexsquad.futurefeed.repository.BotRepository;
 import com.syntexsquad.futurefeed.service.BotService;
 import com.syntexsquad.futurefeed.util.PromptValidator;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -37,7 +38,7 @@ public class BotServiceTest {
     void setUp() {
         botRepository = mock(BotRepository.class);
         userRepository = mock(AppUserRepository.class);
-        botService = new BotService(botRepository, userRepository);
+        botService = new BotService(botRepository, new CurrentUserResolver(userRepository));
 
         // Mock authenticated user
         testUser = new AppUser();
@@ -0,0 +1,78 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.model.AppUser;
+import com.syntexsquad.futurefeed.repository.AppUserRepository;
+import com.syntexsquad.futurefeed.security.BoundedPasswordEncoder;
+import com.syntexsquad.futurefeed.security.LoginCapacityExceededException;
+import com.syntexsquad.futurefeed.service.AppUserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BoundedPasswordEncoderTest {
+
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        if (encoder != null) encoder.close();
+    }
+
+    @Test
+    void encodeAndMatch_RunOnThePool() {
+        encoder = new BoundedPasswordEncoder(4, 2, 8, Duration.ofSeconds(5));
+
+        String hash = encoder.encode("secret-pass");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("secret-pass", hash));
+        assertFalse(encoder.matches("wrong-pass", hash));
+        assertFalse(encoder.matches("secret-pass", null));
+    }
+
+    @Test
+    void upgradeEncoding_FlagsAnyOtherWorkFactor() {
+        encoder = new BoundedPasswordEncoder(5, 1, 8, Duration.ofSeconds(5));
+
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("x")));
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("x")));
+        assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("x")));
+        assertFalse(encoder.upgradeEncoding("plain"));
+    }
+
+    @Test
+    void saturatedPool_RejectsInsteadOfWaiting() {
+        // one slow hash at a time, one waiting; anything beyond that is turned away
+        encoder = new BoundedPasswordEncoder(13, 1, 1, Duration.ofMillis(1));
+
+        assertThrows(LoginCapacityExceededException.class, () -> encoder.encode("a"));
+        assertThrows(LoginCapacityExceededException.class, () -> encoder.encode("b"));
+        assertThrows(LoginCapacityExceededException.class, () -> encoder.encode("c"));
+
+        assertEquals(3, encoder.rejectedCount());
+    }
+
+    @Test
+    void login_RehashesUnderTheConfiguredFactor() {
+        encoder = new BoundedPasswordEncoder(4, 1, 8, Duration.ofSeconds(5));
+        AppUserRepository repo = mock(AppUserRepository.class);
+        AppUser user = new AppUser();
+        user.setId(3);
+        user.setUsername("bob");
+        user.setPassword(new BCryptPasswordEncoder(5).encode("secret-pass"));
+        when(repo.findByUsername("bob")).thenReturn(Optional.of(user));
+        when(repo.save(any(AppUser.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        AppUser loggedIn = new AppUserService(repo, encoder).authenticateUser("bob", "secret-pass");
+
+        assertTrue(loggedIn.getPassword().startsWith("$2a$04$"));
+        assertTrue(encoder.matches("secret-pass", loggedIn.getPassword()));
+        verify(repo).save(user);
+    }
+}
@@ -0,0 +1,61 @@
+package com.syntexsquad.futurefeed;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.syntexsquad.futurefeed.config.CacheConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheConfigTest {
+
+    @SuppressWarnings("unchecked")
+    private static Cache<Object, Object> nativeCache(CacheManager manager, String name) {
+        return ((CaffeineCache) manager.getCache(name)).getNativeCache();
+    }
+
+    @Test
+    void perCacheSpec_OverridesDefault() {
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("app.cache.default-spec", "maximumSize=50")
+                .withProperty("app.cache.specs.searchPosts", "maximumSize=2,expireAfterWrite=1m");
+
+        CacheManager manager = CacheConfig.localCaches(env);
+
+        assertEquals(2, nativeCache(manager, "searchPosts").policy().eviction().orElseThrow().getMaximum());
+        assertTrue(nativeCache(manager, "searchPosts").policy().expireAfterWrite().isPresent());
+        assertEquals(50, nativeCache(manager, "post").policy().eviction().orElseThrow().getMaximum());
+        assertFalse(nativeCache(manager, "post").policy().expireAfterWrite().isPresent());
+    }
+
+    @Test
+    void caches_AreBoundedAndRecordStats() {
+        CacheManager manager = CacheConfig.localCaches(
+                new MockEnvironment().withProperty("app.cache.specs.searchPosts", "maximumSize=2"));
+        org.springframework.cache.Cache search = manager.getCache("searchPosts");
+
+        for (int i = 0; i < 10; i++) search.put("k" + i, i);
+        search.get("k9");
+        search.get("missing");
+
+        Cache<Object, Object> cache = nativeCache(manager, "searchPosts");
+        cache.cleanUp();
+        assertTrue(cache.estimatedSize() <= 2);
+        assertTrue(cache.stats().evictionCount() > 0);
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void refreshAfterWrite_BuildsLoadingCacheThatTreatsMissesAsMisses() {
+        CacheManager manager = CacheConfig.localCaches(
+                new MockEnvironment().withProperty("app.cache.specs.userById", "maximumSize=10,refreshAfterWrite=1m"));
+        org.springframework.cache.Cache users = manager.getCache("userById");
+
+        assertTrue(nativeCache(manager, "userById").policy().refreshAfterWrite().isPresent());
+        assertNull(users.get(1));
+        users.put(1, "alice");
+        assertEquals("alice", users.get(1).get());
+    }
+}
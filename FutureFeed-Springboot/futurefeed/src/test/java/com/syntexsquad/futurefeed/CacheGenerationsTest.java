@@ -0,0 +1,65 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.cache.CacheGenerations;
+import com.syntexsquad.futurefeed.config.CacheConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheGenerationsTest {
+
+    private final CacheManager manager = CacheConfig.localCaches(new MockEnvironment());
+    private final CacheGenerations generations = new CacheGenerations(manager);
+
+    @Test
+    void key_IsStableUntilBumped() {
+        String before = generations.key("posts", "cats");
+        assertEquals(before, generations.key("posts", "cats"));
+
+        generations.bump("posts");
+
+        assertNotEquals(before, generations.key("posts", "cats"));
+        assertTrue(generations.current("posts") > 0);
+    }
+
+    @Test
+    void bump_LeavesOtherNamespacesAlone() {
+        String users = generations.key("users");
+
+        generations.bump("posts");
+
+        assertEquals(users, generations.key("users"));
+    }
+
+    @Test
+    void bumpInsideATransaction_WaitsForTheCommit() {
+        String before = generations.key("posts");
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            generations.bump("posts");
+            assertEquals(before, generations.key("posts"));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertNotEquals(before, generations.key("posts"));
+    }
+
+    @Test
+    void lostGeneration_NeverRestartsAtAnOldNumber() {
+        long first = generations.current("posts");
+        generations.bump("posts");
+        long second = generations.current("posts");
+
+        manager.getCache("cacheGenerations").evict("posts");
+
+        assertTrue(second > first);
+        assertTrue(generations.current("posts") > second);
+    }
+}
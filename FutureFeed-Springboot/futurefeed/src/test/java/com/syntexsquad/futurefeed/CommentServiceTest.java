@@ -8,6 +8,7 @@ import com.syntexsquad.futurefeed.repository.CommentRepository;
 import com.syntexsquad.futurefeed.repository.PostRepository;
 import com.syntexsquad.futurefeed.service.CommentService;
 import com.syntexsquad.futurefeed.service.NotificationService;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
@@ -36,7 +37,7 @@ public class CommentServiceTest {
         appUserRepository = mock(AppUserRepository.class);
         postRepository = mock(PostRepository.class);
         notificationService = mock(NotificationService.class);
-        commentService = new CommentService(commentRepository, appUserRepository, postRepository, notificationService);
+        commentService = new CommentService(commentRepository, appUserRepository, new CurrentUserResolver(appUserRepository), postRepository, notificationService);
     }
 
     @Test
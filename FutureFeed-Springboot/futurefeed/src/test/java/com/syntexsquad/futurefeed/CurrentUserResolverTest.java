@@ -0,0 +1,114 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.model.AppUser;
+import com.syntexsquad.futurefeed.repository.AppUserRepository;
+import com.syntexsquad.futurefeed.security.AppUserDetails;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CurrentUserResolverTest {
+
+    private AppUserRepository repo;
+    private CurrentUserResolver resolver;
+    private AppUser alice;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(AppUserRepository.class);
+        resolver = new CurrentUserResolver(repo);
+        alice = new AppUser();
+        alice.setId(7);
+        alice.setUsername("alice");
+        alice.setEmail("alice@example.com");
+        when(repo.findByEmail("alice@example.com")).thenReturn(Optional.of(alice));
+        when(repo.findById(7)).thenReturn(Optional.of(alice));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static void authenticate(Object principal) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    private static void newRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @Test
+    void sameRequest_ResolvesOnce() {
+        authenticate("alice@example.com");
+        newRequest();
+
+        assertEquals(7, resolver.requireCurrentUser().getId());
+        assertEquals(7, resolver.currentUserId().orElseThrow());
+
+        verify(repo, times(1)).findByEmail("alice@example.com");
+        verify(repo, never()).findById(any());
+    }
+
+    @Test
+    void laterRequest_LoadsByCachedId() {
+        authenticate("alice@example.com");
+        newRequest();
+        resolver.requireCurrentUser();
+        newRequest();
+
+        assertEquals(alice, resolver.requireCurrentUser());
+
+        verify(repo, times(1)).findByEmail("alice@example.com");
+        verify(repo, times(1)).findById(7);
+    }
+
+    @Test
+    void forget_MakesNextRequestLookUpTheNameAgain() {
+        authenticate("alice@example.com");
+        resolver.requireCurrentUser();
+
+        resolver.forget(7, "alice", "alice@example.com");
+        resolver.requireCurrentUser();
+
+        verify(repo, times(2)).findByEmail("alice@example.com");
+    }
+
+    @Test
+    void appUserDetails_IsResolvedById() {
+        authenticate(new AppUserDetails(alice));
+
+        assertEquals(alice, resolver.requireCurrentUser());
+
+        verify(repo, never()).findByEmail(any());
+        verify(repo, never()).findByUsername(any());
+    }
+
+    @Test
+    void unknownPrincipal_IsEmptyOrThrows() {
+        when(repo.findByEmail("ghost")).thenReturn(Optional.empty());
+        when(repo.findByUsername("ghost")).thenReturn(Optional.empty());
+        authenticate("ghost");
+
+        assertTrue(resolver.currentUser().isEmpty());
+        assertThrows(RuntimeException.class, resolver::requireCurrentUser);
+
+        SecurityContextHolder.clearContext();
+        RuntimeException ex = assertThrows(RuntimeException.class, resolver::requireCurrentUser);
+        assertEquals("Not authenticated", ex.getMessage());
+    }
+}
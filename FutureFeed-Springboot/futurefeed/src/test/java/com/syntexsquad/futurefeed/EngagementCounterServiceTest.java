@@ -0,0 +1,148 @@
+package com.syntexsquad.futurefeed;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.syntexsquad.futurefeed.service.EngagementCounterService;
+import com.syntexsquad.futurefeed.service.EngagementCounterService.Kind;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class EngagementCounterServiceTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final List<Map<String, Object>> updates = new ArrayList<>();
+    private PlatformTransactionManager txManager;
+    private EntityManager em;
+    private Query update;
+    private Object[] row;
+    private Answer<Integer> recordUpdate;
+    private EngagementCounterService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        txManager = mock(PlatformTransactionManager.class);
+        when(txManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+
+        em = mock(EntityManager.class);
+        row = new Object[]{1, 5L, 2L};
+        TypedQuery<Object[]> select = mock(TypedQuery.class);
+        when(select.setParameter(anyString(), any())).thenReturn(select);
+        when(select.getResultList()).thenAnswer(inv -> List.<Object[]>of(row.clone()));
+        when(em.createQuery(startsWith("SELECT p.id, p.likeCount"), eq(Object[].class))).thenReturn(select);
+
+        update = mock(Query.class);
+        Map<String, Object> params = new HashMap<>();
+        when(update.setParameter(anyString(), any())).thenAnswer(inv -> {
+            params.put(inv.getArgument(0), inv.getArgument(1));
+            return update;
+        });
+        recordUpdate = inv -> {
+            updates.add(new HashMap<>(params));
+            return 1;
+        };
+        when(update.executeUpdate()).thenAnswer(recordUpdate);
+        when(em.createQuery(startsWith("UPDATE Post"))).thenReturn(update);
+
+        service = new EngagementCounterService(txManager, 100, Duration.ofSeconds(60), ticker);
+        ReflectionTestUtils.setField(service, "em", em);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void load_StartsFromColumns_AndFlushWritesOnlyTheDelta() {
+        assertEquals(5, service.likes(1));
+        assertEquals(2, service.reshares(1));
+
+        service.increment(1, Kind.LIKE);
+        service.increment(1, Kind.LIKE);
+        service.decrement(1, Kind.RESHARE);
+        assertEquals(7, service.likes(1));
+        assertEquals(1, service.reshares(1));
+
+        service.flush();
+        assertEquals(1, updates.size());
+        assertEquals(2L, updates.get(0).get("likeDelta"));
+        assertEquals(-1L, updates.get(0).get("reshareDelta"));
+
+        service.flush();
+        assertEquals(1, updates.size(), "nothing left to write");
+    }
+
+    @Test
+    void change_AppliesOnlyOnceItsTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.increment(1, Kind.LIKE);
+        assertEquals(5, service.likes(1));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertEquals(6, service.likes(1));
+    }
+
+    @Test
+    void rolledBackChange_NeverReachesTheColumns() {
+        TransactionSynchronizationManager.initSynchronization();
+        service.increment(1, Kind.LIKE);
+        // rollback: the registered synchronizations are dropped without afterCommit
+        TransactionSynchronizationManager.clearSynchronization();
+
+        service.flush();
+        assertEquals(5, service.likes(1));
+        assertTrue(updates.isEmpty());
+    }
+
+    @Test
+    void expiredCounter_ReloadsFromColumns_AndKeepsItsUnwrittenDelta() {
+        service.increment(1, Kind.LIKE);
+        // another node flushed three likes meanwhile
+        row = new Object[]{1, 8L, 2L};
+        nanos.addAndGet(Duration.ofSeconds(61).toNanos());
+
+        assertEquals(9, service.likes(1));
+
+        service.flush();
+        assertEquals(1, updates.size());
+        assertEquals(1L, updates.get(0).get("likeDelta"));
+    }
+
+    @Test
+    void failedFlush_KeepsDeltasForTheNextOne() {
+        service.increment(1, Kind.LIKE);
+        doThrow(new IllegalStateException("db down")).doAnswer(recordUpdate).when(update).executeUpdate();
+
+        service.flush();
+        assertEquals(6, service.likes(1));
+        assertTrue(updates.isEmpty());
+
+        service.flush();
+        assertEquals(1, updates.size());
+        assertEquals(1L, updates.get(0).get("likeDelta"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.dto.PostEngagementDTO;
+import com.syntexsquad.futurefeed.service.EngagementSummaryService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class EngagementSummaryServiceTest {
+
+    private EntityManager em;
+    private EngagementSummaryService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        em = mock(EntityManager.class);
+        TypedQuery<Integer> ids = query(List.of(1, 2));
+        when(em.createQuery(startsWith("SELECT p.id FROM Post"), eq(Integer.class))).thenReturn(ids);
+        TypedQuery<Integer> viewerRows = query(List.of(2));
+        when(em.createQuery(contains(":viewer"), eq(Integer.class))).thenReturn(viewerRows);
+        TypedQuery<Object[]> counts = query(List.<Object[]>of(new Object[]{1, 3L}));
+        when(em.createQuery(contains("COUNT(e)"), eq(Object[].class))).thenReturn(counts);
+
+        service = new EngagementSummaryService();
+        ReflectionTestUtils.setField(service, "em", em);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TypedQuery<T> query(List<T> rows) {
+        TypedQuery<T> q = mock(TypedQuery.class);
+        when(q.setParameter(anyString(), any())).thenReturn(q);
+        when(q.getResultList()).thenReturn(rows);
+        return q;
+    }
+
+    @Test
+    void byPost_CountsEachKindOnceForTheWholeList() {
+        Map<Integer, PostEngagementDTO> out = service.byPost(List.of(1, 2), 9, true);
+
+        assertEquals(3L, out.get(1).getLikeCount());
+        assertEquals(0L, out.get(2).getLikeCount());
+        assertTrue(out.get(2).isHasLiked());
+        assertTrue(out.get(2).isHasBookmarked());
+        verify(em, times(3)).createQuery(contains("COUNT(e)"), eq(Object[].class));
+    }
+
+    @Test
+    void byPost_WithoutBookmarks_SkipsTheBookmarkQuery() {
+        Map<Integer, PostEngagementDTO> out = service.byPost(List.of(1, 2), 9, false);
+
+        assertFalse(out.get(2).isHasBookmarked());
+        verify(em, never()).createQuery(contains("FROM Bookmark"), eq(Integer.class));
+        verify(em, times(3)).createQuery(contains(":viewer"), eq(Integer.class));
+    }
+}
@@ -0,0 +1,42 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.FeedCursor;
+import com.syntexsquad.futurefeed.feed.PostKey;
+import com.syntexsquad.futurefeed.feed.RandomFillSampler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeedCursorTest {
+
+    @Test
+    void encodeDecode_RoundTrip() {
+        FeedCursor cursor = FeedCursor.start(-42L).advance(
+                Map.of(3, new PostKey(17, Instant.parse("2025-06-01T10:15:30.123456Z")),
+                        9, new PostKey(5, Instant.parse("2025-05-30T08:00:00Z"))),
+                new RandomFillSampler.IdSpace(5, 1200), 37);
+
+        FeedCursor decoded = FeedCursor.decode(cursor.encode());
+
+        assertEquals(cursor, decoded);
+        assertEquals(1, decoded.page());
+        assertEquals(new PostKey(17, Instant.parse("2025-06-01T10:15:30.123456Z")), decoded.positionOf(3));
+    }
+
+    @Test
+    void encode_IsUrlSafe() {
+        String token = FeedCursor.start(123L).encode();
+
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+        assertNull(FeedCursor.decode(token).fillSpace());
+    }
+
+    @Test
+    void decode_RejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> FeedCursor.decode("not-a-cursor"));
+        assertThrows(IllegalArgumentException.class, () -> FeedCursor.decode("%%%"));
+    }
+}
@@ -1,12 +1,16 @@
 package com.syntexsquad.futurefeed;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.syntexsquad.futurefeed.config.S3Config;
 import com.syntexsquad.futurefeed.dto.FeedPresetDTO;
 import com.syntexsquad.futurefeed.dto.PresetRuleDTO;
+import com.syntexsquad.futurefeed.feed.PostingIndex;
 import com.syntexsquad.futurefeed.model.AppUser;
 import com.syntexsquad.futurefeed.model.FeedPreset;
 import com.syntexsquad.futurefeed.model.PresetRule;
+import com.syntexsquad.futurefeed.model.PostTopic;
+import com.syntexsquad.futurefeed.model.UserPost;
 import com.syntexsquad.futurefeed.repository.*;
 import com.syntexsquad.futurefeed.service.MediaService;
 
@@ -29,9 +33,15 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -61,6 +71,7 @@ public class FeedPresetControllerIT {
     @Autowired private BotPostRepository botPostRepo;
     @Autowired private BotRepository botRepo;
     @Autowired private ObjectMapper objectMapper;
+    @Autowired private PostingIndex postingIndex;
     @MockBean private S3Config s3Config;
     @MockBean private MediaService mediaService;
 
@@ -202,4 +213,177 @@ public class FeedPresetControllerIT {
         mockMvc.perform(get("/api/presets/feed/" + preset.getId()))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    public void testGenerateFeedPaginated_PushesRuleDownToQuery() throws Exception {
+        FeedPreset preset = new FeedPreset();
+        preset.setName("TopicPreset");
+        preset.setDefaultPreset(false);
+        preset.setUserId(testUser.getId());
+        preset = presetRepo.save(preset);
+
+        UserPost tagged = new UserPost();
+        tagged.setContent("tagged post");
+        tagged.setUser(testUser);
+        tagged = postRepo.save(tagged);
+
+        UserPost untagged = new UserPost();
+        untagged.setContent("untagged post");
+        untagged.setUser(testUser);
+        untagged = postRepo.save(untagged);
+
+        PostTopic pt = new PostTopic();
+        pt.setPost(tagged);
+        pt.setTopicId(77);
+        postTopicRepo.save(pt);
+
+        PresetRule rule = new PresetRule();
+        rule.setPresetId(preset.getId());
+        rule.setTopicId(77);
+        rule.setSourceType("user");
+        rule.setSpecificUserId(testUser.getId());
+        rule.setPercentage(50);
+        ruleRepo.save(rule);
+
+        // one slot from the rule, the other filled from the unmatched complement
+        mockMvc.perform(get("/api/presets/feed/" + preset.getId() + "/paginated")
+                        .param("page", "0")
+                        .param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(tagged.getId()))
+                .andExpect(jsonPath("$.content[1].id").value(untagged.getId()))
+                .andExpect(jsonPath("$.last").value(true))
+                .andExpect(jsonPath("$.partial").value(false));
+    }
+
+    @Test
+    public void testScrollFeed_CursorWalksEveryPostOnce() throws Exception {
+        FeedPreset preset = new FeedPreset();
+        preset.setName("ScrollPreset");
+        preset.setDefaultPreset(false);
+        preset.setUserId(testUser.getId());
+        preset = presetRepo.save(preset);
+
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            UserPost p = new UserPost();
+            p.setContent("scroll post " + i);
+            p.setUser(testUser);
+            p = postRepo.save(p);
+            expected.add(p.getId());
+            if (i % 2 == 0) {
+                PostTopic pt = new PostTopic();
+                pt.setPost(p);
+                pt.setTopicId(88);
+                postTopicRepo.save(pt);
+            }
+        }
+
+        PresetRule rule = new PresetRule();
+        rule.setPresetId(preset.getId());
+        rule.setTopicId(88);
+        rule.setPercentage(50);
+        ruleRepo.save(rule);
+
+        List<Integer> served = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/presets/feed/" + preset.getId() + "/scroll").param("size", "2");
+            if (cursor != null) request.param("cursor", cursor);
+            String json = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode body = objectMapper.readTree(json);
+            body.get("content").forEach(n -> served.add(n.get("id").asInt()));
+            cursor = body.get("nextCursor").isNull() ? null : body.get("nextCursor").asText();
+        } while (cursor != null && ++pages < 10);
+
+        assertEquals(expected.size(), served.size());
+        assertEquals(expected, new HashSet<>(served));
+    }
+
+    @Test
+    public void testGenerateFeedPaginated_SnapshotKeepsPagesStable() throws Exception {
+        FeedPreset preset = new FeedPreset();
+        preset.setName("SnapshotPreset");
+        preset.setDefaultPreset(false);
+        preset.setUserId(testUser.getId());
+        preset = presetRepo.save(preset);
+
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            UserPost p = new UserPost();
+            p.setContent("snapshot post " + i);
+            p.setUser(testUser);
+            expected.add(postRepo.save(p).getId());
+        }
+        PresetRule rule = new PresetRule();
+        rule.setPresetId(preset.getId());
+        rule.setSourceType("user");
+        rule.setPercentage(40);
+        ruleRepo.save(rule);
+
+        String url = "/api/presets/feed/" + preset.getId() + "/paginated";
+        JsonNode first = objectMapper.readTree(mockMvc.perform(get(url).param("page", "0").param("size", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        String snapshotId = first.get("snapshotId").asText();
+        assertFalse(snapshotId.isBlank());
+
+        // posts created mid-scroll must not shift the pages already frozen
+        UserPost late = new UserPost();
+        late.setContent("late post");
+        late.setUser(testUser);
+        postRepo.save(late);
+
+        List<Integer> served = new ArrayList<>();
+        first.get("content").forEach(n -> served.add(n.get("id").asInt()));
+        for (int page = 1; page <= 2; page++) {
+            JsonNode body = objectMapper.readTree(mockMvc.perform(get(url)
+                            .param("page", String.valueOf(page)).param("size", "2").param("snapshot", snapshotId))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.snapshotId").value(snapshotId))
+                    .andReturn().getResponse().getContentAsString());
+            body.get("content").forEach(n -> served.add(n.get("id").asInt()));
+        }
+
+        assertEquals(expected.size(), served.size());
+        assertEquals(expected, new HashSet<>(served));
+    }
+
+    @Test
+    public void testPostingIndex_FollowsRepositoryWrites() {
+        UserPost p = new UserPost();
+        p.setContent("indexed post");
+        p.setUser(testUser);
+        p = postRepo.save(p);
+
+        PostTopic pt = new PostTopic();
+        pt.setPost(p);
+        pt.setTopicId(4242);
+        postTopicRepo.save(pt);
+
+        PresetRule rule = new PresetRule();
+        rule.setTopicId(4242);
+        rule.setSpecificUserId(testUser.getId());
+        assertEquals(List.of(p.getId()), postingIndex.newestMatching(rule, 10));
+
+        postTopicRepo.delete(pt);
+        assertTrue(postingIndex.newestMatching(rule, 10).isEmpty());
+    }
+
+    @Test
+    public void testScrollFeed_RejectsForeignCursor() throws Exception {
+        mockMvc.perform(get("/api/presets/feed/1/scroll").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testScrollFeed_RejectsHotSort() throws Exception {
+        mockMvc.perform(get("/api/presets/feed/1/scroll").param("sort", "hot"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("/paginated")));
+    }
 }
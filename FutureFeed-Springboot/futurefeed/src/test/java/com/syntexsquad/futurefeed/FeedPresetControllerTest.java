@@ -5,6 +5,7 @@ import com.syntexsquad.futurefeed.Controller.FeedPresetController;
 import com.syntexsquad.futurefeed.config.SecurityConfig;
 import com.syntexsquad.futurefeed.dto.FeedPresetDTO;
 import com.syntexsquad.futurefeed.dto.PresetRuleDTO;
+import com.syntexsquad.futurefeed.feed.FeedSort;
 import com.syntexsquad.futurefeed.model.FeedPreset;
 import com.syntexsquad.futurefeed.model.PresetRule;
 import com.syntexsquad.futurefeed.model.UserPost;
@@ -132,7 +133,7 @@ public class FeedPresetControllerTest {
         post.setId(100);
         post.setContent("Hello feed");
 
-        when(feedPresetService.generateFeedForPreset(1)).thenReturn(List.of(post));
+        when(feedPresetService.generateFeedForPreset(1, FeedSort.NEW)).thenReturn(List.of(post));
 
         mockMvc.perform(get("/api/presets/feed/1"))
                 .andExpect(status().isOk())
@@ -143,7 +144,7 @@ public class FeedPresetControllerTest {
     @Test
     @WithMockUser
     public void generateFeed_ShouldReturnErrorOnException() throws Exception {
-        when(feedPresetService.generateFeedForPreset(999)).thenThrow(new RuntimeException("Preset not found"));
+        when(feedPresetService.generateFeedForPreset(999, FeedSort.NEW)).thenThrow(new RuntimeException("Preset not found"));
 
         mockMvc.perform(get("/api/presets/feed/999"))
                 .andExpect(status().isInternalServerError())
@@ -2,9 +2,14 @@ package com.syntexsquad.futurefeed;
 
 import com.syntexsquad.futurefeed.dto.FeedPresetDTO;
 import com.syntexsquad.futurefeed.dto.PresetRuleDTO;
+import com.syntexsquad.futurefeed.feed.FeedSort;
+import com.syntexsquad.futurefeed.feed.PostKey;
+import com.syntexsquad.futurefeed.feed.RandomFillSampler;
+import com.syntexsquad.futurefeed.feed.RuleQueryCompiler;
 import com.syntexsquad.futurefeed.model.*;
 import com.syntexsquad.futurefeed.repository.*;
 import com.syntexsquad.futurefeed.service.FeedPresetService;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,6 +17,7 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.quality.Strictness;
 import org.mockito.junit.jupiter.MockitoSettings;
+import org.springframework.data.domain.Page;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
@@ -22,6 +28,9 @@ import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +52,12 @@ public class FeedPresetServiceTest {
     @Mock
     private PostTopicRepository postTopicRepository;
 
+    @Mock
+    private RuleQueryCompiler ruleQueryCompiler;
+
+    @Mock
+    private RandomFillSampler randomFillSampler;
+
     @Mock
     private SecurityContext securityContext;
 
@@ -52,13 +67,15 @@ public class FeedPresetServiceTest {
     @Mock
     private OAuth2User oAuth2User;
 
-    @InjectMocks
     private FeedPresetService feedPresetService;
    
     private AppUser authenticatedUser;
 
     @BeforeEach
     public void setup() {
+        feedPresetService = new FeedPresetService(presetRepo, ruleRepo, new CurrentUserResolver(appUserRepository),
+                postRepository, postTopicRepository, ruleQueryCompiler, randomFillSampler);
+
         // Lenient stubs to avoid unnecessary stubbing errors
         lenient().when(oAuth2User.getAttributes()).thenReturn(Map.of("email", "testuser@example.com"));
         lenient().when(oauth2AuthenticationToken.getPrincipal()).thenReturn(oAuth2User);
@@ -225,6 +242,9 @@ public class FeedPresetServiceTest {
 
         when(postRepository.findAll()).thenReturn(List.of(postFrom42, postFrom99));
         when(postRepository.findAllById(List.of(10, 11))).thenReturn(List.of(postFrom42, postFrom99));
+        // topic/source/user filtering is pushed down to the compiled rule query
+        when(ruleQueryCompiler.count(rule)).thenReturn(1L);
+        when(ruleQueryCompiler.fetch(rule, 1, FeedSort.NEW)).thenReturn(List.of(postFrom42));
 
         List<Post> feed = feedPresetService.generateFeedForPreset(presetId);
 
@@ -270,6 +290,70 @@ public class FeedPresetServiceTest {
         List<Post> feed = feedPresetService.generateFeedForPreset(presetId);
 
         assertTrue(feed.isEmpty(), "Should return no posts when percentage is 0");
+        verify(ruleQueryCompiler, never()).fetch(any(), anyInt());
+    }
+
+    @Test
+    public void testGenerateFeedForPresetPaginated_FetchesOnlyQuotaRows() {
+        int presetId = 5;
+        PresetRule rule = new PresetRule();
+        rule.setId(50);
+        rule.setPresetId(presetId);
+        rule.setSourceType("user");
+        rule.setPercentage(100);
+        when(ruleRepo.findByPresetId(presetId)).thenReturn(List.of(rule));
+
+        List<PostKey> newest = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            newest.add(new PostKey(i, null));
+        }
+        when(ruleQueryCompiler.fetchKeys(rule, 4)).thenReturn(newest);
+        UserPost p3 = new UserPost();
+        p3.setId(3);
+        UserPost p4 = new UserPost();
+        p4.setId(4);
+        // repository order is not guaranteed; the page keeps pool order
+        when(postRepository.findAllById(List.of(3, 4))).thenReturn(List.of(p4, p3));
+        when(postRepository.count()).thenReturn(100L);
+
+        Page<Post> page = feedPresetService.generateFeedForPreset(presetId, 1, 2);
+
+        assertEquals(List.of(3, 4), page.getContent().stream().map(Post::getId).toList());
+        assertEquals(100L, page.getTotalElements());
+        verify(postRepository, never()).findAll();
+        verify(ruleQueryCompiler, never()).fetch(any(), anyInt());
+        verify(randomFillSampler, never()).draw(any(), any(), anyLong(), anyLong(), anyInt(), any());
+    }
+
+    @Test
+    public void testGenerateFeedForPresetPaginated_FillsRemainderFromSampler() {
+        int presetId = 6;
+        PresetRule rule = new PresetRule();
+        rule.setId(60);
+        rule.setPresetId(presetId);
+        rule.setSourceType("bot");
+        rule.setPercentage(50);
+        when(ruleRepo.findByPresetId(presetId)).thenReturn(List.of(rule));
+
+        BotPost bot = new BotPost();
+        bot.setId(1);
+        when(ruleQueryCompiler.fetchKeys(rule, 1)).thenReturn(List.of(new PostKey(1, null)));
+
+        UserPost other = new UserPost();
+        other.setId(2);
+        RuleQueryCompiler.CompiledRule complement = new RuleQueryCompiler.CompiledRule("NOT (TYPE(p) = BotPost)", Map.of());
+        RandomFillSampler.IdSpace space = new RandomFillSampler.IdSpace(1, 2);
+        when(ruleQueryCompiler.compileUnmatched(List.of(rule))).thenReturn(complement);
+        when(randomFillSampler.idSpace()).thenReturn(space);
+        when(randomFillSampler.sessionSeed(presetId)).thenReturn(99L);
+        when(randomFillSampler.draw(eq(complement), eq(space), eq(99L), eq(0L), eq(1), any()))
+                .thenReturn(new RandomFillSampler.Draw(List.of(2), 2, true));
+        when(postRepository.findAllById(List.of(1, 2))).thenReturn(List.of(bot, other));
+
+        Page<Post> page = feedPresetService.generateFeedForPreset(presetId, 0, 2);
+
+        assertEquals(List.of(1, 2), page.getContent().stream().map(Post::getId).toList());
+        verify(postRepository, never()).findAll();
     }
 
     // --- Helper Methods ---
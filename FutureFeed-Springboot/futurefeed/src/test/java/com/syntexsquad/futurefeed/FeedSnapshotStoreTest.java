@@ -0,0 +1,57 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.FeedSnapshotStore;
+import com.syntexsquad.futurefeed.feed.FeedSnapshotStore.Snapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeedSnapshotStoreTest {
+
+    private static List<Integer> ids(int n) {
+        return IntStream.rangeClosed(1, n).boxed().toList();
+    }
+
+    @Test
+    void put_KeepsHeadAndFlagsCompleteness() {
+        FeedSnapshotStore store = new FeedSnapshotStore(3, 100, 60);
+
+        Snapshot full = store.put("posts:NEW", ids(3), 3, false);
+        Snapshot head = store.put("posts:NEW", ids(4), 4, false);
+
+        assertTrue(full.complete());
+        assertFalse(head.complete());
+        assertEquals(3, head.size());
+        assertEquals(List.of(2, 3), head.slice(1, 5));
+        assertNotEquals(full.id(), head.id());
+    }
+
+    @Test
+    void get_IsScopedToTheFeedThatCreatedIt() {
+        FeedSnapshotStore store = new FeedSnapshotStore(10, 100, 60);
+        Snapshot s = store.put("preset:1:NEW", ids(5), 5, false);
+
+        assertSame(s, store.get(s.id(), "preset:1:NEW"));
+        assertNull(store.get(s.id(), "preset:2:NEW"));
+        assertNull(store.get("unknown", "preset:1:NEW"));
+        assertNull(store.get(null, "preset:1:NEW"));
+    }
+
+    @Test
+    void put_EvictsLeastRecentlyUsedPastTheIdBudget() {
+        FeedSnapshotStore store = new FeedSnapshotStore(10, 20, 60);
+        Snapshot a = store.put("s", ids(10), 10, false);
+        Snapshot b = store.put("s", ids(10), 10, false);
+        store.get(a.id(), "s"); // a is now the most recently used
+
+        Snapshot c = store.put("s", ids(10), 10, false);
+
+        assertNotNull(store.get(a.id(), "s"));
+        assertNull(store.get(b.id(), "s"));
+        assertNotNull(store.get(c.id(), "s"));
+        assertEquals(2, store.count());
+    }
+}
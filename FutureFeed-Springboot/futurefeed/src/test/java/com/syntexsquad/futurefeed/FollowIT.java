@@ -2,8 +2,10 @@ package com.syntexsquad.futurefeed;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.syntexsquad.futurefeed.config.S3Config;
+import com.syntexsquad.futurefeed.dto.PostRequest;
 import com.syntexsquad.futurefeed.model.AppUser;
 import com.syntexsquad.futurefeed.model.Follower;
+import com.syntexsquad.futurefeed.model.UserPost;
 import com.syntexsquad.futurefeed.repository.*;
 import com.syntexsquad.futurefeed.service.MediaService;
 
@@ -28,6 +30,7 @@ import java.util.Set;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -192,6 +195,49 @@ public class FollowIT {
                 .andExpect(jsonPath("$", hasSize(1)));
     }
 
+    @Test
+    public void testFollowingFeed_SeedsOnFirstReadThenReceivesNewPosts() throws Exception {
+        UserPost earlier = new UserPost();
+        earlier.setContent("posted before the follow");
+        earlier.setUser(target);
+        postRepo.save(earlier);
+        followerRepo.save(createFollower(user.getId(), target.getId()));
+
+        mockMvc.perform(get("/api/posts/following")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", user.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)));
+
+        PostRequest request = new PostRequest();
+        request.setContent("posted after the follow");
+        request.setIsBot(false);
+        mockMvc.perform(post("/api/posts")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", target.getEmail())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        // pushed into the follower's timeline on the fan-out pool once the post committed
+        long deadline = System.currentTimeMillis() + 5_000;
+        String body;
+        do {
+            body = mockMvc.perform(get("/api/posts/following")
+                            .with(oauth2Login().attributes(attrs -> attrs.put("email", user.getEmail()))))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+        } while (!body.contains("posted after the follow") && System.currentTimeMillis() < deadline && sleep(20));
+
+        mockMvc.perform(get("/api/posts/following")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", user.getEmail()))))
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].content").value("posted after the follow"));
+    }
+
+    private static boolean sleep(long ms) throws InterruptedException {
+        Thread.sleep(ms);
+        return true;
+    }
+
     private Follower createFollower(Integer followerId, Integer followedId) {
         Follower f = new Follower();
         f.setFollowerId(followerId);
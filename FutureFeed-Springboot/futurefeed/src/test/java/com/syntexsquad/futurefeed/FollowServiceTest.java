@@ -7,10 +7,12 @@ import com.syntexsquad.futurefeed.repository.AppUserRepository;
 import com.syntexsquad.futurefeed.repository.FollowerRepository;
 import com.syntexsquad.futurefeed.service.FollowService;
 import com.syntexsquad.futurefeed.service.NotificationService;
+import com.syntexsquad.futurefeed.service.RelationWriteService;
+import com.syntexsquad.futurefeed.service.RelationWriteService.Relation;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -36,18 +38,20 @@ public class FollowServiceTest {
     @Mock private FollowerRepository followerRepository;
     @Mock private AppUserRepository appUserRepository;
     @Mock private NotificationService notificationService; // <-- IMPORTANT
+    @Mock private RelationWriteService relationWriteService;
 
     @Mock private SecurityContext securityContext;
     @Mock private OAuth2AuthenticationToken oauth2AuthenticationToken;
     @Mock private OAuth2User oAuth2User;
 
-    @InjectMocks
     private FollowService followService;
 
     private AppUser authenticatedUser;
 
     @BeforeEach
     public void setup() {
+        followService = new FollowService(followerRepository, new CurrentUserResolver(appUserRepository), notificationService, relationWriteService);
+
         // Security context stubs
         when(oAuth2User.getAttributes()).thenReturn(Map.of("email", "testuser@example.com"));
         when(oauth2AuthenticationToken.getPrincipal()).thenReturn(oAuth2User);
@@ -67,12 +71,12 @@ public class FollowServiceTest {
     @Test
     public void testFollow_Success() {
         int followedId = 2;
-        when(followerRepository.existsByFollowerIdAndFollowedId(authenticatedUser.getId(), followedId))
-                .thenReturn(false);
+        when(relationWriteService.insert(Relation.FOLLOW, authenticatedUser.getId(), followedId))
+                .thenReturn(true);
 
         followService.follow(followedId);
 
-        verify(followerRepository, times(1)).save(any(Follower.class));
+        verify(relationWriteService, times(1)).insert(Relation.FOLLOW, authenticatedUser.getId(), followedId);
         // Optional: prove notification was sent
         verify(notificationService, times(1)).createNotification(
                 eq(followedId),
@@ -90,32 +94,31 @@ public class FollowServiceTest {
                 assertThrows(IllegalArgumentException.class, () -> followService.follow(authenticatedUser.getId()));
         assertEquals("Cannot follow yourself.", ex.getMessage());
 
-        verify(followerRepository, never()).save(any());
+        verify(relationWriteService, never()).insert(any(), any(), any());
         verify(notificationService, never()).createNotification(any(), any(), any(), any(), any(), any());
     }
 
     @Test
     public void testFollow_DoesNotSaveIfAlreadyFollowing() {
         int followedId = 2;
-        when(followerRepository.existsByFollowerIdAndFollowedId(authenticatedUser.getId(), followedId))
-                .thenReturn(true);
+        when(relationWriteService.insert(Relation.FOLLOW, authenticatedUser.getId(), followedId))
+                .thenReturn(false);
 
         followService.follow(followedId);
 
-        verify(followerRepository, never()).save(any());
         verify(notificationService, never()).createNotification(any(), any(), any(), any(), any(), any());
     }
 
     @Test
     public void testUnfollow_Success() {
         int followedId = 2;
-        when(followerRepository.existsByFollowerIdAndFollowedId(authenticatedUser.getId(), followedId))
+        when(relationWriteService.delete(Relation.FOLLOW, authenticatedUser.getId(), followedId))
                 .thenReturn(true);
 
         followService.unfollow(followedId);
 
-        verify(followerRepository, times(1))
-                .deleteByFollowerIdAndFollowedId(authenticatedUser.getId(), followedId);
+        verify(relationWriteService, times(1))
+                .delete(Relation.FOLLOW, authenticatedUser.getId(), followedId);
 
         verify(notificationService, times(1)).createNotification(
                 eq(followedId),
@@ -130,14 +133,13 @@ public class FollowServiceTest {
     @Test
     public void testUnfollow_ThrowsIfNotFollowing() {
         int followedId = 2;
-        when(followerRepository.existsByFollowerIdAndFollowedId(authenticatedUser.getId(), followedId))
+        when(relationWriteService.delete(Relation.FOLLOW, authenticatedUser.getId(), followedId))
                 .thenReturn(false);
 
         IllegalStateException ex =
                 assertThrows(IllegalStateException.class, () -> followService.unfollow(followedId));
         assertEquals("You are not following this user.", ex.getMessage());
 
-        verify(followerRepository, never()).deleteByFollowerIdAndFollowedId(anyInt(), anyInt());
         verify(notificationService, never()).createNotification(any(), any(), any(), any(), any(), any());
     }
 
@@ -0,0 +1,269 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.AuthorPostCache;
+import com.syntexsquad.futurefeed.feed.PostKey;
+import com.syntexsquad.futurefeed.model.*;
+import com.syntexsquad.futurefeed.repository.FollowerRepository;
+import com.syntexsquad.futurefeed.repository.HomeTimelineOwnerRepository;
+import com.syntexsquad.futurefeed.repository.HomeTimelineRepository;
+import com.syntexsquad.futurefeed.repository.PostRepository;
+import com.syntexsquad.futurefeed.service.HomeTimelineService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class HomeTimelineServiceTest {
+
+    private HomeTimelineRepository timelineRepository;
+    private HomeTimelineOwnerRepository ownerRepository;
+    private FollowerRepository followerRepository;
+    private PostRepository postRepository;
+    private AuthorPostCache authorPostCache;
+    private PlatformTransactionManager txManager;
+    private final List<Runnable> pushes = new ArrayList<>();
+    private HomeTimelineService service;
+
+    @BeforeEach
+    void setUp() {
+        txManager = mock(PlatformTransactionManager.class);
+        when(txManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        timelineRepository = mock(HomeTimelineRepository.class);
+        ownerRepository = mock(HomeTimelineOwnerRepository.class);
+        followerRepository = mock(FollowerRepository.class);
+        postRepository = mock(PostRepository.class);
+        authorPostCache = mock(AuthorPostCache.class);
+        service = new HomeTimelineService(timelineRepository, ownerRepository, followerRepository, postRepository,
+                authorPostCache, txManager, pushes::add, 3, 5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private void runPushes() {
+        List<Runnable> queued = new ArrayList<>(pushes);
+        pushes.clear();
+        queued.forEach(Runnable::run);
+    }
+
+    private static UserPost userPost(int id, int authorId) {
+        AppUser author = new AppUser();
+        author.setId(authorId);
+        UserPost p = new UserPost();
+        p.setId(id);
+        p.setUser(author);
+        p.setCreatedAt(Instant.ofEpochSecond(id));
+        return p;
+    }
+
+    private static PostKey key(int id) {
+        return new PostKey(id, Instant.ofEpochSecond(id));
+    }
+
+    private static Follower follow(int followerId, int followedId) {
+        Follower f = new Follower();
+        f.setFollowerId(followerId);
+        f.setFollowedId(followedId);
+        return f;
+    }
+
+    @Test
+    void fanOut_PushesToFollowersOnThePool() {
+        when(followerRepository.countByFollowedId(7)).thenReturn(2L);
+        when(timelineRepository.insertForFollowers(40)).thenReturn(2);
+
+        service.fanOut(userPost(40, 7));
+        verify(timelineRepository, never()).insertForFollowers(any());
+
+        runPushes();
+        verify(timelineRepository).insertForFollowers(40);
+    }
+
+    @Test
+    void fanOut_WaitsForTheCreatingTransactionToCommit() {
+        when(followerRepository.countByFollowedId(7)).thenReturn(2L);
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.fanOut(userPost(40, 7));
+        assertTrue(pushes.isEmpty());
+        verifyNoInteractions(authorPostCache);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(authorPostCache).onPostAdded(argThat(p -> p.getId() == 40));
+        runPushes();
+        verify(timelineRepository).insertForFollowers(40);
+    }
+
+    @Test
+    void fanOut_RetriesOnceWhenAConcurrentWriterAddedTheSameRow() {
+        when(followerRepository.countByFollowedId(7)).thenReturn(2L);
+        when(timelineRepository.insertForFollowers(40))
+                .thenThrow(new DataIntegrityViolationException("uk_home_timeline_owner_post"))
+                .thenReturn(1);
+
+        service.fanOut(userPost(40, 7));
+        runPushes();
+
+        verify(timelineRepository, times(2)).insertForFollowers(40);
+    }
+
+    @Test
+    void fanOut_SkipsAuthorsOverTheFollowerThreshold() {
+        when(followerRepository.countByFollowedId(7)).thenReturn(5L);
+
+        service.fanOut(userPost(40, 7));
+        runPushes();
+        service.fanOut(userPost(41, 7));
+        runPushes();
+
+        verify(timelineRepository, never()).insertForFollowers(any());
+        verify(followerRepository, times(1)).countByFollowedId(7); // second post short-circuits
+        verify(authorPostCache).onPostAdded(argThat(p -> p.getId() == 41));
+        assertTrue(service.isHighFollowerAuthor(7));
+    }
+
+    @Test
+    void read_MergesHighFollowerAuthorsIntoTimeline() {
+        when(followerRepository.findFollowedIdsWithFollowerCountAtLeast(5)).thenReturn(List.of(9));
+        service.refreshHighFollowerAuthors();
+
+        when(ownerRepository.existsById(1)).thenReturn(true);
+        when(timelineRepository.countByOwnerId(1)).thenReturn(2L);
+        when(followerRepository.findFollowedIdsByFollowerId(1)).thenReturn(List.of(7, 9));
+        when(timelineRepository.findKeysByOwnerId(eq(1), any(Pageable.class)))
+                .thenReturn(List.of(key(8), key(2)));
+        when(authorPostCache.newest(9, 2)).thenReturn(List.of(key(6), key(5)));
+        when(postRepository.findAllById(List.of(8, 6))).thenReturn(List.of(userPost(6, 9), userPost(8, 7)));
+        when(postRepository.countPostsByFollowedUsers(List.of(7, 9))).thenReturn(4L);
+
+        Page<Post> page = service.read(1, 0, 2);
+
+        assertEquals(List.of(8, 6), page.getContent().stream().map(Post::getId).toList());
+        assertEquals(4, page.getTotalElements());
+    }
+
+    @Test
+    void refresh_BackfillsAuthorsThatDroppedBelowTheThreshold() {
+        when(followerRepository.findFollowedIdsWithFollowerCountAtLeast(5)).thenReturn(List.of(9));
+        service.refreshHighFollowerAuthors();
+        when(followerRepository.findFollowedIdsWithFollowerCountAtLeast(5)).thenReturn(List.of());
+        when(followerRepository.findByFollowedId(9)).thenReturn(List.of(follow(1, 9)));
+        when(ownerRepository.existsById(1)).thenReturn(true);
+
+        service.refreshHighFollowerAuthors();
+
+        assertFalse(service.isHighFollowerAuthor(9));
+        verify(timelineRepository).insertNewestOf(1, List.of(9), 3);
+    }
+
+    @Test
+    void fanOut_IgnoresBotPosts() {
+        BotPost bot = new BotPost();
+        bot.setId(41);
+        bot.setUser(userPost(0, 7).getUser());
+
+        service.fanOut(bot);
+
+        assertTrue(pushes.isEmpty());
+        verifyNoInteractions(followerRepository, timelineRepository);
+    }
+
+    @Test
+    void read_ServesWindowInTimelineOrder() {
+        when(ownerRepository.existsById(1)).thenReturn(true);
+        when(timelineRepository.countByOwnerId(1)).thenReturn(2L);
+        when(timelineRepository.findPostIdsByOwnerId(eq(1), any(Pageable.class))).thenReturn(List.of(9, 5));
+        when(postRepository.findAllById(List.of(9, 5))).thenReturn(List.of(userPost(5, 7), userPost(9, 7)));
+
+        Page<Post> page = service.read(1, 0, 10);
+
+        assertEquals(List.of(9, 5), page.getContent().stream().map(Post::getId).toList());
+        assertEquals(2, page.getTotalElements());
+        verify(postRepository, never()).findPostsByFollowedUsers(any(), any());
+    }
+
+    @Test
+    void read_SeedsTimelineOnFirstRead() {
+        when(ownerRepository.existsById(1)).thenReturn(false);
+        when(followerRepository.findFollowedIdsByFollowerId(1)).thenReturn(List.of(7));
+
+        service.read(1, 0, 10);
+
+        verify(timelineRepository).insertNewestOf(1, List.of(7), 3);
+        verify(ownerRepository).insertIfAbsent(1);
+    }
+
+    @Test
+    void read_SeedsAndCommitsBeforeOpeningTheReadTransaction() {
+        when(ownerRepository.existsById(1)).thenReturn(false);
+        when(followerRepository.findFollowedIdsByFollowerId(1)).thenReturn(List.of(7));
+
+        service.read(1, 0, 10);
+
+        InOrder order = inOrder(ownerRepository, txManager, timelineRepository);
+        order.verify(ownerRepository).insertIfAbsent(1);
+        order.verify(txManager).commit(any());
+        order.verify(txManager).getTransaction(argThat(def -> def != null && def.isReadOnly()));
+        order.verify(timelineRepository).countByOwnerId(1);
+    }
+
+    @Test
+    void read_ConcurrentSeedingIsRetriedNotFailed() {
+        when(ownerRepository.existsById(1)).thenReturn(false);
+        when(followerRepository.findFollowedIdsByFollowerId(1)).thenReturn(List.of(7));
+        when(ownerRepository.insertIfAbsent(1))
+                .thenThrow(new DataIntegrityViolationException("home_timeline_owners_pkey"))
+                .thenReturn(0);
+
+        assertDoesNotThrow(() -> service.read(1, 0, 10));
+
+        verify(timelineRepository, times(2)).insertNewestOf(1, List.of(7), 3);
+    }
+
+    @Test
+    void read_PastTheWindowFallsBackToFollowedAuthors() {
+        when(ownerRepository.existsById(1)).thenReturn(true);
+        when(timelineRepository.countByOwnerId(1)).thenReturn(3L); // at capacity
+        when(followerRepository.findFollowedIdsByFollowerId(1)).thenReturn(List.of(7));
+        when(postRepository.findPostsByFollowedUsers(eq(List.of(7)), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(userPost(1, 7))));
+
+        Page<Post> page = service.read(1, 1, 2);
+
+        assertEquals(List.of(1), page.getContent().stream().map(Post::getId).toList());
+        verify(timelineRepository, never()).findPostIdsByOwnerId(eq(1), any(Pageable.class));
+    }
+
+    @Test
+    void onFollow_BackfillsOnlySeededTimelines() {
+        when(ownerRepository.existsById(1)).thenReturn(false);
+        service.onFollow(1, 7);
+        verifyNoInteractions(timelineRepository);
+
+        when(ownerRepository.existsById(2)).thenReturn(true);
+
+        service.onFollow(2, 7);
+
+        verify(timelineRepository).insertNewestOf(2, List.of(7), 3);
+    }
+}
@@ -0,0 +1,43 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.FeedSort;
+import com.syntexsquad.futurefeed.feed.HotScore;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotScoreTest {
+
+    private static final Instant T = Instant.parse("2025-06-01T12:00:00Z");
+
+    @Test
+    void of_EngagementOutweighsAgeByItsLogarithm() {
+        long decay = (long) HotScore.DECAY_SECONDS;
+        double fresh = HotScore.of(T.plusSeconds(decay), 1);
+        // one decay period later is worth exactly one e-fold of engagement
+        assertEquals(HotScore.of(T, 1) + 1, fresh, 1e-9);
+        assertTrue(HotScore.of(T, 20) > fresh);
+        assertTrue(HotScore.of(T, 2) < fresh);
+    }
+
+    @Test
+    void of_ZeroAndOnePointScoreTheSame() {
+        assertEquals(HotScore.of(T, 0), HotScore.of(T, 1));
+    }
+
+    @Test
+    void points_WeighsEachEngagementKind() {
+        assertEquals(1 + 2 + 3 + 2, HotScore.points(1, 1, 1, 1));
+        assertEquals(0, HotScore.points(0, 0, 0, 0));
+    }
+
+    @Test
+    void feedSort_Parse() {
+        assertEquals(FeedSort.NEW, FeedSort.parse(null));
+        assertEquals(FeedSort.NEW, FeedSort.parse("new"));
+        assertEquals(FeedSort.HOT, FeedSort.parse("HOT"));
+        assertThrows(IllegalArgumentException.class, () -> FeedSort.parse("top"));
+    }
+}
@@ -5,6 +5,7 @@ import com.syntexsquad.futurefeed.config.S3Config;
 import com.syntexsquad.futurefeed.model.AppUser;
 import com.syntexsquad.futurefeed.model.UserPost;
 import com.syntexsquad.futurefeed.repository.*;
+import com.syntexsquad.futurefeed.service.EngagementCounterService;
 import com.syntexsquad.futurefeed.service.MediaService;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -27,6 +28,7 @@ import java.time.LocalDate;
 import java.util.Map;
 import java.util.Set;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -56,6 +58,7 @@ public class LikeIT {
     @Autowired private BookmarkRepository bookmarkRepo;
     @Autowired private BotPostRepository botPostRepo;
     @Autowired private BotRepository botRepo;
+    @Autowired private EngagementCounterService engagementCounterService;
     @MockBean private S3Config s3Config;
     @MockBean private MediaService mediaService;
 
@@ -172,4 +175,18 @@ public class LikeIT {
                 .andExpect(status().isOk())
                 .andExpect(content().string("1"));
     }
+
+    @Test
+    public void testCountLikes_FlushWritesCountToPost() throws Exception {
+        mockMvc.perform(post("/api/likes/{postId}", postId)).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/likes/{postId}", postId)).andExpect(status().isOk());
+        mockMvc.perform(post("/api/likes/{postId}", postId)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/likes/count/{postId}", postId))
+                .andExpect(status().isOk())
+                .andExpect(content().string("1"));
+
+        engagementCounterService.flush();
+        assertEquals(1L, postRepo.findById(postId).orElseThrow().getLikeCount());
+    }
 }
@@ -5,6 +5,9 @@ import com.syntexsquad.futurefeed.model.Like;
 import com.syntexsquad.futurefeed.repository.LikeRepository;
 import com.syntexsquad.futurefeed.repository.AppUserRepository;
 import com.syntexsquad.futurefeed.service.LikeService;
+import com.syntexsquad.futurefeed.service.RelationWriteService;
+import com.syntexsquad.futurefeed.service.RelationWriteService.Relation;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -36,13 +39,17 @@ public class LikeServiceTest {
     @Mock
     private com.syntexsquad.futurefeed.service.PostService postService;
 
-    @InjectMocks
+    @Mock
+    private RelationWriteService relationWriteService;
+
     private LikeService likeService;
 
     private final Integer mockUserId = 1;
 
     @BeforeEach
     void setupSecurityContext() {
+        likeService = new LikeService(likeRepository, new CurrentUserResolver(appUserRepository), postService, null, null, relationWriteService);
+
         // Mock OAuth2User with "email" attribute
         Map<String, Object> attributes = Map.of("email", "user@example.com");
         OAuth2User mockPrincipal = mock(OAuth2User.class);
@@ -68,50 +75,58 @@ public class LikeServiceTest {
     void testLikePost_whenNotAlreadyLiked_shouldReturnTrue() {
         Integer postId = 100;
 
-        when(postService.existsById(postId)).thenReturn(true);
-        when(likeRepository.existsByUserIdAndPostId(mockUserId, postId)).thenReturn(false);
+        when(relationWriteService.insert(Relation.LIKE, mockUserId, postId)).thenReturn(true);
 
         boolean result = likeService.likePost(postId);
 
         assertTrue(result);
-        verify(likeRepository, times(1)).save(any(Like.class));
+        verify(relationWriteService, times(1)).insert(Relation.LIKE, mockUserId, postId);
+        verify(likeRepository, never()).save(any(Like.class));
     }
 
     @Test
     void testLikePost_whenAlreadyLiked_shouldReturnFalse() {
         Integer postId = 100;
 
+        when(relationWriteService.insert(Relation.LIKE, mockUserId, postId)).thenReturn(false);
         when(postService.existsById(postId)).thenReturn(true);
-        when(likeRepository.existsByUserIdAndPostId(mockUserId, postId)).thenReturn(true);
 
         boolean result = likeService.likePost(postId);
 
         assertFalse(result);
-        verify(likeRepository, never()).save(any(Like.class));
+    }
+
+    @Test
+    void testLikePost_whenPostMissing_shouldThrow() {
+        Integer postId = 100;
+
+        when(relationWriteService.insert(Relation.LIKE, mockUserId, postId)).thenReturn(false);
+        when(postService.existsById(postId)).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> likeService.likePost(postId));
     }
 
     @Test
     void testUnlikePost_whenExists_shouldReturnTrue() {
         Integer postId = 100;
 
-        when(likeRepository.existsByUserIdAndPostId(mockUserId, postId)).thenReturn(true);
+        when(relationWriteService.delete(Relation.LIKE, mockUserId, postId)).thenReturn(true);
 
         boolean result = likeService.unlikePost(postId);
 
         assertTrue(result);
-        verify(likeRepository, times(1)).deleteByUserIdAndPostId(mockUserId, postId);
+        verify(relationWriteService, times(1)).delete(Relation.LIKE, mockUserId, postId);
     }
 
     @Test
     void testUnlikePost_whenDoesNotExist_shouldReturnFalse() {
         Integer postId = 100;
 
-        when(likeRepository.existsByUserIdAndPostId(mockUserId, postId)).thenReturn(false);
+        when(relationWriteService.delete(Relation.LIKE, mockUserId, postId)).thenReturn(false);
 
         boolean result = likeService.unlikePost(postId);
 
         assertFalse(result);
-        verify(likeRepository, never()).deleteByUserIdAndPostId(mockUserId, postId);
     }
 
     @Test
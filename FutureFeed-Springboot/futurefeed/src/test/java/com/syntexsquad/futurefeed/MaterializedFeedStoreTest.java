@@ -0,0 +1,182 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.MaterializedFeedStore;
+import com.syntexsquad.futurefeed.feed.PostKey;
+import com.syntexsquad.futurefeed.feed.PostingIndex;
+import com.syntexsquad.futurefeed.feed.RuleQueryCompiler;
+import com.syntexsquad.futurefeed.model.BotPost;
+import com.syntexsquad.futurefeed.model.Post;
+import com.syntexsquad.futurefeed.model.PresetRule;
+import com.syntexsquad.futurefeed.model.UserPost;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class MaterializedFeedStoreTest {
+
+    private RuleQueryCompiler compiler;
+    private MaterializedFeedStore store;
+    private PresetRule topicRule;
+
+    @BeforeEach
+    void setUp() {
+        compiler = mock(RuleQueryCompiler.class);
+        when(compiler.matches(any(), any(), anyCollection())).thenCallRealMethod();
+        store = new MaterializedFeedStore(compiler, 10, 3);
+
+        topicRule = new PresetRule();
+        topicRule.setId(1);
+        topicRule.setPresetId(100);
+        topicRule.setTopicId(7);
+        topicRule.setPercentage(100);
+    }
+
+    private static PostKey key(int id, long second) {
+        return new PostKey(id, Instant.ofEpochSecond(second));
+    }
+
+    private static Post post(Post p, int id, long second) {
+        p.setId(id);
+        p.setCreatedAt(Instant.ofEpochSecond(second));
+        return p;
+    }
+
+    private static List<Integer> ids(List<PostKey> keys) {
+        return keys.stream().map(PostKey::id).toList();
+    }
+
+    @Test
+    void candidateKeys_LoadsOnceThenServesFromMemory() {
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(List.of(key(3, 30), key(2, 20)));
+
+        assertEquals(List.of(3, 2), ids(store.candidateKeys(100, topicRule, 2)));
+        assertEquals(List.of(3), ids(store.candidateKeys(100, topicRule, 1)));
+
+        verify(compiler, times(1)).fetchKeys(any(), anyInt());
+    }
+
+    @Test
+    void readyPostingIndex_ReleasesListsAndStopsFollowingWrites() {
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(List.of(key(3, 30), key(2, 20)));
+        store.candidateKeys(100, topicRule, 1);
+        PostingIndex index = mock(PostingIndex.class);
+        when(index.isReady()).thenReturn(true);
+        ReflectionTestUtils.setField(store, "postingIndex", index);
+        store.onPostTagged(post(new UserPost(), 5, 50), List.of(7));
+        store.candidateKeys(100, topicRule, 1);
+
+        verify(compiler, never()).matches(any(), any(), anyCollection());
+        verify(compiler).fetchKeys(topicRule, 1);
+    }
+
+    @Test
+    void eventsInsideATransaction_WaitForTheCommit() {
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(List.of(key(3, 30), key(1, 10)));
+        store.candidateKeys(100, topicRule, 1);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            store.onPostTagged(post(new UserPost(), 2, 20), List.of(7));
+            assertEquals(List.of(3, 1), ids(store.candidateKeys(100, topicRule, 3)));
+
+            // a rollback never runs afterCommit, so nothing else would happen
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(List.of(3, 2, 1), ids(store.candidateKeys(100, topicRule, 3)));
+    }
+
+    @Test
+    void loadOverlappingAnEvent_IsNotKept() {
+        when(compiler.fetchKeys(topicRule, 4)).thenAnswer(inv -> {
+            // committed after the query read the table
+            store.onPostTagged(post(new UserPost(), 2, 20), List.of(7));
+            return List.of(key(3, 30), key(1, 10));
+        }).thenReturn(List.of(key(3, 30), key(2, 20), key(1, 10)));
+
+        assertEquals(List.of(3, 1), ids(store.candidateKeys(100, topicRule, 3)));
+        assertEquals(List.of(3, 2, 1), ids(store.candidateKeys(100, topicRule, 3)));
+        verify(compiler, times(2)).fetchKeys(topicRule, 4);
+    }
+
+    @Test
+    void onPostTagged_InsertsMatchingPostInOrder() {
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(List.of(key(3, 30), key(1, 10)));
+        store.candidateKeys(100, topicRule, 1);
+
+        store.onPostTagged(post(new UserPost(), 2, 20), List.of(7));
+        store.onPostTagged(post(new BotPost(), 4, 40), List.of(8));
+
+        assertEquals(List.of(3, 2, 1), ids(store.candidateKeys(100, topicRule, 3)));
+    }
+
+    @Test
+    void onPostTagged_RemovesPostThatNoLongerMatches() {
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(List.of(key(3, 30), key(1, 10)));
+        store.candidateKeys(100, topicRule, 1);
+
+        store.onPostTagged(post(new UserPost(), 3, 30), List.of(8));
+
+        assertEquals(List.of(1), ids(store.candidateKeys(100, topicRule, 3)));
+    }
+
+    @Test
+    void onPostTagged_WithNoTopics_RemovesPostFromTopicRule() {
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(List.of(key(3, 30), key(1, 10)));
+        store.candidateKeys(100, topicRule, 1);
+
+        store.onPostTagged(post(new UserPost(), 3, 30), List.of());
+
+        assertEquals(List.of(1), ids(store.candidateKeys(100, topicRule, 3)));
+    }
+
+    @Test
+    void onPostAdded_LeavesExistingMembershipAlone() {
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(List.of(key(3, 30), key(1, 10)));
+        store.candidateKeys(100, topicRule, 1);
+
+        // topics not known yet: not evidence that the post stopped matching
+        store.onPostAdded(post(new UserPost(), 3, 30));
+
+        assertEquals(List.of(3, 1), ids(store.candidateKeys(100, topicRule, 3)));
+    }
+
+    @Test
+    void capacityOverflow_FallsBackToDatabaseForDeeperReads() {
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(new ArrayList<>(List.of(key(3, 30), key(2, 20), key(1, 10))));
+        store.candidateKeys(100, topicRule, 1);
+
+        store.onPostTagged(post(new UserPost(), 4, 40), List.of(7));
+        assertEquals(List.of(4, 3, 2), ids(store.candidateKeys(100, topicRule, 3)));
+
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(List.of(key(4, 40), key(3, 30), key(2, 20), key(1, 10)));
+        assertEquals(4, store.candidateKeys(100, topicRule, 4).size());
+    }
+
+    @Test
+    void onPostRemoved_AndInvalidate() {
+        when(compiler.fetchKeys(topicRule, 4)).thenReturn(List.of(key(3, 30), key(2, 20)));
+        store.candidateKeys(100, topicRule, 1);
+
+        store.onPostRemoved(3);
+        assertEquals(List.of(2), ids(store.candidateKeys(100, topicRule, 2)));
+
+        store.invalidate(100);
+        assertEquals(List.of(3, 2), ids(store.candidateKeys(100, topicRule, 2)));
+        verify(compiler, times(2)).fetchKeys(topicRule, 4);
+    }
+}
@@ -0,0 +1,204 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.cache.CacheInvalidation;
+import com.syntexsquad.futurefeed.cache.CacheInvalidationBus;
+import com.syntexsquad.futurefeed.cache.LocalInvalidationBus;
+import com.syntexsquad.futurefeed.cache.NearCache;
+import com.syntexsquad.futurefeed.cache.NearCacheManager;
+import com.syntexsquad.futurefeed.cache.NearCacheResolver;
+import com.syntexsquad.futurefeed.cache.PostgresInvalidationBus;
+import com.syntexsquad.futurefeed.config.CacheConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.BasicOperation;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CachePutOperation;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/** Two managers sharing one bus stand in for two API nodes. */
+public class NearCacheTest {
+
+    private NearCacheManager nodeA;
+    private NearCacheManager nodeB;
+
+    @BeforeEach
+    void setUp() {
+        LocalInvalidationBus bus = new LocalInvalidationBus();
+        nodeA = new NearCacheManager(CacheConfig.localCaches(new MockEnvironment()), bus);
+        nodeB = new NearCacheManager(CacheConfig.localCaches(new MockEnvironment()), bus);
+    }
+
+    private static Cache local(NearCacheManager manager, String name) {
+        return ((NearCache) manager.getCache(name)).getLocal();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cache resolve(NearCacheManager manager, BasicOperation operation) {
+        CacheOperationInvocationContext<BasicOperation> context = mock(CacheOperationInvocationContext.class);
+        when(context.getOperation()).thenReturn(operation);
+        Collection<? extends Cache> caches = new NearCacheResolver(manager).resolveCaches(context);
+        assertEquals(1, caches.size());
+        return caches.iterator().next();
+    }
+
+    @Test
+    void fill_StaysOnItsNode_AndLeavesOtherNodesAlone() {
+        nodeB.getCache("post").put(1, "v1");
+
+        nodeA.getCache("post").put(1, "v1");
+
+        assertEquals("v1", local(nodeA, "post").get(1).get());
+        assertEquals("v1", local(nodeB, "post").get(1).get());
+        assertNull(nodeA.getCache("post").get(2));
+    }
+
+    @Test
+    void write_ReplacesStaleCopyOnOtherNode() {
+        nodeA.getCache("userById").put(7, "old");
+        nodeB.getCache("userById").put(7, "old");
+
+        ((NearCache) nodeA.getCache("userById")).write(7, "new");
+
+        assertEquals("new", nodeA.getCache("userById").get(7).get());
+        assertNull(nodeB.getCache("userById").get(7));
+    }
+
+    @Test
+    void evict_DropsOtherNodesCopy() {
+        nodeA.getCache("post").put(1, "v1");
+        nodeB.getCache("post").put(1, "v1");
+
+        nodeA.getCache("post").evict(1);
+
+        assertNull(local(nodeA, "post").get(1));
+        assertNull(local(nodeB, "post").get(1));
+    }
+
+    @Test
+    void clear_DropsWholeCacheOnOtherNode() {
+        nodeB.getCache("posts").put("all", "list");
+
+        nodeA.getCache("posts").clear();
+
+        assertNull(local(nodeB, "posts").get("all"));
+    }
+
+    @Test
+    void loader_FillsOnlyItsOwnNode() {
+        nodeB.getCache("post").put(3, "kept");
+
+        assertEquals("loaded", nodeA.getCache("post").get(3, () -> "loaded"));
+        assertEquals("loaded", nodeA.getCache("post").get(3, () -> "again"));
+        assertEquals("kept", nodeB.getCache("post").get(3).get());
+    }
+
+    @Test
+    void resolver_BroadcastsCachePutsButNotCacheableFills() {
+        nodeB.getCache("post").put(4, "old");
+
+        CacheableOperation.Builder cacheable = new CacheableOperation.Builder();
+        cacheable.setCacheName("post");
+        CachePutOperation.Builder cachePut = new CachePutOperation.Builder();
+        cachePut.setCacheName("post");
+
+        resolve(nodeA, cacheable.build()).put(4, "filled");
+        assertEquals("old", nodeB.getCache("post").get(4).get());
+
+        resolve(nodeA, cachePut.build()).put(4, "new");
+        assertEquals("new", nodeA.getCache("post").get(4).get());
+        assertNull(nodeB.getCache("post").get(4));
+    }
+
+    @Test
+    void invalidation_RoundTripsThroughItsWireFormat() {
+        CacheInvalidation byId = new CacheInvalidation("node", "post", 42);
+        CacheInvalidation byName = new CacheInvalidation("node", "userByUsername", "alice");
+        CacheInvalidation wholeCache = new CacheInvalidation("node", "posts", null);
+
+        assertEquals(byId, CacheInvalidation.decode(byId.encode()));
+        assertEquals(byName, CacheInvalidation.decode(byName.encode()));
+        assertEquals(wholeCache, CacheInvalidation.decode(wholeCache.encode()));
+        assertNull(CacheInvalidation.decode(CacheInvalidation.everything("node").encode()).cacheName());
+    }
+
+    @Test
+    void batch_RoundTripsThroughItsWireFormat() {
+        List<CacheInvalidation> batch = List.of(
+                new CacheInvalidation("node", "post", 42),
+                new CacheInvalidation("node", "searchPosts", "posts@7:[a:b\nc]"),
+                CacheInvalidation.everything("node"));
+
+        assertEquals(batch, CacheInvalidation.decodeAll(CacheInvalidation.encodeAll(batch)));
+        // a single payload from a node that predates batches
+        CacheInvalidation single = new CacheInvalidation("0f1e-node", "post", 7);
+        assertEquals(List.of(single), CacheInvalidation.decodeAll(single.encode()));
+    }
+
+    @Test
+    void evictionsInATransaction_GoOutAsOneBatchAfterTheCommit() {
+        List<List<CacheInvalidation>> sent = new ArrayList<>();
+        NearCacheManager node = new NearCacheManager(CacheConfig.localCaches(new MockEnvironment()),
+                new CacheInvalidationBus() {
+                    @Override
+                    public void publish(CacheInvalidation invalidation) {
+                        publishAll(List.of(invalidation));
+                    }
+
+                    @Override
+                    public void publishAll(List<CacheInvalidation> batch) {
+                        sent.add(batch);
+                    }
+
+                    @Override
+                    public void subscribe(Consumer<CacheInvalidation> receiver) {
+                    }
+                });
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            node.getCache("post").evict(1);
+            node.getCache("userPosts").evict(2);
+            assertTrue(sent.isEmpty());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(1, sent.size());
+        assertEquals(List.of(1, 2), sent.get(0).stream().map(CacheInvalidation::key).toList());
+    }
+
+    @Test
+    void payloads_StayUnderTheNotifyLimit() {
+        List<CacheInvalidation> batch = new ArrayList<>();
+        for (int i = 0; i < 400; i++) batch.add(new CacheInvalidation("node", "searchPosts", "posts@1:keyword-" + i));
+        batch.add(new CacheInvalidation("node", "searchPosts", "x".repeat(9000)));
+
+        List<String> payloads = PostgresInvalidationBus.payloads(batch);
+
+        assertTrue(payloads.size() > 1);
+        List<CacheInvalidation> decoded = new ArrayList<>();
+        for (String payload : payloads) {
+            assertTrue(payload.getBytes(StandardCharsets.UTF_8).length < 8000);
+            decoded.addAll(CacheInvalidation.decodeAll(payload));
+        }
+        assertEquals(batch.subList(0, 400), decoded.subList(0, 400));
+        // too large on its own: widens to the whole cache
+        assertEquals(new CacheInvalidation("node", "searchPosts", null), decoded.get(400));
+    }
+}
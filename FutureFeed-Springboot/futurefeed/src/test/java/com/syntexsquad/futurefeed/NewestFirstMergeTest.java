@@ -0,0 +1,44 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.NewestFirstMerge;
+import com.syntexsquad.futurefeed.feed.PostKey;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NewestFirstMergeTest {
+
+    private static PostKey key(int id, long second) {
+        return new PostKey(id, Instant.ofEpochSecond(second));
+    }
+
+    @Test
+    void merge_InterleavesStreamsNewestFirst() {
+        List<PostKey> a = List.of(key(1, 90), key(2, 50), key(3, 10));
+        List<PostKey> b = List.of(key(4, 80), key(5, 60));
+        List<PostKey> c = List.of(key(6, 70));
+
+        assertEquals(List.of(1, 4, 6, 5, 2, 3), NewestFirstMerge.merge(List.of(a, b, c), 0, 10));
+    }
+
+    @Test
+    void merge_SkipsAndLimitsAfterDeduplicating() {
+        List<PostKey> a = List.of(key(1, 90), key(2, 50));
+        List<PostKey> b = List.of(key(1, 90), key(3, 70), key(2, 50));
+
+        assertEquals(List.of(3, 2), NewestFirstMerge.merge(List.of(a, b), 1, 2));
+        assertEquals(List.of(2), NewestFirstMerge.merge(List.of(a, b), 2, 5));
+    }
+
+    @Test
+    void merge_BreaksTimestampTiesByHigherId() {
+        List<PostKey> a = List.of(key(3, 50));
+        List<PostKey> b = List.of(key(7, 50));
+
+        assertEquals(List.of(7, 3), NewestFirstMerge.merge(List.of(a, b), 0, 10));
+        assertTrue(NewestFirstMerge.merge(List.of(List.of(), a), 0, 0).isEmpty());
+    }
+}
@@ -7,6 +7,7 @@ import com.syntexsquad.futurefeed.mapper.PostViewMapper;
 import com.syntexsquad.futurefeed.model.Post;
 import com.syntexsquad.futurefeed.model.UserPost;
 import com.syntexsquad.futurefeed.repository.BotPostRepository; 
+import com.syntexsquad.futurefeed.service.EngagementSummaryService;
 import com.syntexsquad.futurefeed.service.MediaService;
 import com.syntexsquad.futurefeed.service.PostService;
 import org.junit.jupiter.api.BeforeEach; 
@@ -48,9 +49,15 @@ public class PostControllerTest {
 
     @MockBean
     private BotPostRepository botPostRepository; 
+
+    @MockBean
+    private EngagementSummaryService engagementSummaryService;
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PostViewMapper postViewMapper;
+
     @BeforeEach
     void stubBotRepo() {
         when(botPostRepository.findBotByPostId(anyInt())).thenReturn(Optional.empty());
@@ -121,7 +128,7 @@ public class PostControllerTest {
         post2.setImageUrl("https://example.com/2.jpg");
 
         List<Post> mockResults = List.of(post1, post2);
-        when(postService.searchPosts("keyword")).thenReturn(mockResults);
+        when(postService.searchPostViews("keyword")).thenReturn(postViewMapper.toViews(mockResults));
 
         mockMvc.perform(get("/api/posts/search")
                         .param("keyword", "keyword")
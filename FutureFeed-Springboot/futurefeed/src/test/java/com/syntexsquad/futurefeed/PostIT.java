@@ -2,16 +2,20 @@ package com.syntexsquad.futurefeed;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.syntexsquad.futurefeed.config.S3Config;
+import com.syntexsquad.futurefeed.dto.PostView;
 import com.syntexsquad.futurefeed.dto.PostRequest;
+import com.syntexsquad.futurefeed.feed.HotScore;
 import com.syntexsquad.futurefeed.model.AppUser;
 import com.syntexsquad.futurefeed.model.UserPost;
 import com.syntexsquad.futurefeed.repository.AppUserRepository;
 import com.syntexsquad.futurefeed.repository.CommentRepository;
 import com.syntexsquad.futurefeed.repository.LikeRepository;
 import com.syntexsquad.futurefeed.repository.PostRepository;
+import com.syntexsquad.futurefeed.service.HotScoreService;
 import com.syntexsquad.futurefeed.service.MediaService;
 
 import org.junit.jupiter.api.*;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -22,6 +26,11 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -48,6 +57,7 @@ class PostIT {
     @Autowired private AppUserRepository userRepository;
     @Autowired private LikeRepository likeRepository;
     @Autowired private CommentRepository commentRepository;
+    @Autowired private HotScoreService hotScoreService;
     @Autowired private ClientRegistrationRepository clientRegistrationRepository;
     @MockBean private S3Config s3Config;
     @MockBean private MediaService mediaService;
@@ -57,6 +67,9 @@ class PostIT {
     @Autowired
     private CacheManager cacheManager;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @BeforeEach
     void clearCache() {
         cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
@@ -176,6 +189,34 @@ class PostIT {
                 .andExpect(jsonPath("$.content").value("Find me"));
     }
 
+    @Test @Order(6)
+    void postViews_areCachedAsImmutableSnapshots() throws Exception {
+        UserPost post = new UserPost();
+        post.setContent("Snapshot me");
+        post.setUser(testUser);
+        postRepository.save(post);
+
+        mockMvc.perform(get("/api/posts/" + post.getId())
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.user.id").value(testUser.getId()));
+        mockMvc.perform(get("/api/posts/user/" + testUser.getId()).param("include", "stats")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].likeCount").value(0));
+
+        assertThat(cacheManager.getCache("post").get(post.getId()).get()).isInstanceOf(PostView.class);
+        List<?> cached = (List<?>) cacheManager.getCache("userPosts").get(testUser.getId()).get();
+        assertThat(cached.get(0)).isInstanceOf(PostView.class);
+
+        mockMvc.perform(get("/api/posts").with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk());
+        com.github.benmanes.caffeine.cache.Cache<?, ?> all =
+                (com.github.benmanes.caffeine.cache.Cache<?, ?>) cacheManager.getCache("posts").getNativeCache();
+        assertThat(all.asMap().values()).isNotEmpty()
+                .allSatisfy(list -> assertThat((List<?>) list).allMatch(PostView.class::isInstance));
+    }
+
     @Test @Order(7)
     void getAllPosts_emptyInitially() throws Exception {
         mockMvc.perform(get("/api/posts")
@@ -215,6 +256,80 @@ class PostIT {
                 .andExpect(jsonPath("$.totalElements").value(5));
     }
 
+    @Test @Order(9)
+    void getPaginatedPosts_sortHot_ranksByStoredScore() throws Exception {
+        UserPost older = new UserPost();
+        older.setContent("Engaged");
+        older.setUser(testUser);
+        older = postRepository.save(older);
+        for (int i = 1; i <= 2; i++) {
+            UserPost post = new UserPost();
+            post.setContent("Quiet" + i);
+            post.setUser(testUser);
+            postRepository.save(post);
+        }
+        hotScoreService.record(older.getId(), HotScore.Engagement.RESHARE);
+        hotScoreService.record(older.getId(), HotScore.Engagement.COMMENT);
+
+        mockMvc.perform(get("/api/posts/paginated?page=0&size=3&sort=hot")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("Engaged"))
+                .andExpect(jsonPath("$.content", hasSize(3)));
+
+        mockMvc.perform(get("/api/posts/paginated?sort=sideways")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test @Order(9)
+    void getEngagement_returnsCountsAndViewerFlagsInRequestOrder() throws Exception {
+        UserPost liked = new UserPost();
+        liked.setContent("Liked");
+        liked.setUser(testUser);
+        liked = postRepository.save(liked);
+        UserPost quiet = new UserPost();
+        quiet.setContent("Quiet");
+        quiet.setUser(testUser);
+        quiet = postRepository.save(quiet);
+
+        mockMvc.perform(post("/api/likes/" + liked.getId())
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/posts/engagement")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"postIds\":[" + quiet.getId() + "," + liked.getId() + ",999999]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].postId").value(quiet.getId()))
+                .andExpect(jsonPath("$[0].likeCount").value(0))
+                .andExpect(jsonPath("$[0].hasLiked").value(false))
+                .andExpect(jsonPath("$[1].postId").value(liked.getId()))
+                .andExpect(jsonPath("$[1].likeCount").value(1))
+                .andExpect(jsonPath("$[1].hasLiked").value(true))
+                .andExpect(jsonPath("$[1].hasBookmarked").value(false));
+    }
+
+    @Test @Order(9)
+    void getEngagement_rejectsMoreThanOneHundredIds() throws Exception {
+        String hundred = IntStream.rangeClosed(1, 100).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+        mockMvc.perform(post("/api/posts/engagement")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"postIds\":[" + hundred + "]}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/api/posts/engagement")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"postIds\":[" + hundred + ",101]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("At most 100 post IDs per request"));
+    }
+
     @Test @Order(10)
     void getPostsByUser_shouldReturnUserPosts() throws Exception {
         UserPost post = new UserPost();
@@ -228,6 +343,32 @@ class PostIT {
                 .andExpect(jsonPath("$[0].content").value("UserPost1"));
     }
 
+    @Test @Order(10)
+    void getPostsByUser_includeStats_addsCountsAndViewerFlags() throws Exception {
+        UserPost post = new UserPost();
+        post.setContent("With stats");
+        post.setUser(testUser);
+        post = postRepository.save(post);
+
+        mockMvc.perform(post("/api/likes/" + post.getId())
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts/user/" + testUser.getId())
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].likeCount").doesNotExist());
+
+        mockMvc.perform(get("/api/posts/user/" + testUser.getId() + "?include=stats")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].likeCount").value(1))
+                .andExpect(jsonPath("$[0].commentCount").value(0))
+                .andExpect(jsonPath("$[0].reshareCount").value(0))
+                .andExpect(jsonPath("$[0].hasLiked").value(true))
+                .andExpect(jsonPath("$[0].hasCommented").value(false));
+    }
+
     @Test @Order(11)
     void getPostsByUser_nonexistent_shouldReturnEmpty() throws Exception {
         mockMvc.perform(get("/api/posts/user/999")
@@ -236,6 +377,85 @@ class PostIT {
                 .andExpect(jsonPath("$", hasSize(0)));
     }
 
+    @Test @Order(11)
+    void searchPosts_cacheStatsArePublishedAsMetrics() throws Exception {
+        mockMvc.perform(get("/api/posts/search?keyword=metrics")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk());
+
+        assertThat(meterRegistry.find("cache.gets").tag("cache", "searchPosts").tag("result", "miss")
+                .functionCounter()).isNotNull();
+    }
+
+    @Test @Order(10)
+    void paginated_answersIfNoneMatchWith304UntilPostsChange() throws Exception {
+        // the first page mints one snapshot per cache fill, shared by every reader of the generation
+        MvcResult first = mockMvc.perform(get("/api/posts/paginated?page=0&size=5")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        String firstEtag = first.getResponse().getHeader("ETag");
+        String snapshotId = objectMapper.readTree(first.getResponse().getContentAsString()).get("snapshotId").asText();
+
+        mockMvc.perform(get("/api/posts/paginated?page=0&size=5").header("If-None-Match", firstEtag)
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/posts/paginated?page=0&size=5")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", "someone-else@example.com"))))
+                .andExpect(jsonPath("$.snapshotId").value(snapshotId));
+
+        String etag = mockMvc.perform(get("/api/posts/paginated?page=0&size=5&snapshot=" + snapshotId)
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(jsonPath("$.snapshotId").value(snapshotId))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/posts/paginated?page=0&size=5&snapshot=" + snapshotId).header("If-None-Match", etag)
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isNotModified());
+
+        PostRequest request = new PostRequest();
+        request.setContent("Changes the first page");
+        request.setIsBot(false);
+        mockMvc.perform(post("/api/posts")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts/paginated?page=0&size=5").header("If-None-Match", firstEtag)
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("Changes the first page"))
+                .andExpect(jsonPath("$.snapshotId").value(not(snapshotId)));
+    }
+
+    @Test @Order(11)
+    void createPost_startsNewSearchGenerationAndKeepsUnrelatedEntries() throws Exception {
+        cacheManager.getCache("post").put(424242, "unrelated");
+        mockMvc.perform(get("/api/posts/search").param("keyword", "generational")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        PostRequest request = new PostRequest();
+        request.setContent("A generational post");
+        request.setIsBot(false);
+        mockMvc.perform(post("/api/posts")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts/search").param("keyword", "generational")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].content").value("A generational post"));
+        assertThat(cacheManager.getCache("post").get(424242)).isNotNull();
+    }
+
     // -------------------- DELETE --------------------
     @Test @Order(12)
     void deletePost_shouldReturnOk() throws Exception {
@@ -289,6 +509,33 @@ class PostIT {
                 .andExpect(jsonPath("$[0].content").value("CaseTest"));
     }
 
+    @Test @Order(16)
+    void searchRanked_pagesThroughMatchesWithCursor() throws Exception {
+        for (String content : List.of("Rocket launch today", "Another rocket launch", "Cooking pasta", "Rocket science")) {
+            UserPost p = new UserPost(); p.setContent(content); p.setUser(testUser);
+            postRepository.save(p);
+        }
+
+        String body = mockMvc.perform(get("/api/posts/search").param("q", "rocket -science").param("size", "1")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].content").value("Another rocket launch"))
+                .andExpect(jsonPath("$.last").value(false))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(body).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/posts/search").param("q", "rocket -science").param("size", "1").param("cursor", cursor)
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].content").value("Rocket launch today"))
+                .andExpect(jsonPath("$.last").value(true));
+
+        mockMvc.perform(get("/api/posts/search").param("q", "rocket").param("cursor", "garbage")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(status().isBadRequest());
+    }
+
     // -------------------- EDGE CASES --------------------
     @Test @Order(17)
     void createPost_largeContent_shouldSucceed() throws Exception {
@@ -314,4 +561,32 @@ class PostIT {
         }
         assertThat(postRepository.count()).isEqualTo(3);
     }
+
+    @Test @Order(19)
+    void profileUpdate_showsOnCachedPostsAtOnce() throws Exception {
+        UserPost post = new UserPost();
+        post.setContent("Posted before the rename");
+        post.setUser(testUser);
+        post = postRepository.save(post);
+
+        mockMvc.perform(get("/api/posts/" + post.getId())
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(jsonPath("$.user.displayName").doesNotExist());
+        mockMvc.perform(get("/api/posts")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(jsonPath("$[0].user.displayName").doesNotExist());
+
+        mockMvc.perform(put("/api/user/update")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail())))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"displayName\":\"Alice Renamed\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts/" + post.getId())
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(jsonPath("$.user.displayName").value("Alice Renamed"));
+        mockMvc.perform(get("/api/posts")
+                        .with(oauth2Login().attributes(attrs -> attrs.put("email", testUser.getEmail()))))
+                .andExpect(jsonPath("$[0].user.displayName").value("Alice Renamed"));
+    }
 }
@@ -8,6 +8,7 @@ import com.syntexsquad.futurefeed.repository.LikeRepository;
 import com.syntexsquad.futurefeed.repository.PostRepository;
 import com.syntexsquad.futurefeed.service.PostService;
 import com.syntexsquad.futurefeed.service.TopicService;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -45,7 +46,7 @@ public class PostServiceTest {
         commentRepository = mock(CommentRepository.class);
         topicService = mock(TopicService.class);
 
-        postService = new PostService(postRepository, appUserRepository, likeRepository, commentRepository, topicService);
+        postService = new PostService(postRepository, new CurrentUserResolver(appUserRepository), likeRepository, commentRepository, topicService);
 
         // Mock OAuth2User with email attribute
         OAuth2User mockOAuth2User = mock(OAuth2User.class);
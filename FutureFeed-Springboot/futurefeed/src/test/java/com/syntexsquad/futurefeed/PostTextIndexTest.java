@@ -0,0 +1,192 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.search.PostTextIndex;
+import com.syntexsquad.futurefeed.search.SearchCursor;
+import com.syntexsquad.futurefeed.search.SearchQuery;
+import com.syntexsquad.futurefeed.search.TextAnalyzer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostTextIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private final List<PostTextIndex> opened = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:text-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE posts (id INT PRIMARY KEY, content VARCHAR(2000))");
+    }
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(PostTextIndex::close);
+        jdbc.execute("SHUTDOWN");
+    }
+
+    private PostTextIndex index(String directory, int bufferDocs, int maxSegments) {
+        PostTextIndex index = new PostTextIndex(dataSource, "always", directory, bufferDocs, maxSegments, 1024, 2, 2);
+        opened.add(index);
+        index.start();
+        assertTrue(index.isReady());
+        return index;
+    }
+
+    private void insert(int id, String content) {
+        jdbc.update("INSERT INTO posts (id, content) VALUES (?, ?)", id, content);
+    }
+
+    private static List<Integer> ids(PostTextIndex index, String query) {
+        return index.search(SearchQuery.parse(query), null, 20).hits().stream().map(PostTextIndex.Hit::id).toList();
+    }
+
+    /** Every page of {@code query}, {@code size} at a time, running {@code between} after each page. */
+    private static List<Integer> pageThrough(PostTextIndex index, String query, int size, Runnable between) {
+        List<Integer> seen = new ArrayList<>();
+        SearchCursor after = null;
+        while (true) {
+            PostTextIndex.Results page = index.search(SearchQuery.parse(query), after, size);
+            if (page.hits().isEmpty()) break;
+            page.hits().forEach(h -> seen.add(h.id()));
+            PostTextIndex.Hit last = page.hits().get(page.hits().size() - 1);
+            after = SearchCursor.decode(new SearchCursor(last.score(), last.id(), page.statistics()).encode());
+            between.run();
+        }
+        return seen;
+    }
+
+    @Test
+    void analyzer_DropsStopWordsAndPluralsButKeepsPositions() {
+        List<TextAnalyzer.Token> tokens = TextAnalyzer.analyze("The Rockets of SpaceX!");
+
+        assertEquals(List.of(new TextAnalyzer.Token("rocket", 1), new TextAnalyzer.Token("spacex", 3)), tokens);
+        assertEquals("story", TextAnalyzer.normalize("stories"));
+        assertEquals("bus", TextAnalyzer.normalize("bus"));
+    }
+
+    @Test
+    void ranksByTermFrequencyAndLength_NewestFirstOnTies() {
+        PostTextIndex index = index("", 100, 8);
+        index.addPost(1, "rocket launch");
+        index.addPost(2, "rocket rocket fuel");
+        index.addPost(3, "a long post about the weather and gardens that mentions a rocket just once");
+        index.addPost(4, "rocket launch");
+
+        assertEquals(List.of(2, 4, 1, 3), ids(index, "rocket"));
+    }
+
+    @Test
+    void phrasesPrefixesExclusionsAndOr() {
+        PostTextIndex index = index("", 100, 8);
+        index.addPost(1, "The space station is up");
+        index.addPost(2, "station in space");
+        index.addPost(3, "Launching soon, no spam");
+        index.addPost(4, "launch day");
+        index.addPost(5, "man of war");
+
+        assertEquals(List.of(1), ids(index, "\"space station\""));
+        assertEquals(List.of(2, 1), ids(index, "space station"));
+        assertEquals(List.of(4, 3), ids(index, "launch*").stream().sorted((a, b) -> b - a).toList());
+        assertEquals(List.of(4), ids(index, "launch* -spam"));
+        assertEquals(2, ids(index, "\"space station\" OR day").size());
+        assertEquals(List.of(5), ids(index, "\"man of war\""));
+        assertTrue(ids(index, "\"man war\"").isEmpty());
+        assertTrue(ids(index, "the of").isEmpty());
+    }
+
+    @Test
+    void removedPosts_AreNotFound_AndCursorPagesWithoutRepeats() {
+        PostTextIndex index = index("", 2, 8);
+        for (int id = 1; id <= 7; id++) index.addPost(id, "news item " + id);
+        index.removePost(3);
+
+        assertEquals(List.of(7, 6, 5, 4, 2, 1), pageThrough(index, "news", 2, () -> {}));
+    }
+
+    @Test
+    void cursor_KeepsItsOrderWhileTheCollectionChanges() {
+        PostTextIndex index = index("", 100, 8);
+        index.addPost(1, "news");
+        index.addPost(2, "news news and more on the markets today");
+        index.addPost(3, "news about the weather");
+        index.addPost(4, "news news news in a rather long post about many different things at once");
+        index.addPost(5, "short news item");
+        index.addPost(6, "news news");
+        List<Integer> ranked = ids(index, "news");
+
+        int[] next = {100};
+        // every page shifts the document count and average length the scores depend on
+        List<Integer> seen = pageThrough(index, "news", 1, () -> {
+            for (int i = 0; i < 5; i++) {
+                index.addPost(next[0]++, "a very long post on gardening with many words and nothing else to say at all");
+            }
+            index.addPost(next[0]++, "old");
+        });
+
+        assertEquals(ranked, seen);
+    }
+
+    @Test
+    void buildsFromTable_ReopensSegments_AndCatchesUp() throws Exception {
+        for (int id = 1; id <= 9; id++) insert(id, "post number " + id + (id % 3 == 0 ? " with kittens" : ""));
+        PostTextIndex first = index(dir.toString(), 2, 20);
+        assertEquals(List.of(9, 6, 3), ids(first, "kittens"));
+        first.addPost(10, "more kittens");
+        insert(10, "more kittens");
+        first.close();
+
+        // changed while the index was down
+        jdbc.update("DELETE FROM posts WHERE id = 6");
+        insert(11, "late kittens");
+
+        PostTextIndex second = index(dir.toString(), 2, 20);
+        assertEquals(List.of(11, 10, 9, 3), ids(second, "kittens").stream().sorted((a, b) -> b - a).toList());
+        assertEquals(10, ids(second, "post OR more OR late").size());
+    }
+
+    @Test
+    void indexOfAnotherDatabase_IsRebuilt() {
+        insert(1, "alpha");
+        insert(2, "beta");
+        index(dir.toString(), 1, 20).close();
+
+        jdbc.execute("DELETE FROM posts");
+        insert(1, "gamma delta epsilon");
+        insert(2, "zeta eta theta");
+
+        PostTextIndex index = index(dir.toString(), 1, 20);
+        assertTrue(ids(index, "alpha").isEmpty());
+        assertEquals(List.of(1), ids(index, "delta"));
+    }
+
+    @Test
+    void segmentsAreMergedInTheBackground() throws Exception {
+        PostTextIndex index = index(dir.toString(), 1, 2);
+        for (int id = 1; id <= 12; id++) index.addPost(id, "merged post " + id);
+        index.removePost(5);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (index.segmentCount() > 2 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+        assertTrue(index.segmentCount() <= 2);
+        assertEquals(11, ids(index, "merged").size());
+        assertFalse(ids(index, "merged").contains(5));
+        assertEquals(List.of(12), ids(index, "12"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.PostingIndex;
+import com.syntexsquad.futurefeed.model.PresetRule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostingIndexTest {
+
+    private PostingIndex index;
+
+    private PresetRule rule(Integer topicId, String sourceType, Integer specificUserId) {
+        PresetRule r = new PresetRule();
+        r.setTopicId(topicId);
+        r.setSourceType(sourceType);
+        r.setSpecificUserId(specificUserId);
+        r.setPercentage(50);
+        return r;
+    }
+
+    @BeforeEach
+    void setUp() {
+        index = new PostingIndex();
+        // posts 1..6: odd ids are bot posts by user 10, even ids are user posts by user 20
+        for (int id = 1; id <= 6; id++) {
+            index.addPost(id, id % 2 == 0 ? 20 : 10, id % 2 == 1);
+        }
+        index.addTopic(2, 7);
+        index.addTopic(3, 7);
+        index.addTopic(6, 7);
+        index.addTopic(4, 8);
+    }
+
+    @Test
+    void newestMatching_TopicIsNewestFirst() {
+        assertEquals(List.of(6, 3, 2), index.newestMatching(rule(7, null, null), 10));
+        assertEquals(List.of(6, 3), index.newestMatching(rule(7, null, null), 2));
+    }
+
+    @Test
+    void newestMatching_IntersectsTopicSourceAndAuthor() {
+        assertEquals(List.of(6, 2), index.newestMatching(rule(7, "user", null), 10));
+        assertEquals(List.of(3), index.newestMatching(rule(7, "bot", null), 10));
+        assertEquals(List.of(6, 2), index.newestMatching(rule(7, null, 20), 10));
+        assertTrue(index.newestMatching(rule(7, "bot", 20), 10).isEmpty());
+        assertTrue(index.newestMatching(rule(99, null, null), 10).isEmpty());
+    }
+
+    @Test
+    void newestMatching_SourceOnlyWalksTheBitsets() {
+        assertEquals(List.of(5, 3, 1), index.newestMatching(rule(null, "bot", null), 10));
+        assertEquals(List.of(6, 4, 2), index.newestMatching(rule(null, "user", null), 10));
+        assertEquals(6, index.count(rule(null, null, null)));
+    }
+
+    @Test
+    void removeAndRetag_KeepListsCurrent() {
+        index.removePost(6, 20);
+        assertEquals(List.of(3, 2), index.newestMatching(rule(7, null, null), 10));
+        assertEquals(List.of(4, 2), index.newestMatching(rule(null, null, 20), 10));
+
+        index.onTopicsCleared(3);
+        index.addTopic(3, 8);
+        assertEquals(List.of(2), index.newestMatching(rule(7, null, null), 10));
+        assertEquals(2, index.count(rule(8, null, null)));
+
+        index.removeTopic(2, 7);
+        assertTrue(index.newestMatching(rule(7, null, null), 10).isEmpty());
+    }
+
+    @Test
+    void estimatedBytes_GrowsWithContent() {
+        long before = index.estimatedBytes();
+        for (int id = 7; id < 1000; id++) index.addTopic(id, 7);
+        assertTrue(index.estimatedBytes() > before);
+    }
+}
@@ -0,0 +1,97 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.RandomFillSampler;
+import com.syntexsquad.futurefeed.feed.RandomFillSampler.Draw;
+import com.syntexsquad.futurefeed.feed.RandomFillSampler.IdSpace;
+import com.syntexsquad.futurefeed.feed.RuleQueryCompiler.CompiledRule;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RandomFillSamplerTest {
+
+    private static final CompiledRule EVERYTHING = new CompiledRule("", Map.of());
+
+    private final RandomFillSampler sampler = new RandomFillSampler();
+    private final Set<Integer> existing = new HashSet<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        EntityManager em = mock(EntityManager.class);
+        TypedQuery<Integer> query = mock(TypedQuery.class);
+        List<List<Integer>> lastCandidates = new ArrayList<>();
+        when(em.createQuery(anyString(), eq(Integer.class))).thenReturn(query);
+        when(query.setParameter(eq("candidates"), any())).thenAnswer(inv -> {
+            lastCandidates.clear();
+            lastCandidates.add(inv.getArgument(1));
+            return query;
+        });
+        // the "database" holds every id in `existing`
+        when(query.getResultList()).thenAnswer(inv ->
+                lastCandidates.get(0).stream().filter(existing::contains).toList());
+        ReflectionTestUtils.setField(sampler, "em", em);
+    }
+
+    @Test
+    void draw_WalksEveryIdExactlyOnce() {
+        for (int id = 10; id < 110; id++) existing.add(id);
+        IdSpace space = new IdSpace(10, 100);
+
+        Draw all = sampler.draw(EVERYTHING, space, 7L, 0, 1000, Set.of());
+
+        assertEquals(100, all.ids().size());
+        assertEquals(existing, new HashSet<>(all.ids()));
+        assertTrue(all.exhausted());
+    }
+
+    @Test
+    void draw_IsReproducibleForTheSameSeed() {
+        for (int id = 1; id <= 500; id++) existing.add(id);
+        IdSpace space = new IdSpace(1, 500);
+
+        List<Integer> a = sampler.draw(EVERYTHING, space, 42L, 0, 10, Set.of()).ids();
+        List<Integer> b = sampler.draw(EVERYTHING, space, 42L, 0, 10, Set.of()).ids();
+        List<Integer> c = sampler.draw(EVERYTHING, space, 43L, 0, 10, Set.of()).ids();
+
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+    }
+
+    @Test
+    void draw_ResumesFromOffsetWithoutRepeating() {
+        for (int id = 1; id <= 300; id += 3) existing.add(id); // sparse ids
+        IdSpace space = new IdSpace(1, 300);
+
+        Draw first = sampler.draw(EVERYTHING, space, 5L, 0, 20, Set.of());
+        Draw second = sampler.draw(EVERYTHING, space, 5L, first.nextOffset(), 20, Set.of());
+
+        assertEquals(20, first.ids().size());
+        assertEquals(20, second.ids().size());
+        Set<Integer> union = new HashSet<>(first.ids());
+        union.addAll(second.ids());
+        assertEquals(40, union.size());
+        assertTrue(existing.containsAll(union));
+    }
+
+    @Test
+    void draw_SkipsExcludedIdsAndNullComplement() {
+        for (int id = 1; id <= 20; id++) existing.add(id);
+        IdSpace space = new IdSpace(1, 20);
+
+        Draw d = sampler.draw(EVERYTHING, space, 1L, 0, 20, Set.of(3, 4));
+        assertFalse(d.ids().contains(3));
+        assertFalse(d.ids().contains(4));
+        assertEquals(18, d.ids().size());
+
+        assertTrue(sampler.draw(null, space, 1L, 0, 5, Set.of()).ids().isEmpty());
+    }
+}
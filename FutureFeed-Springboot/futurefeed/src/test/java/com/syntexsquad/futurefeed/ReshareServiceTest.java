@@ -4,7 +4,10 @@ import com.syntexsquad.futurefeed.model.AppUser;
 import com.syntexsquad.futurefeed.model.Reshare;
 import com.syntexsquad.futurefeed.repository.AppUserRepository;
 import com.syntexsquad.futurefeed.repository.ReshareRepository;
+import com.syntexsquad.futurefeed.service.RelationWriteService;
+import com.syntexsquad.futurefeed.service.RelationWriteService.Relation;
 import com.syntexsquad.futurefeed.service.ReshareService;
+import com.syntexsquad.futurefeed.security.CurrentUserResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -40,13 +43,17 @@ public class ReshareServiceTest {
     @Mock
     private OAuth2User oAuth2User;
 
-    @InjectMocks
+    @Mock
+    private RelationWriteService relationWriteService;
+
     private ReshareService reshareService;
 
     private AppUser authenticatedUser;
 
     @BeforeEach
     public void setup() {
+        reshareService = new ReshareService(reshareRepository, new CurrentUserResolver(appUserRepository), null, relationWriteService);
+
         lenient().when(oAuth2User.getAttributes()).thenReturn(Map.of("email", "testuser@example.com"));
         lenient().when(oauth2AuthenticationToken.getPrincipal()).thenReturn(oAuth2User);
         lenient().when(securityContext.getAuthentication()).thenReturn(oauth2AuthenticationToken);
@@ -61,17 +68,17 @@ public class ReshareServiceTest {
     @Test
     public void testResharePost_SavesIfNotAlreadyReshared() {
         int postId = 100;
-        when(reshareRepository.existsByUserIdAndPostId(authenticatedUser.getId(), postId)).thenReturn(false);
+        when(relationWriteService.insert(Relation.RESHARE, authenticatedUser.getId(), postId)).thenReturn(true);
 
         reshareService.resharePost(postId);
 
-        verify(reshareRepository, times(1)).save(any(Reshare.class));
+        verify(relationWriteService, times(1)).insert(Relation.RESHARE, authenticatedUser.getId(), postId);
     }
 
     @Test
     public void testResharePost_DoesNotSaveIfAlreadyReshared() {
         int postId = 100;
-        when(reshareRepository.existsByUserIdAndPostId(authenticatedUser.getId(), postId)).thenReturn(true);
+        when(relationWriteService.insert(Relation.RESHARE, authenticatedUser.getId(), postId)).thenReturn(false);
 
         reshareService.resharePost(postId);
 
@@ -81,23 +88,23 @@ public class ReshareServiceTest {
     @Test
     public void testUnresharePost_DeletesSuccessfully() {
         int postId = 100;
-        when(reshareRepository.deleteByUserIdAndPostId(authenticatedUser.getId(), postId)).thenReturn(1);
+        when(relationWriteService.delete(Relation.RESHARE, authenticatedUser.getId(), postId)).thenReturn(true);
 
         assertDoesNotThrow(() -> reshareService.unresharePost(postId));
 
-        verify(reshareRepository, times(1)).deleteByUserIdAndPostId(authenticatedUser.getId(), postId);
+        verify(relationWriteService, times(1)).delete(Relation.RESHARE, authenticatedUser.getId(), postId);
     }
 
     @Test
     public void testUnresharePost_ThrowsRuntimeExceptionOnFailure() {
         int postId = 100;
-        when(reshareRepository.deleteByUserIdAndPostId(authenticatedUser.getId(), postId))
+        when(relationWriteService.delete(Relation.RESHARE, authenticatedUser.getId(), postId))
                 .thenThrow(new RuntimeException("DB error"));
 
         RuntimeException ex = assertThrows(RuntimeException.class, () -> reshareService.unresharePost(postId));
 
         assertTrue(ex.getMessage().contains("Failed to unreshare post"));
-        verify(reshareRepository, times(1)).deleteByUserIdAndPostId(authenticatedUser.getId(), postId);
+        verify(relationWriteService, times(1)).delete(Relation.RESHARE, authenticatedUser.getId(), postId);
     }
 
     @Test
@@ -0,0 +1,106 @@
+package com.syntexsquad.futurefeed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syntexsquad.futurefeed.cache.CacheGenerations;
+import com.syntexsquad.futurefeed.cache.ResponseCache;
+import com.syntexsquad.futurefeed.config.CacheConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    private final CacheManager manager = CacheConfig.localCaches(new MockEnvironment());
+    private final CacheGenerations generations = new CacheGenerations(manager);
+    private final ResponseCache cache = new ResponseCache(manager, generations, new ObjectMapper(), 64);
+    private final AtomicInteger builds = new AtomicInteger();
+
+    private ResponseEntity<byte[]> get(MockHttpServletRequest request, Object body) {
+        return cache.respond(request, List.of("posts"), "page:0", () -> {
+            builds.incrementAndGet();
+            return body;
+        });
+    }
+
+    @Test
+    void repeatRequest_IsServedFromStoredBytes() {
+        ResponseEntity<byte[]> first = get(new MockHttpServletRequest(), Map.of("a", 1));
+        ResponseEntity<byte[]> second = get(new MockHttpServletRequest(), Map.of("a", 2));
+
+        assertEquals(1, builds.get());
+        assertEquals("{\"a\":1}", new String(second.getBody(), StandardCharsets.UTF_8));
+        assertEquals(first.getHeaders().getETag(), second.getHeaders().getETag());
+    }
+
+    @Test
+    void matchingIfNoneMatch_Returns304WithoutBody() {
+        String etag = get(new MockHttpServletRequest(), Map.of("a", 1)).getHeaders().getETag();
+        MockHttpServletRequest conditional = new MockHttpServletRequest();
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+
+        ResponseEntity<byte[]> response = get(conditional, Map.of("a", 1));
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals(etag, response.getHeaders().getETag());
+    }
+
+    @Test
+    void bump_RetiresStoredResponse() {
+        String before = get(new MockHttpServletRequest(), Map.of("a", 1)).getHeaders().getETag();
+
+        generations.bump("posts");
+        ResponseEntity<byte[]> after = get(new MockHttpServletRequest(), Map.of("a", 2));
+
+        assertEquals(2, builds.get());
+        assertNotEquals(before, after.getHeaders().getETag());
+    }
+
+    @Test
+    void largeBody_IsGzippedForClientsThatAcceptIt() throws Exception {
+        String text = "x".repeat(500);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+
+        ResponseEntity<byte[]> response = get(request, Map.of("text", text));
+
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(response.getBody()))) {
+            assertTrue(new String(in.readAllBytes(), StandardCharsets.UTF_8).contains(text));
+        }
+        assertNull(get(new MockHttpServletRequest(), null).getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void gzipAndIdentityBodies_HaveDistinctETags() {
+        Map<String, String> body = Map.of("text", "x".repeat(500));
+        MockHttpServletRequest gzip = new MockHttpServletRequest();
+        gzip.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        String zipped = get(gzip, body).getHeaders().getETag();
+        String plain = get(new MockHttpServletRequest(), body).getHeaders().getETag();
+
+        assertNotEquals(plain, zipped);
+        assertEquals(plain.substring(0, plain.length() - 1) + "-gz\"", zipped);
+
+        // a validator only revalidates the representation it was issued for
+        MockHttpServletRequest identityWithGzipTag = new MockHttpServletRequest();
+        identityWithGzipTag.addHeader(HttpHeaders.IF_NONE_MATCH, zipped);
+        assertEquals(HttpStatus.OK, get(identityWithGzipTag, body).getStatusCode());
+        gzip.addHeader(HttpHeaders.IF_NONE_MATCH, zipped);
+        assertEquals(HttpStatus.NOT_MODIFIED, get(gzip, body).getStatusCode());
+    }
+}
@@ -0,0 +1,119 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.RuleFanout;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RuleFanoutTest {
+
+    private final RuleFanout fanout = new RuleFanout(200, 8);
+    private RuleFanout narrow;
+
+    @AfterEach
+    void tearDown() {
+        fanout.shutdown();
+        if (narrow != null) narrow.shutdown();
+    }
+
+    @Test
+    void fetchAll_KeepsSubmissionOrder() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            tasks.add(() -> {
+                Thread.sleep(10L * (5 - n));
+                return n;
+            });
+        }
+
+        RuleFanout.Outcome<Integer> outcome = fanout.fetchAll(tasks);
+
+        assertEquals(List.of(0, 1, 2, 3, 4), outcome.results());
+        assertFalse(outcome.partial());
+    }
+
+    @Test
+    void fetchAll_RunsConcurrently() throws Exception {
+        CountDownLatch allStarted = new CountDownLatch(3);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            tasks.add(() -> {
+                allStarted.countDown();
+                return allStarted.await(1, TimeUnit.SECONDS);
+            });
+        }
+
+        RuleFanout.Outcome<Boolean> outcome = fanout.fetchAll(tasks);
+
+        assertEquals(List.of(true, true, true), outcome.results());
+    }
+
+    @Test
+    void fetchAll_SlowOrFailingTaskMakesResultPartial() {
+        List<Callable<String>> tasks = List.of(
+                () -> "fast",
+                () -> {
+                    Thread.sleep(5_000);
+                    return "slow";
+                },
+                () -> {
+                    throw new IllegalStateException("boom");
+                });
+
+        long started = System.nanoTime();
+        RuleFanout.Outcome<String> outcome = fanout.fetchAll(tasks);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertEquals("fast", outcome.results().get(0));
+        assertNull(outcome.results().get(1));
+        assertNull(outcome.results().get(2));
+        assertTrue(outcome.partial());
+        assertTrue(elapsedMs < 2_000, "slow task should be cancelled at the deadline");
+    }
+
+    @Test
+    void fetchAll_NeverRunsMoreFetchesThanItHasPermits() {
+        narrow = new RuleFanout(2_000, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            tasks.add(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return 1;
+            });
+        }
+
+        RuleFanout.Outcome<Integer> outcome = narrow.fetchAll(tasks);
+
+        assertFalse(outcome.partial());
+        assertEquals(2, peak.get());
+    }
+
+    @Test
+    void queriesInsideAFetch_GetTheRemainingDeadlineAsTimeout() {
+        Query inside = mock(Query.class);
+        Query outside = mock(Query.class);
+
+        fanout.fetchAll(List.of(() -> RuleFanout.withinDeadline(inside)));
+        RuleFanout.withinDeadline(outside);
+
+        // 200ms left at most, raised to the one second JDBC can express
+        verify(inside).setHint("jakarta.persistence.query.timeout", 1_000);
+        verify(outside, never()).setHint(anyString(), any());
+    }
+}
@@ -0,0 +1,82 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.feed.RuleQueryCompiler;
+import com.syntexsquad.futurefeed.feed.RuleQueryCompiler.CompiledRule;
+import com.syntexsquad.futurefeed.model.PresetRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuleQueryCompilerTest {
+
+    private final RuleQueryCompiler compiler = new RuleQueryCompiler();
+
+    private PresetRule rule(Integer topicId, String sourceType, Integer specificUserId) {
+        PresetRule r = new PresetRule();
+        r.setTopicId(topicId);
+        r.setSourceType(sourceType);
+        r.setSpecificUserId(specificUserId);
+        r.setPercentage(50);
+        return r;
+    }
+
+    @Test
+    void compile_TopicAndUserSource() {
+        CompiledRule c = compiler.compile(rule(7, "user", null));
+
+        assertTrue(c.predicate().contains("pt0.topicId = :topic0"));
+        assertTrue(c.predicate().contains("TYPE(p) = UserPost"));
+        assertEquals(Map.of("topic0", 7), c.params());
+    }
+
+    @Test
+    void compile_BotSource() {
+        CompiledRule c = compiler.compile(rule(null, "BOT", null));
+
+        assertEquals("TYPE(p) = BotPost", c.predicate());
+        assertTrue(c.params().isEmpty());
+    }
+
+    @Test
+    void compile_SpecificUserImpliesUserPost() {
+        CompiledRule c = compiler.compile(rule(null, null, 42));
+
+        assertTrue(c.predicate().contains("TYPE(p) = UserPost"));
+        assertTrue(c.predicate().contains("p.user.id = :user0"));
+        assertEquals(Map.of("user0", 42), c.params());
+    }
+
+    @Test
+    void compile_UnconstrainedRuleMatchesEverything() {
+        assertTrue(compiler.compile(rule(null, "any", null)).matchesEverything());
+    }
+
+    @Test
+    void compileUnmatched_NegatesEveryRuleWithDistinctParams() {
+        CompiledRule c = compiler.compileUnmatched(List.of(rule(1, null, null), rule(2, "bot", null)));
+
+        assertNotNull(c);
+        assertTrue(c.predicate().startsWith("NOT ("));
+        assertTrue(c.predicate().contains(":topic0"));
+        assertTrue(c.predicate().contains(":topic1"));
+        assertEquals(Map.of("topic0", 1, "topic1", 2), c.params());
+    }
+
+    @Test
+    void compileUnmatched_NullWhenAnyRuleIsUnconstrained() {
+        assertNull(compiler.compileUnmatched(List.of(rule(1, null, null), rule(null, null, null))));
+    }
+
+    @Test
+    void compileExclusive_ExcludesEarlierRules() {
+        CompiledRule c = compiler.compileExclusive(List.of(rule(1, null, null), rule(2, "bot", null)), 1);
+
+        assertTrue(c.predicate().contains("pt1.topicId = :topic1"));
+        assertTrue(c.predicate().contains("NOT (EXISTS"));
+        assertEquals(Map.of("topic0", 1, "topic1", 2), c.params());
+        assertNull(compiler.compileExclusive(List.of(rule(null, null, null), rule(2, null, null)), 1));
+    }
+}
@@ -0,0 +1,52 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.search.SearchCursor;
+import com.syntexsquad.futurefeed.search.SearchQuery;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchQueryTest {
+
+    @Test
+    void words_AreAllRequired() {
+        assertEquals("(cat & dog)", SearchQuery.parse("Cat  dog").toTsQuery());
+    }
+
+    @Test
+    void phrasesPrefixesAndExclusions() {
+        assertEquals("((space <-> station) & rock:* & !spam)",
+                SearchQuery.parse("\"Space station\" rock* -spam").toTsQuery());
+    }
+
+    @Test
+    void or_SplitsIntoAlternatives() {
+        assertEquals("(cats) | (dogs & puppies)", SearchQuery.parse("cats OR dogs puppies").toTsQuery());
+    }
+
+    @Test
+    void operatorsTypedByTheUser_AreNotPassedThrough() {
+        SearchQuery q = SearchQuery.parse("a&b | c:* !d ')--");
+
+        assertEquals("((a <-> b) & c:* & d)", q.toTsQuery());
+    }
+
+    @Test
+    void onlyExclusionsOrSymbols_IsEmpty() {
+        assertTrue(SearchQuery.parse("-spam -ads").isEmpty());
+        assertTrue(SearchQuery.parse("  !! ** ").isEmpty());
+        assertTrue(SearchQuery.parse(null).isEmpty());
+    }
+
+    @Test
+    void cursor_RoundTrips() {
+        SearchCursor cursor = new SearchCursor(0.0607927f, 42);
+        SearchCursor pinned = new SearchCursor(2.5f, 7, List.of(120L, 4800L, 9L, 31L));
+
+        assertEquals(cursor, SearchCursor.decode(cursor.encode()));
+        assertEquals(pinned, SearchCursor.decode(pinned.encode()));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a cursor"));
+    }
+}
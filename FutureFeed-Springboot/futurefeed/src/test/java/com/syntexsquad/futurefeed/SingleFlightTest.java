@@ -0,0 +1,97 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.cache.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentMisses_ShareOneLoad() throws Exception {
+        SingleFlight flight = new SingleFlight("posts", Duration.ofSeconds(5));
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(pool.submit(() -> flight.load("all", () -> {
+                queries.incrementAndGet();
+                release.await();
+                return "rows";
+            })));
+        }
+        while (flight.leaderCount() + flight.coalescedCount() < 8) Thread.sleep(5);
+        release.countDown();
+
+        for (Future<String> r : results) assertEquals("rows", r.get(5, TimeUnit.SECONDS));
+        assertEquals(1, queries.get());
+        assertEquals(1, flight.leaderCount());
+        assertEquals(7, flight.coalescedCount());
+    }
+
+    @Test
+    void waiterPastTimeout_LoadsForItself() throws Exception {
+        SingleFlight flight = new SingleFlight("topics", Duration.ofMillis(50));
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> leader = pool.submit(() -> flight.load("all", () -> {
+            leaderStarted.countDown();
+            release.await();
+            return "slow";
+        }));
+        leaderStarted.await();
+
+        assertEquals("fast", flight.load("all", () -> "fast"));
+        assertEquals(1, flight.timeoutCount());
+
+        release.countDown();
+        assertEquals("slow", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void leaderFailure_ReachesWaitersAndIsNotRemembered() throws Exception {
+        SingleFlight flight = new SingleFlight("posts", Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Object> leader = pool.submit(() -> flight.load("k", () -> {
+            release.await();
+            throw new IllegalStateException("db down");
+        }));
+        while (flight.leaderCount() < 1) Thread.sleep(5);
+        Future<Object> waiter = pool.submit(() -> flight.load("k", () -> "unused"));
+        while (flight.coalescedCount() < 1) Thread.sleep(5);
+        release.countDown();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertEquals("ok", flight.load("k", () -> "ok"));
+    }
+
+    @Test
+    void counters_ArePublishedAsMetrics() throws Exception {
+        SingleFlight flight = new SingleFlight("posts", Duration.ofSeconds(1));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        flight.bindTo(registry);
+
+        flight.load("k", () -> 1);
+
+        assertEquals(1.0, registry.get("cache.singleflight.loads")
+                .tag("cache", "posts").tag("result", "leader").functionCounter().count());
+    }
+}
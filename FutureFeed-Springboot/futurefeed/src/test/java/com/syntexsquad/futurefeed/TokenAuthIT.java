@@ -0,0 +1,91 @@
+package com.syntexsquad.futurefeed;
+
+import com.syntexsquad.futurefeed.config.S3Config;
+import com.syntexsquad.futurefeed.model.AppUser;
+import com.syntexsquad.futurefeed.repository.AppUserRepository;
+import com.syntexsquad.futurefeed.security.TokenService;
+import com.syntexsquad.futurefeed.service.MediaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/** The real filter chain with {@code app.auth.mode=token}: bearer tokens in, no sessions out. */
+@SpringBootTest(properties = {
+        "spring.cache.type=NONE",
+        "spring.datasource.url=jdbc:h2:mem:tokenauthdb;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driverClassName=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.auth.mode=token",
+        "app.auth.token.secret=token-auth-it-secret-that-is-long-enough"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class TokenAuthIT {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private AppUserRepository userRepository;
+    @Autowired private TokenService tokenService;
+    @MockBean private S3Config s3Config;
+    @MockBean private MediaService mediaService;
+
+    private AppUser user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.findByEmail("token@example.com").orElseGet(() -> {
+            AppUser u = new AppUser();
+            u.setUsername("tokenuser");
+            u.setEmail("token@example.com");
+            u.setPassword("secret");
+            u.setRole("USER");
+            return userRepository.save(u);
+        });
+    }
+
+    @Test
+    void bearerToken_AuthenticatesMe_WithoutCreatingASession() throws Exception {
+        String accessToken = tokenService.issue(user).accessToken();
+
+        MvcResult result = mockMvc.perform(get("/api/auth/me")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(user.getId()))
+                .andExpect(jsonPath("$.username").value("tokenuser"))
+                .andExpect(header().doesNotExist(HttpHeaders.SET_COOKIE))
+                .andReturn();
+
+        assertThat(result.getRequest().getSession(false)).isNull();
+    }
+
+    @Test
+    void bearerToken_ReachesProtectedEndpoints() throws Exception {
+        String accessToken = tokenService.issue(user).accessToken();
+
+        mockMvc.perform(get("/api/posts/user/" + user.getId())
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/posts/user/" + user.getId()))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void invalidToken_LeavesTheRequestAnonymous() throws Exception {
+        mockMvc.perform(get("/api/auth/me")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer not-a-token"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(content().string("Not authenticated"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.syntexsquad.futurefeed;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.syntexsquad.futurefeed.model.AppUser;
+import com.syntexsquad.futurefeed.repository.AppUserRepository;
+import com.syntexsquad.futurefeed.security.TokenAuthenticationFilter;
+import com.syntexsquad.futurefeed.security.TokenPrincipal;
+import com.syntexsquad.futurefeed.security.TokenService;
+import com.syntexsquad.futurefeed.security.TokenService.TokenPair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Instant NOW = Instant.parse("2025-06-01T12:00:00Z");
+
+    private AppUserRepository repo;
+    private AppUser alice;
+
+    @BeforeEach
+    void setUp() {
+        repo = mock(AppUserRepository.class);
+        alice = new AppUser();
+        alice.setId(7);
+        alice.setUsername("alice");
+        alice.setRole("USER");
+        alice.setPassword("$2a$10$hash");
+        when(repo.findById(7)).thenReturn(Optional.of(alice));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private TokenService service(Instant at) {
+        return new TokenService(repo, new ObjectMapper(), SECRET, Duration.ofMinutes(15), Duration.ofDays(14),
+                Clock.fixed(at, ZoneOffset.UTC));
+    }
+
+    @Test
+    void accessToken_CarriesUserWithoutLookup() {
+        TokenPair tokens = service(NOW).issue(alice);
+
+        TokenPrincipal principal = service(NOW).verifyAccess(tokens.accessToken()).orElseThrow();
+
+        assertEquals(new TokenPrincipal(7, "alice", "USER"), principal);
+        assertEquals(900, tokens.expiresIn());
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void accessToken_RejectedWhenExpiredTamperedOrRefresh() {
+        TokenPair tokens = service(NOW).issue(alice);
+        String access = tokens.accessToken();
+        String tampered = access.substring(0, access.length() - 2) + (access.endsWith("A") ? "BB" : "AA");
+
+        assertTrue(service(NOW.plus(Duration.ofMinutes(16))).verifyAccess(access).isEmpty());
+        assertTrue(service(NOW).verifyAccess(tampered).isEmpty());
+        assertTrue(service(NOW).verifyAccess(tokens.refreshToken()).isEmpty());
+        assertTrue(service(NOW).verifyAccess("not-a-token").isEmpty());
+    }
+
+    @Test
+    void refresh_IssuesNewPairUntilPasswordChanges() {
+        TokenService tokens = service(NOW);
+        String refresh = tokens.issue(alice).refreshToken();
+
+        assertTrue(tokens.refresh(refresh).isPresent());
+        assertTrue(tokens.refresh(tokens.issue(alice).accessToken()).isEmpty());
+
+        alice.setPassword("$2a$10$changed");
+        assertTrue(tokens.refresh(refresh).isEmpty());
+    }
+
+    @Test
+    void shortSecret_IsRefused() {
+        assertThrows(IllegalStateException.class, () -> new TokenService(repo, new ObjectMapper(), "short",
+                Duration.ofMinutes(15), Duration.ofDays(14), Clock.systemUTC()));
+    }
+
+    @Test
+    void filter_AuthenticatesBearerToken() throws Exception {
+        TokenService tokens = new TokenService(repo, new ObjectMapper(), SECRET,
+                Duration.ofMinutes(15), Duration.ofDays(14), Clock.systemUTC());
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/posts");
+        request.addHeader("Authorization", "Bearer " + tokens.issue(alice).accessToken());
+
+        new TokenAuthenticationFilter(tokens).doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(auth);
+        assertEquals("alice", auth.getName());
+        assertTrue(auth.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+    }
+}